@@ -349,6 +349,12 @@ public interface ConnectorConstants extends ResourceConstants {
     //flag to enable dynamic-reconfiguration feature for connection pool
     public static final String DYNAMIC_RECONFIGURATION_FLAG = "dynamic-reconfiguration-wait-timeout-in-seconds";
 
+    //interval at which free connections of a pool are validated in the background
+    public static final String BACKGROUND_VALIDATION_INTERVAL = "background-validation-interval-in-seconds";
+
+    //with background validation, connections idle for less than this time are not validated at checkout
+    public static final String VALIDATION_IDLE_THRESHOLD = "validation-idle-threshold-in-seconds";
+
     /**
      * Admin object type.
      */
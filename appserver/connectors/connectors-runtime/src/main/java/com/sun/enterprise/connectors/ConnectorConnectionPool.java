@@ -58,6 +58,7 @@ public class ConnectorConnectionPool implements Serializable {
     private boolean lazyConnectionEnlist_ = false;
     private boolean associateWithThread_ = false;
     private boolean partitionedPool = false;
+    private int poolPartitions = 0;
     private boolean poolingOn = true;
     private boolean pingDuringPoolCreation = false;
     private String poolDataStructureType;
@@ -70,6 +71,9 @@ public class ConnectorConnectionPool implements Serializable {
 
     private long dynamicReconfigWaitTimeout = 0;
 
+    private long backgroundValidationInterval = 0;
+    private long validationIdleThreshold = 0;
+
     private ConnectorSecurityMap[] securityMaps = null;
     private boolean isAuthCredentialsDefinedInPool_ = false;
 
@@ -213,9 +217,13 @@ public class ConnectorConnectionPool implements Serializable {
         clone.setLazyConnectionAssoc(isLazyConnectionAssoc());
         clone.setAssociateWithThread(isAssociateWithThread());
         clone.setPartitionedPool(isPartitionedPool());
+        clone.setPoolPartitions(getPoolPartitions());
         clone.setDataStructureParameters(getDataStructureParameters());
         clone.setPoolDataStructureType(getPoolDataStructureType());
         clone.setPoolWaitQueue(getPoolWaitQueue());
+        clone.setResourceSelectionStrategyClass(getResourceSelectionStrategyClass());
+        clone.setBackgroundValidationInterval(getBackgroundValidationInterval());
+        clone.setValidationIdleThreshold(getValidationIdleThreshold());
         clone.setLazyConnectionEnlist(isLazyConnectionEnlist());
 
         clone.setMaxConnectionUsage(getMaxConnectionUsage());
@@ -809,6 +817,17 @@ public class ConnectorConnectionPool implements Serializable {
         this.partitionedPool = partitionedPool;
     }
 
+    /**
+     * Number of partitions of a partitioned pool, 0 for one partition per available processor.
+     */
+    public int getPoolPartitions() {
+        return poolPartitions;
+    }
+
+    public void setPoolPartitions(int poolPartitions) {
+        this.poolPartitions = poolPartitions;
+    }
+
     public String getPoolDataStructureType() {
         return poolDataStructureType;
     }
@@ -857,6 +876,34 @@ public class ConnectorConnectionPool implements Serializable {
         preferValidateOverRecreate_ = preferValidateOverRecreate;
     }
 
+    /**
+     * Interval (in milliseconds) at which free connections are validated in the
+     * background, 0 when background validation is disabled.
+     *
+     * @return long background validation interval
+     */
+    public long getBackgroundValidationInterval() {
+        return backgroundValidationInterval;
+    }
+
+    public void setBackgroundValidationInterval(long backgroundValidationInterval) {
+        this.backgroundValidationInterval = backgroundValidationInterval;
+    }
+
+    /**
+     * Idle time (in milliseconds) after which a connection is validated at checkout
+     * when background validation is enabled, 0 to use the background validation interval.
+     *
+     * @return long validation idle threshold
+     */
+    public long getValidationIdleThreshold() {
+        return validationIdleThreshold;
+    }
+
+    public void setValidationIdleThreshold(long validationIdleThreshold) {
+        this.validationIdleThreshold = validationIdleThreshold;
+    }
+
     public long getDynamicReconfigWaitTimeout() {
         return dynamicReconfigWaitTimeout;
     }
@@ -85,6 +85,10 @@ public final class ConnectionPoolReconfigHelper {
         if (newCcp.isPartitionedPool() != oldCcp.isPartitionedPool()) {
             return ReconfigAction.RECREATE_POOL;
         }
+
+        if (newCcp.getPoolPartitions() != oldCcp.getPoolPartitions()) {
+            return ReconfigAction.RECREATE_POOL;
+        }
         if (newCcp.getPoolDataStructureType() == null && oldCcp.getPoolDataStructureType() != null) {
             return ReconfigAction.RECREATE_POOL;
         }
@@ -124,6 +128,15 @@ public final class ConnectionPoolReconfigHelper {
             return ReconfigAction.RECREATE_POOL;
         }
 
+        if ((newCcp.getResourceSelectionStrategyClass() == null) != (oldCcp.getResourceSelectionStrategyClass() == null)) {
+            return ReconfigAction.RECREATE_POOL;
+        }
+
+        if ((newCcp.getResourceSelectionStrategyClass() != null) && (oldCcp.getResourceSelectionStrategyClass() != null)
+                && !(newCcp.getResourceSelectionStrategyClass().equals(oldCcp.getResourceSelectionStrategyClass()))) {
+            return ReconfigAction.RECREATE_POOL;
+        }
+
         ConnectorDescriptorInfo oldCdi = oldCcp.getConnectorDescriptorInfo();
         ConnectorDescriptorInfo newCdi = newCcp.getConnectorDescriptorInfo();
 
@@ -17,6 +17,7 @@
 package com.sun.enterprise.resource.deployer;
 
 
+import com.sun.appserv.connectors.internal.api.ConnectorConstants;
 import com.sun.appserv.connectors.internal.api.ConnectorRuntimeException;
 import com.sun.appserv.connectors.internal.api.ConnectorsUtil;
 import com.sun.enterprise.connectors.ConnectorConnectionPool;
@@ -497,12 +498,46 @@ public class ConnectorConnectionPoolDeployer extends AbstractConnectorResourceDe
                     if(_logger.isLoggable(Level.FINE)) {
                         _logger.fine("ASSOCIATEWITHTHREAD");
                     }
+                } else if ("PARTITIONEDPOOL".equals(ep.getName().toUpperCase(locale))) {
+                    ccp.setPartitionedPool(toBoolean(ep.getValue(), false));
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.fine("PARTITIONEDPOOL");
+                    }
+                } else if ("POOLPARTITIONS".equals(ep.getName().toUpperCase(locale))) {
+                    try {
+                        ccp.setPoolPartitions(Integer.parseInt(ep.getValue()));
+                        if(_logger.isLoggable(Level.FINE)) {
+                            _logger.fine("POOLPARTITIONS");
+                        }
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for 'POOLPARTITIONS' : " + ep.getValue());
+                    }
                 } else if ("POOLDATASTRUCTURE".equals(ep.getName().toUpperCase(locale))) {
                     ccp.setPoolDataStructureType(ep.getValue());
                     if(_logger.isLoggable(Level.FINE)) {
                         _logger.fine("POOLDATASTRUCTURE");
                     }
 
+                } else if (ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL.equals(ep.getName().toLowerCase(locale))) {
+                    try {
+                        ccp.setBackgroundValidationInterval(Long.parseLong(ep.getValue()) * 1000L);
+                        if(_logger.isLoggable(Level.FINE)) {
+                            _logger.fine(ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL);
+                        }
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for "
+                                + "'" + ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL + "' : " + ep.getValue());
+                    }
+                } else if (ConnectorConstants.VALIDATION_IDLE_THRESHOLD.equals(ep.getName().toLowerCase(locale))) {
+                    try {
+                        ccp.setValidationIdleThreshold(Long.parseLong(ep.getValue()) * 1000L);
+                        if(_logger.isLoggable(Level.FINE)) {
+                            _logger.fine(ConnectorConstants.VALIDATION_IDLE_THRESHOLD);
+                        }
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for "
+                                + "'" + ConnectorConstants.VALIDATION_IDLE_THRESHOLD + "' : " + ep.getValue());
+                    }
                 } else if ("POOLWAITQUEUE".equals(ep.getName().toUpperCase(locale))) {
                     ccp.setPoolWaitQueue(ep.getValue());
                     if(_logger.isLoggable(Level.FINE)) {
@@ -514,6 +549,11 @@ public class ConnectorConnectionPoolDeployer extends AbstractConnectorResourceDe
                     if(_logger.isLoggable(Level.FINE)) {
                         _logger.fine("DATASTRUCTUREPARAMETERS");
                     }
+                } else if ("RESOURCESELECTIONSTRATEGY".equals(ep.getName().toUpperCase(locale))) {
+                    ccp.setResourceSelectionStrategyClass(ep.getValue());
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.fine("RESOURCESELECTIONSTRATEGY");
+                    }
                 } else if ("PREFER-VALIDATE-OVER-RECREATE".equals(ep.getName().toUpperCase(locale))) {
                     String value = ep.getValue();
                     if (_logger.isLoggable(Level.FINE)) {
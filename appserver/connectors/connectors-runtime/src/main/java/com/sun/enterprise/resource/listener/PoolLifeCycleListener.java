@@ -86,6 +86,13 @@ public interface PoolLifeCycleListener {
      */
     void connectionValidationFailed(int count);
 
+    /**
+     * indicates that a connection has been validated
+     * @param timeTakenInMillis time taken to validate the connection
+     * @param background whether the connection was validated by the background validator
+     */
+    void connectionValidated(long timeTakenInMillis, boolean background);
+
     /**
      * indicates the number of connections freed to pool
      * @param count number of connections
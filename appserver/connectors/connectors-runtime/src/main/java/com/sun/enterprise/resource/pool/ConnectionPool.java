@@ -28,7 +28,9 @@ import com.sun.enterprise.resource.allocator.ResourceAllocator;
 import com.sun.enterprise.resource.listener.PoolLifeCycleListener;
 import com.sun.enterprise.resource.pool.datastructure.DataStructure;
 import com.sun.enterprise.resource.pool.datastructure.DataStructureFactory;
+import com.sun.enterprise.resource.pool.resizer.BackgroundValidator;
 import com.sun.enterprise.resource.pool.resizer.Resizer;
+import com.sun.enterprise.resource.pool.waitqueue.FairHandOffPoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueueFactory;
 import com.sun.enterprise.transaction.api.JavaEETransaction;
@@ -72,6 +74,8 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected boolean preferValidateOverRecreate = false;
     // hold on to the resizer task so we can cancel/reschedule it.
     protected Resizer resizerTask;
+    // hold on to the background validator task so we can cancel/reschedule it.
+    protected BackgroundValidator validatorTask;
 
 
     protected volatile boolean poolInitialized = false;
@@ -83,6 +87,10 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected long conCreationRetryInterval_;
     protected long validateAtmostPeriodInMilliSeconds_;
     protected int maxConnectionUsage_;
+    //interval at which free connections are validated in the background (0 = disabled)
+    protected long backgroundValidationInterval_;
+    //with background validation, only connections idle longer than this are validated at checkout
+    protected long validationIdleThreshold_;
     //To validate a Sun RA Pool Connection if it hasnot been validated
     //  in the past x sec. (x=idle-timeout)
     //The property will be set from system property -
@@ -107,6 +115,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected PoolWaitQueue reconfigWaitQueue;
     private long reconfigWaitTime ;
     protected String poolWaitQueueClass;
+    protected int poolPartitions;
 
     protected final PoolInfo poolInfo; //poolName
 
@@ -173,6 +182,7 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         dataStructureType = poolResource.getPoolDataStructureType();
         dataStructureParameters = poolResource.getDataStructureParameters();
         poolWaitQueueClass = poolResource.getPoolWaitQueue();
+        poolPartitions = poolResource.getPoolPartitions();
         resourceSelectionStrategyClass = poolResource.getResourceSelectionStrategyClass();
         resourceGatewayClass = poolResource.getResourceGatewayClass();
         reconfigWaitTime = poolResource.getDynamicReconfigWaitTimeout();
@@ -210,6 +220,10 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
             scheduleResizerTask();
         }
 
+        if (isBackgroundValidationEnabled()) {
+            scheduleValidatorTask();
+        }
+
         //Need to set the numConnFree of monitoring statistics to the steadyPoolSize
         //as monitoring might be ON during the initialization of pool.
         //Need not worry about the numConnUsed here as it would be initialized to
@@ -248,6 +262,44 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         return new Resizer(poolInfo, ds, this, this, preferValidateOverRecreate);
     }
 
+    /**
+     * Schedules the background validator task. If a task is currently scheduled,
+     * it would be canceled and a new one is scheduled when background validation
+     * is enabled.
+     */
+    private void scheduleValidatorTask() {
+        if (validatorTask != null) {
+            //cancel the current task
+            validatorTask.cancel();
+            validatorTask = null;
+        }
+
+        if (!isBackgroundValidationEnabled()) {
+            return;
+        }
+
+        validatorTask = new BackgroundValidator(poolInfo, ds, this, this, backgroundValidationInterval_);
+
+        if (timer == null) {
+            timer = ConnectorRuntime.getRuntime().getTimer();
+        }
+
+        timer.scheduleAtFixedRate(validatorTask, backgroundValidationInterval_, backgroundValidationInterval_);
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.finest("scheduled background validator task");
+        }
+    }
+
+    /**
+     * Background validation is in effect when connection validation is required and
+     * a background validation interval is configured.
+     *
+     * @return boolean indicating whether free connections are validated in the background
+     */
+    protected boolean isBackgroundValidationEnabled() {
+        return validation && backgroundValidationInterval_ > 0;
+    }
+
     /**
      * add a resource with status busy and not enlisted
      *
@@ -343,7 +395,8 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         long remainingWaitTime = 0;
 
         while (true) {
-            if (gateway.allowed()) {
+            //result is already available when it was handed over by the fair wait-queue
+            if (result == null && gateway.allowed()) {
                 //See comment #1 above
                 JavaEETransaction jtx = ((JavaEETransaction) txn);
                 Set resourcesSet = null;
@@ -396,7 +449,18 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     }
                 }
 
-                if (!blocked) {
+                if (!blocked && waitQueue instanceof FairHandOffPoolWaitQueue) {
+                    //add to fair wait-queue
+                    if (poolLifeCycleListener != null) {
+                        poolLifeCycleListener.connectionRequestQueued();
+                    }
+                    try {
+                        result = waitForHandOff((FairHandOffPoolWaitQueue) waitQueue, remainingWaitTime, alloc);
+                    } catch (InterruptedException ex) {
+                        //Could be system shutdown.
+                        break;
+                    }
+                } else if (!blocked) {
                     //add to wait-queue
                     Object waitMonitor = new Object();
                     if (poolLifeCycleListener != null) {
@@ -468,6 +532,68 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         return result;
     }
 
+    /**
+     * Wait in the fair wait-queue till a resource is handed over or the request is signalled
+     * to retry. A handed over resource is used only when it matches the request and is valid.
+     *
+     * @param queue    fair wait-queue of the pool
+     * @param waitTime maximum time to wait in milliseconds, 0 to wait indefinitely
+     * @param alloc    ResourceAllocator of the request
+     * @return ResourceHandle resource handed over, null if the request has to retry
+     * @throws InterruptedException when the thread is interrupted while waiting
+     */
+    private ResourceHandle waitForHandOff(FairHandOffPoolWaitQueue queue, long waitTime,
+                                          ResourceAllocator alloc) throws InterruptedException {
+        FairHandOffPoolWaitQueue.Waiter waiter = queue.enqueue(waitTime);
+        boolean served;
+        try {
+            logFine("Resource Pool: getting on fair wait queue");
+            served = queue.await(waiter);
+        } catch (InterruptedException ex) {
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            throw ex;
+        }
+        if (!served) {
+            //wait-time expired, the request was withdrawn from the queue.
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            return null;
+        }
+        ResourceHandle h = waiter.getResource();
+        if (h == null) {
+            return null;
+        }
+        if (h.hasConnectionErrorOccurred()) {
+            ds.removeResource(h);
+            //a slot is available now, let the next request retry.
+            notifyWaitingThreads();
+            return null;
+        }
+        if (!matchConnection(h, alloc) || h.isShareable() != alloc.shareableWithinComponent()) {
+            ds.returnResource(h);
+            notifyWaitingThreads();
+            return null;
+        }
+        if (!isConnectionValid(h, alloc)) {
+            ds.removeResource(h);
+            notifyWaitingThreads();
+            return null;
+        }
+        setResourceStateToBusy(h);
+        if (maxConnectionUsage_ > 0) {
+            h.incrementUsageCount();
+        }
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionUsed(h.getId());
+            //Decrement numConnFree
+            poolLifeCycleListener.decrementNumConnFree();
+        }
+        return h;
+    }
+
     /**
      * Overridden in AssocWithThreadResourcePool to fetch the resource
      * cached in the ThreadLocal
@@ -631,14 +757,21 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                 validationPeriod = idletime;
             boolean validationRequired = true;
             long currentTime = h.getLastValidated();
-            if (validationPeriod > 0) {
+            if (isBackgroundValidationEnabled()) {
+                //free connections are validated by the background validator, validate
+                //only when the connection was neither validated nor used recently.
+                currentTime = System.currentTimeMillis();
+                long lastKnownValid = Math.max(h.getLastValidated(), h.getResourceState().getTimestamp());
+                if (currentTime - lastKnownValid < validationIdleThreshold_)
+                    validationRequired = false;
+            } else if (validationPeriod > 0) {
                 currentTime = System.currentTimeMillis();
                 long timeSinceValidation = currentTime - h.getLastValidated();
                 if (timeSinceValidation < validationPeriod)
                     validationRequired = false;
             }
             if (validationRequired) {
-                if (!alloc.isConnectionValid(h)) {
+                if (!isConnectionValid(h, alloc, false)) {
                     connectionValid = false;
                     incrementNumConnFailedValidation();
                 } else {
@@ -649,6 +782,36 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         return connectionValid;
     }
 
+    /**
+     * Validate the connection using the allocator and emit the validation statistics.
+     *
+     * @param h          Resource to be validated
+     * @param alloc      Allocator to validate the resource
+     * @param background whether the validation is done by the background validator
+     * @return boolean representing validation result
+     */
+    private boolean isConnectionValid(ResourceHandle h, ResourceAllocator alloc, boolean background) {
+        long startTime = System.currentTimeMillis();
+        boolean valid = alloc.isConnectionValid(h);
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionValidated(System.currentTimeMillis() - startTime, background);
+        }
+        return valid;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean validateResource(ResourceHandle h) {
+        boolean valid = isConnectionValid(h, h.getResourceAllocator(), true);
+        if (valid) {
+            h.setLastValidated(System.currentTimeMillis());
+        } else {
+            incrementNumConnFailedValidation();
+        }
+        return valid;
+    }
+
     /**
      * check whether the connection retrieved from the pool matches with the request.
      *
@@ -1035,13 +1198,17 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     resourceHandle.getUsageCount() >= maxConnectionUsage_) {
                  performMaxConnectionUsageOperation(resourceHandle);
             } else {
-                // Put it back to the free collection.
-                ds.returnResource(resourceHandle);
                 //update the monitoring data
                 if (poolLifeCycleListener != null && !resourceHandle.getDestroyByLeakTimeOut()) {
                     poolLifeCycleListener.decrementConnectionUsed(resourceHandle.getId());
                     poolLifeCycleListener.incrementNumConnFree(false, steadyPoolSize);
                 }
+                if (handOffResource(resourceHandle)) {
+                    //the oldest waiting request got the resource, nothing more to notify.
+                    return;
+                }
+                // Put it back to the free collection.
+                ds.returnResource(resourceHandle);
             }
             //for both the cases of free.add and maxConUsageOperation, a free resource is added.
             // Hence notify waiting threads
@@ -1191,7 +1358,35 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     }
 
 
+    /**
+     * Hand over the freed resource to the oldest waiting request when the pool uses
+     * the fair wait-queue.
+     *
+     * @param h resource that is freed
+     * @return boolean indicating whether the resource was handed over
+     */
+    private boolean handOffResource(ResourceHandle h) {
+        if (waitQueue instanceof FairHandOffPoolWaitQueue && ((FairHandOffPoolWaitQueue) waitQueue).handOff(h)) {
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            return true;
+        }
+        return false;
+    }
+
     protected void notifyWaitingThreads() {
+        if (waitQueue instanceof FairHandOffPoolWaitQueue) {
+            // wake up the oldest request that is still waiting
+            if (((FairHandOffPoolWaitQueue) waitQueue).signal()) {
+                if (poolLifeCycleListener != null) {
+                    poolLifeCycleListener.connectionRequestDequeued();
+                }
+            } else {
+                logFine(" Wait monitor is null");
+            }
+            return;
+        }
         // notify the first thread in the waitqueue
         Object waitMonitor = null;
         synchronized (waitQueue) {
@@ -1359,6 +1554,9 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         validation = poolResource.isIsConnectionValidationRequired();
         failAllConnections = poolResource.isFailAllConnections();
         setAdvancedPoolConfiguration(poolResource);
+        if (poolInitialized) {
+            scheduleValidatorTask();
+        }
 
         //Self managed quantities. These are ignored if self management
         //is on
@@ -1437,6 +1635,9 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
         validateAtmostPeriodInMilliSeconds_ =
                 Integer.parseInt(poolResource.getValidateAtmostOncePeriod()) * 1000L;
+        backgroundValidationInterval_ = poolResource.getBackgroundValidationInterval();
+        validationIdleThreshold_ = poolResource.getValidationIdleThreshold() > 0 ?
+                poolResource.getValidationIdleThreshold() : backgroundValidationInterval_;
         boolean connectionLeakReclaim_ = poolResource.isConnectionReclaim();
         long connectionLeakTimeoutInMilliSeconds_ = Integer.parseInt(
                 poolResource.getConnectionLeakTracingTimeout()) * 1000L;
@@ -1517,6 +1718,20 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     }
 
 
+    public synchronized void cancelValidatorTask() {
+
+        logFine("Cancelling background validator");
+        if (validatorTask != null) {
+            validatorTask.cancel();
+        }
+        validatorTask = null;
+
+        if (timer != null) {
+            timer.purge();
+        }
+    }
+
+
     /**
      * This method can be used for debugging purposes
      */
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.pool.datastructure.PartitionedDataStructure;
+import com.sun.enterprise.resource.pool.waitqueue.PartitionedPoolWaitQueue;
+import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueueFactory;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.Hashtable;
+import java.util.logging.Level;
+
+/**
+ * Connection pool that is partitioned into a number of sub-pools, by default one
+ * per available processor. Every partition has a datastructure and a wait queue
+ * of its own so that threads of different partitions do not contend with each
+ * other. A thread takes a resource from another partition only when its own
+ * partition has no free resource. Steady and max pool sizes apply to the pool
+ * as a whole.
+ */
+public class PartitionedConnectionPool extends ConnectionPool {
+
+    public PartitionedConnectionPool(PoolInfo poolInfo, Hashtable env) throws PoolingException {
+        super(poolInfo, env);
+    }
+
+    /**
+     * @return number of partitions, the number of available processors when not configured.
+     * There are never more partitions than the max pool size.
+     */
+    private int getNumberOfPartitions() {
+        int partitions = poolPartitions > 0 ? poolPartitions : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(partitions, maxPoolSize));
+    }
+
+    @Override
+    protected void initializePoolDataStructure() throws PoolingException {
+        int partitions = getNumberOfPartitions();
+        ds = new PartitionedDataStructure(dataStructureType, dataStructureParameters,
+                maxPoolSize, this, resourceSelectionStrategyClass, partitions);
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "Connection Pool : " + poolInfo + " partitioned into " + partitions);
+        }
+    }
+
+    @Override
+    protected void initializePoolWaitQueue() throws PoolingException {
+        waitQueue = new PartitionedPoolWaitQueue(poolWaitQueueClass, getNumberOfPartitions());
+        reconfigWaitQueue = PoolWaitQueueFactory.createPoolWaitQueue(poolWaitQueueClass);
+    }
+
+    /**
+     * Notify the first thread waiting in the partition of the current thread, or in
+     * another partition when there is none. The partitioned wait queue synchronizes
+     * on the queue of each partition, hence no lock on the whole wait queue is held.
+     */
+    @Override
+    protected void notifyWaitingThreads() {
+        Object waitMonitor = waitQueue.remove();
+        if (waitMonitor != null) {
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+            synchronized (waitMonitor) {
+                if (_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, "Notifying wait monitor : " + waitMonitor.toString());
+                }
+                waitMonitor.notifyAll();
+            }
+        }
+    }
+}
@@ -152,6 +152,12 @@ public class PoolLifeCycleListenerRegistry implements PoolLifeCycleListener {
         }
     }
 
+    public void connectionValidated(long timeTakenInMillis, boolean background) {
+        for (PoolLifeCycleListener listener : poolListenersList) {
+            listener.connectionValidated(timeTakenInMillis, background);
+        }
+    }
+
     public void connectionsFreed(int count) {
         for (PoolLifeCycleListener listener : poolListenersList) {
             listener.connectionsFreed(count);
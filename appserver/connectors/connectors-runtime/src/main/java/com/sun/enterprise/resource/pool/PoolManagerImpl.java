@@ -439,6 +439,7 @@ public class PoolManagerImpl extends AbstractPoolManager implements ComponentInv
         ResourcePool pool = poolTable.get(poolInfo);
         if (pool != null) {
             pool.cancelResizerTask();
+            pool.cancelValidatorTask();
             pool.emptyPool();
             if (_logger.isLoggable(Level.FINE)) {
                 _logger.fine("Removing pool " + pool + " from pooltable");
@@ -63,4 +63,11 @@ public interface ResourceHandler {
      * @param h connection that is invalid
      */
     void invalidConnectionDetected(ResourceHandle h);
+
+    /**
+     * validates the given free resource using its resource-allocator
+     * @param h resource to be validated
+     * @return boolean representing validation result
+     */
+    boolean validateResource(ResourceHandle h);
 }
@@ -67,6 +67,9 @@ public interface ResourcePool {
     //cancel the resizer task in the pool
     public void cancelResizerTask();
 
+    //cancel the background validator task in the pool
+    public void cancelValidatorTask();
+
     public void switchOnMatching();
 
     public PoolInfo getPoolInfo();
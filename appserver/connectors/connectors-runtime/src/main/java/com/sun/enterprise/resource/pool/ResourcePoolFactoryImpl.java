@@ -57,6 +57,8 @@ public class ResourcePoolFactoryImpl {
         }
         if ( pt == PoolType.ASSOCIATE_WITH_THREAD_POOL ) {
             pool = new AssocWithThreadResourcePool( poolInfo, env );
+        } else if ( pt == PoolType.PARTITIONED_POOL ) {
+            pool = new PartitionedConnectionPool( poolInfo, env );
         } else {
             pool = new ConnectionPool( poolInfo, env );
         }
@@ -21,6 +21,7 @@ import com.sun.enterprise.resource.allocator.ResourceAllocator;
 import com.sun.appserv.connectors.internal.api.PoolingException;
 import com.sun.enterprise.resource.pool.ResourceHandler;
 import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategy;
+import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategyFactory;
 
 import java.util.ArrayList;
 import java.util.concurrent.Semaphore;
@@ -83,7 +84,7 @@ public class ListDataStructure implements DataStructure {
     }
     
     private void initializeStrategy(String strategyClass) {
-        //TODO
+        strategy = ResourceSelectionStrategyFactory.createStrategy(strategyClass);
     }
 
     /**
@@ -125,13 +126,14 @@ public class ListDataStructure implements DataStructure {
      */
     public ResourceHandle getResource() {
         ResourceHandle resource = null;
-        if (strategy != null) {
-            resource = strategy.retrieveResource();
-        } else {
-            synchronized (free) {
-                if (free.size() > 0){
-                    resource = free.remove(0);
+        synchronized (free) {
+            if (strategy != null) {
+                resource = strategy.retrieveResource(free);
+                if (resource != null) {
+                    free.remove(resource);
                 }
+            } else if (free.size() > 0){
+                resource = free.remove(0);
             }
         }
         return resource;
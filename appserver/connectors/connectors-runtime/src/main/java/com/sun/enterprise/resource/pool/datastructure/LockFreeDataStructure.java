@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategy;
+import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategyFactory;
+import com.sun.logging.LogDomains;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lock-free datastructure for pool.<br>
+ * Free resources are kept in a non-blocking stack so that taking and returning
+ * a resource are constant time operations that never block each other. The size
+ * of the datastructure is tracked by an atomic counter, a slot is reserved
+ * before a resource is created so that <i>maxSize</i> is never exceeded.
+ */
+public class LockFreeDataStructure implements DataStructure {
+
+    private final ResourceHandler handler;
+    private ResourceSelectionStrategy strategy;
+    private volatile int maxSize;
+
+    //all resources, modified only when resources are created or destroyed.
+    private final CopyOnWriteArrayList<ResourceHandle> resources = new CopyOnWriteArrayList<ResourceHandle>();
+    //free resources, most recently returned resource is at the head.
+    private final ConcurrentLinkedDeque<ResourceHandle> free = new ConcurrentLinkedDeque<ResourceHandle>();
+
+    //number of resources created or being created, never more than maxSize.
+    private final AtomicInteger size = new AtomicInteger();
+    //ConcurrentLinkedDeque.size() is not a constant time operation.
+    private final AtomicInteger freeSize = new AtomicInteger();
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(LockFreeDataStructure.class, LogDomains.RSR_LOGGER);
+
+    public LockFreeDataStructure(String parameters, int maxSize,
+                                 ResourceHandler handler, String strategyClass) {
+        this.maxSize = maxSize;
+        this.handler = handler;
+        initializeStrategy(strategyClass);
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.log(Level.FINEST, "pool.datastructure.lockfreeds.init");
+        }
+    }
+
+    private void initializeStrategy(String strategyClass) {
+        strategy = ResourceSelectionStrategyFactory.createStrategy(strategyClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int addResource(ResourceAllocator allocator, int count) throws PoolingException {
+        int numResAdded = 0;
+        for (int i = 0; i < count && reserveSlot(size, maxSize); i++) {
+            try {
+                ResourceHandle handle = handler.createResource(allocator);
+                resources.add(handle);
+                free.offerFirst(handle);
+                freeSize.incrementAndGet();
+                numResAdded++;
+            } catch (Exception e) {
+                size.decrementAndGet();
+                PoolingException pe = new PoolingException(e.getMessage());
+                pe.initCause(e);
+                throw pe;
+            }
+        }
+        return numResAdded;
+    }
+
+    /**
+     * Reserve a slot for a resource that is about to be created.
+     *
+     * @param size number of resources created or being created
+     * @param maxSize maximum number of resources
+     * @return boolean indicating whether the datastructure has room for one more resource
+     */
+    static boolean reserveSlot(AtomicInteger size, int maxSize) {
+        while (true) {
+            int current = size.get();
+            if (current >= maxSize) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ResourceHandle getResource() {
+        ResourceHandle resource;
+        if (strategy != null) {
+            //only one of the threads that selected the same resource can remove it.
+            while ((resource = strategy.retrieveResource(free)) != null && !free.remove(resource)) {
+                //selected resource was taken by another thread, select again.
+            }
+        } else {
+            resource = free.pollFirst();
+        }
+        if (resource != null) {
+            freeSize.decrementAndGet();
+        }
+        return resource;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeResource(ResourceHandle resource) {
+        if (resources.remove(resource)) {
+            if (free.remove(resource)) {
+                freeSize.decrementAndGet();
+            }
+            size.decrementAndGet();
+            handler.deleteResource(resource);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void returnResource(ResourceHandle resource) {
+        free.offerFirst(resource);
+        freeSize.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getFreeListSize() {
+        return freeSize.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeAll() {
+        for (ResourceHandle handle : resources) {
+            removeResource(handle);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getResourcesSize() {
+        return resources.size();
+    }
+
+    /**
+     * Set maxSize based on the new max pool size set on the connection pool
+     * during a reconfiguration.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<ResourceHandle> getAllResources() {
+        return new ArrayList<ResourceHandle>(resources);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.logging.LogDomains;
+
+import jakarta.resource.ResourceException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Partitioned datastructure for pool.<br>
+ * Resources are spread over a number of partitions, each of which is a datastructure
+ * of its own. A thread always uses the same partition and takes a resource from
+ * another partition only when its own partition has no free resource. New
+ * resources are added to the partition that holds the fewest resources, so that
+ * the partitions stay balanced. The <i>maxSize</i> is enforced across all partitions.
+ */
+public class PartitionedDataStructure implements DataStructure {
+
+    private final Partition[] partitions;
+    private final ResourceHandler handler;
+    private volatile int maxSize;
+
+    //number of resources created or being created in all partitions, never more than maxSize.
+    private final AtomicInteger size = new AtomicInteger();
+    //partition to which a resource belongs
+    private final ConcurrentHashMap<ResourceHandle, Partition> owners =
+            new ConcurrentHashMap<ResourceHandle, Partition>();
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(PartitionedDataStructure.class, LogDomains.RSR_LOGGER);
+
+    public PartitionedDataStructure(String partitionType, String parameters, int maxSize,
+                                    ResourceHandler handler, String strategyClass,
+                                    int numberOfPartitions) throws PoolingException {
+        this.maxSize = maxSize;
+        this.handler = handler;
+        partitions = new Partition[numberOfPartitions];
+        for (int i = 0; i < numberOfPartitions; i++) {
+            partitions[i] = new Partition();
+            //every partition can hold up to maxSize, the limit is enforced across partitions.
+            partitions[i].ds = DataStructureFactory.getDataStructure(partitionType, parameters, maxSize,
+                    partitions[i], strategyClass);
+        }
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.log(Level.FINEST, "pool.datastructure.partitionedds.init", numberOfPartitions);
+        }
+    }
+
+    /**
+     * @return index of the partition used by the current thread
+     */
+    private int getHomePartition() {
+        return (int) (Thread.currentThread().getId() % partitions.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int addResource(ResourceAllocator allocator, int count) throws PoolingException {
+        int numResAdded = 0;
+        for (int i = 0; i < count && LockFreeDataStructure.reserveSlot(size, maxSize); i++) {
+            int added = 0;
+            try {
+                added = getLeastFilledPartition().addResource(allocator, 1);
+            } finally {
+                if (added == 0) {
+                    size.decrementAndGet();
+                }
+            }
+            numResAdded += added;
+        }
+        return numResAdded;
+    }
+
+    /**
+     * @return datastructure of the partition holding the fewest resources, the
+     * partition of the current thread when partitions are equally filled
+     */
+    private DataStructure getLeastFilledPartition() {
+        int home = getHomePartition();
+        DataStructure leastFilled = partitions[home].ds;
+        int leastSize = leastFilled.getResourcesSize();
+        for (int i = 1; i < partitions.length && leastSize > 0; i++) {
+            DataStructure ds = partitions[(home + i) % partitions.length].ds;
+            int resourcesSize = ds.getResourcesSize();
+            if (resourcesSize < leastSize) {
+                leastFilled = ds;
+                leastSize = resourcesSize;
+            }
+        }
+        return leastFilled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ResourceHandle getResource() {
+        int home = getHomePartition();
+        for (int i = 0; i < partitions.length; i++) {
+            ResourceHandle resource = partitions[(home + i) % partitions.length].ds.getResource();
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeResource(ResourceHandle resource) {
+        Partition partition = owners.get(resource);
+        if (partition != null) {
+            partition.ds.removeResource(resource);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void returnResource(ResourceHandle resource) {
+        Partition partition = owners.get(resource);
+        if (partition != null) {
+            partition.ds.returnResource(resource);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getFreeListSize() {
+        int freeListSize = 0;
+        for (Partition partition : partitions) {
+            freeListSize += partition.ds.getFreeListSize();
+        }
+        return freeListSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeAll() {
+        for (Partition partition : partitions) {
+            partition.ds.removeAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getResourcesSize() {
+        int resourcesSize = 0;
+        for (Partition partition : partitions) {
+            resourcesSize += partition.ds.getResourcesSize();
+        }
+        return resourcesSize;
+    }
+
+    /**
+     * Set maxSize based on the new max pool size set on the connection pool
+     * during a reconfiguration.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        for (Partition partition : partitions) {
+            partition.ds.setMaxSize(maxSize);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<ResourceHandle> getAllResources() {
+        ArrayList<ResourceHandle> allResources = new ArrayList<ResourceHandle>();
+        for (Partition partition : partitions) {
+            allResources.addAll(partition.ds.getAllResources());
+        }
+        return allResources;
+    }
+
+    /**
+     * A partition of the datastructure. Keeps track of the resources created and
+     * destroyed by its datastructure before delegating to the pool's handler.
+     */
+    private class Partition implements ResourceHandler {
+        private DataStructure ds;
+
+        public ResourceHandle createResource(ResourceAllocator allocator) throws PoolingException {
+            ResourceHandle handle = handler.createResource(allocator);
+            owners.put(handle, this);
+            return handle;
+        }
+
+        public void deleteResource(ResourceHandle resourceHandle) {
+            if (owners.remove(resourceHandle) != null) {
+                size.decrementAndGet();
+            }
+            handler.deleteResource(resourceHandle);
+        }
+
+        public void createResourceAndAddToPool() throws PoolingException {
+            handler.createResourceAndAddToPool();
+        }
+
+        public Set getInvalidConnections(Set connections) throws ResourceException {
+            return handler.getInvalidConnections(connections);
+        }
+
+        public void invalidConnectionDetected(ResourceHandle h) {
+            handler.invalidConnectionDetected(h);
+        }
+
+        public boolean validateResource(ResourceHandle h) {
+            return handler.validateResource(h);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.sun.enterprise.resource.allocator.ResourceAllocator;
 import com.sun.enterprise.resource.ResourceHandle;
 import com.sun.enterprise.resource.pool.ResourceHandler;
 import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategy;
+import com.sun.enterprise.resource.pool.datastructure.strategy.ResourceSelectionStrategyFactory;
 import com.sun.appserv.connectors.internal.api.PoolingException;
 import com.sun.logging.LogDomains;
 
@@ -59,7 +60,7 @@ public class RWLockDataStructure implements DataStructure {
     }
 
     private void initializeStrategy(String strategyClass) {
-        //TODO
+        strategy = ResourceSelectionStrategyFactory.createStrategy(strategyClass);
     }
 
     /**
@@ -89,6 +90,9 @@ public class RWLockDataStructure implements DataStructure {
      * {@inheritDoc}
      */
     public ResourceHandle getResource() {
+        if (strategy != null) {
+            return getResourceUsingStrategy();
+        }
         readLock.lock();
         try {
             for (int i = 0; i < resources.size(); i++) {
@@ -121,6 +125,37 @@ public class RWLockDataStructure implements DataStructure {
         return null;
     }
 
+    /**
+     * Select a free resource using the configured strategy under the read lock
+     * and mark it busy under the write lock. Selection is retried if another
+     * thread acquired the selected resource in between.
+     *
+     * @return ResourceHandle free resource, null if none is available
+     */
+    private ResourceHandle getResourceUsingStrategy() {
+        while (true) {
+            ResourceHandle h;
+            readLock.lock();
+            try {
+                h = strategy.retrieveResource(resources);
+            } finally {
+                readLock.unlock();
+            }
+            if (h == null) {
+                return null;
+            }
+            writeLock.lock();
+            try {
+                if (!h.isBusy()) {
+                    h.setBusy(true);
+                    return h;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
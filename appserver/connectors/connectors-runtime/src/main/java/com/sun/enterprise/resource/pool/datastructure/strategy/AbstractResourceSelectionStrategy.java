@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.datastructure.strategy;
+
+import com.sun.enterprise.resource.ResourceHandle;
+
+import java.util.Collection;
+
+/**
+ * Base class for strategies that pick the eligible resource preferred by
+ * {@link #isPreferred(ResourceHandle, ResourceHandle)} in a single pass.
+ */
+public abstract class AbstractResourceSelectionStrategy implements ResourceSelectionStrategy {
+
+    /**
+     * {@inheritDoc}
+     */
+    public ResourceHandle retrieveResource(Collection<ResourceHandle> resources) {
+        ResourceHandle selected = null;
+        for (ResourceHandle candidate : resources) {
+            if (candidate.isBusy()) {
+                continue;
+            }
+            if (selected == null || isPreferred(candidate, selected)) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @param candidate resource being considered
+     * @param selected  resource selected so far
+     * @return boolean indicating whether candidate is to be selected instead of the current selection
+     */
+    protected abstract boolean isPreferred(ResourceHandle candidate, ResourceHandle selected);
+}
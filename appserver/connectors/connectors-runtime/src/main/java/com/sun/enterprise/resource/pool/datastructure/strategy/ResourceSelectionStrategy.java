@@ -18,6 +18,8 @@ package com.sun.enterprise.resource.pool.datastructure.strategy;
 
 import com.sun.enterprise.resource.ResourceHandle;
 
+import java.util.Collection;
+
 /**
  * Datastructure can call this to select a resource
  *
@@ -25,7 +27,13 @@ import com.sun.enterprise.resource.ResourceHandle;
  */
 public interface ResourceSelectionStrategy {
     /**
-     * To retrieve resource from datastructure.
+     * To retrieve resource from datastructure.<br>
+     * The strategy only selects the resource, it is the responsibility of the
+     * datastructure to remove it from its free resources.
+     *
+     * @param resources resources held by the datastructure. Resources marked busy
+     *                  (<code>ResourceHandle.isBusy()</code>) are not eligible.
+     * @return ResourceHandle selected resource, null if none is eligible
      */
-    public ResourceHandle retrieveResource();
+    public ResourceHandle retrieveResource(Collection<ResourceHandle> resources);
 }
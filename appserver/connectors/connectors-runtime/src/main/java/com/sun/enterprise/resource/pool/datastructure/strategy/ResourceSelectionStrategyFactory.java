@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.datastructure.strategy;
+
+import com.sun.logging.LogDomains;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory to create the resource selection strategy used by a pool datastructure
+ */
+public class ResourceSelectionStrategyFactory {
+
+    private final static Logger _logger =
+            LogDomains.getLogger(ResourceSelectionStrategyFactory.class, LogDomains.RSR_LOGGER);
+
+    /**
+     * Create the strategy of the given class.
+     *
+     * @param className strategy class name
+     * @return ResourceSelectionStrategy strategy, null when no strategy is configured or
+     *         when it cannot be initialized, in which case the datastructure's own
+     *         selection is used.
+     */
+    public static ResourceSelectionStrategy createStrategy(String className) {
+        ResourceSelectionStrategy strategy = null;
+
+        if (className != null) {
+            if (className.equals(MRUResourceSelectionStrategy.class.getName())) {
+                strategy = new MRUResourceSelectionStrategy();
+            } else if (className.equals(FIFOResourceSelectionStrategy.class.getName())) {
+                strategy = new FIFOResourceSelectionStrategy();
+            } else if (className.equals(ValidatedResourceSelectionStrategy.class.getName())) {
+                strategy = new ValidatedResourceSelectionStrategy();
+            } else {
+                strategy = initializeCustomStrategyInPrivilegedMode(className);
+            }
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Using resource selection strategy : " + strategy);
+            }
+        }
+        return strategy;
+    }
+
+    private static ResourceSelectionStrategy initializeCustomStrategyInPrivilegedMode(final String className) {
+        return AccessController.doPrivileged(new PrivilegedAction<ResourceSelectionStrategy>() {
+            public ResourceSelectionStrategy run() {
+                try {
+                    Class class1 = Thread.currentThread().getContextClassLoader().loadClass(className);
+                    return (ResourceSelectionStrategy) class1.newInstance();
+                } catch (Exception e) {
+                    _logger.log(Level.WARNING, "pool.strategy.init.failure", new Object[]{className, e});
+                    return null;
+                }
+            }
+        });
+    }
+}
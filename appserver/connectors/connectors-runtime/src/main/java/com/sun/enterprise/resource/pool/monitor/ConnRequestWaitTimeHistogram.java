@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the time taken to serve connection requests, used by the
+ * connection pool stats providers.<br>
+ * Wait times are counted in fixed buckets so that the tail of the distribution
+ * is visible, which the average and the current wait time do not show.
+ */
+public class ConnRequestWaitTimeHistogram {
+
+    //upper bounds (inclusive) of the buckets in milliseconds, the last bucket is unbounded.
+    private static final long[] BUCKET_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000, 10000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    /**
+     * Record the time taken to serve a connection request.
+     *
+     * @param timeTakenInMillis wait time of the request
+     */
+    public void record(long timeTakenInMillis) {
+        int i = 0;
+        while (i < BUCKET_BOUNDS.length && timeTakenInMillis > BUCKET_BOUNDS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+    }
+
+    /**
+     * Clear all the buckets.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    /**
+     * @return the histogram in the form <i>&lt;=1ms:10, &lt;=5ms:2, ... , &gt;10000ms:0</i>
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            sb.append("<=").append(BUCKET_BOUNDS[i]).append("ms:").append(buckets.get(i)).append(", ");
+        }
+        sb.append(">").append(BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1]).append("ms:")
+                .append(buckets.get(BUCKET_BOUNDS.length));
+        return sb.toString();
+    }
+}
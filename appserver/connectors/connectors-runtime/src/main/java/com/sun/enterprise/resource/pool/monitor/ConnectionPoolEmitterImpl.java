@@ -200,6 +200,17 @@ public class ConnectionPoolEmitterImpl implements PoolLifeCycleListener {
         poolProbeProvider.connectionValidationFailedEvent(poolName, appName, moduleName, count);
     }
 
+    /**
+     * Fires probe event related to the fact the given jdbc connection pool has
+     * got a connection validated event.
+     *
+     * @param timeTakenInMillis time taken to validate the connection
+     * @param background whether the connection was validated by the background validator
+     */
+    public void connectionValidated(long timeTakenInMillis, boolean background) {
+        poolProbeProvider.connectionValidatedEvent(poolName, appName, moduleName, timeTakenInMillis, background);
+    }
+
     /**
      * Fires probe event related to the fact the given jdbc connection pool has
      * got a connection used event.
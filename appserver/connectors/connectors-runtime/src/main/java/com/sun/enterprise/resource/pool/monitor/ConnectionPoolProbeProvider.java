@@ -36,6 +36,20 @@ public abstract class ConnectionPoolProbeProvider {
     public void connectionValidationFailedEvent(String poolName, String appName, String moduleName, int increment) {
     }
 
+    /**
+     * Emits probe event/notification that the given  connection pool
+     * <code>poolName</code>has got a connection validated event.
+     *
+     * @param poolName for which connection is validated
+     * @param appName application-name in which the pool is defined
+     * @param moduleName module-name in which the pool is defined
+     * @param timeTakenInMillis time taken to validate the connection
+     * @param background whether the connection was validated by the background validator
+     */
+    public void connectionValidatedEvent(String poolName, String appName, String moduleName,
+            long timeTakenInMillis, boolean background) {
+    }
+
     /**
      * Emits probe event/notification that a  connection pool with the given
      * name <code>poolName</code> has got a connection timed out event.
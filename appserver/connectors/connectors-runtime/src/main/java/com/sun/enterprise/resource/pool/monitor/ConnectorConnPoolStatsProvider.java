@@ -23,10 +23,12 @@ import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
+import org.glassfish.external.statistics.StringStatistic;
 import org.glassfish.external.statistics.annotations.Reset;
 import org.glassfish.external.statistics.impl.CountStatisticImpl;
 import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.external.statistics.impl.StringStatisticImpl;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
 import org.glassfish.gmbal.ManagedAttribute;
@@ -63,6 +65,18 @@ public class ConnectorConnPoolStatsProvider {
             "NumConnFailedValidation", StatisticImpl.UNIT_COUNT,
             "The total number of connections in the connection pool that failed " +
             "validation from the start time until the last sample time.");
+    private CountStatisticImpl numConnValidated = new CountStatisticImpl(
+            "NumConnValidated", StatisticImpl.UNIT_COUNT, "The total number of " +
+            "connections validated by request threads while being acquired from the pool.");
+    private CountStatisticImpl numConnBackgroundValidated = new CountStatisticImpl(
+            "NumConnBackgroundValidated", StatisticImpl.UNIT_COUNT, "The total number of " +
+            "free connections validated by the background validator of the pool.");
+    private RangeStatisticImpl connValidationTime = new RangeStatisticImpl(
+            0, 0, 0,
+            "ConnValidationTime", StatisticImpl.UNIT_MILLISECOND,
+            "The longest and shortest times taken to validate a connection. The " +
+            "current value indicates the time taken by the last validation.",
+            System.currentTimeMillis(), System.currentTimeMillis());
     private CountStatisticImpl numConnTimedOut = new CountStatisticImpl(
             "NumConnTimedOut", StatisticImpl.UNIT_COUNT, "The total number of " +
             "connections in the pool that timed out between the start time and the last sample time.");
@@ -115,6 +129,10 @@ public class ConnectorConnPoolStatsProvider {
     private CountStatisticImpl waitQueueLength = new CountStatisticImpl(
             "WaitQueueLength", StatisticImpl.UNIT_COUNT, 
             "Number of connection requests in the queue waiting to be serviced.");    
+    private StringStatisticImpl connRequestWaitTimeHistogram = new StringStatisticImpl(
+            "ConnRequestWaitTimeHistogram", "List",
+            "Number of successful connection requests by the time taken to serve them");
+    private ConnRequestWaitTimeHistogram waitTimeHistogram = new ConnRequestWaitTimeHistogram();
     private static final String JCA_PROBE_LISTENER = "glassfish:jca:connection-pool:";
 
     public ConnectorConnPoolStatsProvider(PoolInfo poolInfo, Logger logger) {
@@ -325,6 +343,36 @@ public class ConnectorConnPoolStatsProvider {
         
     }
     
+    /**
+     * Event that a connection is validated in timeTakenInMillis.
+     *
+     * @param poolName
+     * @param timeTakenInMillis
+     * @param background whether the connection was validated by the background validator
+     */
+    @ProbeListener(JCA_PROBE_LISTENER + "connectionValidatedEvent")
+    public void connectionValidatedEvent(
+            @ProbeParam("poolName") String poolName,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("moduleName") String moduleName,
+            @ProbeParam("timeTakenInMillis") long timeTakenInMillis,
+            @ProbeParam("background") boolean background) {
+
+        PoolInfo poolInfo = new PoolInfo(poolName, appName, moduleName);
+        if(this.poolInfo.equals(poolInfo)) {
+            if(logger.isLoggable(Level.FINEST)) {
+                logger.finest("Connection validated event received - " +
+                    "poolName = " + poolName);
+            }
+            if (background) {
+                numConnBackgroundValidated.increment();
+            } else {
+                numConnValidated.increment();
+            }
+            connValidationTime.setCurrent(timeTakenInMillis);
+        }
+    }
+
     /**
      * Event that a connection request is served in timeTakenInMillis.
      * 
@@ -346,6 +394,7 @@ public class ConnectorConnPoolStatsProvider {
             }
             connRequestWaitTime.setCurrent(timeTakenInMillis);
             totalConnRequestWaitTime.increment(timeTakenInMillis);
+            waitTimeHistogram.record(timeTakenInMillis);
         }        
     }  
     
@@ -446,6 +495,9 @@ public class ConnectorConnPoolStatsProvider {
         numConnCreated.reset();
         numConnDestroyed.reset();
         numConnFailedValidation.reset();
+        numConnValidated.reset();
+        numConnBackgroundValidated.reset();
+        connValidationTime.reset();
         numConnTimedOut.reset();
         numConnAcquired.reset();
         numConnReleased.reset();
@@ -456,6 +508,7 @@ public class ConnectorConnPoolStatsProvider {
         averageConnWaitTime.reset();
         totalConnRequestWaitTime.reset();
         waitQueueLength.reset();        
+        waitTimeHistogram.reset();
     }
     
     /**
@@ -614,6 +667,21 @@ public class ConnectorConnPoolStatsProvider {
         return numConnFailedValidation;
     }
 
+    @ManagedAttribute(id="numconnvalidated")
+    public CountStatistic getNumConnValidated() {
+        return numConnValidated;
+    }
+
+    @ManagedAttribute(id="numconnbackgroundvalidated")
+    public CountStatistic getNumConnBackgroundValidated() {
+        return numConnBackgroundValidated;
+    }
+
+    @ManagedAttribute(id="connvalidationtime")
+    public RangeStatistic getConnValidationTime() {
+        return connValidationTime;
+    }
+
     @ManagedAttribute(id="numconntimedout")
     public CountStatistic getNumConnTimedOut() {
         return numConnTimedOut;
@@ -683,4 +751,10 @@ public class ConnectorConnPoolStatsProvider {
     public CountStatistic getWaitQueueLength() {
         return waitQueueLength;
     }    
+
+    @ManagedAttribute(id="connrequestwaittimehistogram")
+    public StringStatistic getConnRequestWaitTimeHistogram() {
+        connRequestWaitTimeHistogram.setCurrent(waitTimeHistogram.toString());
+        return connRequestWaitTimeHistogram;
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.resizer;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.pool.PoolProperties;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.enterprise.resource.pool.datastructure.DataStructure;
+import com.sun.logging.LogDomains;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Validates free resources of the pool periodically so that the request threads
+ * need not validate resources at the time of checkout.<br>
+ * A free resource is validated when it has neither been validated nor been in use
+ * within the <i>validation interval</i>. Invalid resources are removed and the
+ * pool is brought back to steady-pool-size.<br>
+ * The free resources are taken out of the pool a few at a time, so that most of
+ * them stay available to the request threads while validation is running.
+ */
+public class BackgroundValidator extends TimerTask {
+    protected PoolInfo poolInfo;
+    protected DataStructure ds;
+    protected PoolProperties pool;
+    protected ResourceHandler handler;
+    protected long validationInterval;
+
+    // at most 1 / VALIDATION_BATCH_DIVISOR of the free resources are taken at a time
+    private static final int VALIDATION_BATCH_DIVISOR = 4;
+
+    protected final static Logger _logger = LogDomains.getLogger(BackgroundValidator.class, LogDomains.RSR_LOGGER);
+
+    public BackgroundValidator(PoolInfo poolInfo, DataStructure ds, PoolProperties pp, ResourceHandler handler,
+            long validationInterval) {
+        this.poolInfo = poolInfo;
+        this.ds = ds;
+        this.pool = pp;
+        this.handler = handler;
+        this.validationInterval = validationInterval;
+    }
+
+    public void run() {
+        debug("Background validator for pool " + poolInfo);
+        try {
+            validateFreeResources();
+        } catch (Exception ex) {
+            Object[] params = new Object[]{poolInfo, ex.getMessage()};
+            _logger.log(Level.WARNING, "resource_pool.background_validation_error", params);
+        }
+    }
+
+    /**
+     * Validate the free resources that are due for validation and remove the invalid ones.
+     *
+     * @return int number of resources removed
+     */
+    protected int validateFreeResources() {
+        //If the wait queue is NOT empty, resources are not free for long, don't do anything.
+        if (pool.getWaitQueueLength() > 0) {
+            return 0;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        int noOfResourcesRemoved = 0;
+        int noOfResourcesValidated = 0;
+        int freeSize = ds.getFreeListSize();
+        int batchSize = Math.max(1, freeSize / VALIDATION_BATCH_DIVISOR);
+        Set<ResourceHandle> visited = Collections.newSetFromMap(new IdentityHashMap<ResourceHandle, Boolean>());
+        List<ResourceHandle> validResources = new ArrayList<ResourceHandle>(batchSize);
+        boolean more = true;
+        while (more && visited.size() < freeSize) {
+            //take a batch of resources not seen by this run. A resource seen already
+            //means the data structure hands out the same resources again.
+            more = false;
+            try {
+                ResourceHandle h;
+                while (validResources.size() < batchSize && (h = ds.getResource()) != null) {
+                    if (!visited.add(h)) {
+                        validResources.add(h);
+                        break;
+                    }
+                    more = true;
+                    long lastKnownValid = Math.max(h.getLastValidated(), h.getResourceState().getTimestamp());
+                    if (currentTime - lastKnownValid < validationInterval) {
+                        validResources.add(h);
+                        continue;
+                    }
+                    noOfResourcesValidated++;
+                    if (handler.validateResource(h)) {
+                        validResources.add(h);
+                    } else {
+                        //threads that have this resource associated will evict it
+                        h.setConnectionErrorOccurred();
+                        ds.removeResource(h);
+                        noOfResourcesRemoved++;
+                    }
+                }
+            } finally {
+                for (ResourceHandle validResource : validResources) {
+                    ds.returnResource(validResource);
+                }
+                validResources.clear();
+            }
+        }
+        debug("Number of resources validated for pool [ " + poolInfo + " ] - " + noOfResourcesValidated
+                + ", invalid resources removed - " + noOfResourcesRemoved);
+
+        if (noOfResourcesRemoved > 0) {
+            ensureSteadyPool();
+        }
+        return noOfResourcesRemoved;
+    }
+
+    /**
+     * Make sure that steady pool size is maintained after removal of invalid resources.
+     */
+    private void ensureSteadyPool() {
+        for (int i = ds.getResourcesSize(); i < pool.getSteadyPoolSize(); i++) {
+            try {
+                handler.createResourceAndAddToPool();
+            } catch (PoolingException ex) {
+                Object[] params = new Object[]{poolInfo, ex.getMessage()};
+                _logger.log(Level.WARNING, "resource_pool.background_validation_error", params);
+                break;
+            }
+        }
+    }
+
+    protected static void debug(String debugStatement) {
+        if (_logger.isLoggable(Level.FINE))
+            _logger.log(Level.FINE, debugStatement);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.logging.LogDomains;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fair wait queue for the connection pool<br>
+ * A resource that is freed is handed over directly to the oldest waiting request
+ * instead of being returned to the pool, so that a newly arriving request cannot
+ * barge in and take it. Each waiting request parks on its own {@link Waiter} and
+ * only the request that is served is woken up. Waiters whose wait-time has
+ * expired are skipped.<br>
+ * Plain wait monitors added via {@link #addToQueue(Object)} are supported as well
+ * and are notified in FIFO order.
+ */
+public class FairHandOffPoolWaitQueue implements PoolWaitQueue {
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
+    //number of waiting requests, ConcurrentLinkedQueue.size() is not a constant time operation.
+    private final AtomicInteger length = new AtomicInteger();
+
+    protected final static Logger _logger = LogDomains.getLogger(FairHandOffPoolWaitQueue.class, LogDomains.RSR_LOGGER);
+
+    public FairHandOffPoolWaitQueue() {
+        debug("Initializing fair hand-off Pool Wait Queue");
+    }
+
+    /**
+     * A resource request waiting in the queue.
+     */
+    public static final class Waiter {
+        private static final Object WAITING = new Object();
+        private static final Object SIGNALLED = new Object();
+        private static final Object CANCELLED = new Object();
+
+        private final Thread thread;
+        //0 when the request has no deadline
+        private final long deadline;
+        //WAITING, CANCELLED, SIGNALLED or the resource handed over
+        private final AtomicReference<Object> outcome = new AtomicReference<Object>(WAITING);
+
+        private Waiter(Thread thread, long deadline) {
+            this.thread = thread;
+            this.deadline = deadline;
+        }
+
+        private boolean serve(ResourceHandle h) {
+            if (outcome.compareAndSet(WAITING, h != null ? h : SIGNALLED)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean cancel() {
+            return outcome.compareAndSet(WAITING, CANCELLED);
+        }
+
+        private boolean isWaiting() {
+            return outcome.get() == WAITING;
+        }
+
+        private boolean isServed() {
+            Object o = outcome.get();
+            return o != WAITING && o != CANCELLED;
+        }
+
+        private boolean isExpired(long now) {
+            return deadline != 0 && now - deadline >= 0;
+        }
+
+        /**
+         * @return the resource handed over to this request, null if the request
+         * was only signalled to retry
+         */
+        public ResourceHandle getResource() {
+            Object o = outcome.get();
+            return o instanceof ResourceHandle ? (ResourceHandle) o : null;
+        }
+    }
+
+    /**
+     * Adds a request of the current thread to the queue.
+     *
+     * @param waitTime maximum time to wait in milliseconds, 0 to wait indefinitely
+     * @return Waiter on which the thread can await
+     */
+    public Waiter enqueue(long waitTime) {
+        long deadline = 0;
+        if (waitTime > 0) {
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+            if (deadline == 0) {
+                deadline = 1;
+            }
+        }
+        Waiter waiter = new Waiter(Thread.currentThread(), deadline);
+        length.incrementAndGet();
+        queue.offer(waiter);
+        return waiter;
+    }
+
+    /**
+     * Parks the current thread until the request is served or its deadline expires.
+     *
+     * @param waiter Waiter returned by {@link #enqueue(long)}
+     * @return boolean indicating whether the request was served. A served request may
+     * have a resource handed over, see {@link Waiter#getResource()}
+     * @throws InterruptedException when the thread is interrupted before being served
+     */
+    public boolean await(Waiter waiter) throws InterruptedException {
+        while (waiter.isWaiting()) {
+            if (Thread.interrupted()) {
+                if (cancel(waiter)) {
+                    throw new InterruptedException();
+                }
+                //served concurrently, do not lose the resource.
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (waiter.deadline == 0) {
+                LockSupport.park(this);
+            } else {
+                long remaining = waiter.deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return !cancel(waiter);
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+        return waiter.isServed();
+    }
+
+    /**
+     * Withdraws the request from the queue.
+     *
+     * @param waiter Waiter to be cancelled
+     * @return boolean indicating whether the request was withdrawn, false if it has
+     * already been served
+     */
+    public boolean cancel(Waiter waiter) {
+        if (waiter.cancel()) {
+            length.decrementAndGet();
+            queue.remove(waiter);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands over the resource to the oldest request that is still waiting.
+     *
+     * @param h resource to be handed over
+     * @return boolean indicating whether the resource was handed over
+     */
+    public boolean handOff(ResourceHandle h) {
+        return serveOldest(h, false);
+    }
+
+    /**
+     * Wakes up the oldest request that is still waiting so that it retries
+     * to get a resource from the pool.
+     *
+     * @return boolean indicating whether a request was woken up
+     */
+    public boolean signal() {
+        return serveOldest(null, true);
+    }
+
+    private boolean serveOldest(ResourceHandle h, boolean notifyMonitors) {
+        long now = System.nanoTime();
+        Object o;
+        while ((o = queue.peek()) != null) {
+            if (!(o instanceof Waiter)) {
+                if (!notifyMonitors) {
+                    //a plain wait monitor can not take a resource
+                    return false;
+                }
+                if (queue.remove(o)) {
+                    length.decrementAndGet();
+                    synchronized (o) {
+                        o.notifyAll();
+                    }
+                    return true;
+                }
+                continue;
+            }
+            Waiter waiter = (Waiter) o;
+            if (waiter.isExpired(now)) {
+                //let the expired request time out on its own.
+                queue.remove(waiter);
+                continue;
+            }
+            if (waiter.serve(h)) {
+                length.decrementAndGet();
+                queue.remove(waiter);
+                return true;
+            }
+            queue.remove(waiter);
+        }
+        return false;
+    }
+
+    public int getQueueLength() {
+        return length.get();
+    }
+
+    public void addToQueue(Object waitMonitor) {
+        length.incrementAndGet();
+        queue.offer(waitMonitor);
+    }
+
+    public boolean removeFromQueue(Object o) {
+        if (o instanceof Waiter) {
+            return cancel((Waiter) o);
+        }
+        if (queue.remove(o)) {
+            length.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public Object remove() {
+        Object o;
+        while ((o = queue.poll()) != null) {
+            //same as notifying a plain wait monitor, the request retries.
+            if (!(o instanceof Waiter) || ((Waiter) o).serve(null)) {
+                length.decrementAndGet();
+                return o;
+            }
+        }
+        return null;
+    }
+
+    public Object peek() {
+        return queue.peek();
+    }
+
+    public Collection getQueueContents() {
+        return new ArrayList<Object>(queue);
+    }
+
+    protected void debug(String debugStatement) {
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, debugStatement);
+        }
+    }
+}
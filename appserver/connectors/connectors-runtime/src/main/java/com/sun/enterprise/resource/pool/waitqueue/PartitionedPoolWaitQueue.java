@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.logging.LogDomains;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wait queue for a partitioned connection pool<br>
+ * Every partition has a wait queue of its own. A thread waits in the queue of its
+ * partition and a released resource first wakes up a thread of the partition of
+ * the releasing thread. Queues of other partitions are looked up only when that
+ * queue is empty.
+ */
+public class PartitionedPoolWaitQueue implements PoolWaitQueue {
+
+    private final PoolWaitQueue[] partitions;
+
+    protected final static Logger _logger = LogDomains.getLogger(PartitionedPoolWaitQueue.class, LogDomains.RSR_LOGGER);
+
+    public PartitionedPoolWaitQueue(String partitionClassName, int numberOfPartitions) throws PoolingException {
+        partitions = new PoolWaitQueue[numberOfPartitions];
+        for (int i = 0; i < numberOfPartitions; i++) {
+            partitions[i] = PoolWaitQueueFactory.createPoolWaitQueue(partitionClassName);
+        }
+        debug("Initializing partitioned Pool Wait Queue");
+    }
+
+    /**
+     * @return index of the partition used by the current thread
+     */
+    private int getHomePartition() {
+        return (int) (Thread.currentThread().getId() % partitions.length);
+    }
+
+    public int getQueueLength() {
+        int length = 0;
+        for (PoolWaitQueue partition : partitions) {
+            length += partition.getQueueLength();
+        }
+        return length;
+    }
+
+    public void addToQueue(Object waitMonitor) {
+        partitions[getHomePartition()].addToQueue(waitMonitor);
+    }
+
+    public boolean removeFromQueue(Object o) {
+        int home = getHomePartition();
+        for (int i = 0; i < partitions.length; i++) {
+            if (partitions[(home + i) % partitions.length].removeFromQueue(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * removes the first object (resource request) from the queue of the current
+     * thread's partition, or from the queue of another partition when it is empty.
+     * @return Object first object, null when all the queues are empty
+     */
+    public Object remove() {
+        int home = getHomePartition();
+        for (int i = 0; i < partitions.length; i++) {
+            PoolWaitQueue partition = partitions[(home + i) % partitions.length];
+            synchronized (partition) {
+                if (partition.getQueueLength() > 0) {
+                    return partition.remove();
+                }
+            }
+        }
+        return null;
+    }
+
+    public Object peek() {
+        int home = getHomePartition();
+        for (int i = 0; i < partitions.length; i++) {
+            Object o = partitions[(home + i) % partitions.length].peek();
+            if (o != null) {
+                return o;
+            }
+        }
+        return null;
+    }
+
+    public Collection getQueueContents() {
+        Collection contents = new ArrayList();
+        for (PoolWaitQueue partition : partitions) {
+            synchronized (partition) {
+                contents.addAll(partition.getQueueContents());
+            }
+        }
+        return contents;
+    }
+
+    protected void debug(String debugStatement) {
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, debugStatement);
+        }
+    }
+}
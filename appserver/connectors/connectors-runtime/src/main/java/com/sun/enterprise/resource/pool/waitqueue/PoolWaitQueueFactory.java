@@ -37,7 +37,11 @@ public class PoolWaitQueueFactory {
         PoolWaitQueue waitQueue;
 
         if (className != null) {
-            waitQueue = initializeCustomWaitQueueInPrivilegedMode(className);
+            if (className.equals(FairHandOffPoolWaitQueue.class.getName())) {
+                waitQueue = new FairHandOffPoolWaitQueue();
+            } else {
+                waitQueue = initializeCustomWaitQueueInPrivilegedMode(className);
+            }
         } else {
             waitQueue = new DefaultPoolWaitQueue();
             debug("Initializing Default Pool Wait Queue");
@@ -327,10 +327,12 @@ public class EarHandler extends AbstractArchiveHandler implements CompositeHandl
             }
             
             final URL[] earLibURLs = ASClassLoaderUtil.getAppLibDirLibraries(context.getSourceDir(), holder.app.getLibraryDirectory(), compatProp);
+            // reuse the package indexes of the jars across restarts
+            final File indexDir = context.getScratchDir("classindex");
             final EarLibClassLoader earLibCl = AccessController.doPrivileged(new PrivilegedAction<EarLibClassLoader>() {
                 @Override
                 public EarLibClassLoader run() {
-                    return new EarLibClassLoader(earLibURLs, parent);
+                    return new EarLibClassLoader(earLibURLs, parent, indexDir);
                 }
             });
 
@@ -359,6 +361,7 @@ public class EarHandler extends AbstractArchiveHandler implements CompositeHandl
                     return new EarClassLoader(embeddedConnCl);
                 }
             });
+            cl.setIndexDir(indexDir);
 
             // add ear lib to module classloader list so we can 
             // clean it up later
@@ -16,6 +16,7 @@
 
 package org.glassfish.javaee.full.deployment;
 
+import java.io.File;
 import java.net.URL;
 import com.sun.enterprise.loader.ASURLClassLoader;
 
@@ -27,8 +28,17 @@ public class EarLibClassLoader extends ASURLClassLoader
 {
 
     public EarLibClassLoader(URL[] urls, ClassLoader classLoader) {
+        this(urls, classLoader, null);
+    }
+
+    /**
+     * @param indexDir the directory where the package indexes of the
+     * libraries are saved, or null
+     */
+    public EarLibClassLoader(URL[] urls, ClassLoader classLoader, File indexDir) {
         super(classLoader); 
 
+        setIndexDir(indexDir);
         for (URL url : urls) {
             addURL(url);
         }
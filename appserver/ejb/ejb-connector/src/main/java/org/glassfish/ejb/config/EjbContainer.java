@@ -52,6 +52,7 @@ public interface EjbContainer extends ConfigBeanProxy, PropertyBag, ConfigExtens
     public static final int DEFAULT_THREAD_QUEUE_CAPACITY = Integer.MAX_VALUE;
     public static final boolean DEFAULT_ALLOW_CORE_THREAD_TIMEOUT = false;
     public static final boolean DEFAULT_PRESTART_ALL_CORE_THREADS = false;
+    public static final boolean DEFAULT_USE_VIRTUAL_THREADS = false;
  
     /**
      * Gets the value of the steadyPoolSize property.
@@ -276,12 +277,16 @@ public interface EjbContainer extends ConfigBeanProxy, PropertyBag, ConfigExtens
      * nru
      *     policy tries to pick 'not recently used' instances and is a
      *     pseudo-random selection process.
+     * segmented
+     *     cache is split in segments with their own lru list, the least
+     *     frequently accessed of the least recently accessed instances of a
+     *     segment is picked.
      *
      * @return possible object is
      *         {@link String }
      */
     @Attribute (defaultValue="nru")
-    @Pattern(regexp="(nru|fifo|lru)")
+    @Pattern(regexp="(nru|fifo|lru|segmented)")
     String getVictimSelectionPolicy();
 
     /**
@@ -264,6 +264,8 @@ public abstract class BaseContainer
 
     protected static final String SINGLETON_BEAN_POOL_PROP = "singleton-bean-pool";
 
+    protected static final String STRIPED_BEAN_POOL_PROP = "striped-bean-pool";
+
     protected ClassLoader loader = null;
     protected Class ejbClass = null;
     protected Class sfsbSerializedClass = null;
@@ -4142,6 +4144,18 @@ public abstract class BaseContainer
         //callFlowAgent.endTime();
     }
 
+    final void onAsyncInvocationStart() {
+        ejbProbeNotifier.asyncInvocationStartEvent(getContainerId(),
+                containerInfo.appName, containerInfo.modName,
+                containerInfo.ejbName);
+    }
+
+    final void onAsyncInvocationEnd() {
+        ejbProbeNotifier.asyncInvocationEndEvent(getContainerId(),
+                containerInfo.appName, containerInfo.modName,
+                containerInfo.ejbName);
+    }
+
     private void enteringEjbContainer() {
         if (interceptors == null)
             return;
@@ -29,6 +29,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ejb.CreateException;
@@ -128,6 +130,11 @@ public class EJBTimerService {
     private static final String RESCHEDULE_FAILED_TIMER = "reschedule-failed-timer";
     private boolean rescheduleFailedTimer = false;
 
+    // Schedule non-persistent timers with a timing wheel instead of the JDK timer
+    private static final String NON_PERSISTENT_TIMER_WHEEL = "non-persistent-timer-wheel";
+    private static final long TIMER_WHEEL_TICK = 10;
+    private EJBTimerWheel timerWheel_;
+
     // Flag that allows to load EJBTimerService on the 1st access and
     // distinguish between not available and not loaded
     private static volatile boolean _timerServiceVerified = false;
@@ -250,6 +257,14 @@ public class EJBTimerService {
 
                 rescheduleFailedTimer = Boolean.valueOf(ejbt.getPropertyValue(RESCHEDULE_FAILED_TIMER));
 
+                if( Boolean.valueOf(ejbt.getPropertyValue(NON_PERSISTENT_TIMER_WHEEL)) ) {
+                    timerWheel_ = new EJBTimerWheel(TIMER_WHEEL_TICK, new Executor() {
+                        public void execute(Runnable work) {
+                            ejbContainerUtil.addWork(work);
+                        }
+                    });
+                }
+
                 // Load confing listener
                 ejbContainerUtil.getServices().getService(EJBTimerServiceConfigListener.class);
             }
@@ -262,7 +277,8 @@ public class EJBTimerService {
         logger.log(Level.FINE, "EJB Timer Service properties : " +
                    "min delivery interval = " + getMinimumDeliveryInterval() +
                    "\nmax redeliveries = " + maxRedeliveries_ +
-                   "\nredelivery interval = " + getRedeliveryInterval());
+                   "\nredelivery interval = " + getRedeliveryInterval() +
+                   "\nnon-persistent timer wheel = " + (timerWheel_ != null));
     }
 
     synchronized void timedObjectCount() {
@@ -332,6 +348,9 @@ public class EJBTimerService {
     private void shutdown() {
         // Set flag to prevent any new timer expirations.
         shutdown_ = true;
+        if( timerWheel_ != null ) {
+            timerWheel_.stop();
+        }
     }
 
     /**
@@ -443,8 +462,12 @@ public class EJBTimerService {
                     timerState.scheduled(timerTask);
                 }
 
-                java.util.Timer jdkTimer = ejbContainerUtil.getTimer();
-                jdkTimer.schedule(timerTask, timerExpiration);            
+                if( timerWheel_ != null && !timerState.isPersistent() ) {
+                    timerWheel_.schedule(timerTask, timerExpiration);
+                } else {
+                    java.util.Timer jdkTimer = ejbContainerUtil.getTimer();
+                    jdkTimer.schedule(timerTask, timerExpiration);
+                }
             }
         } else {
             
@@ -1375,7 +1398,8 @@ public class EJBTimerService {
 
     /**
      * This method is called back from the EJBTimerTask object 
-     * on the JDK Timer Thread.  Work performed in this callback 
+     * on the JDK Timer Thread, or on a worker thread for the tasks
+     * of the timer wheel.  Work performed in this callback 
      * should be short-lived, so do a little bookkeeping and then
      * launch a separate thread to invoke ejbTimeout, etc.
      */
@@ -1687,12 +1711,14 @@ public class EJBTimerService {
     // the database for TimerBean info.  Any timer for which there is an
     // active JDK timer task must be contained within this cache. 
     //
-    // Note : this class supports concurrent access.
+    // Note : this class supports concurrent access.  Timer states are
+    // looked up without locking, the per container information is
+    // guarded by the lock of containerTimers_.
     //
     public static class TimerCache {
 
         // Maps timer id to timer state.
-        private Map timers_;
+        private Map<TimerPrimaryKey, RuntimeTimerState> timers_;
 
         // Map of timer information per container.
         //
@@ -1712,14 +1738,12 @@ public class EJBTimerService {
         private Map<TimerPrimaryKey, RuntimeTimerState> nonpersistentTimers_;
 
         public TimerCache() {
-            // Create unsynchronized collections.  TimerCache will 
-            // provide concurrency control.
-            timers_ = new HashMap();
+            timers_ = new ConcurrentHashMap<TimerPrimaryKey, RuntimeTimerState>();
             containerTimers_ = new HashMap();
-            nonpersistentTimers_ = new HashMap<TimerPrimaryKey, RuntimeTimerState>();
+            nonpersistentTimers_ = new ConcurrentHashMap<TimerPrimaryKey, RuntimeTimerState>();
         }
 
-        public synchronized void addTimer(TimerPrimaryKey timerId, 
+        public void addTimer(TimerPrimaryKey timerId, 
                                           RuntimeTimerState timerState) {
             if( logger.isLoggable(Level.FINE) ) {
                 logger.log(Level.FINE, "Adding timer " + timerState);
@@ -1732,24 +1756,26 @@ public class EJBTimerService {
 
             Long containerId = timerState.getContainerId();
 
-            Object containerInfo = containerTimers_.get(containerId);
+            synchronized(containerTimers_) {
+                Object containerInfo = containerTimers_.get(containerId);
 
-            if( timerState.timedObjectIsEntity() ) {
-                Collection entityBeans;
-                if( containerInfo == null ) {
-                    // NOTE : This list *can* contain duplicates, since
-                    // the same entity bean can be the timed object for 
-                    // multiple timers.
-                    entityBeans = new ArrayList();
-                    containerTimers_.put(containerId, entityBeans);
+                if( timerState.timedObjectIsEntity() ) {
+                    Collection entityBeans;
+                    if( containerInfo == null ) {
+                        // NOTE : This list *can* contain duplicates, since
+                        // the same entity bean can be the timed object for 
+                        // multiple timers.
+                        entityBeans = new ArrayList();
+                        containerTimers_.put(containerId, entityBeans);
+                    } else {
+                        entityBeans = (Collection) containerInfo;
+                    }
+                    entityBeans.add(timerState.getTimedObjectPrimaryKey());
                 } else {
-                    entityBeans = (Collection) containerInfo;
+                    Long timerCount = (containerInfo == null) ? 1 :
+                        ((Long) containerInfo).longValue() + 1;
+                    containerTimers_.put(containerId, timerCount);
                 }
-                entityBeans.add(timerState.getTimedObjectPrimaryKey());
-            } else {
-                Long timerCount = (containerInfo == null) ? 1 :
-                    ((Long) containerInfo).longValue() + 1;
-                containerTimers_.put(containerId, timerCount);
             }
 
         }
@@ -1759,13 +1785,12 @@ public class EJBTimerService {
          * defensively since it's possible it will be called multiple
          * times for the same timer.
          */
-        public synchronized void removeTimer(TimerPrimaryKey timerId) {
+        public void removeTimer(TimerPrimaryKey timerId) {
             if( logger.isLoggable(Level.FINE) ) {
                 logger.log(Level.FINE, "Removing timer " + timerId);
             }
 
-            RuntimeTimerState timerState = (RuntimeTimerState) 
-                timers_.remove(timerId);
+            RuntimeTimerState timerState = timers_.remove(timerId);
 
             if( timerState == null) {
                 return;
@@ -1775,64 +1800,70 @@ public class EJBTimerService {
                 nonpersistentTimers_.remove(timerId);
             }
             Long containerId = timerState.getContainerId();
-            Object containerInfo = containerTimers_.get(containerId);
+            synchronized(containerTimers_) {
+                Object containerInfo = containerTimers_.get(containerId);
                 
-            if( containerInfo != null ) {
-                if( timerState.timedObjectIsEntity() ) {
-                    Collection entityBeans = (Collection) containerInfo;
-                    if( entityBeans.size() == 1 ) {
-                        // Only one left -- blow away the container.
-                        containerTimers_.remove(containerId);
+                if( containerInfo != null ) {
+                    if( timerState.timedObjectIsEntity() ) {
+                        Collection entityBeans = (Collection) containerInfo;
+                        if( entityBeans.size() == 1 ) {
+                            // Only one left -- blow away the container.
+                            containerTimers_.remove(containerId);
+                        } else {
+                            // Remove a single instance of this primary key
+                            // from the list.  There could still be other
+                            // instances of the same primary key.
+                            entityBeans.remove
+                                (timerState.getTimedObjectPrimaryKey());
+                        }
                     } else {
-                        // Remove a single instance of this primary key
-                        // from the list.  There could still be other
-                        // instances of the same primary key.
-                        entityBeans.remove
-                            (timerState.getTimedObjectPrimaryKey());
+                        long timerCount = ((Long) containerInfo).longValue();
+                        if( timerCount == 1 ) {
+                            // Only one left -- blow away the container
+                            containerTimers_.remove(containerId);
+                        } else {
+                            Long newCount = timerCount - 1;
+                            containerTimers_.put(containerId, newCount);
+                        }                         
                     }
-                } else {
-                    long timerCount = ((Long) containerInfo).longValue();
-                    if( timerCount == 1 ) {
-                        // Only one left -- blow away the container
-                        containerTimers_.remove(containerId);
-                    } else {
-                        Long newCount = timerCount - 1;
-                        containerTimers_.put(containerId, newCount);
-                    }                         
                 }
             }
         }
 
-        public synchronized RuntimeTimerState getTimerState(TimerPrimaryKey 
+        public RuntimeTimerState getTimerState(TimerPrimaryKey 
                                                             timerId) {
-            return (RuntimeTimerState) timers_.get(timerId);
+            return timers_.get(timerId);
         }
 
-        public synchronized RuntimeTimerState getNonPersistentTimerState(
+        public RuntimeTimerState getNonPersistentTimerState(
                               TimerPrimaryKey timerId) {
-            return (RuntimeTimerState) nonpersistentTimers_.get(timerId);
+            return nonpersistentTimers_.get(timerId);
         }
 
         // True if the given entity bean has any timers and false otherwise.
-        public synchronized boolean entityBeanHasTimers(long containerId, 
+        public boolean entityBeanHasTimers(long containerId, 
                                                         Object pkey) {
-            Object containerInfo = containerTimers_.get(containerId);
-            return (containerInfo != null) ?
-                ((Collection) containerInfo).contains(pkey) : false;
+            synchronized(containerTimers_) {
+                Object containerInfo = containerTimers_.get(containerId);
+                return (containerInfo != null) ?
+                    ((Collection) containerInfo).contains(pkey) : false;
+            }
         }
 
         // True if the ejb represented by this container id has any timers
         // and false otherwise.  
-        public synchronized boolean containerHasTimers(long containerId) {
-            return containerTimers_.containsKey(containerId);
+        public boolean containerHasTimers(long containerId) {
+            synchronized(containerTimers_) {
+                return containerTimers_.containsKey(containerId);
+            }
         }
 
         // Placeholder for logic to ensure timer cache consistency.
-        public synchronized void validate() {
+        public void validate() {
         }
 
         // Returns a Set of non-persistent timer ids for this container
-        public synchronized Set<TimerPrimaryKey> getNonPersistentTimerIdsForContainer(
+        public Set<TimerPrimaryKey> getNonPersistentTimerIdsForContainer(
                                         long containerId_) {
             Set<TimerPrimaryKey> result = new HashSet<TimerPrimaryKey>();
             for (Map.Entry<TimerPrimaryKey, RuntimeTimerState> entry : nonpersistentTimers_.entrySet()) {
@@ -1847,7 +1878,7 @@ public class EJBTimerService {
         }
 
         // Returns a Set of active non-persistent timer ids for this container
-        public synchronized Set<TimerPrimaryKey> getNonPersistentActiveTimerIdsForContainer(
+        public Set<TimerPrimaryKey> getNonPersistentActiveTimerIdsForContainer(
                                         long containerId_) {
             Set<TimerPrimaryKey> result = new HashSet<TimerPrimaryKey>();
             for (Map.Entry<TimerPrimaryKey, RuntimeTimerState> entry : nonpersistentTimers_.entrySet()) {
@@ -1861,7 +1892,7 @@ public class EJBTimerService {
         }
 
         // Returns a Set of active non-persistent timer ids for this server
-        public synchronized Set<TimerPrimaryKey> getNonPersistentActiveTimerIdsByThisServer() {
+        public Set<TimerPrimaryKey> getNonPersistentActiveTimerIdsByThisServer() {
             Set<TimerPrimaryKey> result = new HashSet<TimerPrimaryKey>();
             for (Map.Entry<TimerPrimaryKey, RuntimeTimerState> entry : nonpersistentTimers_.entrySet()) {
                 TimerPrimaryKey key = entry.getKey();
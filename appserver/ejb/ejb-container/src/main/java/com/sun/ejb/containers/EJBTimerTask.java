@@ -32,6 +32,14 @@ public class EJBTimerTask extends TimerTask {
     private TimerPrimaryKey timerId_;
     private EJBTimerService timerService_;
 
+    // Linkage in the EJBTimerWheel that schedules this task, if any, guarded
+    // by the lock of the wheel shard.
+    volatile EJBTimerWheel wheel_;
+    EJBTimerTask prev_;
+    EJBTimerTask next_;
+    long expiryTick_;
+    volatile boolean cancelled_;
+
     EJBTimerTask(Date timeout, TimerPrimaryKey timerId, 
                  EJBTimerService timerService)
     { 
@@ -49,5 +57,13 @@ public class EJBTimerTask extends TimerTask {
         return timeout_;
     }
 
+    public boolean cancel() {
+        cancelled_ = true;
+        if( wheel_ != null ) {
+            wheel_.remove(this);
+        }
+        return super.cancel();
+    }
+
 } 
 
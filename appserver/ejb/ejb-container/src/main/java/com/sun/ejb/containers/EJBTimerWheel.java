@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Schedules the non-persistent timer tasks in place of the JDK timer, whose
+ * single queue is locked by every timer creation and cancellation.
+ *
+ * A task goes to one of several shards, picked from its identity hash, and
+ * each shard is locked on its own. A shard keeps four levels of 64 slots, each
+ * slot being a doubly linked list of tasks: a slot of the first level holds
+ * the tasks of one tick, and a slot of each next level spans all the slots of
+ * the level before it. Creating or cancelling a timer thus only links or
+ * unlinks the task. The "EJB-Timer-Wheel" thread sleeps until the first tick
+ * that has a task to expire, or whose round cascades the tasks of the upper
+ * levels, collects the tasks that are due and leaves running them to the
+ * executor, by batches of BATCH_SIZE tasks.
+ */
+class EJBTimerWheel {
+
+    private static final Logger logger = EJBTimerService.logger;
+
+    // maximum number of expired tasks run by a single work of the executor
+    static final int BATCH_SIZE = 64;
+
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (LEVEL_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Executor executor;
+    private final Shard[] shards;
+    private final int shardMask;
+
+    // the tick the wheel thread sleeps until, a task expiring before it wakes
+    // the thread up. Long.MAX_VALUE while the thread looks for the next tick.
+    private volatile long wakeupTick = Long.MAX_VALUE;
+    private volatile boolean woken;
+
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * @param tickMillis span of a slot of the lowest level, in milliseconds
+     * @param executor executor to which the expired tasks are handed
+     */
+    EJBTimerWheel(long tickMillis, Executor executor) {
+        this.tickMillis = tickMillis;
+        this.executor = executor;
+
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int count = Integer.highestOneBit(processors * 2 - 1);
+        long currentTick = System.currentTimeMillis() / tickMillis;
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(currentTick);
+        }
+        shardMask = count - 1;
+
+        thread = new Thread(new Runnable() {
+            public void run() {
+                advance();
+            }
+        }, "EJB-Timer-Wheel");
+        thread.setDaemon(true);
+        // avoid keeping the class loader of an application alive, see the
+        // creation of the JDK timer in EjbContainerUtilImpl
+        thread.setContextClassLoader(EJBTimerWheel.class.getClassLoader());
+        thread.start();
+    }
+
+    private Shard shardFor(EJBTimerTask task) {
+        int hash = System.identityHashCode(task);
+        hash ^= hash >>> 16;
+        return shards[hash & shardMask];
+    }
+
+    /**
+     * Schedules the task to run at the given time, or as soon as possible if
+     * that time is past.
+     */
+    void schedule(EJBTimerTask task, Date expiration) {
+        long expiryTick = (expiration.getTime() + tickMillis - 1) / tickMillis;
+        Shard shard = shardFor(task);
+        synchronized (shard) {
+            // set before checking the cancelled flag, see EJBTimerTask.cancel()
+            task.wheel_ = this;
+            if (task.cancelled_ || task.next_ != null) {
+                return;
+            }
+            task.expiryTick_ = expiryTick;
+            shard.schedule(task);
+        }
+        if (expiryTick < wakeupTick) {
+            woken = true;
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Removes the task from the wheel if it has not expired yet.
+     */
+    void remove(EJBTimerTask task) {
+        Shard shard = shardFor(task);
+        synchronized (shard) {
+            if (task.next_ == null) {
+                return;
+            }
+            shard.remove(task);
+        }
+    }
+
+    /**
+     * Stops the wheel thread. The tasks that are still scheduled never run.
+     */
+    void stop() {
+        stopped = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void advance() {
+        List<EJBTimerTask> expired = new ArrayList<EJBTimerTask>();
+        while (!stopped) {
+            try {
+                // a task scheduled from now on wakes the thread up
+                wakeupTick = Long.MAX_VALUE;
+                woken = false;
+
+                long nowTick = System.currentTimeMillis() / tickMillis;
+                long nextTick = Long.MAX_VALUE;
+                for (Shard shard : shards) {
+                    synchronized (shard) {
+                        shard.advance(nowTick, expired);
+                        nextTick = Math.min(nextTick, shard.nextTick());
+                    }
+                }
+                if (!expired.isEmpty()) {
+                    dispatch(expired);
+                    expired = new ArrayList<EJBTimerTask>();
+                }
+
+                synchronized (this) {
+                    wakeupTick = nextTick;
+                    if (nextTick == Long.MAX_VALUE) {
+                        while (!woken && !stopped) {
+                            wait();
+                        }
+                    } else {
+                        long delay = nextTick * tickMillis - System.currentTimeMillis();
+                        if (delay > 0 && !woken && !stopped) {
+                            wait(delay);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // check stopped
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "Exception in EJB timer wheel", t);
+                expired = new ArrayList<EJBTimerTask>();
+            }
+        }
+    }
+
+    private void dispatch(List<EJBTimerTask> expired) {
+        for (int i = 0; i < expired.size(); i += BATCH_SIZE) {
+            final List<EJBTimerTask> batch =
+                    expired.subList(i, Math.min(i + BATCH_SIZE, expired.size()));
+            executor.execute(new Runnable() {
+                public void run() {
+                    for (EJBTimerTask task : batch) {
+                        if (!task.cancelled_) {
+                            try {
+                                task.run();
+                            } catch (Throwable t) {
+                                logger.log(Level.WARNING, "Exception in EJB timer task", t);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * The slots of the tasks of a shard. All the methods are called with the
+     * monitor of the shard held, the tests drive a shard of their own.
+     */
+    static final class Shard {
+
+        // the slots of level l are at l * SLOTS to (l + 1) * SLOTS - 1
+        private final EJBTimerTask[] slots = new EJBTimerTask[LEVELS * SLOTS];
+
+        // the first tick that has not been expired yet
+        private long currentTick;
+
+        // number of tasks linked into the slots
+        private int count;
+
+        Shard(long currentTick) {
+            this.currentTick = currentTick;
+            for (int i = 0; i < slots.length; i++) {
+                EJBTimerTask head = new EJBTimerTask(null, null, null);
+                head.prev_ = head;
+                head.next_ = head;
+                slots[i] = head;
+            }
+        }
+
+        private static void link(EJBTimerTask head, EJBTimerTask task) {
+            task.prev_ = head.prev_;
+            task.next_ = head;
+            head.prev_.next_ = task;
+            head.prev_ = task;
+        }
+
+        private static void unlink(EJBTimerTask task) {
+            task.prev_.next_ = task.next_;
+            task.next_.prev_ = task.prev_;
+            task.prev_ = null;
+            task.next_ = null;
+        }
+
+        void remove(EJBTimerTask task) {
+            unlink(task);
+            count--;
+        }
+
+        /**
+         * Adds the task to the first level whose slots are wide enough to
+         * reach its expiry tick from the current one.
+         */
+        void schedule(EJBTimerTask task) {
+            long expiryTick = task.expiryTick_;
+            long delta = expiryTick - currentTick;
+            if (delta < 0) {
+                // already due, expired with the current tick
+                expiryTick = currentTick;
+                delta = 0;
+            } else if (delta > MAX_DELTA) {
+                // beyond the reach of the wheel, about 46 hours with 10 ms
+                // ticks: the last slot that can be reached holds the task
+                // until its cascade schedules it again from its real expiry
+                expiryTick = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+
+            int level = 0;
+            while (level < LEVELS - 1 && delta >= (1L << (LEVEL_BITS * (level + 1)))) {
+                level++;
+            }
+            int slot = (int) ((expiryTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+            link(slots[level * SLOTS + slot], task);
+            count++;
+        }
+
+        /**
+         * Expires the ticks from the current one to nowTick, both included,
+         * and adds their tasks to the expired list.
+         */
+        void advance(long nowTick, List<EJBTimerTask> expired) {
+            if (count == 0) {
+                // nothing can expire, skip the ticks spent waiting for a task
+                if (currentTick <= nowTick) {
+                    currentTick = nowTick + 1;
+                }
+                return;
+            }
+            while (currentTick <= nowTick) {
+                int index = (int) (currentTick & SLOT_MASK);
+                if (index == 0) {
+                    cascade();
+                }
+                EJBTimerTask head = slots[index];
+                while (head.next_ != head) {
+                    EJBTimerTask task = head.next_;
+                    remove(task);
+                    expired.add(task);
+                }
+                currentTick++;
+            }
+        }
+
+        /**
+         * Returns the first tick that advance() has to expire: the first tick
+         * of the current round of the first level whose slot holds tasks, or
+         * else the start of the next round, which may cascade tasks from the
+         * upper levels or hold tasks of the first level.
+         *
+         * @return the tick, or Long.MAX_VALUE if the shard holds no task
+         */
+        long nextTick() {
+            if (count == 0) {
+                return Long.MAX_VALUE;
+            }
+            long nextRound = (currentTick + SLOT_MASK) & ~(long) SLOT_MASK;
+            for (long tick = currentTick; tick < nextRound; tick++) {
+                EJBTimerTask head = slots[(int) (tick & SLOT_MASK)];
+                if (head.next_ != head) {
+                    return tick;
+                }
+            }
+            return nextRound;
+        }
+
+        /**
+         * Called when the current tick starts a new round of the first level:
+         * the slot of the second level that this round covers is emptied into
+         * the first level, and so on up the levels whose own round starts too.
+         */
+        private void cascade() {
+            for (int level = 1; level < LEVELS; level++) {
+                int slot = (int) ((currentTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+                EJBTimerTask head = slots[level * SLOTS + slot];
+                while (head.next_ != head) {
+                    EJBTimerTask task = head.next_;
+                    remove(task);
+                    schedule(task);
+                }
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
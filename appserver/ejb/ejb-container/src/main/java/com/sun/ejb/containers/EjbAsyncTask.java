@@ -66,6 +66,7 @@ public class EjbAsyncTask<V>
         V returnValue = null;
         BaseContainer container = (BaseContainer) inv.container;
         ClassLoader prevCL = Thread.currentThread().getContextClassLoader();
+        container.onAsyncInvocationStart();
         try {
             Utility.setContextClassLoader(container.getClassLoader());
 
@@ -110,6 +111,7 @@ public class EjbAsyncTask<V>
             } finally {
                 SecurityContext.setCurrent(null);
                 Utility.setContextClassLoader(prevCL);
+                container.onAsyncInvocationEnd();
             }
         }
 
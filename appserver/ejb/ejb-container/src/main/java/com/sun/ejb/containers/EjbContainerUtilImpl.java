@@ -71,6 +71,7 @@ import java.util.Vector;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 
 import org.glassfish.api.admin.ServerEnvironment;
 import org.glassfish.ejb.config.EjbContainer;
@@ -436,7 +437,21 @@ public class EjbContainerUtilImpl
 
     private ThreadPoolExecutor createThreadPoolExecutor(String poolName) {
         ThreadPoolExecutor result = null;
-        String val = ejbContainer.getPropertyValue(RuntimeTagNames.THREAD_CORE_POOL_SIZE);
+        String val = ejbContainer.getPropertyValue(RuntimeTagNames.USE_VIRTUAL_THREADS);
+        boolean useVirtualThreads = val != null ? Boolean.parseBoolean(val.trim())
+                : EjbContainer.DEFAULT_USE_VIRTUAL_THREADS;
+        if (useVirtualThreads) {
+            ThreadFactory factory = EjbThreadPoolExecutor.createVirtualThreadFactory(poolName);
+            if (factory != null) {
+                result = new EjbThreadPoolExecutor(factory);
+                _logger.log(Level.INFO, "Created " + result.toString());
+                return result;
+            }
+            _logger.log(Level.WARNING, RuntimeTagNames.USE_VIRTUAL_THREADS
+                    + " is ignored, virtual threads are not supported by this JVM");
+        }
+
+        val = ejbContainer.getPropertyValue(RuntimeTagNames.THREAD_CORE_POOL_SIZE);
         int corePoolSize = val != null ? Integer.parseInt(val.trim())
                 : EjbContainer.DEFAULT_THREAD_CORE_POOL_SIZE;
 
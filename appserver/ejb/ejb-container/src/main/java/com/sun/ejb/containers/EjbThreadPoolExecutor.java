@@ -20,19 +20,72 @@ import com.sun.enterprise.deployment.xml.RuntimeTagNames;
 import com.sun.enterprise.transaction.api.JavaEETransactionManager;
 import jakarta.transaction.Status;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.Callable;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class EjbThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final boolean virtualThreads;
+
     public EjbThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
             long keepAliveTime, BlockingQueue<Runnable> workQueue, String threadPoolName) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, TimeUnit.SECONDS, workQueue, 
                 new ThreadFactoryImpl(threadPoolName));
+        virtualThreads = false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, so
+     * that tasks blocking on I/O do not hold a thread of a bounded pool.
+     * @param virtualThreadFactory factory returned by
+     * {@link #createVirtualThreadFactory}
+     */
+    EjbThreadPoolExecutor(ThreadFactory virtualThreadFactory) {
+        super(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                virtualThreadFactory);
+        virtualThreads = true;
+    }
+
+    /**
+     * Returns a factory of virtual threads named after the pool, or null if
+     * the JVM does not support virtual threads. The factory is looked up
+     * reflectively as it is not available in the JDK version the server is
+     * built for.
+     */
+    static ThreadFactory createVirtualThreadFactory(String threadPoolName) {
+        final ThreadFactory factory;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadPoolName, 1L);
+            factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            Logger logger = EjbContainerUtilImpl.getLogger();
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, "Virtual threads are not available", e);
+            }
+            return null;
+        }
+
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread th = factory.newThread(r);
+                th.setContextClassLoader(null); //Prevent any app classloader being set as CCL
+                return th;
+            }
+        };
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
     }
 
     /**
@@ -51,6 +104,9 @@ public class EjbThreadPoolExecutor extends ThreadPoolExecutor {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("EjbThreadPoolExecutor with ");
+        if (virtualThreads) {
+            return sb.append(RuntimeTagNames.USE_VIRTUAL_THREADS).append(" true").toString();
+        }
         sb.append(RuntimeTagNames.THREAD_CORE_POOL_SIZE).append(" ").append(getCorePoolSize()).append(" ");
         sb.append(RuntimeTagNames.THREAD_MAX_POOL_SIZE).append(" ").append(getMaximumPoolSize()).append(" ");
         sb.append(RuntimeTagNames.THREAD_KEEP_ALIVE_SECONDS).append(" ").append(getKeepAliveTime(TimeUnit.SECONDS)).append(" ");
@@ -117,11 +117,10 @@ public final class InterceptorInvocationHandler
         try {
 
 
-            Method beanClassMethod = targetInstance.getClass().getMethod
-                (method.getName(), method.getParameterTypes());
-
-            InterceptorManager.InterceptorChain chain =
-                    interceptorManager.getAroundInvokeChain(null, beanClassMethod);
+            InterceptorManager.TargetMethodChain methodChain =
+                    interceptorManager.getTargetMethodChain(method, targetInstance.getClass());
+            Method beanClassMethod = methodChain.method;
+            InterceptorManager.InterceptorChain chain = methodChain.chain;
 
             Object[] theArgs = (args == null) ? emptyArray : args;
 
@@ -25,6 +25,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -90,6 +92,11 @@ public class InterceptorManager {
 
     List<InterceptorDescriptor> frameworkInterceptors = new LinkedList<InterceptorDescriptor>();
 
+    // Around invoke chains of the methods of a non-ejb, keyed by the method
+    // of the client proxy.  Shared by all the instances of the class.
+    private final ConcurrentMap<Method, TargetMethodChain> targetMethodChains =
+            new ConcurrentHashMap<Method, TargetMethodChain>();
+
 
     public InterceptorManager(Logger _logger, BaseContainer container,
                               Class[] lcAnnotationClasses, String[] pre30LCMethodNames)
@@ -248,6 +255,25 @@ public class InterceptorManager {
         return new AroundInvokeChainImpl(inter);
     }
 
+    /**
+     * Returns the around invoke chain of the target class method that
+     * implements the given method of the client proxy of a non-ejb.  The
+     * chain is built on the first call of the method, and is then reused
+     * by the calls on any instance of the target class.
+     */
+    TargetMethodChain getTargetMethodChain(Method method, Class targetClass)
+            throws NoSuchMethodException {
+        TargetMethodChain result = targetMethodChains.get(method);
+        if (result == null || result.targetClass != targetClass) {
+            Method targetMethod = targetClass.getMethod(method.getName(),
+                    method.getParameterTypes());
+            result = new TargetMethodChain(targetClass, targetMethod,
+                    getAroundInvokeChain(null, targetMethod));
+            targetMethodChains.put(method, result);
+        }
+        return result;
+    }
+
     public InterceptorManager.InterceptorChain getAroundTimeoutChain(
             MethodDescriptor mDesc, Method beanMethod) {
 
@@ -782,6 +808,18 @@ public class InterceptorManager {
 	    throws Throwable;
     }
 
+    static final class TargetMethodChain {
+        final Class targetClass;
+        final Method method;
+        final InterceptorChain chain;
+
+        TargetMethodChain(Class targetClass, Method method, InterceptorChain chain) {
+            this.targetClass = targetClass;
+            this.method = method;
+            this.chain = chain;
+        }
+    }
+
 
 
 }
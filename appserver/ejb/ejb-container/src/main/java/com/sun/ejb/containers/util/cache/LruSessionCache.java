@@ -83,7 +83,7 @@ public class LruSessionCache
     @LogMessageInfo(
         message = "[{0}]: Exiting TrimTimedoutBeans() because current cache state: [{1}]",
         level = "WARNING")
-    private static final String EXITING_TRIM_TIMEDOUT_BEANS = "AS-EJB-00009";
+    protected static final String EXITING_TRIM_TIMEDOUT_BEANS = "AS-EJB-00009";
 
     @LogMessageInfo(
         message = "[{0}]: TrimTimedoutBeans(), resetting head.lPrev",
@@ -120,12 +120,12 @@ public class LruSessionCache
 
     protected String configData;
 
-    private static final int	    STATE_RUNNING = 0;
+    protected static final int	    STATE_RUNNING = 0;
     private static final int	    STATE_SHUTTING_DOWN = 1;
     private static final int	    STATE_UNDEPLOYING = 2;
     private static final int	    STATE_DESTROYED = 3;
 
-    private int			    currentCacheState = STATE_RUNNING;
+    protected int		    currentCacheState = STATE_RUNNING;
 
     protected int	confMaxCacheSize = Integer.MAX_VALUE;
 
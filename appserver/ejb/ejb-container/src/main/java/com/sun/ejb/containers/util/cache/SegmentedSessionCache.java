@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers.util.cache;
+
+import com.sun.appserv.util.cache.Constants;
+
+import com.sun.ejb.spi.container.SFSBContainerCallback;
+import com.sun.ejb.spi.container.StatefulEJBContext;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+
+/**
+ * Session cache whose LRU list is split in segments, each guarded by its own
+ * lock, so that concurrent accesses to different beans seldom contend.
+ * <p>
+ * A bean is mapped to a segment by the hash code of its session key. Each
+ * segment holds an equal share of the cache size and keeps its own LRU list
+ * along with an approximate count of the recent accesses to its beans. When a
+ * segment overflows, the victim is the least frequently accessed of the few
+ * least recently used beans, so that beans that are used once, as in a scan,
+ * do not push the hot beans out of the cache. The victims are handed to the
+ * container, which passivates them in batches on its own threads.
+ */
+public class SegmentedSessionCache
+    extends LruSessionCache
+{
+
+    // number of beans, from the tail of the LRU list, among which the victim
+    // of an overflow is selected
+    private static final int VICTIM_SAMPLE_SIZE = 4;
+
+    // smallest share of the cache size held by a segment
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    private Segment[] segments;
+    private int segmentMask;
+
+    public SegmentedSessionCache(String cacheName,
+        SFSBContainerCallback container, int cacheIdleTime, int removalTime)
+    {
+        super("Segmented-" + cacheName, container, cacheIdleTime, removalTime);
+    }
+
+    public void init(int maxEntries, float loadFactor, Properties props) {
+        super.init(maxEntries, loadFactor, props);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = Integer.highestOneBit(Math.max(1, processors * 2 - 1));
+        while (count > 1 && threshold / count < MIN_SEGMENT_SIZE) {
+            count >>= 1;
+        }
+
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(Math.max(1, (threshold + count - 1) / count));
+        }
+        segmentMask = count - 1;
+    }
+
+    private Segment segmentFor(CacheItem item) {
+        int hash = item.getHashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    protected CacheItem itemAdded(CacheItem item) {
+        LruCacheItem lc = (LruCacheItem) item;
+        Segment segment = segmentFor(item);
+        synchronized (segment) {
+            lc.setLastAccessed(System.currentTimeMillis());
+            segment.recordAccess(item.getHashCode());
+            segment.addFirst(lc);
+            return segment.evict(lc);
+        }
+    }
+
+    protected void itemAccessed(CacheItem item) {
+        LruCacheItem lc = (LruCacheItem) item;
+        Segment segment = segmentFor(item);
+        CacheItem overflow = null;
+        synchronized (segment) {
+            lc.setLastAccessed(System.currentTimeMillis());
+            segment.recordAccess(item.getHashCode());
+            if (lc.isTrimmed()) {
+                // accessed after it was selected for passivation
+                lc.setTrimmed(false);
+                segment.victimsAccessed++;
+                segment.addFirst(lc);
+                overflow = segment.evict(lc);
+            } else if (segment.head != lc) {
+                segment.unlink(lc);
+                segment.addFirst(lc);
+            }
+        }
+        if (overflow != null) {
+            trimItem(overflow);
+        }
+    }
+
+    protected void itemRemoved(CacheItem item) {
+        LruCacheItem lc = (LruCacheItem) item;
+        Segment segment = segmentFor(item);
+        synchronized (segment) {
+            if (!lc.isTrimmed()) {
+                segment.unlink(lc);
+            }
+        }
+    }
+
+    /**
+     * get an Iterator for the values stored in the cache
+     * @returns an Iterator
+     */
+    public Iterator values() {
+        ArrayList valueList = new ArrayList();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (LruCacheItem item = segment.tail; item != null; item = item.getLPrev()) {
+                    StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+                    if (ctx != null) {
+                        valueList.add(ctx);
+                    }
+                }
+            }
+        }
+        return valueList.iterator();
+    }
+
+    public void shutdown() {
+        ArrayList<StatefulEJBContext> valueList = new ArrayList<StatefulEJBContext>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (LruCacheItem item = segment.tail; item != null; item = item.getLPrev()) {
+                    StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+                    if (ctx != null) {
+                        item.setTrimmed(true);
+                        valueList.add(ctx);
+                    }
+                }
+            }
+        }
+
+        for (StatefulEJBContext ctx : valueList) {
+            container.passivateEJB(ctx);
+        }
+    }
+
+    /**
+     * trim the timedOut entries from the cache.
+     * This call is to be scheduled by a thread managed by the container.
+     * The LRU list of each segment is scanned from its tail, and the victims
+     * are handed to the container in batches of the passivation batch size.
+     */
+    public void trimTimedoutItems(int maxTrimCount) {
+        long idleThresholdTime = System.currentTimeMillis()
+            - cacheIdleTimeoutInSeconds*1000L;
+        int batchSize = Math.max(1, container.getPassivationBatchCount());
+        ArrayList victims = new ArrayList();
+        int count = 0;
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                "[" + cacheName + "]: TrimTimedoutBeans started...");
+        }
+
+        for (Segment segment : segments) {
+            if (currentCacheState != STATE_RUNNING) {
+                _logger.log(Level.WARNING, EXITING_TRIM_TIMEDOUT_BEANS,
+                    new Object[]{cacheName, currentCacheState});
+                break;
+            }
+
+            synchronized (segment) {
+                LruCacheItem item = segment.tail;
+                while (item != null && count + victims.size() < maxTrimCount) {
+                    StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
+                    if (ctx != null && ((ctx.getLastAccessTime() > idleThresholdTime)
+                            || !ctx.canBePassivated())) {
+                        break;
+                    }
+                    LruCacheItem prev = item.getLPrev();
+                    if (ctx != null) {
+                        segment.unlink(item);
+                        item.setTrimmed(true);
+                        segment.trimCount++;
+                        victims.add(item);
+                    }
+                    item = prev;
+                }
+            }
+
+            if (victims.size() >= batchSize) {
+                count += trimVictims(victims);
+            }
+        }
+        count += trimVictims(victims);
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                        "[" + cacheName + "]: TrimTimedoutBeans "
+                        + " finished after removing " + count + " idle beans");
+        }
+    }
+
+    private int trimVictims(ArrayList victims) {
+        int sz = victims.size();
+        for (int i = 0; i < sz; i++) {
+            trimItem((CacheItem) victims.get(i));
+        }
+        victims.clear();
+        return sz;
+    }
+
+    public int getNumVictimsAccessed() {
+        int victimsAccessed = 0;
+        for (Segment segment : segments) {
+            victimsAccessed += segment.victimsAccessed;
+        }
+        return victimsAccessed;
+    }
+
+    public Object getStatByName(String key) {
+        if (Constants.STAT_LRUCACHE_LIST_LENGTH.equals(key)) {
+            return Integer.valueOf(getListSize());
+        } else if (Constants.STAT_LRUCACHE_TRIM_COUNT.equals(key)) {
+            return Integer.valueOf(getTrimCount());
+        }
+        return super.getStatByName(key);
+    }
+
+    public Map getStats() {
+        Map stats = super.getStats();
+        stats.put(Constants.STAT_LRUCACHE_LIST_LENGTH,
+                  Integer.valueOf(getListSize()));
+        stats.put(Constants.STAT_LRUCACHE_TRIM_COUNT,
+                  Integer.valueOf(getTrimCount()));
+        return stats;
+    }
+
+    private int getListSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private int getTrimCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.trimCount;
+        }
+        return count;
+    }
+
+    /**
+     * LRU list of a segment of the cache, along with a count-min sketch of
+     * the recent accesses to its beans. All the fields are guarded by the
+     * monitor of the segment.
+     */
+    private static final class Segment {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xb3a2f1f3, 0x5bd1e995, 0x1b873593};
+
+        private final int capacity;
+        private final byte[] counts;
+        private final int countMask;
+        private final int sampleSize;
+        private int additions;
+
+        private LruCacheItem head;
+        private LruCacheItem tail;
+        private int size;
+        private int trimCount;
+        private int victimsAccessed;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int width = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 20)) - 1) << 1;
+            counts = new byte[width * DEPTH];
+            countMask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        void addFirst(LruCacheItem item) {
+            item.setLPrev(null);
+            item.setLNext(head);
+            if (head != null) {
+                head.setLPrev(item);
+            } else {
+                tail = item;
+            }
+            head = item;
+            size++;
+        }
+
+        void unlink(LruCacheItem item) {
+            LruCacheItem prev = item.getLPrev();
+            LruCacheItem next = item.getLNext();
+            if (prev != null) {
+                prev.setLNext(next);
+            } else if (head == item) {
+                head = next;
+            } else {
+                // not linked
+                return;
+            }
+            if (next != null) {
+                next.setLPrev(prev);
+            } else {
+                tail = prev;
+            }
+            item.setLPrev(null);
+            item.setLNext(null);
+            size--;
+        }
+
+        /**
+         * Selects and unlinks a victim if the segment overflows.
+         *
+         * @param added item that was just added, never selected
+         * @return the victim, or null if the segment does not overflow
+         */
+        LruCacheItem evict(LruCacheItem added) {
+            if (size <= capacity) {
+                return null;
+            }
+            LruCacheItem victim = null;
+            int victimFrequency = Integer.MAX_VALUE;
+            LruCacheItem item = tail;
+            for (int i = 0; i < VICTIM_SAMPLE_SIZE && item != null; item = item.getLPrev()) {
+                if (item == added) {
+                    continue;
+                }
+                int frequency = frequency(item.getHashCode());
+                if (frequency < victimFrequency) {
+                    victim = item;
+                    victimFrequency = frequency;
+                }
+                i++;
+            }
+            if (victim != null) {
+                unlink(victim);
+                victim.setTrimmed(true);
+                trimCount++;
+            }
+            return victim;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (countMask + 1) + (h & countMask);
+        }
+
+        void recordAccess(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (counts[index] < MAX_COUNT) {
+                    counts[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                // halve all the counters so that old accesses are aged out
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] >>>= 1;
+                }
+                additions = 0;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counts[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+    }
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers.util.pool;
+
+import com.sun.ejb.containers.EJBContextImpl;
+import com.sun.ejb.containers.EjbContainerUtilImpl;
+import com.sun.enterprise.util.Utility;
+
+import java.util.ArrayList;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * <p>StripedPool is a non blocking pool, like {@link NonBlockingPool}, whose
+ * available objects are spread over several free lists instead of a single
+ * synchronized list. A thread takes objects from and returns objects to the
+ * free list of its own stripe, and only looks at the other stripes when its
+ * own is empty, so that threads using the pool concurrently seldom touch the
+ * same list and never wait for each other.
+ * <p>The number of objects kept in the pool is bounded by maxPoolSize with an
+ * atomic counter. If all the free lists are empty, an object is simply created
+ * using the ObjectFactory. Like NonBlockingPool, the pool is brought back to
+ * its steady size in the background, and objects that stay idle longer than
+ * the idle timeout are removed, resizeQuantity at a time, by a periodic task.
+ */
+public class StripedPool
+    extends AbstractPool
+{
+
+    private static final int MAX_STRIPES = 64;
+
+    private final ConcurrentLinkedDeque<Object>[] stripes;
+    private final int stripeMask;
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger destroyed = new AtomicInteger();
+    private final AtomicInteger success = new AtomicInteger();
+    private final AtomicInteger returned = new AtomicInteger();
+
+    private final AtomicBoolean addedResizeTask = new AtomicBoolean();
+    private final AtomicBoolean addedIdleBeanWork = new AtomicBoolean();
+    private final AtomicBoolean inResizing = new AtomicBoolean();
+
+    private TimerTask poolTimerTask;
+    private boolean maintainSteadySize;
+    private volatile boolean poolClosed;
+
+    // stripe from which the next idle objects are removed
+    private int idleStripe;
+
+    @SuppressWarnings("unchecked")
+    public StripedPool(long beanId, String poolName, ObjectFactory factory,
+        int steadyPoolSize, int resizeQuantity,
+        int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader)
+    {
+        this.poolName = poolName;
+        this.beanId = beanId;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = Integer.highestOneBit(
+            Math.max(1, Math.min(processors, MAX_STRIPES)) * 2 - 1);
+        stripes = new ConcurrentLinkedDeque[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentLinkedDeque<Object>();
+        }
+        stripeMask = count - 1;
+
+        initializePool(factory, steadyPoolSize, resizeQuantity, maxPoolSize,
+                       idleTimeoutInSeconds, loader);
+    }
+
+    protected void initializePool(ObjectFactory factory, int steadyPoolSize,
+        int resizeQuantity, int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader)
+    {
+        this.factory = factory;
+        this.steadyPoolSize = (steadyPoolSize <= 0) ? 0 : steadyPoolSize;
+        this.resizeQuantity = (resizeQuantity <= 0) ? 0 : resizeQuantity;
+        this.maxPoolSize = (maxPoolSize <= 0)
+            ? Integer.MAX_VALUE : maxPoolSize;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+        this.idleTimeoutInSeconds =
+            (idleTimeoutInSeconds <= 0) ? 0 : idleTimeoutInSeconds;
+
+        this.containerClassLoader = loader;
+
+        this.maintainSteadySize = (this.steadyPoolSize > 0);
+        if ((this.idleTimeoutInSeconds > 0) && (this.resizeQuantity > 0)) {
+            try {
+                this.poolTimerTask =  new PoolResizeTimerTask();
+                EjbContainerUtilImpl.getInstance().getTimer().scheduleAtFixedRate
+                    (poolTimerTask, idleTimeoutInSeconds*1000L,
+                     idleTimeoutInSeconds*1000L);
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                      "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,"[Pool-" +
+                            poolName + "]: Could not add"
+                            + " PoolTimerTask. Continuing anyway...", th);
+            }
+        }
+    }
+
+    private int stripeIndex() {
+        int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    /**
+     * Reserve room for one more object in the pool.
+     * @return false if the pool already holds maxPoolSize objects
+     */
+    private boolean reserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxPoolSize) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private Object poll() {
+        int home = stripeIndex();
+        for (int i = 0; i < stripes.length; i++) {
+            Object obj = stripes[(home + i) & stripeMask].pollFirst();
+            if (obj != null) {
+                size.decrementAndGet();
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    public Object getObject(boolean canWait, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    public Object getObject(long maxWaitTime, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    public Object getObject(Object param)
+    {
+        Object obj = poll();
+        if (obj != null) {
+            success.incrementAndGet();
+            if (maintainSteadySize && size.get() < steadyPoolSize) {
+                addResizeTaskForImmediateExecution();
+            }
+            return obj;
+        }
+
+        if (maintainSteadySize) {
+            addResizeTaskForImmediateExecution();
+        }
+        poolProbeNotifier.ejbObjectAddedEvent(beanId, appName, modName, ejbName);
+        created.incrementAndGet();	//hope that everything will be OK.
+        try {
+            return factory.create(param);
+        } catch (RuntimeException th) {
+            poolProbeNotifier.ejbObjectAddFailedEvent(beanId, appName, modName, ejbName);
+            created.decrementAndGet();
+            throw th;
+        }
+    }
+
+    private void addResizeTaskForImmediateExecution() {
+        if (!addedResizeTask.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ReSizeWork work = new ReSizeWork();
+            EjbContainerUtilImpl.getInstance().addWork(work);
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                     "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+            }
+        } catch (Exception ex) {
+            addedResizeTask.set(false);
+            if(_logger.isLoggable(Level.WARNING)) {
+            	_logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool resize task", ex);
+            }
+        }
+    }
+
+    /**
+     * Return an object back to the pool. An object that is obtained through
+     *	getObject() must always be returned back to the pool using either
+     *	returnObject(obj) or through destroyObject(obj).
+     */
+    public void returnObject(Object object) {
+        if (!poolClosed && reserve()) {
+            stripes[stripeIndex()].offerFirst(object);
+            returned.incrementAndGet();
+            return;
+        }
+
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyed.incrementAndGet();
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in returnObj", ex);
+        }
+    }
+
+    /**
+     * Destroys an Object. Note that applications should not ignore
+     * the reference to the object that they got from getObject(). An object
+     * that is obtained through getObject() must always be returned back to
+     * the pool using either returnObject(obj) or through destroyObject(obj).
+     * This method tells that the object should be destroyed and cannot
+     * be reused.
+     */
+    public void destroyObject(Object object) {
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyed.incrementAndGet();
+
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in destroyObject", ex);
+        }
+    }
+
+    /**
+    * Preload the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    protected void preload(int count) {
+
+        ArrayList instances = new ArrayList(count);
+        try {
+            for (int i=0; i<count; i++) {
+                instances.add(factory.create(null));
+            }
+    	} catch (Exception ex) {
+            //Need not throw this exception up since we are pre-populating
+    	}
+
+        int sz = instances.size();
+        if (sz == 0) {
+            return;
+        }
+        created.addAndGet(sz);
+
+        // spread the instances over the stripes, and destroy the ones
+        // that do not fit in the pool
+        for (int i = 0; i < sz; i++) {
+            Object instance = instances.get(i);
+            if (!poolClosed && reserve()) {
+                stripes[i & stripeMask].offerLast(instance);
+            } else {
+                destroyObject(instance);
+            }
+        }
+    }
+
+    /**
+    * Prepopulate the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    public void prepopulate(int count) {
+        this.steadyPoolSize = (count <= 0) ? 0 : count;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+
+        if (this.steadyPoolSize > 0) {
+            preload(this.steadyPoolSize);
+        }
+    }
+
+    /**
+    * Close the pool
+    */
+    public void close() {
+        poolClosed = true;
+        if (poolTimerTask != null) {
+            try {
+                poolTimerTask.cancel();
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                        "[Pool-"+poolName+"]: Cancelled pool timer task "
+                                + " at: " + (new java.util.Date()));
+                }
+            } catch (Throwable th) {
+                //Can safely ignore this!!
+            }
+        }
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"[Pool-"+poolName+"]: Destroying "
+                        + size.get() + " beans from the pool...");
+        }
+
+        // since we're calling into ejb code, we need to set context
+        // class loader
+        ClassLoader origLoader =
+            Utility.setContextClassLoader(containerClassLoader);
+
+        Object obj;
+        while ((obj = poll()) != null) {
+            try {
+                poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+                destroyed.incrementAndGet();
+                try {
+                    factory.destroy(obj);
+                } catch (Throwable th) {
+                    _logger.log(Level.FINE, "exception in close", th);
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,
+                    "[Pool-"+poolName+"]: Error while destroying", th);
+            }
+        }
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"Pool-"+poolName+"]: Pool closed....");
+        }
+        unregisterProbeProvider();
+
+        Utility.setContextClassLoader(origLoader);
+
+        this.poolTimerTask         = null;
+        this.containerClassLoader  = null;
+    }
+
+    protected void remove(int count) {
+        ArrayList removeList = new ArrayList();
+        Object obj;
+        for (int i=0; (i<count) && ((obj = poll()) != null); i++) {
+            removeList.add(obj);
+            poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+            destroyed.incrementAndGet();
+        }
+
+        int sz = removeList.size();
+        for (int i=0; i<sz; i++) {
+            try {
+                factory.destroy(removeList.get(i));
+            } catch (Throwable th) {
+                _logger.log(Level.FINE, "exception in remove", th);
+            }
+        }
+    }
+
+    /**
+     * Remove up to victimCount objects that have not been used since
+     * allowedIdleTime. The least recently returned objects are at the tail
+     * of each stripe, the stripes are visited in turn.
+     */
+    private ArrayList removeIdleObjects(int victimCount, long allowedIdleTime) {
+        ArrayList removeList = new ArrayList();
+        int start = idleStripe;
+        for (int i = 0; i < stripes.length && removeList.size() < victimCount; i++) {
+            ConcurrentLinkedDeque<Object> stripe = stripes[(start + i) & stripeMask];
+            while (removeList.size() < victimCount) {
+                Object obj = stripe.pollLast();
+                if (obj == null) {
+                    break;
+                }
+                if (((EJBContextImpl) obj).getLastTimeUsed() <= allowedIdleTime) {
+                    size.decrementAndGet();
+                    removeList.add(obj);
+                    poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+                    destroyed.incrementAndGet();
+                } else {
+                    stripe.offerLast(obj);
+                    break;
+                }
+            }
+        }
+        idleStripe = (start + 1) & stripeMask;
+        return removeList;
+    }
+
+    protected void removeIdleObjects() {
+    }
+
+    protected void doResize() {
+
+        if (poolClosed || !inResizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        //We need to set the context class loader for this (deamon) thread!!
+        final Thread currentThread = Thread.currentThread();
+        final ClassLoader previousClassLoader =
+            currentThread.getContextClassLoader();
+        final ClassLoader ctxClassLoader = containerClassLoader;
+
+        long startTime = 0;
+        try {
+            if(System.getSecurityManager() == null) {
+                currentThread.setContextClassLoader(ctxClassLoader);
+            } else {
+                java.security.AccessController.doPrivileged(
+                        new java.security.PrivilegedAction() {
+                    public java.lang.Object run() {
+                        currentThread.setContextClassLoader(ctxClassLoader);
+                        return null;
+                    }
+                });
+            }
+
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                    "[Pool-"+poolName+"]: Resize started at: "
+                  + (new java.util.Date())+" steadyPoolSize ::"+steadyPoolSize
+                  + " resizeQuantity ::"+resizeQuantity+" maxPoolSize ::" +
+                  maxPoolSize );
+            }
+            startTime = System.currentTimeMillis();
+
+            ArrayList removeList = null;
+            long populateCount = 0;
+            int curSize = size.get();
+
+            if (curSize > steadyPoolSize) {
+
+                //possible to reduce pool size....
+                if ((idleTimeoutInSeconds <= 0)  ||
+                    (resizeQuantity <= 0)) {
+                    return;
+                }
+                int victimCount =
+                    (curSize > (steadyPoolSize + resizeQuantity) )
+                    ? resizeQuantity : (curSize - steadyPoolSize);
+                long allowedIdleTime = System.currentTimeMillis() -
+                    idleTimeoutInSeconds*1000L;
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                                "[Pool-"+poolName+"]: Resize:: reducing "
+                                + " pool size by: " + victimCount);
+                }
+                removeList = removeIdleObjects(victimCount, allowedIdleTime);
+            } else if (curSize < steadyPoolSize) {
+
+                //Need to populate....
+                if (maintainSteadySize  == false) {
+                    return;
+                }
+
+                if (resizeQuantity <= 0) {
+                    populateCount = steadyPoolSize - curSize;
+                } else {
+                    while ((curSize + populateCount) < steadyPoolSize) {
+                        populateCount += resizeQuantity;
+                    }
+                    if ((curSize + populateCount) > maxPoolSize) {
+                        populateCount -= (curSize + populateCount) - maxPoolSize;
+                    }
+                }
+            }
+
+            if (removeList != null) {
+                int sz = removeList.size();
+                for (int i=0; i<sz; i++) {
+                    try {
+                        factory.destroy(removeList.get(i));
+                    } catch (Throwable th) {
+                        _logger.log(Level.FINE, "exception in doResize", th);
+                    }
+                }
+            }
+
+            if (populateCount > 0) {
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                            "[Pool-"+poolName+"]: Attempting to preload "
+                            + populateCount + " beans. CurSize/MaxPoolSize: "
+                            + size.get() + "/" + maxPoolSize);
+                }
+
+                preload((int)populateCount);
+
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                            "[Pool-"+poolName+"]: After preload "
+                            + "CurSize/MaxPoolSize: "
+                            + size.get() + "/" + maxPoolSize);
+                }
+            }
+
+        } catch (Throwable th) {
+            _logger.log(Level.WARNING,
+                        "[Pool-"+poolName+"]: Exception during reSize", th);
+
+        } finally {
+            inResizing.set(false);
+            if(System.getSecurityManager() == null) {
+                currentThread.setContextClassLoader(previousClassLoader);
+            } else {
+                java.security.AccessController.doPrivileged(
+                        new java.security.PrivilegedAction() {
+                    public java.lang.Object run() {
+                        currentThread.setContextClassLoader(previousClassLoader);
+                        return null;
+                    }
+                });
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                "[Pool-"+poolName+"]: Resize completed at: "
+                + (new java.util.Date()) + "; after reSize: " +
+                getAllAttrValues());
+            _logger.log(Level.FINE, "[Pool-"+poolName+"]: Resize took: "
+                        + ((endTime-startTime)/1000.0) + " seconds.");
+        }
+    }
+
+    /**************** For Monitoring ***********************/
+    /*******************************************************/
+
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    public int getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public int getPoolSuccess() {
+        return success.get();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public void appendStats(StringBuffer sbuf) {
+	sbuf.append("[Pool: ")
+	    .append("SZ=").append(size.get()).append("; ")
+	    .append("CC=").append(created.get()).append("; ")
+	    .append("DC=").append(destroyed.get()).append("; ")
+	    .append("WC=").append(waitCount).append("; ")
+	    .append("MSG=0");
+	if (configData != null) {
+	    sbuf.append(configData);
+	}
+	sbuf.append("]");
+    }
+
+    public int getNumBeansInPool() {
+	return size.get();
+    }
+
+    public int getTotalBeansCreated() {
+	return created.get();
+    }
+
+    public int getTotalBeansDestroyed() {
+	return destroyed.get();
+    }
+
+    public String getAllMonitoredAttrbuteValues() {
+        StringBuffer sbuf = new StringBuffer();
+        sbuf.append("createdCount=").append(created.get()).append(";")
+            .append("destroyedCount=").append(destroyed.get()).append(";")
+            .append("waitCount=").append(waitCount).append(";")
+            .append("size=").append(size.get()).append(";");
+        sbuf.append("maxPoolSize=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    public String getAllAttrValues() {
+        StringBuffer sbuf = new StringBuffer("[Pool-"+poolName+"] ");
+        sbuf.append("CC=").append(created.get()).append("; ")
+            .append("DC=").append(destroyed.get()).append("; ")
+            .append("PR=").append(returned.get()).append("; ")
+            .append("CS=").append(size.get()).append("; ")
+            .append("SS=").append(steadyPoolSize).append("; ")
+            .append("MS=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    private class ReSizeWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+                _logger.log(Level.WARNING,
+                    "[Pool-"+poolName+"]: Exception during reSize", ex);
+            } finally {
+                addedResizeTask.set(false);
+            }
+        }
+    }
+
+    private class IdleBeanWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+            } finally {
+                addedIdleBeanWork.set(false);
+            }
+        }
+    }
+
+    private class PoolResizeTimerTask
+        extends java.util.TimerTask
+    {
+        PoolResizeTimerTask() {}
+
+        public void run() {
+            if (!addedIdleBeanWork.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                IdleBeanWork work = new IdleBeanWork();
+                EjbContainerUtilImpl.getInstance().addWork(work);
+            } catch (Exception ex) {
+                addedIdleBeanWork.set(false);
+                _logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool idle bean cleanup", ex);
+            }
+        }
+    } // End of class PoolResizeTimerTask
+
+}
@@ -53,6 +53,9 @@ public abstract class EjbMonitoringStatsProvider {
     private CountStatisticImpl removeStat = new CountStatisticImpl("RemoveCount", 
             "count", "Number of times EJB remove method is called");
 
+    private RangeStatisticImpl asyncInvocationsInFlight = createInFlightStatistic(
+            "AsyncInvocationsInFlight", "Number of asynchronous invocations being executed");
+
     static final Logger _logger = EjbContainerUtilImpl.getLogger();
 
     public EjbMonitoringStatsProvider(long beanId, String appName, String moduleName,
@@ -186,6 +189,30 @@ public abstract class EjbMonitoringStatsProvider {
         }
     }
 
+    @ProbeListener("glassfish:ejb:bean:asyncInvocationStartEvent")
+    public void asyncInvocationStartEvent(
+            @ProbeParam("beanId") long beanId,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("modName") String modName,
+            @ProbeParam("ejbName") String ejbName) {
+        if (this.beanId == beanId) {
+            _log("asyncInvocationStartEvent");
+            addInFlight(asyncInvocationsInFlight, 1);
+        }
+    }
+
+    @ProbeListener("glassfish:ejb:bean:asyncInvocationEndEvent")
+    public void asyncInvocationEndEvent(
+            @ProbeParam("beanId") long beanId,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("modName") String modName,
+            @ProbeParam("ejbName") String ejbName) {
+        if (this.beanId == beanId) {
+            _log("asyncInvocationEndEvent");
+            addInFlight(asyncInvocationsInFlight, -1);
+        }
+    }
+
     @ManagedAttribute(id="createcount")
     @Description( "Number of times EJB create method is called")
     public CountStatistic getCreateCount() {
@@ -198,6 +225,27 @@ public abstract class EjbMonitoringStatsProvider {
         return removeStat;
     }
 
+    @ManagedAttribute(id="asyncinvocationsinflight")
+    @Description( "Number of asynchronous invocations being executed")
+    public RangeStatistic getAsyncInvocationsInFlight() {
+        return asyncInvocationsInFlight;
+    }
+
+    protected static RangeStatisticImpl createInFlightStatistic(String name, String description) {
+        long now = System.currentTimeMillis();
+        return new RangeStatisticImpl(0, 0, 0, name, "count", description, now, now);
+    }
+
+    /**
+     * Adds the delta to the current value of a statistic counting the
+     * operations in progress, which also tracks its high water mark.
+     */
+    protected static void addInFlight(RangeStatisticImpl stat, long delta) {
+        synchronized (stat) {
+            stat.setCurrent(stat.getCurrent() + delta);
+        }
+    }
+
     protected void log(String mname, String provider) {
         if (_logger.isLoggable(Level.FINE)) {
             _logger.fine("===> In " + provider + " for: [" 
@@ -93,6 +93,9 @@ public class EjbJarHandler extends AbstractArchiveHandler {
             }
         });
 
+        // reuse the package indexes of the jars across restarts
+        cloader.setIndexDir(context.getScratchDir("classindex"));
+
         try {
             String compatProp = context.getAppProps().getProperty(
                     DeploymentProperties.COMPATIBILITY);
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers;
+
+import java.util.Date;
+import java.util.Timer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the creation, cancellation and expiration of
+ * non-persistent timers, scheduled on the timer wheel and on the JDK timer
+ * used without it.
+ * <p>
+ * Not a unit test, it is not run by the build. Run it with the test classpath
+ * of the module:
+ * <pre>
+ * java com.sun.ejb.containers.EJBTimerWheelBenchmark [timers [threads]]
+ * </pre>
+ * The default is 200000 timers created and cancelled by 4 threads.
+ */
+public class EJBTimerWheelBenchmark {
+
+    private final int timers;
+    private final int threads;
+
+    private EJBTimerWheelBenchmark(int timers, int threads) {
+        this.timers = timers;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        EJBTimerWheelBenchmark benchmark = new EJBTimerWheelBenchmark(timers, threads);
+
+        // the first round warms up the code of both schedulers
+        for (int round = 0; round < 2; round++) {
+            benchmark.runJdkTimer();
+            benchmark.runTimerWheel();
+        }
+    }
+
+    private void runTimerWheel() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final EJBTimerWheel wheel = new EJBTimerWheel(10, pool);
+        try {
+            run("EJBTimerWheel", new Scheduler() {
+                public void schedule(EJBTimerTask task, Date expiration) {
+                    wheel.schedule(task, expiration);
+                }
+            });
+        } finally {
+            wheel.stop();
+            pool.shutdownNow();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void runJdkTimer() throws Exception {
+        final Timer timer = new Timer("EJBTimerWheelBenchmark", true);
+        try {
+            run("java.util.Timer", new Scheduler() {
+                public void schedule(EJBTimerTask task, Date expiration) {
+                    timer.schedule(task, expiration);
+                }
+            });
+        } finally {
+            timer.cancel();
+        }
+    }
+
+    private void run(String name, final Scheduler scheduler) throws Exception {
+        final Task[] tasks = new Task[timers];
+        final CountDownLatch fired = new CountDownLatch(timers);
+
+        // Create timers far in the future, then cancel them.
+        final Date later = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        long start = System.nanoTime();
+        runConcurrently(new Slice() {
+            public void run(int i) {
+                tasks[i] = new Task(later, fired);
+                scheduler.schedule(tasks[i], later);
+            }
+        });
+        long created = System.nanoTime();
+        runConcurrently(new Slice() {
+            public void run(int i) {
+                tasks[i].cancel();
+            }
+        });
+        long cancelled = System.nanoTime();
+
+        // Create timers that expire shortly and wait until they all fire.
+        final Date soon = new Date(System.currentTimeMillis() + 1000);
+        runConcurrently(new Slice() {
+            public void run(int i) {
+                scheduler.schedule(new Task(soon, fired), soon);
+            }
+        });
+        if (!fired.await(60, TimeUnit.SECONDS)) {
+            System.out.println(name + ": " + fired.getCount() + " timers did not fire");
+            return;
+        }
+        // time from the expiration until the last timer fired
+        long fireNanos = TimeUnit.MILLISECONDS.toNanos(
+                System.currentTimeMillis() - soon.getTime());
+
+        System.out.println(name + ": " + timers + " timers, " + threads + " threads; "
+                + "create " + rate(created - start) + " ops/s, "
+                + "cancel " + rate(cancelled - created) + " ops/s, "
+                + "fire " + rate(fireNanos) + " ops/s");
+    }
+
+    private long rate(long nanos) {
+        return timers * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    private void runConcurrently(final Slice slice) throws Exception {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            workers[t] = new Thread() {
+                public void run() {
+                    for (int i = first; i < timers; i += threads) {
+                        slice.run(i);
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private interface Scheduler {
+        void schedule(EJBTimerTask task, Date expiration);
+    }
+
+    private interface Slice {
+        void run(int i);
+    }
+
+    private static class Task extends EJBTimerTask {
+
+        private final CountDownLatch fired;
+
+        Task(Date expiration, CountDownLatch fired) {
+            super(expiration, null, null);
+            this.fired = fired;
+        }
+
+        public void run() {
+            fired.countDown();
+        }
+    }
+}
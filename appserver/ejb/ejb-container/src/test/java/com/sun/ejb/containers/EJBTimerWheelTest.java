@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks that the timer wheel expires the tasks at their tick, in order, and
+ * that cancelled tasks never run.
+ */
+public class EJBTimerWheelTest extends TestCase {
+
+    private ExecutorService pool;
+    private EJBTimerWheel wheel;
+
+    public EJBTimerWheelTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return new TestSuite(EJBTimerWheelTest.class);
+    }
+
+    protected void setUp() {
+        pool = Executors.newFixedThreadPool(2);
+        wheel = new EJBTimerWheel(10, pool);
+    }
+
+    protected void tearDown() throws Exception {
+        wheel.stop();
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public void testExpiryOrder() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(0);
+        Task third = schedule(shard, 5);
+        Task first = schedule(shard, 1);
+        Task second = schedule(shard, 3);
+        Task fourth = schedule(shard, 5);
+
+        assertEquals(Arrays.<EJBTimerTask>asList(), advanceTo(shard, 0));
+        assertEquals(Arrays.<EJBTimerTask>asList(first), advanceTo(shard, 1));
+        assertEquals(Arrays.<EJBTimerTask>asList(), advanceTo(shard, 2));
+        assertEquals(Arrays.<EJBTimerTask>asList(second), advanceTo(shard, 4));
+        assertEquals(Arrays.<EJBTimerTask>asList(third, fourth), advanceTo(shard, 10));
+    }
+
+    public void testPastExpiry() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(100);
+        Task task = schedule(shard, 10);
+        assertEquals(Arrays.<EJBTimerTask>asList(task), advanceTo(shard, 100));
+    }
+
+    public void testRemove() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(0);
+        Task kept = schedule(shard, 2);
+        Task removed = schedule(shard, 2);
+        Task far = schedule(shard, 1000);
+        shard.remove(removed);
+        shard.remove(far);
+        assertNull(removed.next_);
+        assertEquals(Arrays.<EJBTimerTask>asList(kept), advanceTo(shard, 2000));
+    }
+
+    public void testCascade() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(0);
+        // one task in each level of the wheel
+        long[] ticks = { 63, 64 * 64 - 1, 64 * 64 + 5, 64 * 64 * 64 + 7, 64 * 64 * 64 * 64 - 1 };
+        for (long tick : ticks) {
+            Task task = schedule(shard, tick);
+            if (tick > 0) {
+                assertEquals(Arrays.<EJBTimerTask>asList(), advanceTo(shard, tick - 1));
+            }
+            assertEquals(Arrays.<EJBTimerTask>asList(task), advanceTo(shard, tick));
+        }
+    }
+
+    public void testBeyondWheel() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(0);
+        long tick = 64L * 64 * 64 * 64 + 100;
+        Task task = schedule(shard, tick);
+        // parked in the last slot, then scheduled again from its real expiry
+        assertEquals(Arrays.<EJBTimerTask>asList(), advanceTo(shard, tick - 1));
+        assertEquals(Arrays.<EJBTimerTask>asList(task), advanceTo(shard, tick));
+    }
+
+    public void testIdleShard() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(0);
+        // an empty shard skips the ticks at once
+        assertEquals(Arrays.<EJBTimerTask>asList(), advanceTo(shard, 1000000000L));
+        Task early = schedule(shard, 1000000000L);
+        Task task = schedule(shard, 1000000002L);
+        assertEquals(Arrays.<EJBTimerTask>asList(early), advanceTo(shard, 1000000001L));
+        assertEquals(Arrays.<EJBTimerTask>asList(task), advanceTo(shard, 1000000002L));
+    }
+
+    public void testNextTick() {
+        EJBTimerWheel.Shard shard = new EJBTimerWheel.Shard(10);
+        assertEquals(Long.MAX_VALUE, shard.nextTick());
+        schedule(shard, 40);
+        assertEquals(40, shard.nextTick());
+        schedule(shard, 20);
+        assertEquals(20, shard.nextTick());
+
+        // a task of an upper level wakes the wheel at the next round
+        shard = new EJBTimerWheel.Shard(10);
+        schedule(shard, 1000);
+        assertEquals(64, shard.nextTick());
+        advanceTo(shard, 63);
+        assertEquals(64, shard.nextTick());
+        advanceTo(shard, 64);
+        assertEquals(128, shard.nextTick());
+        // the round that cascades the task, then its own tick
+        advanceTo(shard, 959);
+        assertEquals(960, shard.nextTick());
+        advanceTo(shard, 960);
+        assertEquals(1000, shard.nextTick());
+        assertEquals(1, advanceTo(shard, 1000).size());
+        assertEquals(Long.MAX_VALUE, shard.nextTick());
+    }
+
+    public void testFire() throws Exception {
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Date expiration = new Date(now + 50 + i % 100);
+            wheel.schedule(new Task(expiration, latch, early), expiration);
+        }
+        assertTrue("Timers did not fire", latch.await(10, TimeUnit.SECONDS));
+        assertEquals("Timers fired before their expiration", 0, early.get());
+    }
+
+    public void testCancel() throws Exception {
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+        Date expiration = new Date(System.currentTimeMillis() + 200);
+        Task[] tasks = new Task[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new Task(expiration, latch, new AtomicInteger());
+            wheel.schedule(tasks[i], expiration);
+        }
+        for (int i = 0; i < count; i += 2) {
+            tasks[i].cancel();
+        }
+        assertFalse("Cancelled timers fired", latch.await(1, TimeUnit.SECONDS));
+        assertEquals(count / 2, latch.getCount());
+    }
+
+    private static Task schedule(EJBTimerWheel.Shard shard, long expiryTick) {
+        Task task = new Task(new Date(), new CountDownLatch(1), new AtomicInteger());
+        task.expiryTick_ = expiryTick;
+        shard.schedule(task);
+        return task;
+    }
+
+    private static List<EJBTimerTask> advanceTo(EJBTimerWheel.Shard shard, long tick) {
+        List<EJBTimerTask> expired = new ArrayList<EJBTimerTask>();
+        shard.advance(tick, expired);
+        return expired;
+    }
+
+    private static class Task extends EJBTimerTask {
+
+        private final long expiration;
+        private final CountDownLatch fired;
+        private final AtomicInteger early;
+
+        Task(Date expiration, CountDownLatch fired, AtomicInteger early) {
+            super(expiration, null, null);
+            this.expiration = expiration.getTime();
+            this.fired = fired;
+            this.early = early;
+        }
+
+        public void run() {
+            if (System.currentTimeMillis() < expiration) {
+                early.incrementAndGet();
+            }
+            fired.countDown();
+        }
+    }
+}
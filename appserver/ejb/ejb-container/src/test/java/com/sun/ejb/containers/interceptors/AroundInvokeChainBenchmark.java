@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers.interceptors;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.sun.enterprise.container.common.spi.util.InterceptorInfo;
+import com.sun.enterprise.deployment.InterceptorDescriptor;
+
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Measures the cost of the around-invoke interceptors of a non-ejb call:
+ * <ul>
+ * <li>the lookup of the target method and of its chain on each call, as
+ * InterceptorInvocationHandler did it before the chains were kept by the
+ * InterceptorManager, and from the chains the InterceptorManager keeps;</li>
+ * <li>a call through a chain of three interceptors that calls them with
+ * reflection, as the InterceptorManager does, and with method handles, next to
+ * a plain call of the target method.</li>
+ * </ul>
+ * Not a unit test, it is not run by the build. Run it with the test classpath
+ * of the module:
+ * <pre>
+ * java com.sun.ejb.containers.interceptors.AroundInvokeChainBenchmark [calls]
+ * </pre>
+ * The default is 10000000 calls per measurement.
+ */
+public class AroundInvokeChainBenchmark {
+
+    private final int calls;
+    private final InterceptorManager manager;
+    private final Method clientMethod;
+    private final Method beanMethod;
+
+    // keeps the results alive
+    private int sink;
+
+    private AroundInvokeChainBenchmark(int calls) throws Exception {
+        this.calls = calls;
+        clientMethod = Client.class.getMethod("hello", String.class);
+        beanMethod = Bean.class.getMethod("hello", String.class);
+
+        Map<Method, List> chains = new HashMap<Method, List>();
+        chains.put(beanMethod, Arrays.asList(
+                AroundInvokeChainTest.createInterceptor(First.class, false),
+                AroundInvokeChainTest.createInterceptor(Second.class, false),
+                AroundInvokeChainTest.createInterceptor(Bean.class, true)));
+
+        InterceptorInfo info = new InterceptorInfo();
+        info.setTargetClass(Bean.class);
+        info.setInterceptorClassNames(new HashSet<String>(Arrays.asList(
+                First.class.getName(), Second.class.getName())));
+        info.setAroundInvokeInterceptorChains(chains);
+        info.setHasTargetClassAroundInvoke(true);
+
+        manager = new InterceptorManager(Logger.getLogger(getClass().getName()),
+                getClass().getClassLoader(), Bean.class.getName(), info);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        AroundInvokeChainBenchmark benchmark = new AroundInvokeChainBenchmark(calls);
+
+        // the first rounds warm up the code
+        for (int round = 0; round < 3; round++) {
+            benchmark.run();
+        }
+    }
+
+    private void run() throws Throwable {
+        // the lookup per call used to resolve the interceptor methods again
+        int lookups = Math.max(1, calls / 100);
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            Method method = Bean.class.getMethod(clientMethod.getName(),
+                    clientMethod.getParameterTypes());
+            sink += System.identityHashCode(manager.getAroundInvokeChain(null, method));
+        }
+        long rebuilt = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += System.identityHashCode(manager.getTargetMethodChain(clientMethod, Bean.class));
+        }
+        long kept = System.nanoTime();
+        System.out.println("lookup: rebuilt " + nanos(rebuilt - start, lookups)
+                + " ns, kept " + nanos(kept - rebuilt, calls) + " ns");
+
+        Bean bean = new Bean();
+        Object[] interceptors = manager.createInterceptorInstances();
+        InterceptorManager.TargetMethodChain reflection =
+                manager.getTargetMethodChain(clientMethod, Bean.class);
+        InterceptorManager.TargetMethodChain handles =
+                new InterceptorManager.TargetMethodChain(Bean.class, beanMethod,
+                        new MethodHandleChain(interceptors));
+
+        start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += bean.hello("x").length();
+        }
+        long plain = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += call(reflection, bean, interceptors);
+        }
+        long reflected = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            sink += call(handles, bean, interceptors);
+        }
+        long handled = System.nanoTime();
+        System.out.println("call: plain " + nanos(plain - start, calls)
+                + " ns, reflection " + nanos(reflected - plain, calls)
+                + " ns, method handles " + nanos(handled - reflected, calls)
+                + " ns (" + sink + ")");
+    }
+
+    private static int call(InterceptorManager.TargetMethodChain chain, Bean bean,
+            Object[] interceptors) throws Throwable {
+        AroundInvokeChainTest.Context ctx = new AroundInvokeChainTest.Context(
+                chain, bean, interceptors, new Object[] { "x" });
+        return ((String) chain.chain.invokeNext(0, ctx)).length();
+    }
+
+    private static String nanos(long nanos, int count) {
+        return String.format("%.1f", (double) nanos / count);
+    }
+
+    /**
+     * The around-invoke chain of Bean.hello, calling the interceptor methods
+     * through method handles instead of reflection.
+     */
+    private static class MethodHandleChain implements InterceptorManager.InterceptorChain {
+
+        private static final MethodType AROUND_INVOKE =
+                MethodType.methodType(Object.class, Object.class, InvocationContext.class);
+
+        private final MethodHandle[] handles;
+        // index of the interceptor instance of each handle, -1 for the target
+        private final int[] instances;
+
+        MethodHandleChain(Object[] interceptors) throws Exception {
+            Class[] classes = { First.class, Second.class, Bean.class };
+            handles = new MethodHandle[classes.length];
+            instances = new int[classes.length];
+            for (int i = 0; i < classes.length; i++) {
+                Method method = classes[i].getDeclaredMethod("aroundInvoke", InvocationContext.class);
+                method.setAccessible(true);
+                handles[i] = MethodHandles.lookup().unreflect(method).asType(AROUND_INVOKE);
+                instances[i] = -1;
+                for (int j = 0; j < interceptors.length; j++) {
+                    if (interceptors[j] != null && interceptors[j].getClass() == classes[i]) {
+                        instances[i] = j;
+                    }
+                }
+            }
+        }
+
+        public Object invokeNext(int index, InterceptorManager.AroundInvokeContext invCtx)
+                throws Throwable {
+            if (index >= handles.length) {
+                return invCtx.invokeBeanMethod();
+            }
+            Object interceptor = (instances[index] < 0) ? invCtx.getTarget()
+                    : invCtx.getInterceptorInstances()[instances[index]];
+            return (Object) handles[index].invokeExact(interceptor, (InvocationContext) invCtx);
+        }
+    }
+
+    public interface Client {
+
+        String hello(String s);
+    }
+
+    public static class First implements Serializable {
+
+        private Object aroundInvoke(InvocationContext ctx) throws Exception {
+            return ctx.proceed();
+        }
+    }
+
+    public static class Second implements Serializable {
+
+        Object aroundInvoke(InvocationContext ctx) throws Exception {
+            return ctx.proceed();
+        }
+    }
+
+    public static class Bean {
+
+        public String hello(String s) {
+            return s;
+        }
+
+        protected Object aroundInvoke(InvocationContext ctx) throws Exception {
+            return ctx.proceed();
+        }
+    }
+}
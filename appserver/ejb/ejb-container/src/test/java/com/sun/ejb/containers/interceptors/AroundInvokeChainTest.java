@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.ejb.containers.interceptors;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.sun.enterprise.container.common.spi.util.InterceptorInfo;
+import com.sun.enterprise.deployment.InterceptorDescriptor;
+import com.sun.enterprise.deployment.LifecycleCallbackDescriptor;
+
+import jakarta.interceptor.InvocationContext;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Checks the around-invoke chains that the InterceptorManager of a non-ejb
+ * keeps for the methods of the client proxy.
+ */
+public class AroundInvokeChainTest extends TestCase {
+
+    private static final StringBuilder log = new StringBuilder();
+
+    private InterceptorManager manager;
+
+    public AroundInvokeChainTest(String name) {
+        super(name);
+    }
+
+    public static Test suite() {
+        return new TestSuite(AroundInvokeChainTest.class);
+    }
+
+    protected void setUp() throws Exception {
+        log.setLength(0);
+
+        InterceptorDescriptor first = createInterceptor(First.class, false);
+        InterceptorDescriptor second = createInterceptor(Second.class, false);
+        InterceptorDescriptor bean = createInterceptor(Bean.class, true);
+        Map<Method, List> chains = new HashMap<Method, List>();
+        chains.put(Bean.class.getMethod("hello", String.class),
+                Arrays.asList(first, second, bean));
+        chains.put(Bean.class.getMethod("bye", String.class),
+                Arrays.asList(second));
+
+        InterceptorInfo info = new InterceptorInfo();
+        info.setTargetClass(Bean.class);
+        info.setInterceptorClassNames(new HashSet<String>(Arrays.asList(
+                First.class.getName(), Second.class.getName())));
+        info.setAroundInvokeInterceptorChains(chains);
+        info.setHasTargetClassAroundInvoke(true);
+
+        manager = new InterceptorManager(Logger.getLogger(getClass().getName()),
+                getClass().getClassLoader(), Bean.class.getName(), info);
+    }
+
+    static InterceptorDescriptor createInterceptor(Class clazz, boolean fromBeanClass) {
+        LifecycleCallbackDescriptor aroundInvoke = new LifecycleCallbackDescriptor();
+        aroundInvoke.setLifecycleCallbackClass(clazz.getName());
+        aroundInvoke.setLifecycleCallbackMethod("aroundInvoke");
+        InterceptorDescriptor interceptor = new InterceptorDescriptor();
+        interceptor.setInterceptorClassName(clazz.getName());
+        interceptor.setFromBeanClass(fromBeanClass);
+        interceptor.addAroundInvokeDescriptor(aroundInvoke);
+        return interceptor;
+    }
+
+    public void testChainIsReused() throws Throwable {
+        Method hello = Client.class.getMethod("hello", String.class);
+        InterceptorManager.TargetMethodChain chain =
+                manager.getTargetMethodChain(hello, Bean.class);
+
+        assertSame(Bean.class, chain.targetClass);
+        assertEquals(Bean.class.getMethod("hello", String.class), chain.method);
+        assertSame(chain, manager.getTargetMethodChain(hello, Bean.class));
+        // an equal method of the proxy is the same key
+        assertSame(chain, manager.getTargetMethodChain(
+                Client.class.getMethod("hello", String.class), Bean.class));
+    }
+
+    public void testChainPerMethod() throws Throwable {
+        InterceptorManager.TargetMethodChain hello = manager.getTargetMethodChain(
+                Client.class.getMethod("hello", String.class), Bean.class);
+        InterceptorManager.TargetMethodChain bye = manager.getTargetMethodChain(
+                Client.class.getMethod("bye", String.class), Bean.class);
+
+        assertNotSame(hello, bye);
+        assertEquals(Bean.class.getMethod("bye", String.class), bye.method);
+        assertEquals("x", invoke(hello, "x"));
+        assertEquals("first second bean hello ", log.toString());
+        log.setLength(0);
+        assertEquals("x", invoke(bye, "x"));
+        assertEquals("second bye ", log.toString());
+    }
+
+    public void testChainOrder() throws Throwable {
+        InterceptorManager.TargetMethodChain chain = manager.getTargetMethodChain(
+                Client.class.getMethod("hello", String.class), Bean.class);
+        // the order holds for every call of the same chain
+        for (int i = 0; i < 3; i++) {
+            log.setLength(0);
+            assertEquals("x", invoke(chain, "x"));
+            assertEquals("first second bean hello ", log.toString());
+        }
+    }
+
+    public void testExceptionIsNotWrapped() throws Throwable {
+        InterceptorManager.TargetMethodChain chain = manager.getTargetMethodChain(
+                Client.class.getMethod("hello", String.class), Bean.class);
+        try {
+            invoke(chain, null);
+            fail("Exception not propagated");
+        } catch (IllegalArgumentException e) {
+            assertEquals("null argument", e.getMessage());
+        }
+    }
+
+    public void testChainOfAnotherTargetClass() throws Throwable {
+        Method hello = Client.class.getMethod("hello", String.class);
+        InterceptorManager.TargetMethodChain chain =
+                manager.getTargetMethodChain(hello, Bean.class);
+
+        InterceptorManager.TargetMethodChain subChain =
+                manager.getTargetMethodChain(hello, SubBean.class);
+        assertNotSame(chain, subChain);
+        assertSame(SubBean.class, subChain.targetClass);
+        assertSame(subChain, manager.getTargetMethodChain(hello, SubBean.class));
+
+        // the chain of the first class is built again when it comes back
+        InterceptorManager.TargetMethodChain again =
+                manager.getTargetMethodChain(hello, Bean.class);
+        assertNotSame(chain, again);
+        assertSame(Bean.class, again.targetClass);
+        assertEquals("x", invoke(again, "x"));
+        assertEquals("first second bean hello ", log.toString());
+    }
+
+    public void testMissingMethod() throws Throwable {
+        try {
+            manager.getTargetMethodChain(
+                    Client.class.getMethod("missing"), Bean.class);
+            fail("Method of the proxy not found on the target class");
+        } catch (NoSuchMethodException e) {
+            // expected
+        }
+    }
+
+    private Object invoke(InterceptorManager.TargetMethodChain chain, String arg)
+            throws Throwable {
+        Context ctx = new Context(chain, new Bean(),
+                manager.createInterceptorInstances(), new Object[] { arg });
+        return chain.chain.invokeNext(0, ctx);
+    }
+
+    static class Context implements InterceptorManager.AroundInvokeContext {
+
+        private final InterceptorManager.TargetMethodChain chain;
+        private final Object target;
+        private final Object[] interceptors;
+        private Object[] parameters;
+        private int index;
+        private Map<String, Object> contextData;
+
+        Context(InterceptorManager.TargetMethodChain chain, Object target,
+                Object[] interceptors, Object[] parameters) {
+            this.chain = chain;
+            this.target = target;
+            this.interceptors = interceptors;
+            this.parameters = parameters;
+        }
+
+        public Object[] getInterceptorInstances() {
+            return interceptors;
+        }
+
+        public Object invokeBeanMethod() throws Throwable {
+            try {
+                return chain.method.invoke(target, parameters);
+            } catch (java.lang.reflect.InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        public Object getTarget() {
+            return target;
+        }
+
+        public Object getTimer() {
+            return null;
+        }
+
+        public Method getMethod() {
+            return chain.method;
+        }
+
+        public Constructor<?> getConstructor() {
+            return null;
+        }
+
+        public Object[] getParameters() {
+            return parameters;
+        }
+
+        public void setParameters(Object[] params) {
+            parameters = params;
+        }
+
+        public Map<String, Object> getContextData() {
+            if (contextData == null) {
+                contextData = new HashMap<String, Object>();
+            }
+            return contextData;
+        }
+
+        public Object proceed() throws Exception {
+            try {
+                index++;
+                return chain.chain.invokeNext(index, this);
+            } catch (Exception e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new Exception(t);
+            } finally {
+                index--;
+            }
+        }
+    }
+
+    public interface Client {
+
+        String hello(String s);
+
+        String bye(String s);
+
+        void missing();
+    }
+
+    public static class First implements Serializable {
+
+        private Object aroundInvoke(InvocationContext ctx) throws Exception {
+            log.append("first ");
+            return ctx.proceed();
+        }
+    }
+
+    public static class Second implements Serializable {
+
+        Object aroundInvoke(InvocationContext ctx) throws Exception {
+            log.append("second ");
+            return ctx.proceed();
+        }
+    }
+
+    public static class Bean {
+
+        public String hello(String s) {
+            if (s == null) {
+                throw new IllegalArgumentException("null argument");
+            }
+            log.append("hello ");
+            return s;
+        }
+
+        public String bye(String s) {
+            log.append("bye ");
+            return s;
+        }
+
+        protected Object aroundInvoke(InvocationContext ctx) throws Exception {
+            log.append("bean ");
+            return ctx.proceed();
+        }
+    }
+
+    public static class SubBean extends Bean {
+    }
+}
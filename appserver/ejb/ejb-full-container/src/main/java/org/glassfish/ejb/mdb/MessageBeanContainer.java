@@ -1132,6 +1132,11 @@ public final class MessageBeanContainer extends BaseContainer implements
 
             this.invocationManager.preInvoke(invocation);
 
+            // ended in afterMessageDelivery, which finds this invocation
+            ejbProbeNotifier.messageDeliveryStartEvent(getContainerId(),
+                    containerInfo.appName, containerInfo.modName,
+                    containerInfo.ejbName);
+
             if (startTx) {
                 // Register the session associated with the message-driven
                 // bean's destination so the message delivery will be
@@ -1319,6 +1324,9 @@ public final class MessageBeanContainer extends BaseContainer implements
                 _logger.log(Level.SEVERE, ce.getClass().getName(), ce);
             } finally {
                 releaseContext(invocation);
+                ejbProbeNotifier.messageDeliveryEndEvent(getContainerId(),
+                        containerInfo.appName, containerInfo.modName,
+                        containerInfo.ejbName);
             }
 
             // Reset original class loader
@@ -34,6 +34,9 @@ public class MessageDrivenBeanStatsProvider extends EjbMonitoringStatsProvider {
     private CountStatisticImpl messageCount = new CountStatisticImpl("MessageCount",
             "count", "Number of messages received for a message-driven bean");
 
+    private RangeStatisticImpl messagesInFlight = createInFlightStatistic(
+            "MessagesInFlight", "Number of messages being delivered to a message-driven bean");
+
     public MessageDrivenBeanStatsProvider(long beanId, String appName, String moduleName,
             String beanName) {
         super(beanId, appName, moduleName, beanName);
@@ -45,6 +48,36 @@ public class MessageDrivenBeanStatsProvider extends EjbMonitoringStatsProvider {
         return messageCount;
     }
 
+    @ManagedAttribute(id="messagesinflight")
+    @Description( "Number of messages being delivered to a message-driven bean")
+    public RangeStatistic getMessagesInFlight() {
+        return messagesInFlight;
+    }
+
+    @ProbeListener("glassfish:ejb:bean:messageDeliveryStartEvent")
+    public void messageDeliveryStartEvent(
+            @ProbeParam("beanId") long beanId,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("modName") String modName,
+            @ProbeParam("ejbName") String ejbName) {
+        if (this.beanId == beanId) {
+            log ("messageDeliveryStartEvent", "MessageDrivenBeanStatsProvider");
+            addInFlight(messagesInFlight, 1);
+        }
+    }
+
+    @ProbeListener("glassfish:ejb:bean:messageDeliveryEndEvent")
+    public void messageDeliveryEndEvent(
+            @ProbeParam("beanId") long beanId,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("modName") String modName,
+            @ProbeParam("ejbName") String ejbName) {
+        if (this.beanId == beanId) {
+            log ("messageDeliveryEndEvent", "MessageDrivenBeanStatsProvider");
+            addInFlight(messagesInFlight, -1);
+        }
+    }
+
     @ProbeListener("glassfish:ejb:bean:messageDeliveredEvent")
     public void messageDeliveredEvent(
             @ProbeParam("beanId") long beanId,
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TimerTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jakarta.ejb.CreateException;
@@ -105,6 +106,13 @@ public class PersistentEJBTimerService extends EJBTimerService {
     // Possible values "redeliver" and "stop"
     private String operationOnConnectionFailure = null;
 
+    // Write the last expiration of periodic timers and claim migrated timers
+    // in JDBC batches of this size. Disabled if not positive.
+    private static final String TIMER_UPDATE_BATCH_SIZE = "timer-update-batch-size";
+    private static final long TIMER_UPDATE_FLUSH_INTERVAL = 1000;
+    private int timerUpdateBatchSize = 0;
+    private TimerBatchUpdater timerBatchUpdater_;
+
     private PersistentEJBTimerService(String ejbName, boolean removeOldTimers) throws Exception {
         super();
 
@@ -119,6 +127,10 @@ public class PersistentEJBTimerService extends EJBTimerService {
         // the timeout fails
         lookupTimerResource();
 
+        if (timerUpdateBatchSize > 0) {
+            initTimerBatchUpdater();
+        }
+
         // The default value for ReadDBBeforeTimeout in case of PE 
         // is false. 
         setPerformDBReadBeforeTimeout(!isDas);
@@ -141,6 +153,11 @@ public class PersistentEJBTimerService extends EJBTimerService {
                     getDBReadBeforeTimeoutProperty();
 
                 operationOnConnectionFailure = ejbt.getPropertyValue(ON_CONECTION_FAILURE);
+
+                String batchSize = ejbt.getPropertyValue(TIMER_UPDATE_BATCH_SIZE);
+                if (batchSize != null) {
+                    timerUpdateBatchSize = Integer.parseInt(batchSize);
+                }
             }
 
         } catch(Exception e) {
@@ -150,6 +167,39 @@ public class PersistentEJBTimerService extends EJBTimerService {
 
     }
 
+    private void initTimerBatchUpdater() {
+        timerBatchUpdater_ = new TimerBatchUpdater(timerDataSource,
+                ownerIdOfThisServer_, timerUpdateBatchSize);
+
+        // Write the last expirations that did not fill a batch periodically.
+        // The JDK timer thread only hands the work over to a worker thread.
+        ejbContainerUtil.getTimer().schedule(new TimerTask() {
+            public void run() {
+                flushTimerUpdates();
+            }
+        }, TIMER_UPDATE_FLUSH_INTERVAL, TIMER_UPDATE_FLUSH_INTERVAL);
+
+        logger.log(Level.INFO, "Persistent timer updates are written in batches of " +
+                   timerUpdateBatchSize);
+    }
+
+    private void flushTimerUpdates() {
+        ejbContainerUtil.addWork(new Runnable() {
+            public void run() {
+                // The timers whose row was not updated were cancelled or
+                // migrated by another server instance.
+                for (TimerPrimaryKey timerId : timerBatchUpdater_.flush()) {
+                    if( logger.isLoggable(Level.FINE) ) {
+                        logger.log(Level.FINE, "Timer :" + timerId +
+                                ": is no longer owned by " + ownerIdOfThisServer_ +
+                                ". Expunging the timer from the cache.");
+                    }
+                    expungeTimer(timerId, false);
+                }
+            }
+        });
+    }
+
     /**
      *--------------------------------------------------------------
      * Methods to be implemented for Admin CLI
@@ -204,10 +254,20 @@ public class PersistentEJBTimerService extends EJBTimerService {
             tm.begin();
 
             toRestore = timerLocal_.findTimersOwnedBy(fromOwnerId);
-            totalTimersMigrated = timerLocal_.migrateTimers(fromOwnerId, ownerIdOfThisServer);
+            if (timerBatchUpdater_ == null) {
+                totalTimersMigrated = timerLocal_.migrateTimers(fromOwnerId, ownerIdOfThisServer);
+            }
 
             tm.commit();
 
+            if (timerBatchUpdater_ != null) {
+                // Claim the timers one by one, in batches, so that only the
+                // timers that this server instance now owns are restored if
+                // other instances are migrating the same timers.
+                toRestore = claimTimers(toRestore, fromOwnerId);
+                totalTimersMigrated = toRestore.size();
+            }
+
         } catch(Exception e) {
             // Don't attempt to restore any timers since an error has
             // occurred.  This could be the expected result in the case that
@@ -275,6 +335,23 @@ public class PersistentEJBTimerService extends EJBTimerService {
 
     } //migrateTimers()
 
+    private Set<TimerState> claimTimers(Set<TimerState> timers, String fromOwnerId)
+            throws Exception {
+        List<String> timerIds = new ArrayList<String>(timers.size());
+        for (TimerState timer : timers) {
+            timerIds.add(timer.getTimerId());
+        }
+
+        Set<String> claimed = timerBatchUpdater_.claimTimers(timerIds, fromOwnerId);
+        Set<TimerState> result = new HashSet<TimerState>();
+        for (TimerState timer : timers) {
+            if (claimed.contains(timer.getTimerId())) {
+                result.add(timer);
+            }
+        }
+        return result;
+    }
+
     public boolean isPersistent() {
         return true;
     } 
@@ -955,6 +1032,10 @@ public class PersistentEJBTimerService extends EJBTimerService {
             // timer no longer exists, which is converted by the caller into a
             // NoSuchObjectLocalException.
             timerLocal_.cancel(timerId);            
+
+            if (timerBatchUpdater_ != null) {
+                timerBatchUpdater_.discard(timerId);
+            }
         }
         
     }
@@ -1137,6 +1218,11 @@ public class PersistentEJBTimerService extends EJBTimerService {
     protected boolean isValidTimerForThisServer(TimerPrimaryKey timerId,
                                           RuntimeTimerState timerState) {
         if (timerState.isPersistent()) {
+            if (timerBatchUpdater_ != null && timerState.isPeriodic()) {
+                // Checked when the last expiration is written, which
+                // expunges the timer if it is no longer owned by this server.
+                return true;
+            }
             if( getValidTimerFromDB( timerId ) == null ) {
                 return false;
             }
@@ -1151,6 +1237,23 @@ public class PersistentEJBTimerService extends EJBTimerService {
     protected void resetLastExpiration(TimerPrimaryKey timerId,
                                           RuntimeTimerState timerState) {
         if (timerState.isPersistent()) {
+            if (timerBatchUpdater_ != null) {
+                // Written in a batch outside of the transaction of the
+                // ejbTimeout. If the server fails before it is written, the
+                // expiration is delivered again when the timer is restored.
+                Date now = new Date();
+                if (timerBatchUpdater_.setLastExpiration(timerId, now.getTime())) {
+                    flushTimerUpdates();
+                }
+                if( logger.isLoggable(Level.FINE) ) {
+                    logger.log(Level.FINE, 
+                           "Queued last expiration " +
+                           " for periodic timer " + timerState +
+                           " to " + now);
+                }
+                return;
+            }
+
             TimerState timer = getValidTimerFromDB( timerId );
             if( null == timer ) {
                 return;
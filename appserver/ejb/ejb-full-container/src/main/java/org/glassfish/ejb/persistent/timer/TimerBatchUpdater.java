@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.ejb.persistent.timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+import com.sun.ejb.containers.EJBTimerService;
+import com.sun.ejb.containers.TimerPrimaryKey;
+import com.sun.logging.LogDomains;
+
+/**
+ * Writes the changes of the persistent timers that do not need a transaction
+ * of their own in JDBC batches instead of one JPA update per timer.
+ * <p>
+ * The last expiration of the periodic timers is queued when a timeout is
+ * delivered and written by {@link #flush}. Each row is only updated if it is
+ * still active and owned by this server instance, so a timer that was
+ * cancelled or migrated by another instance is reported back to the caller
+ * instead of being read before each delivery.
+ * <p>
+ * Timers are claimed from another server instance in the same way, one
+ * owner-conditioned update per timer in each batch, so that only the timers
+ * whose update succeeded are restored when several instances migrate the
+ * timers of a failed instance at the same time.
+ * <p>
+ * A driver may report a statement of a batch as successful without an update
+ * count. The owner of these rows is then read back with one query per batch.
+ * <p>
+ * The connections are obtained from the non-transactional timer resource and
+ * each batch is committed on its own.
+ */
+class TimerBatchUpdater {
+
+    private static final Logger logger =
+        LogDomains.getLogger(TimerBatchUpdater.class, LogDomains.EJB_LOGGER);
+
+    private static final String UPDATE_LAST_EXPIRATION =
+        "UPDATE EJB__TIMER__TBL SET LASTEXPIRATIONRAW = ? " +
+        "WHERE TIMERID = ? AND OWNERID = ? AND STATE = ?";
+
+    private static final String UPDATE_OWNER =
+        "UPDATE EJB__TIMER__TBL SET OWNERID = ? " +
+        "WHERE TIMERID = ? AND OWNERID = ?";
+
+    private static final String SELECT_OWNED =
+        "SELECT TIMERID FROM EJB__TIMER__TBL " +
+        "WHERE OWNERID = ? AND TIMERID IN (";
+
+    private static final String SELECT_OWNED_IN_STATE =
+        "SELECT TIMERID FROM EJB__TIMER__TBL " +
+        "WHERE OWNERID = ? AND STATE = ? AND TIMERID IN (";
+
+    private final DataSource dataSource;
+    private final String ownerId;
+    private final int batchSize;
+
+    // last expiration of each timer not yet written
+    private final Map<TimerPrimaryKey, Long> lastExpirations =
+        new ConcurrentHashMap<TimerPrimaryKey, Long>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    TimerBatchUpdater(DataSource dataSource, String ownerId, int batchSize) {
+        this.dataSource = dataSource;
+        this.ownerId = ownerId;
+        this.batchSize = batchSize;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Queues the update of the last expiration of a timer.
+     *
+     * @return true if a full batch is queued and is not being flushed
+     */
+    boolean setLastExpiration(TimerPrimaryKey timerId, long lastExpiration) {
+        lastExpirations.put(timerId, lastExpiration);
+        return lastExpirations.size() >= batchSize && !flushing.get();
+    }
+
+    /**
+     * Drops the queued update of a timer that is cancelled.
+     */
+    void discard(TimerPrimaryKey timerId) {
+        lastExpirations.remove(timerId);
+    }
+
+    /**
+     * Writes the queued last expirations. Does nothing if another thread is
+     * already flushing. The updates of a batch that fails are queued again,
+     * unless a newer update of the same timer was queued meanwhile.
+     *
+     * @return the ids of the timers that are no longer active or no longer
+     * owned by this server instance
+     */
+    Set<TimerPrimaryKey> flush() {
+        Set<TimerPrimaryKey> invalid = new HashSet<TimerPrimaryKey>();
+        if (lastExpirations.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return invalid;
+        }
+
+        try {
+            List<TimerPrimaryKey> ids = new ArrayList<TimerPrimaryKey>(batchSize);
+            List<Long> values = new ArrayList<Long>(batchSize);
+            for (Map.Entry<TimerPrimaryKey, Long> entry : lastExpirations.entrySet()) {
+                if (lastExpirations.remove(entry.getKey(), entry.getValue())) {
+                    ids.add(entry.getKey());
+                    values.add(entry.getValue());
+                }
+                if (ids.size() == batchSize) {
+                    writeLastExpirations(ids, values, invalid);
+                    ids.clear();
+                    values.clear();
+                }
+            }
+            if (!ids.isEmpty()) {
+                writeLastExpirations(ids, values, invalid);
+            }
+        } finally {
+            flushing.set(false);
+        }
+        return invalid;
+    }
+
+    private void writeLastExpirations(List<TimerPrimaryKey> ids, List<Long> values,
+            Set<TimerPrimaryKey> invalid) {
+        Connection c = null;
+        try {
+            c = dataSource.getConnection();
+            c.setAutoCommit(false);
+            PreparedStatement ps = c.prepareStatement(UPDATE_LAST_EXPIRATION);
+            try {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(1, values.get(i));
+                    ps.setString(2, ids.get(i).getTimerId());
+                    ps.setString(3, ownerId);
+                    ps.setInt(4, EJBTimerService.STATE_ACTIVE);
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                c.commit();
+                List<String> unknown = new ArrayList<String>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        invalid.add(ids.get(i));
+                    } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                        unknown.add(ids.get(i).getTimerId());
+                    }
+                }
+                if (!unknown.isEmpty()) {
+                    Set<String> valid = selectOwned(c, unknown, true);
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == Statement.SUCCESS_NO_INFO &&
+                                !valid.contains(ids.get(i).getTimerId())) {
+                            invalid.add(ids.get(i));
+                        }
+                    }
+                }
+            } finally {
+                ps.close();
+            }
+
+            if( logger.isLoggable(Level.FINE) ) {
+                logger.log(Level.FINE, "Updated last expiration of " + ids.size() +
+                           " timers, " + invalid.size() + " timers are no longer valid");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Cannot update the last expiration of " +
+                       ids.size() + " timers, will retry", e);
+            rollback(c);
+            for (int i = 0; i < ids.size(); i++) {
+                lastExpirations.putIfAbsent(ids.get(i), values.get(i));
+            }
+        } finally {
+            close(c);
+        }
+    }
+
+    /**
+     * Changes the owner of the given timers from another server instance to
+     * this one, in batches that are committed on their own.
+     *
+     * @return the ids of the timers that were owned by the other server
+     * instance and are now owned by this one
+     * @throws SQLException if no timer could be claimed
+     */
+    Set<String> claimTimers(List<String> timerIds, String fromOwnerId) throws SQLException {
+        Set<String> claimed = new HashSet<String>();
+        Connection c = null;
+        try {
+            c = dataSource.getConnection();
+            c.setAutoCommit(false);
+            PreparedStatement ps = c.prepareStatement(UPDATE_OWNER);
+            try {
+                for (int start = 0; start < timerIds.size(); start += batchSize) {
+                    List<String> batch = timerIds.subList(start,
+                            Math.min(start + batchSize, timerIds.size()));
+                    for (String timerId : batch) {
+                        ps.setString(1, ownerId);
+                        ps.setString(2, timerId);
+                        ps.setString(3, fromOwnerId);
+                        ps.addBatch();
+                    }
+                    int[] counts = ps.executeBatch();
+                    c.commit();
+                    List<String> unknown = new ArrayList<String>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            claimed.add(batch.get(i));
+                        } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                            unknown.add(batch.get(i));
+                        }
+                    }
+                    if (!unknown.isEmpty()) {
+                        // a row that another instance claimed first has its owner
+                        claimed.addAll(selectOwned(c, unknown, false));
+                    }
+                }
+            } finally {
+                ps.close();
+            }
+        } catch (SQLException e) {
+            rollback(c);
+            if (claimed.isEmpty()) {
+                throw e;
+            }
+            // the batches committed so far are owned by this server instance
+            logger.log(Level.WARNING, "Claimed " + claimed.size() + " of " +
+                       timerIds.size() + " timers from " + fromOwnerId, e);
+        } finally {
+            close(c);
+        }
+        return claimed;
+    }
+
+    /**
+     * Reads which of the given timers are owned by this server instance, for
+     * the statements of a batch that the driver did not report an update count
+     * for.
+     *
+     * @param active if only the timers that are still active are returned
+     */
+    private Set<String> selectOwned(Connection c, List<String> timerIds, boolean active)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder(active ? SELECT_OWNED_IN_STATE : SELECT_OWNED);
+        for (int i = 0; i < timerIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        Set<String> owned = new HashSet<String>();
+        PreparedStatement ps = c.prepareStatement(sql.toString());
+        try {
+            int index = 1;
+            ps.setString(index++, ownerId);
+            if (active) {
+                ps.setInt(index++, EJBTimerService.STATE_ACTIVE);
+            }
+            for (String timerId : timerIds) {
+                ps.setString(index++, timerId);
+            }
+            ResultSet rs = ps.executeQuery();
+            try {
+                while (rs.next()) {
+                    owned.add(rs.getString(1));
+                }
+            } finally {
+                rs.close();
+            }
+            c.commit();
+        } finally {
+            ps.close();
+        }
+        return owned;
+    }
+
+    private static void rollback(Connection c) {
+        if (c != null) {
+            try {
+                c.rollback();
+            } catch (Exception e) {
+                logger.log(Level.FINE, "timer batch rollback error", e);
+            }
+        }
+    }
+
+    private static void close(Connection c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (Exception e) {
+                logger.log(Level.FINE, "timer connection close exception", e);
+            }
+        }
+    }
+}
@@ -29,13 +29,25 @@ import java.util.concurrent.ConcurrentHashMap;
 public class FileBackingStoreFactory
         implements BackingStoreFactory {
 
+    /**
+     * Vendor specific setting, or system property, that selects the
+     * {@link LogStructuredBackingStore} instead of a file per key.
+     */
+    public static final String LOG_STRUCTURED = "org.glassfish.ha.store.adapter.file.logStructured";
+
+    /**
+     * Vendor specific setting for the size, in bytes, of the segments of a
+     * {@link LogStructuredBackingStore}.
+     */
+    public static final String SEGMENT_SIZE = "org.glassfish.ha.store.adapter.file.segmentSize";
+
     private static ThreadLocal<FileStoreTransaction> _current = new ThreadLocal<FileStoreTransaction>();
 
-    private static ConcurrentHashMap<String, FileBackingStore> _stores
-            = new ConcurrentHashMap<String, FileBackingStore>();
+    private static ConcurrentHashMap<String, BackingStore> _stores
+            = new ConcurrentHashMap<String, BackingStore>();
 
 
-    static FileBackingStore getFileBackingStore(String storeName) {
+    static BackingStore getFileBackingStore(String storeName) {
         return _stores.get(storeName);
     }
 
@@ -47,6 +59,16 @@ public class FileBackingStoreFactory
     public <K extends Serializable, V extends Serializable> BackingStore<K, V> createBackingStore(
             BackingStoreConfiguration<K, V> conf)
                 throws BackingStoreException {
+        Object logStructured = conf.getVendorSpecificSettings().get(LOG_STRUCTURED);
+        if (logStructured == null ? Boolean.getBoolean(LOG_STRUCTURED)
+                : Boolean.parseBoolean(logStructured.toString())) {
+            LogStructuredBackingStore<K, V> ls = new LogStructuredBackingStore<K, V>();
+            ls.initialize(conf);
+            ls.setFileBackingStoreFactory(this);
+            _stores.put(conf.getStoreName(), ls);
+            return ls;
+        }
+
         FileBackingStore<K, V> fs = new FileBackingStore<K, V>();
         fs.initialize(conf);
         fs.setFileBackingStoreFactory(this);
@@ -0,0 +1,999 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.ha.store.adapter.file;
+
+import org.glassfish.ha.store.api.*;
+import org.glassfish.ha.store.util.SimpleMetadata;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.*;
+import java.util.zip.CRC32;
+
+/**
+ * An implementation of BackingStore that appends the data to a log of
+ * segment files instead of writing a file per key.
+ * <p>
+ * Every save, remove and timestamp update is a record appended to the active
+ * segment, and an in-memory index maps each key to the location of its latest
+ * record. Concurrent writers are batched: the first one writes the records of
+ * all the waiting writers with a single gathering write, the others wait for
+ * it. Values of type {@link SimpleMetadata} are written field by field rather
+ * than with java serialization. When most of the log is garbage, the oldest
+ * segment is compacted in the background by appending its live records to
+ * the log again and deleting it. On startup, the index is rebuilt by reading
+ * the segments in order.
+ */
+public class LogStructuredBackingStore<K extends Serializable, V extends Serializable>
+        extends BackingStore<K, V> {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    // largest number of bytes of live records copied by a compaction batch
+    private static final int COMPACTION_BATCH_SIZE = 1024 * 1024;
+
+    // record header: length and checksum of the record body
+    private static final int HEADER_SIZE = 8;
+
+    // record body: type, timestamp, key format, key length, key, value
+    private static final int MIN_BODY_SIZE = 14;
+
+    private static final int TIMESTAMP_OFFSET = 1;
+
+    private static final byte PUT = 1;
+
+    private static final byte TOUCH = 2;
+
+    private static final byte REMOVE = 3;
+
+    private static final byte SERIALIZED = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte SIMPLE_METADATA = 2;
+
+    private static final ExecutorService compactor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "FileBackingStore-compactor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    protected Logger logger =
+            Logger.getLogger(LogStructuredBackingStore.class.getName());
+
+    protected File baseDir;
+
+    private volatile boolean shutdown;
+
+    private static Level TRACE_LEVEL = Level.FINE;
+
+    private String debugStr;
+
+    private FileBackingStoreFactory factory;
+
+    private long defaultMaxIdleTimeoutInSeconds = 10L * 60L;
+
+    private long maxSegmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private final ConcurrentHashMap<K, Entry> index = new ConcurrentHashMap<K, Entry>();
+
+    // guards segments, nextSegmentId, pending and writing
+    private final Object writeLock = new Object();
+
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    private int nextSegmentId;
+
+    private List<Record> pending = new ArrayList<Record>();
+
+    private boolean writing;
+
+    // only accessed by the writing thread
+    private Segment active;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * No arg constructor
+     */
+    public LogStructuredBackingStore() {
+    }
+
+    @Override
+    protected void initialize(BackingStoreConfiguration<K, V> conf)
+        throws BackingStoreException {
+
+        if (conf.getLogger() != null) {
+            logger = conf.getLogger();
+        }
+
+        super.initialize(conf);
+        debugStr = "[LogStructuredBackingStore - " + conf.getStoreName() + "] ";
+
+        baseDir = conf.getBaseDirectory();
+
+        Map<String, Object> vendorMap = conf.getVendorSpecificSettings();
+        try {
+            defaultMaxIdleTimeoutInSeconds = Long.parseLong(
+                    (String) vendorMap.get("max.idle.timeout.in.seconds"));
+        } catch (Exception ex) {
+            //Ignore. Use default
+        }
+        try {
+            maxSegmentSize = Long.parseLong(
+                    String.valueOf(vendorMap.get(FileBackingStoreFactory.SEGMENT_SIZE)));
+        } catch (Exception ex) {
+            //Ignore. Use default
+        }
+
+        if ((baseDir.mkdirs() == false) && (! baseDir.isDirectory())) {
+            throw new BackingStoreException("[LogStructuredBackingStore::initialize] Create base directory ("
+                    + baseDir.getAbsolutePath() + ") failed");
+        }
+
+        try {
+            recover();
+            logger.log(Level.INFO, "[LogStructuredBackingStore::initialize] Successfully Created and initialized store. "
+                    + "Working dir: " + conf.getBaseDirectory() + "; Recovered entries: " + index.size()
+                    + "; Configuration: " + conf);
+        } catch (IOException ex) {
+            throw new BackingStoreException(debugStr + "Failed to read the segments of the store", ex);
+        }
+    }
+
+    /*package*/ void setFileBackingStoreFactory(FileBackingStoreFactory factory) {
+        this.factory = factory;
+    }
+
+    public BackingStoreFactory getBackingStoreFactory() {
+        return factory;
+    }
+
+    @Override
+    public V load(K key, String version) throws BackingStoreException {
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Entered load(" + key + ", " + version + ")");
+        }
+
+        Entry entry = index.get(key);
+        while (entry != null) {
+            try {
+                byte[] body = read(entry.segment, entry.offset);
+                if (body == null) {
+                    throw new IOException("Corrupted record at " + entry.offset
+                            + " in " + entry.segment.file);
+                }
+                V value = decodeValue(body);
+                if (logger.isLoggable(TRACE_LEVEL)) {
+                    logger.log(TRACE_LEVEL, debugStr + "Done load(" + key + ", " + version + ")");
+                }
+                return value;
+            } catch (Exception ex) {
+                // the segment may have been compacted meanwhile
+                Entry current = index.get(key);
+                if (current == null || (current.segment == entry.segment
+                        && current.offset == entry.offset)) {
+                    logger.log(Level.WARNING, debugStr + "Failed to load(" + key + ", " + version + ")", ex);
+                    return null;
+                }
+                entry = current;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String save(K sessionKey, V value, boolean isNew)
+            throws BackingStoreException {
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Entered save(" + sessionKey + ")");
+        }
+        append(new Record(sessionKey, PUT, System.currentTimeMillis(), value));
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Done save(" + sessionKey + ")");
+        }
+        return getBackingStoreConfiguration().getInstanceName();
+    }
+
+    @Override
+    public void remove(K sessionKey) {
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Entered remove(" + sessionKey + ")");
+        }
+        // most keys that are removed were never saved
+        if (index.containsKey(sessionKey)) {
+            try {
+                append(new Record(sessionKey, REMOVE, System.currentTimeMillis(), null));
+            } catch (Exception ex) {
+                logger.log(TRACE_LEVEL, debugStr + "Failed to remove(" + sessionKey + ")", ex);
+            }
+        }
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Done remove( " + sessionKey + ")");
+        }
+    }
+
+    @Override
+    public void updateTimestamp(K sessionKey, long time)
+            throws BackingStoreException {
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Entered updateTimestamp(" + sessionKey + ", " + time + ")");
+        }
+        if (index.containsKey(sessionKey)) {
+            append(new Record(sessionKey, TOUCH, time, null));
+        } else {
+            logger.log(Level.WARNING, debugStr
+                    + ": Cannot update timsestamp for: " + sessionKey
+                    + "; Entry does not exist");
+        }
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Done updateTimestamp(" + sessionKey + ", " + time + ")");
+        }
+    }
+
+    @Override
+    public int removeExpired() {
+        return removeExpired(defaultMaxIdleTimeoutInSeconds * 1000L);
+    }
+
+    @Override
+    public int removeExpired(long idleForMillis) {
+        long threshold = System.currentTimeMillis() - idleForMillis;
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Entered removeExpired()");
+        }
+
+        List<Record> expired = new ArrayList<Record>();
+        for (Map.Entry<K, Entry> e : index.entrySet()) {
+            if (shutdown) {
+                break;
+            }
+            if (e.getValue().timestamp < threshold) {
+                try {
+                    Record record = new Record(e.getKey(), REMOVE, threshold, null);
+                    // dropped if the key is saved or touched meanwhile
+                    record.expected = e.getValue();
+                    expired.add(record);
+                } catch (BackingStoreException ex) {
+                    logger.log(Level.WARNING, debugStr + " Couldn't remove entry: " + e.getKey(), ex);
+                }
+            }
+        }
+
+        int removed = 0;
+        try {
+            if (!expired.isEmpty()) {
+                append(expired);
+            }
+            for (Record record : expired) {
+                if (!record.dropped) {
+                    removed++;
+                }
+            }
+            if (logger.isLoggable(TRACE_LEVEL)) {
+                logger.log(TRACE_LEVEL, debugStr + "Done removeExpired()");
+            }
+        } catch (Exception ex) {
+            logger.log(Level.WARNING, debugStr + " Exception while removing "
+                    + "expired entries", ex);
+            return 0;
+        }
+        return removed;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        closeSegments();
+        //DO NOT DELETE THE WORKING DIRECTORY
+    }
+
+    @Override
+    public int size() throws BackingStoreException {
+        return index.size();
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            if (logger.isLoggable(TRACE_LEVEL)) {
+                logger.log(TRACE_LEVEL, debugStr + "Entered destroy()");
+            }
+            shutdown = true;
+            closeSegments();
+            index.clear();
+
+            String[] fileNames = baseDir.list();
+            if (fileNames != null) {
+                for (int i = 0; i < fileNames.length; i++) {
+                    File file = new File(baseDir, fileNames[i]);
+                    if (!file.delete() && file.exists()) {
+                        logger.log(Level.WARNING, debugStr + " Couldn't remove file: " + fileNames[i]);
+                    }
+                }
+            }
+
+            if (baseDir.delete() == false) {
+                if (baseDir.exists()) {
+                    logger.log(Level.WARNING, debugStr + " destroy() failed to remove dir: " + baseDir.getAbsolutePath());
+                }
+            }
+            if (logger.isLoggable(TRACE_LEVEL)) {
+                logger.log(TRACE_LEVEL, debugStr + "Done destroy()");
+            }
+        } catch (Throwable th) {
+            logger.log(Level.WARNING, debugStr + " destroy() failed ", th);
+        } finally {
+            FileBackingStoreFactory.removemapping(getBackingStoreConfiguration().getStoreName());
+        }
+    }
+
+    /**
+     * Waits for the write in progress, if any, and closes the segments.
+     */
+    private void closeSegments() {
+        boolean interrupted = false;
+        synchronized (writeLock) {
+            while (writing) {
+                try {
+                    writeLock.wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            for (Segment segment : segments) {
+                close(segment);
+            }
+            segments.clear();
+            active = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(Record record) throws BackingStoreException {
+        List<Record> records = new ArrayList<Record>(1);
+        records.add(record);
+        append(records);
+    }
+
+    /**
+     * Appends the records to the log and waits until they are written. The
+     * first writer that finds no write in progress writes the records of all
+     * the waiting writers.
+     */
+    private void append(List<Record> records) throws BackingStoreException {
+        Record last = records.get(records.size() - 1);
+        boolean interrupted = false;
+        synchronized (writeLock) {
+            pending.addAll(records);
+        }
+
+        while (true) {
+            List<Record> batch;
+            synchronized (writeLock) {
+                while (!last.done && writing) {
+                    try {
+                        writeLock.wait();
+                    } catch (InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+                if (last.done) {
+                    break;
+                }
+                writing = true;
+                batch = pending;
+                pending = new ArrayList<Record>();
+            }
+
+            IOException failure = null;
+            try {
+                write(batch);
+            } catch (IOException ex) {
+                failure = ex;
+            } catch (RuntimeException ex) {
+                failure = new IOException(ex);
+            }
+
+            synchronized (writeLock) {
+                for (Record record : batch) {
+                    record.failure = failure;
+                    record.done = true;
+                }
+                writing = false;
+                writeLock.notifyAll();
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for (Record record : records) {
+            if (record.failure != null) {
+                throw new BackingStoreException("Could not write to the log of the store for: "
+                        + record.key, record.failure);
+            }
+        }
+
+        scheduleCompaction();
+    }
+
+    /**
+     * Writes the batch at the end of the log and applies it to the index.
+     * Called by one thread at a time.
+     * <p>
+     * The records copied by compaction are obsolete if their key has been
+     * saved or removed since they were read. They are dropped, as a copy
+     * written after a later record of its key would win over it when the
+     * index is rebuilt. The other copies are written first, so that they are
+     * followed by the records of the batch that update their keys.
+     * <p>
+     * The removals of expired keys are obsolete if their key has been saved,
+     * touched or removed since it was found expired, including by an earlier
+     * record of the batch. They are dropped too.
+     */
+    private void write(List<Record> batch) throws IOException {
+        if (shutdown) {
+            throw new IOException(debugStr + "The store has been shut down");
+        }
+        List<Record> copies = new ArrayList<Record>();
+        List<Record> updates = new ArrayList<Record>(batch.size());
+        Set<K> updated = new HashSet<K>();
+        for (Record record : batch) {
+            Entry current = index.get(record.key);
+            if (record.expected == null) {
+                updates.add(record);
+                updated.add(record.key);
+            } else if (record.type == REMOVE) {
+                if (current == record.expected && updated.add(record.key)) {
+                    updates.add(record);
+                } else {
+                    record.dropped = true;
+                }
+            } else if (current != null && current.segment == record.expected.segment
+                    && current.offset == record.expected.offset) {
+                copies.add(record);
+            } else {
+                record.dropped = true;
+            }
+        }
+        if (!copies.isEmpty()) {
+            copies.addAll(updates);
+            batch = copies;
+        } else if (updates.size() < batch.size()) {
+            batch = updates;
+        }
+
+        int i = 0;
+        while (i < batch.size()) {
+            if (active == null || (active.size > 0
+                    && active.size + batch.get(i).data.length > maxSegmentSize)) {
+                roll();
+            }
+
+            long end = active.size;
+            int j = i;
+            while (j < batch.size()
+                    && (j == i || end + batch.get(j).data.length <= maxSegmentSize)) {
+                end += batch.get(j).data.length;
+                j++;
+            }
+
+            ByteBuffer[] buffers = new ByteBuffer[j - i];
+            for (int k = i; k < j; k++) {
+                buffers[k - i] = ByteBuffer.wrap(batch.get(k).data);
+            }
+            long remaining = end - active.size;
+            while (remaining > 0) {
+                remaining -= active.channel.write(buffers);
+            }
+
+            long offset = active.size;
+            for (int k = i; k < j; k++) {
+                Record record = batch.get(k);
+                apply(record, active, offset);
+                offset += record.length;
+            }
+            active.size = end;
+            i = j;
+        }
+    }
+
+    private void roll() throws IOException {
+        Segment segment;
+        synchronized (writeLock) {
+            segment = open(nextSegmentId++);
+            segments.add(segment);
+        }
+        active = segment;
+    }
+
+    /**
+     * Updates the index with a record written at the given location. Called by
+     * the writing thread, or during recovery.
+     */
+    private void apply(Record record, Segment segment, long offset) {
+        Entry current = index.get(record.key);
+        switch (record.type) {
+            case PUT:
+                if (record.expected != null) {
+                    // copied by compaction, write() dropped the obsolete copies
+                    if (current == null) {
+                        return;
+                    }
+                    index.put(record.key, new Entry(segment, offset, record.length, current.timestamp));
+                } else {
+                    index.put(record.key, new Entry(segment, offset, record.length, record.timestamp));
+                }
+                segment.live += record.length;
+                if (current != null) {
+                    current.segment.live -= current.length;
+                }
+                break;
+            case TOUCH:
+                if (current != null) {
+                    index.put(record.key, new Entry(current.segment, current.offset,
+                            current.length, record.timestamp));
+                }
+                break;
+            case REMOVE:
+                if (current != null) {
+                    index.remove(record.key);
+                    current.segment.live -= current.length;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the segments found in the base directory.
+     */
+    private void recover() throws IOException {
+        String[] fileNames = baseDir.list();
+        List<Integer> ids = new ArrayList<Integer>();
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                if (fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        ids.add(Integer.valueOf(fileName.substring(SEGMENT_PREFIX.length(),
+                                fileName.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ex) {
+                        //Not a segment
+                    }
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        for (Integer id : ids) {
+            Segment segment = open(id.intValue());
+            segments.add(segment);
+            nextSegmentId = id.intValue() + 1;
+
+            long fileSize = segment.channel.size();
+            long offset = 0;
+            while (offset + HEADER_SIZE <= fileSize) {
+                byte[] body = read(segment, offset);
+                if (body == null) {
+                    break;
+                }
+                try {
+                    apply(new Record(body), segment, offset);
+                } catch (Exception ex) {
+                    logger.log(Level.WARNING, debugStr + "Skipping unreadable record at "
+                            + offset + " in " + segment.file, ex);
+                }
+                offset += HEADER_SIZE + body.length;
+            }
+            if (offset < fileSize) {
+                logger.log(Level.WARNING, debugStr + "Truncating " + segment.file
+                        + " to " + offset + " bytes, the rest is corrupted");
+                segment.channel.truncate(offset);
+            }
+            segment.size = offset;
+            segment.channel.position(offset);
+        }
+
+        if (!segments.isEmpty()) {
+            active = segments.get(segments.size() - 1);
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (needsCompaction() && compacting.compareAndSet(false, true)) {
+            try {
+                compactor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            while (!shutdown && needsCompaction() && compact()) {
+                                // compact the next oldest segment
+                            }
+                        } catch (Exception ex) {
+                            logger.log(Level.WARNING, debugStr + "Exception during compaction", ex);
+                        } finally {
+                            compacting.set(false);
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                compacting.set(false);
+                logger.log(Level.WARNING, debugStr + "Could not schedule compaction", ex);
+            }
+        }
+    }
+
+    /**
+     * Compacts the oldest segment unless a compaction is in progress.
+     *
+     * @return true if the segment has been deleted
+     */
+    /*package*/ boolean compactOldestSegment()
+            throws IOException, ClassNotFoundException, BackingStoreException {
+        if (!compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            return compact();
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * @return true if more than half of the log, and at least a segment, is garbage
+     */
+    private boolean needsCompaction() {
+        synchronized (writeLock) {
+            if (segments.size() < 2) {
+                return false;
+            }
+            long total = 0;
+            long live = 0;
+            for (Segment segment : segments) {
+                total += segment.size;
+                live += segment.live;
+            }
+            long garbage = total - live;
+            return garbage > total / 2 && garbage >= maxSegmentSize;
+        }
+    }
+
+    /**
+     * Appends the live records of the oldest segment to the log and deletes it.
+     * Only the oldest segment is compacted, so the records that are not copied,
+     * removals in particular, do not shadow anything in an older segment.
+     *
+     * @return true if the segment has been deleted
+     */
+    private boolean compact()
+            throws IOException, ClassNotFoundException, BackingStoreException {
+        Segment oldest;
+        synchronized (writeLock) {
+            if (segments.isEmpty()) {
+                return false;
+            }
+            oldest = segments.get(0);
+        }
+        if (oldest == active) {
+            return false;
+        }
+
+        if (logger.isLoggable(TRACE_LEVEL)) {
+            logger.log(TRACE_LEVEL, debugStr + "Compacting " + oldest.file
+                    + "; live bytes: " + oldest.live + " of " + oldest.size);
+        }
+
+        List<Record> copies = new ArrayList<Record>();
+        int batchSize = 0;
+        long offset = 0;
+        while (offset < oldest.size && !shutdown) {
+            byte[] body = read(oldest, offset);
+            if (body == null) {
+                logger.log(Level.WARNING, debugStr + "Cannot compact " + oldest.file
+                        + ", corrupted record at " + offset);
+                return false;
+            }
+            if (body[0] == PUT) {
+                Record record = new Record(body);
+                Entry entry = index.get(record.key);
+                if (entry != null && entry.segment == oldest && entry.offset == offset) {
+                    if (entry.timestamp != record.timestamp) {
+                        // keep the timestamp of the later updates
+                        ByteBuffer.wrap(body).putLong(TIMESTAMP_OFFSET, entry.timestamp);
+                        record = new Record(body);
+                    }
+                    record.expected = entry;
+                    copies.add(record);
+                    batchSize += record.length;
+                    if (batchSize >= COMPACTION_BATCH_SIZE) {
+                        append(copies);
+                        copies = new ArrayList<Record>();
+                        batchSize = 0;
+                    }
+                }
+            }
+            offset += HEADER_SIZE + body.length;
+        }
+        if (shutdown) {
+            return false;
+        }
+        if (!copies.isEmpty()) {
+            append(copies);
+        }
+
+        synchronized (writeLock) {
+            segments.remove(oldest);
+        }
+        close(oldest);
+        if (!oldest.file.delete() && oldest.file.exists()) {
+            logger.log(Level.WARNING, debugStr + " Couldn't remove file: " + oldest.file);
+        }
+        return true;
+    }
+
+    private Segment open(int id) throws IOException {
+        File file = new File(baseDir, SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+        return new Segment(file, new RandomAccessFile(file, "rw").getChannel());
+    }
+
+    private void close(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException ex) {
+            logger.log(Level.FINE, debugStr + "Error while closing " + segment.file, ex);
+        }
+    }
+
+    /**
+     * @return the body of the record at the given offset, or null if it is
+     *         truncated or corrupted
+     */
+    private static byte[] read(Segment segment, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(segment.channel, header, offset)) {
+            return null;
+        }
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (length < MIN_BODY_SIZE || length > segment.channel.size() - offset - HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        if (!readFully(segment.channel, body, offset + HEADER_SIZE)
+                || checksum(body.array(), 0, length) != checksum) {
+            return null;
+        }
+        return body.array();
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private byte[] encode(Object object) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = super.createObjectOutputStream(bos);
+        try {
+            oos.writeObject(object);
+        } finally {
+            oos.close();
+        }
+        return bos.toByteArray();
+    }
+
+    private Object decode(byte[] data, int offset, int length)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = super.createObjectInputStream(
+                new ByteArrayInputStream(data, offset, length));
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    private V decodeValue(byte[] body) throws IOException, ClassNotFoundException {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int valueOffset = MIN_BODY_SIZE + buffer.getInt(MIN_BODY_SIZE - 4);
+        if (body[valueOffset] != SIMPLE_METADATA) {
+            return (V) decode(body, valueOffset + 1, body.length - valueOffset - 1);
+        }
+        buffer.position(valueOffset + 1);
+        long version = buffer.getLong();
+        long lastAccessTime = buffer.getLong();
+        long maxInactiveInterval = buffer.getLong();
+        byte[] state = null;
+        int stateLength = buffer.getInt();
+        if (stateLength >= 0) {
+            state = new byte[stateLength];
+            buffer.get(state);
+        }
+        return (V) new SimpleMetadata(version, lastAccessTime, maxInactiveInterval, state);
+    }
+
+    /**
+     * Location and timestamp of the latest record of a key.
+     */
+    private static final class Entry {
+
+        final Segment segment;
+
+        final long offset;
+
+        final int length;
+
+        final long timestamp;
+
+        Entry(Segment segment, long offset, int length, long timestamp) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static final class Segment {
+
+        final File file;
+
+        final FileChannel channel;
+
+        // updated by the writing thread only
+        volatile long size;
+
+        // number of bytes of the records referenced by the index, updated by
+        // the writing thread only
+        volatile long live;
+
+        Segment(File file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private final class Record {
+
+        final K key;
+
+        final byte type;
+
+        final long timestamp;
+
+        // the header and the body of the record
+        final byte[] data;
+
+        final int length;
+
+        // set for the records copied by compaction and for the removals of
+        // expired keys, the entry of the key they were created for
+        Entry expected;
+
+        // set by the writing thread if the record is obsolete and not written
+        boolean dropped;
+
+        // guarded by writeLock
+        boolean done;
+
+        IOException failure;
+
+        Record(K key, byte type, long timestamp, V value) throws BackingStoreException {
+            this.key = key;
+            this.type = type;
+            this.timestamp = timestamp;
+            try {
+                byte keyFormat = (key instanceof String) ? STRING : SERIALIZED;
+                byte[] keyData = (key instanceof String)
+                        ? ((String) key).getBytes(StandardCharsets.UTF_8)
+                        : encode(key);
+
+                byte valueFormat = SERIALIZED;
+                byte[] valueData = null;
+                int valueLength = 0;
+                if (type == PUT) {
+                    if (value instanceof SimpleMetadata) {
+                        valueFormat = SIMPLE_METADATA;
+                        byte[] state = ((SimpleMetadata) value).getState();
+                        valueLength = 1 + 28 + (state == null ? 0 : state.length);
+                    } else {
+                        valueData = encode(value);
+                        valueLength = 1 + valueData.length;
+                    }
+                }
+
+                int bodyLength = MIN_BODY_SIZE + keyData.length + valueLength;
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+                buffer.putInt(bodyLength).putInt(0);
+                buffer.put(type).putLong(timestamp);
+                buffer.put(keyFormat).putInt(keyData.length).put(keyData);
+                if (type == PUT) {
+                    buffer.put(valueFormat);
+                    if (valueFormat == SIMPLE_METADATA) {
+                        SimpleMetadata metadata = (SimpleMetadata) value;
+                        byte[] state = metadata.getState();
+                        buffer.putLong(metadata.getVersion())
+                              .putLong(metadata.getLastAccessTime())
+                              .putLong(metadata.getMaxInactiveInterval())
+                              .putInt(state == null ? -1 : state.length);
+                        if (state != null) {
+                            buffer.put(state);
+                        }
+                    } else {
+                        buffer.put(valueData);
+                    }
+                }
+                data = buffer.array();
+                buffer.putInt(4, checksum(data, HEADER_SIZE, bodyLength));
+                length = data.length;
+            } catch (IOException ioEx) {
+                throw new BackingStoreException("Error during serialization of: " + key, ioEx);
+            }
+        }
+
+        /**
+         * A record read from a segment.
+         */
+        Record(byte[] body) throws IOException, ClassNotFoundException {
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            this.type = buffer.get();
+            this.timestamp = buffer.getLong();
+            byte keyFormat = buffer.get();
+            int keyLength = buffer.getInt();
+            this.key = (keyFormat == STRING)
+                    ? (K) new String(body, MIN_BODY_SIZE, keyLength, StandardCharsets.UTF_8)
+                    : (K) decode(body, MIN_BODY_SIZE, keyLength);
+
+            byte[] record = new byte[HEADER_SIZE + body.length];
+            ByteBuffer.wrap(record).putInt(body.length).putInt(checksum(body, 0, body.length));
+            System.arraycopy(body, 0, record, HEADER_SIZE, body.length);
+            this.data = record;
+            this.length = record.length;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.ha.store.adapter.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.glassfish.ha.store.api.BackingStoreConfiguration;
+import org.glassfish.ha.store.api.BackingStoreException;
+import org.glassfish.ha.store.util.SimpleMetadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the recovery, the compaction and the expiry of the log of a
+ * {@link LogStructuredBackingStore}.
+ */
+public class LogStructuredBackingStoreTest {
+
+    private File dir;
+
+    private LogStructuredBackingStore<Serializable, SimpleMetadata> store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("logstore").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.destroy();
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        store = open(0);
+        store.save("a", metadata(1), true);
+        store.save("b", metadata(1), true);
+        store.save("c", metadata(1), true);
+        store.save("b", metadata(2), false);
+        store.remove("c");
+        store.updateTimestamp("a", 1000L);
+        store.shutdown();
+
+        try {
+            store.save("d", metadata(1), true);
+            fail("A store which is shut down cannot be saved to");
+        } catch (BackingStoreException ex) {
+            // expected
+        }
+
+        store = open(0);
+        assertEquals(2, store.size());
+        assertEquals(1, store.load("a", null).getVersion());
+        assertEquals(2, store.load("b", null).getVersion());
+        assertNull(store.load("c", null));
+        // "a" has been idle since the timestamp of its update
+        assertEquals(1, store.removeExpired(1000L));
+        assertNull(store.load("a", null));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        // room for two records per segment
+        store = open(200);
+        store.save("a", metadata(1), true);
+        store.save("b", metadata(1), true);
+        store.save("c", metadata(1), true);
+        store.save("d", metadata(1), true);
+        store.save("a", metadata(2), false);
+        store.remove("c");
+        File first = new File(dir, "segment-0.log");
+        assertTrue(first.exists());
+
+        assertTrue(store.compactOldestSegment());
+        assertFalse(first.exists());
+        assertEquals(2, store.load("a", null).getVersion());
+        assertEquals(1, store.load("b", null).getVersion());
+        assertNull(store.load("c", null));
+        assertEquals(1, store.load("d", null).getVersion());
+        store.shutdown();
+
+        store = open(200);
+        assertEquals(3, store.size());
+        assertEquals(2, store.load("a", null).getVersion());
+        assertEquals(1, store.load("b", null).getVersion());
+        assertNull(store.load("c", null));
+        assertEquals(1, store.load("d", null).getVersion());
+    }
+
+    @Test
+    public void testCompactionCopyOfSavedKey() throws Exception {
+        final SessionKey key = new SessionKey("session");
+        store = open(200);
+        store.save(key, metadata(1), true);
+        // compaction reads the key again to copy the later timestamp
+        store.updateTimestamp(key, 1000L);
+        store.save("b", metadata(1), true);
+        store.save("c", metadata(1), true);
+
+        // the key is saved again once compaction has read its index entry
+        SessionKey.onRead = new Runnable() {
+            private int reads;
+
+            public void run() {
+                if (++reads == 2) {
+                    SessionKey.onRead = null;
+                    try {
+                        store.save(key, metadata(2), false);
+                    } catch (BackingStoreException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+        };
+        try {
+            assertTrue(store.compactOldestSegment());
+        } finally {
+            SessionKey.onRead = null;
+        }
+        assertEquals(2, store.load(key, null).getVersion());
+        store.shutdown();
+
+        store = open(200);
+        assertEquals(2, store.load(key, null).getVersion());
+    }
+
+    @Test
+    public void testCompactionDuringUpdates() throws Exception {
+        store = open(300);
+        final Map<String, Long> expected = new HashMap<String, Long>();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                Random random = new Random(42);
+                try {
+                    for (int version = 1; version <= 3000; version++) {
+                        String key = "key" + random.nextInt(20);
+                        if (random.nextInt(4) == 0) {
+                            store.remove(key);
+                            expected.remove(key);
+                        } else {
+                            store.save(key, metadata(version), false);
+                            expected.put(key, Long.valueOf(version));
+                        }
+                    }
+                } catch (Exception ex) {
+                    failure.set(ex);
+                }
+            }
+        };
+        writer.start();
+        while (writer.isAlive()) {
+            store.compactOldestSegment();
+        }
+        writer.join();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        assertValues(expected);
+
+        // a copy written after a later save or removal would win on recovery
+        store.shutdown();
+        store = open(300);
+        assertValues(expected);
+    }
+
+    @Test
+    public void testExpiredKeyTouchedMeanwhile() throws Exception {
+        final SessionKey key = new SessionKey("session");
+        store = open(0);
+        store.save(key, metadata(1), true);
+        Thread.sleep(5);
+
+        // the key is touched once removeExpired has found it expired
+        SessionKey.onWrite = new Runnable() {
+            public void run() {
+                SessionKey.onWrite = null;
+                try {
+                    store.updateTimestamp(key, System.currentTimeMillis());
+                } catch (BackingStoreException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+        try {
+            assertEquals(0, store.removeExpired(1L));
+        } finally {
+            SessionKey.onWrite = null;
+        }
+        assertEquals(1, store.load(key, null).getVersion());
+        store.shutdown();
+
+        store = open(0);
+        assertEquals(1, store.load(key, null).getVersion());
+        Thread.sleep(5);
+        assertEquals(1, store.removeExpired(1L));
+        assertNull(store.load(key, null));
+    }
+
+    private void assertValues(Map<String, Long> expected) throws BackingStoreException {
+        assertEquals(expected.size(), store.size());
+        for (int i = 0; i < 20; i++) {
+            String key = "key" + i;
+            SimpleMetadata value = store.load(key, null);
+            if (expected.containsKey(key)) {
+                assertEquals(key, expected.get(key).longValue(), value.getVersion());
+            } else {
+                assertNull(key, value);
+            }
+        }
+    }
+
+    private LogStructuredBackingStore<Serializable, SimpleMetadata> open(long segmentSize)
+            throws BackingStoreException {
+        BackingStoreConfiguration<Serializable, SimpleMetadata> conf =
+                new BackingStoreConfiguration<Serializable, SimpleMetadata>();
+        conf.setStoreName("test").setInstanceName("instance")
+                .setBaseDirectory(dir)
+                .setKeyClazz(Serializable.class).setValueClazz(SimpleMetadata.class);
+        conf.getVendorSpecificSettings().put(FileBackingStoreFactory.LOG_STRUCTURED, "true");
+        if (segmentSize > 0) {
+            conf.getVendorSpecificSettings().put(FileBackingStoreFactory.SEGMENT_SIZE,
+                    String.valueOf(segmentSize));
+        }
+        return (LogStructuredBackingStore<Serializable, SimpleMetadata>)
+                new FileBackingStoreFactory().createBackingStore(conf);
+    }
+
+    /**
+     * A key which runs a hook when it is deserialized.
+     */
+    private static final class SessionKey implements Serializable {
+
+        static volatile Runnable onRead;
+
+        static volatile Runnable onWrite;
+
+        private final String name;
+
+        SessionKey(String name) {
+            this.name = name;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            Runnable hook = onWrite;
+            if (hook != null) {
+                hook.run();
+            }
+            out.defaultWriteObject();
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            Runnable hook = onRead;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SessionKey && name.equals(((SessionKey) obj).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+
+    private static SimpleMetadata metadata(long version) {
+        return new SimpleMetadata(version, System.currentTimeMillis(), 60000L, new byte[20]);
+    }
+}
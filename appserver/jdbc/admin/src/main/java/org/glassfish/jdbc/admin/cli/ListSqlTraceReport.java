@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.jdbc.admin.cli;
+
+import com.sun.enterprise.config.serverbeans.Resources;
+import com.sun.enterprise.util.LocalStringManagerImpl;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.I18n;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommand;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.external.statistics.StringStatistic;
+import org.glassfish.flashlight.MonitoringRuntimeDataRegistry;
+import org.glassfish.flashlight.datatree.TreeNode;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+
+import jakarta.inject.Inject;
+
+/**
+ * List the slowest and the most frequently executed sql queries of a JDBC
+ * connection pool, as sampled by its sql trace sampler. Sql trace sampling is
+ * enabled by the sql-trace-sampling-rate or sql-trace-latency-threshold-in-millis
+ * property of the pool and the report is read from the monitoring data of the pool.
+ */
+@Service(name="list-sql-trace-report")
+@PerLookup
+@CommandLock(CommandLock.LockType.NONE)
+@ExecuteOn(value={RuntimeType.DAS})
+@I18n("list.sql.trace.report")
+@RestEndpoints({
+    @RestEndpoint(configBean=Resources.class,
+        opType=RestEndpoint.OpType.GET,
+        path="list-sql-trace-report",
+        description="List SQL Trace Report")
+})
+public class ListSqlTraceReport implements AdminCommand {
+
+    final private static LocalStringManagerImpl localStrings = new LocalStringManagerImpl(ListSqlTraceReport.class);
+
+    private static final String LINE_BREAK = "%%%EOL%%%";
+
+    @Param(name = "pool_name", primary = true)
+    private String poolName;
+
+    @Param(name="appname", optional=true)
+    private String applicationName;
+
+    @Param(name="modulename", optional=true)
+    private String moduleName;
+
+    @Inject
+    private MonitoringRuntimeDataRegistry mrdr;
+
+    @Inject
+    private ServerEnvironment env;
+
+    /**
+     * Executes the command with the command parameters passed as Properties
+     * where the keys are the paramter names and the values the parameter values
+     *
+     * @param context information
+     */
+    public void execute(AdminCommandContext context) {
+        final ActionReport report = context.getActionReport();
+
+        TreeNode serverNode = mrdr == null ? null : mrdr.get(env.getInstanceName());
+        if (serverNode == null) {
+            report.setMessage(localStrings.getLocalString("list.sql.trace.report.monitoring.unavailable",
+                    "Monitoring data is not available"));
+            report.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        String poolNode = getPoolNodeName();
+        TreeNode slowest = serverNode.getNode(poolNode + ".slowestsqlqueries");
+        TreeNode mostFrequent = serverNode.getNode(poolNode + ".mostfrequentsqlqueries");
+        if (slowest == null || mostFrequent == null) {
+            report.setMessage(localStrings.getLocalString("list.sql.trace.report.notfound",
+                    "No sql trace report for JDBC connection pool {0}. Make sure that sql trace sampling " +
+                    "is enabled for the pool and that the monitoring level of jdbc-connection-pool is not OFF.",
+                    poolName));
+            report.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        addQueries(report, localStrings.getLocalString("list.sql.trace.report.slowest",
+                "Slowest SQL queries:"), slowest);
+        addQueries(report, localStrings.getLocalString("list.sql.trace.report.most.frequent",
+                "Most frequently executed SQL queries:"), mostFrequent);
+        report.setActionExitCode(ActionReport.ExitCode.SUCCESS);
+    }
+
+    /**
+     * @return dotted name of the monitoring node of the pool, relative to the server node
+     */
+    private String getPoolNodeName() {
+        String name = "resources." + poolName.replaceAll("\\.", "\\\\.");
+        if (applicationName != null) {
+            if (moduleName != null) {
+                name = moduleName.replaceAll("\\.", "\\\\.") + "." + name;
+            }
+            name = "applications." + applicationName.replaceAll("\\.", "\\\\.") + "." + name;
+        }
+        return name;
+    }
+
+    private void addQueries(ActionReport report, String title, TreeNode node) {
+        final ActionReport.MessagePart part = report.getTopMessagePart().addChild();
+        part.setMessage(title);
+        Object value = node.getValue();
+        if (value instanceof StringStatistic) {
+            String queries = ((StringStatistic) value).getCurrent();
+            if (queries != null) {
+                for (String query : queries.split(LINE_BREAK)) {
+                    if (query.length() > 0) {
+                        part.addChild().setMessage(query);
+                    }
+                }
+            }
+        }
+    }
+}
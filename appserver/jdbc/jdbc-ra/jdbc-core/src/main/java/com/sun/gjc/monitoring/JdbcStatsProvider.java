@@ -16,8 +16,10 @@
 
 package com.sun.gjc.monitoring;
 
+import com.sun.gjc.spi.base.datastructure.TinyLFUCacheImpl;
 import com.sun.gjc.util.SQLTrace;
 import com.sun.gjc.util.SQLTraceCache;
+import com.sun.gjc.util.SQLTraceSampler;
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
 import org.glassfish.external.statistics.CountStatistic;
@@ -53,12 +55,32 @@ public class JdbcStatsProvider {
             "NumStatementCacheMiss", StatisticImpl.UNIT_COUNT,
             "The total number of Statement Cache misses.");
 
+    private CountStatisticImpl numStatementCacheEviction = new CountStatisticImpl(
+            "NumStatementCacheEviction", StatisticImpl.UNIT_COUNT,
+            "The total number of statements evicted from the Statement Cache.");
+
+    private StringStatisticImpl statementCacheSqlStatistics = new StringStatisticImpl(
+            "StatementCacheSqlStatistics", "List",
+            "Statement cache hits, misses and evictions of the most used sql queries");
+
+    private static final int NUMBER_OF_SQL_STATISTICS_TO_REPORT = 10;
+
     private CountStatisticImpl numPotentialStatementLeak = new CountStatisticImpl(
             "NumPotentialStatementLeak", StatisticImpl.UNIT_COUNT,
             "The total number of potential Statement leaks");
 
+    private StringStatisticImpl slowestSqlQueries = new StringStatisticImpl(
+            "SlowestSqlQueries", "List",
+            "Sampled sql queries that took the longest time to execute");
+
+    private StringStatisticImpl mostFrequentSqlQueries = new StringStatisticImpl(
+            "MostFrequentSqlQueries", "List",
+            "Sampled sql queries that are executed most frequently");
+
     private PoolInfo poolInfo;
     private SQLTraceCache sqlTraceCache;
+    private SQLTraceSampler sqlTraceSampler;
+    private int numTopQueriesToReport;
 
     public JdbcStatsProvider(String poolName, String appName, String moduleName, int sqlTraceCacheSize,
             long timeToKeepQueries) {
@@ -68,6 +90,16 @@ public class JdbcStatsProvider {
         }
     }
 
+    /**
+     * Report the sql queries sampled by the given sampler.
+     * @param sqlTraceSampler sampler of the sql queries of the pool
+     * @param numTopQueriesToReport number of queries to report
+     */
+    public void setSqlTraceSampler(SQLTraceSampler sqlTraceSampler, int numTopQueriesToReport) {
+        this.sqlTraceSampler = sqlTraceSampler;
+        this.numTopQueriesToReport = numTopQueriesToReport;
+    }
+
     /**
      * Whenever statement cache is hit, increment numStatementCacheHit count.
      * @param poolName JdbcConnectionPool that has got a statement cache hit event.
@@ -100,6 +132,22 @@ public class JdbcStatsProvider {
         }
     }
 
+    /**
+     * Whenever a statement is evicted from statement cache, increment numStatementCacheEviction count.
+     * @param poolName JdbcConnectionPool that has got a statement cache eviction event.
+     */
+    @ProbeListener(JdbcRAConstants.STATEMENT_CACHE_DOTTED_NAME + JdbcRAConstants.STATEMENT_CACHE_EVICTION)
+    public void statementCacheEvictionEvent(@ProbeParam("poolName") String poolName,
+                                            @ProbeParam("appName") String appName,
+                                            @ProbeParam("moduleName") String moduleName
+                                            ) {
+
+        PoolInfo poolInfo = new PoolInfo(poolName, appName, moduleName);
+        if(this.poolInfo.equals(poolInfo)){
+            numStatementCacheEviction.increment();
+        }
+    }
+
     /**
      * Whenever a sql statement that is traced is to be cache for monitoring
      * purpose, the SQLTrace object is created for the specified sql and
@@ -155,6 +203,19 @@ public class JdbcStatsProvider {
         return numStatementCacheMiss;
     }
 
+    @ManagedAttribute(id="numstatementcacheeviction")
+    public CountStatistic getNumStatementCacheEviction() {
+        return numStatementCacheEviction;
+    }
+
+    @ManagedAttribute(id="statementcachesqlstatistics")
+    public StringStatistic getStatementCacheSqlStatistics() {
+        //available only when the TINYLFU statement cache type is used.
+        statementCacheSqlStatistics.setCurrent(
+                TinyLFUCacheImpl.getSqlStatistics(poolInfo, NUMBER_OF_SQL_STATISTICS_TO_REPORT));
+        return statementCacheSqlStatistics;
+    }
+
     @ManagedAttribute(id="frequsedsqlqueries")
     public StringStatistic getfreqUsedSqlQueries() {
         if(sqlTraceCache != null) {
@@ -165,6 +226,24 @@ public class JdbcStatsProvider {
         return freqUsedSqlQueries;
     }
 
+    @ManagedAttribute(id="slowestsqlqueries")
+    public StringStatistic getSlowestSqlQueries() {
+        //available only when sql trace sampling is enabled.
+        if(sqlTraceSampler != null) {
+            slowestSqlQueries.setCurrent(sqlTraceSampler.getSlowestQueries(numTopQueriesToReport));
+        }
+        return slowestSqlQueries;
+    }
+
+    @ManagedAttribute(id="mostfrequentsqlqueries")
+    public StringStatistic getMostFrequentSqlQueries() {
+        //available only when sql trace sampling is enabled.
+        if(sqlTraceSampler != null) {
+            mostFrequentSqlQueries.setCurrent(sqlTraceSampler.getMostFrequentQueries(numTopQueriesToReport));
+        }
+        return mostFrequentSqlQueries;
+    }
+
     @ManagedAttribute(id="numpotentialstatementleak")
     public CountStatistic getNumPotentialStatementLeak() {
         return numPotentialStatementLeak;
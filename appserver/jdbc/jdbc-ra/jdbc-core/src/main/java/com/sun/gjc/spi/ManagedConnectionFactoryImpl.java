@@ -22,6 +22,7 @@ import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.gjc.common.DataSourceSpec;
 import com.sun.gjc.monitoring.JdbcStatsProvider;
 import com.sun.gjc.util.SQLTraceDelegator;
+import com.sun.gjc.util.SQLTraceSampler;
 import com.sun.gjc.util.SecurityUtils;
 import com.sun.logging.LogDomains;
 import org.glassfish.api.jdbc.ConnectionValidation;
@@ -88,6 +89,9 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
     //Jdbc Stats provider that is created
     private JdbcStatsProvider jdbcStatsProvider = null;
 
+    //Number of sampled sql executions kept when the buffer size is not set
+    private static final int DEFAULT_SQL_TRACE_BUFFER_SIZE = 1024;
+
     protected static final StringManager localStrings =
             StringManager.getManager(DataSourceObjectBuilder.class);
 
@@ -523,7 +527,9 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
         String delimiter = ",";
         
         if(sqlTraceListeners != null && !sqlTraceListeners.equals("null")) {
-            sqlTraceDelegator = new SQLTraceDelegator(getPoolName(), getApplicationName(), getModuleName());
+            if (sqlTraceDelegator == null) {
+                sqlTraceDelegator = new SQLTraceDelegator(getPoolName(), getApplicationName(), getModuleName());
+            }
             StringTokenizer st = new StringTokenizer(sqlTraceListeners, delimiter);
             while (st.hasMoreTokens()) {
                 String sqlTraceListener = st.nextToken().trim();            
@@ -574,6 +580,31 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
         }
     }
 
+    private void detectSqlTraceSampling() {
+        String samplingRate = getSqlTraceSamplingRate();
+        String latencyThreshold = getSqlTraceLatencyThresholdInMillis();
+        String bufferSize = getSqlTraceBufferSize();
+        if (samplingRate == null && latencyThreshold == null) {
+            return;
+        }
+        try {
+            SQLTraceSampler sampler = new SQLTraceSampler(
+                    samplingRate == null ? 1 : Integer.parseInt(samplingRate),
+                    latencyThreshold == null ? 0 : Long.parseLong(latencyThreshold),
+                    bufferSize == null ? DEFAULT_SQL_TRACE_BUFFER_SIZE : Integer.parseInt(bufferSize));
+            if (sqlTraceDelegator == null) {
+                sqlTraceDelegator = new SQLTraceDelegator(getPoolName(), getApplicationName(), getModuleName());
+            }
+            sqlTraceDelegator.setSampler(sampler);
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Sql trace sampling rate : " + sampler.getSamplingRate()
+                        + ", latency threshold in millis : " + sampler.getLatencyThresholdInMillis()
+                        + ", buffer size : " + sampler.getBuffer().getCapacity());
+            }
+        } catch (NumberFormatException ex) {
+            _logger.log(Level.WARNING, "jdbc.sql_trace_sampling_invalid", ex.getMessage());
+        }
+    }
 
     /**
      * Gets the integer equivalent of the string specifying
@@ -1074,6 +1105,33 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
         spec.setDetail(DataSourceSpec.TIMETOKEEPQUERIESINMINUTES, timeToKeepQueries);
     }
     
+    public String getSqlTraceSamplingRate() {
+        return spec.getDetail(DataSourceSpec.SQLTRACESAMPLINGRATE);
+    }
+
+    public void setSqlTraceSamplingRate(String samplingRate) {
+        spec.setDetail(DataSourceSpec.SQLTRACESAMPLINGRATE, samplingRate);
+        detectSqlTraceSampling();
+    }
+
+    public String getSqlTraceLatencyThresholdInMillis() {
+        return spec.getDetail(DataSourceSpec.SQLTRACELATENCYTHRESHOLDINMILLIS);
+    }
+
+    public void setSqlTraceLatencyThresholdInMillis(String latencyThreshold) {
+        spec.setDetail(DataSourceSpec.SQLTRACELATENCYTHRESHOLDINMILLIS, latencyThreshold);
+        detectSqlTraceSampling();
+    }
+
+    public String getSqlTraceBufferSize() {
+        return spec.getDetail(DataSourceSpec.SQLTRACEBUFFERSIZE);
+    }
+
+    public void setSqlTraceBufferSize(String bufferSize) {
+        spec.setDetail(DataSourceSpec.SQLTRACEBUFFERSIZE, bufferSize);
+        detectSqlTraceSampling();
+    }
+
     public String getInitSql() {
         return spec.getDetail(DataSourceSpec.INITSQL);
     }
@@ -1355,10 +1413,12 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
         String poolMonitoringSubTreeRoot = getPoolMonitoringSubTreeRoot();
         String sqlTraceListeners = getSqlTraceListeners();
 
+        boolean sqlTraceSampling = sqlTraceDelegator != null && sqlTraceDelegator.getSampler() != null;
+
         //Default values used in case sql tracing is OFF
         int sqlTraceCacheSize = 0;
         long timeToKeepQueries = 0;
-        if(sqlTraceListeners != null && !sqlTraceListeners.equals("null")) {
+        if((sqlTraceListeners != null && !sqlTraceListeners.equals("null")) || sqlTraceSampling) {
             if(getNumberOfTopQueriesToReport() != null && !getNumberOfTopQueriesToReport().equals("null")) {
                 //Some value is set for this property
                 sqlTraceCacheSize = Integer.parseInt(getNumberOfTopQueriesToReport());
@@ -1382,9 +1442,16 @@ public abstract class ManagedConnectionFactoryImpl implements jakarta.resource.s
         }
         if (statementCacheSize > 0 ||
                 (sqlTraceListeners != null && !sqlTraceListeners.equals("null")) ||
-                statementLeakTimeout > 0) {
-            jdbcStatsProvider = new JdbcStatsProvider(getPoolName(), getApplicationName(), getModuleName(),
-                    sqlTraceCacheSize, timeToKeepQueries);
+                sqlTraceSampling || statementLeakTimeout > 0) {
+            if (sqlTraceSampling) {
+                //sampled queries are reported by the sampler, the sql trace cache is not used.
+                jdbcStatsProvider = new JdbcStatsProvider(getPoolName(), getApplicationName(), getModuleName(),
+                        0, timeToKeepQueries);
+                jdbcStatsProvider.setSqlTraceSampler(sqlTraceDelegator.getSampler(), sqlTraceCacheSize);
+            } else {
+                jdbcStatsProvider = new JdbcStatsProvider(getPoolName(), getApplicationName(), getModuleName(),
+                        sqlTraceCacheSize, timeToKeepQueries);
+            }
             //get the poolname and use it to initialize the stats provider n register
             StatsProviderManager.register(
                     "jdbc-connection-pool",
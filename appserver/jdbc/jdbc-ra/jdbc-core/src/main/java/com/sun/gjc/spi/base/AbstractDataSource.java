@@ -22,7 +22,6 @@ import com.sun.gjc.spi.ConnectionRequestInfoImpl;
 import com.sun.gjc.spi.ManagedConnectionFactoryImpl;
 import com.sun.logging.LogDomains;
 import com.sun.appserv.connectors.internal.api.ConnectorConstants;
-import com.sun.gjc.util.MethodExecutor;
 
 import javax.naming.Reference;
 import jakarta.resource.ResourceException;
@@ -44,7 +43,6 @@ public abstract class AbstractDataSource implements javax.sql.DataSource, java.i
         com.sun.appserv.jdbc.DataSource, jakarta.resource.Referenceable {
 
     protected ManagedConnectionFactoryImpl mcf;
-    protected MethodExecutor executor = null;
     private ConnectionManager cm;
     private int loginTimeout;
     private PrintWriter logWriter;
@@ -70,7 +68,6 @@ public abstract class AbstractDataSource implements javax.sql.DataSource, java.i
      */
     public AbstractDataSource(ManagedConnectionFactoryImpl mcf, ConnectionManager cm) {
         this.mcf = mcf;
-        executor = new MethodExecutor();
         if (cm == null) {
             this.cm = new ConnectionManagerImplementation();
         } else {
@@ -19,7 +19,6 @@ package com.sun.gjc.spi.base;
 import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.gjc.spi.ManagedConnectionImpl;
-import com.sun.gjc.util.MethodExecutor;
 import com.sun.logging.LogDomains;
 
 import jakarta.resource.ResourceException;
@@ -64,7 +63,6 @@ public abstract class ConnectionHolder implements Connection {
     static {
         _logger = LogDomains.getLogger(ManagedConnectionImpl.class, LogDomains.RSR_LOGGER);
     }
-    private MethodExecutor executor = null;
 
     public static enum ConnectionType {
         LAZY_ENLISTABLE, LAZY_ASSOCIATABLE, STANDARD
@@ -99,7 +97,6 @@ public abstract class ConnectionHolder implements Connection {
         mcf_ = mc.getMcf();
         cxReqInfo_ = cxRequestInfo;
         statementTimeout = mc.getStatementTimeout();
-        executor = new MethodExecutor();
         if (statementTimeout > 0) {
             statementTimeoutEnabled = true;
         }
@@ -841,8 +838,4 @@ public abstract class ConnectionHolder implements Connection {
         con.setTypeMap(map);
     }
 
-    protected MethodExecutor getMethodExecutor() {
-        return executor;
-    }
-
 }
@@ -31,7 +31,6 @@ public abstract class DatabaseMetaDataWrapper implements DatabaseMetaData {
 
     protected DatabaseMetaData databaseMetaData = null;
     protected Connection connection = null;
-    private MethodExecutor executor = null;
     protected final static Logger _logger;
 
     static {
@@ -47,7 +46,6 @@ public abstract class DatabaseMetaDataWrapper implements DatabaseMetaData {
     public DatabaseMetaDataWrapper(Connection con, DatabaseMetaData metaData) {
         connection = con;
         databaseMetaData = metaData;
-        executor = new MethodExecutor();
     }
 
     /**
@@ -2834,8 +2832,4 @@ public abstract class DatabaseMetaDataWrapper implements DatabaseMetaData {
     public boolean supportsStatementPooling() throws SQLException {
         return databaseMetaData.supportsStatementPooling();
     }
-
-    protected MethodExecutor getMethodExecutor() {
-        return executor;
-    }
 }
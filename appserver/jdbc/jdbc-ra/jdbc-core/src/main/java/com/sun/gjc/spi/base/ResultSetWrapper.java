@@ -36,7 +36,6 @@ public abstract class ResultSetWrapper implements ResultSet {
 
     protected ResultSet resultSet = null;
     protected Statement statement = null;
-    private MethodExecutor executor = null;
     protected final static Logger _logger;
     private ResultSetClosedEventListener eventListener = null;
 
@@ -53,7 +52,6 @@ public abstract class ResultSetWrapper implements ResultSet {
     public ResultSetWrapper(Statement stmt, ResultSet rs) {
         resultSet = rs;
         statement = stmt;
-        executor = new MethodExecutor();
         if(stmt instanceof ResultSetClosedEventListener) {
             eventListener = (ResultSetClosedEventListener) stmt;
         }
@@ -2449,8 +2447,4 @@ public abstract class ResultSetWrapper implements ResultSet {
     public void updateArray(String columnName, Array x) throws SQLException {
         resultSet.updateArray(columnName, x);
     }
-
-    protected MethodExecutor getMethodExecutor() {
-        return executor;
-    }
 }
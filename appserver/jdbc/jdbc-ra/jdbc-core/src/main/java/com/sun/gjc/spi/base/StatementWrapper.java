@@ -25,12 +25,12 @@ import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import jakarta.resource.ResourceException;
 
 /**
  * Abstract class for wrapping Statement<br>
@@ -42,7 +42,6 @@ public abstract class StatementWrapper implements Statement, StatementLeakListen
     protected StatementLeakDetector leakDetector = null;
     private boolean markedForReclaim = false;
     protected final static Logger _logger;
-    protected MethodExecutor executor = null;
     private boolean closeOnCompletion = false;
     protected AtomicInteger resultSetCount = new AtomicInteger();
 
@@ -60,7 +59,6 @@ public abstract class StatementWrapper implements Statement, StatementLeakListen
     public StatementWrapper(Connection con, Statement statement) {
         connection = con;
         jdbcStatement = statement;
-        executor = new MethodExecutor();
         //Start leak tracing if statement is a pure Statement & stmtWrapping is ON
         //Check if this is an instanceof PS/CS. There could exist
         //a CustomStatement class in a jdbc driver that implements PS/CS as well
@@ -854,10 +852,10 @@ public abstract class StatementWrapper implements Statement, StatementLeakListen
 
     public void actualCloseOnCompletion() throws SQLException {
         try {
-            executor.invokeMethod(jdbcStatement, "closeOnCompletion", null);
-        } catch (ResourceException ex) {
+            jdbcStatement.closeOnCompletion();
+        } catch (AbstractMethodError ex) {
             _logger.log(Level.SEVERE, "jdbc.ex_stmt_wrapper", ex);
-            throw new SQLException(ex);
+            throw new SQLFeatureNotSupportedException(ex);
         }
         return;
     }
@@ -865,11 +863,10 @@ public abstract class StatementWrapper implements Statement, StatementLeakListen
     public boolean isCloseOnCompletion() throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
             try {
-                return (Boolean) executor.invokeMethod(jdbcStatement,
-                        "isCloseOnCompletion", null);
-            } catch (ResourceException ex) {
+                return jdbcStatement.isCloseOnCompletion();
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_stmt_wrapper", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
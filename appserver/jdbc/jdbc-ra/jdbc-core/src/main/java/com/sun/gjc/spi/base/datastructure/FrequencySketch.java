@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate access frequency of keys, used as the admission policy of
+ * {@link TinyLFUCacheImpl}.
+ * <p/>
+ * This is a count-min sketch of small saturating counters. All the counters are
+ * halved periodically so that the frequencies reflect recent usage. Counters are
+ * updated without locking, a lost update only makes the estimate slightly lower.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb3a2f1f3, 0x5bd1e995, 0x1b873593};
+
+    private final AtomicIntegerArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private final AtomicBoolean resetting = new AtomicBoolean();
+
+    /**
+     * @param expectedSize number of distinct keys that are expected to be cached
+     */
+    public FrequencySketch(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, Math.min(expectedSize, 1 << 24)) - 1) << 1;
+        table = new AtomicIntegerArray(width * DEPTH);
+        mask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    /**
+     * Record an access of the key.
+     *
+     * @param key accessed key
+     */
+    public void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            int count = table.get(index);
+            if (count < MAX_COUNT && table.compareAndSet(index, count, count + 1)) {
+                added = true;
+            }
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @param key key whose frequency is to be estimated
+     * @return estimated number of recent accesses of the key
+     */
+    public int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table.get(indexOf(hash, row)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Halve all the counters so that old accesses are aged out.
+     */
+    private void reset() {
+        if (resetting.compareAndSet(false, true)) {
+            try {
+                for (int i = 0; i < table.length(); i++) {
+                    int count;
+                    do {
+                        count = table.get(i);
+                    } while (!table.compareAndSet(i, count, count >>> 1));
+                }
+                additions.set(0);
+            } finally {
+                resetting.set(false);
+            }
+        }
+    }
+}
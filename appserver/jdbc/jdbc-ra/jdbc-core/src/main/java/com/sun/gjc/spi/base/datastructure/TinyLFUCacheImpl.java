@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.enterprise.util.i18n.StringManager;
+import com.sun.gjc.common.DataSourceObjectBuilder;
+import com.sun.gjc.monitoring.StatementCacheProbeProvider;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import com.sun.logging.LogDomains;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement cache with a TinyLFU admission policy.
+ * <p/>
+ * Statements belong to a physical connection and are cached per connection, but
+ * the access frequencies, a budget for the number of statements cached by all the
+ * connections of the pool and the per sql statistics are shared by the pool.
+ * A new statement first enters a small LRU window. When the window is full, its
+ * least recently used statement is admitted to the main LRU region only if it is
+ * used more often across the pool than the statement it would evict, so that
+ * statements used once do not flush out the frequently used ones.
+ * <p/>
+ * The per connection state is guarded by this cache itself and the shared state
+ * is updated without locking, hence the cache does not need to be wrapped in a
+ * {@link SynchronizedCache}.
+ * <p/>
+ * The shared state of a pool is dropped once the caches of all its connections
+ * are cleared, which happens when the connections are destroyed, and is created
+ * again when the cache size or the budget of the pool changed.
+ */
+public class TinyLFUCacheImpl implements Cache {
+
+    /**
+     * System property for the maximum number of statements cached by all the
+     * connections of a pool, 0 (default) for no limit other than the cache size
+     * of each connection.
+     */
+    public static final String POOL_BUDGET_PROPERTY = "com.sun.appserv.jdbc.statementCachePoolBudget";
+
+    //number of sql strings for which statistics are kept per pool
+    private static final int MAX_TRACKED_SQL = 1000;
+
+    private static final ConcurrentHashMap<PoolInfo, PoolCacheState> poolStates =
+            new ConcurrentHashMap<PoolInfo, PoolCacheState>();
+
+    private final Map<CacheObjectKey, Object> window;
+    private final Map<CacheObjectKey, Object> main;
+    private final int windowMaxSize;
+    private final int maxSize;
+    private final PoolInfo poolInfo;
+    private final PoolCacheState poolState;
+    private boolean released;
+    private StatementCacheProbeProvider probeProvider = null;
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(TinyLFUCacheImpl.class, LogDomains.RSR_LOGGER);
+
+    protected final static StringManager localStrings =
+            StringManager.getManager(DataSourceObjectBuilder.class);
+
+    public TinyLFUCacheImpl(PoolInfo poolInfo, int maxSize) {
+        this.poolInfo = poolInfo;
+        this.maxSize = maxSize;
+        //1% of the cache, at least one statement, is the admission window
+        windowMaxSize = Math.max(1, maxSize / 100);
+        window = new LinkedHashMap<CacheObjectKey, Object>(16, 0.75f, true);
+        main = new LinkedHashMap<CacheObjectKey, Object>(16, 0.75f, true);
+        poolState = acquirePoolState(poolInfo, maxSize);
+        try {
+            probeProvider = new StatementCacheProbeProvider();
+        } catch(Exception ex) {
+            _logger.log(Level.WARNING, localStrings.getString(
+                    "jdbc.statement-cache.probe.init.failure", poolInfo), ex);
+        }
+    }
+
+    /**
+     * Get the shared state of a pool for one more connection. The state is
+     * created again if the pool was reconfigured with another cache size or
+     * budget.
+     */
+    private static PoolCacheState acquirePoolState(PoolInfo poolInfo, int maxSize) {
+        int budget = Integer.getInteger(POOL_BUDGET_PROPERTY, 0);
+        synchronized (poolStates) {
+            PoolCacheState state = poolStates.get(poolInfo);
+            if (state == null || state.maxSize != maxSize || state.budget != budget) {
+                state = new PoolCacheState(maxSize, budget);
+                poolStates.put(poolInfo, state);
+            }
+            state.connections++;
+            return state;
+        }
+    }
+
+    /**
+     * Release the shared state of a pool for a connection, the state is dropped
+     * with the last connection of the pool.
+     */
+    private static void releasePoolState(PoolInfo poolInfo, PoolCacheState state) {
+        synchronized (poolStates) {
+            if (--state.connections == 0) {
+                poolStates.remove(poolInfo, state);
+            }
+        }
+    }
+
+    /**
+     * Check if an entry is found for this key object.
+     *
+     * @param key key whose mapping entry is to be checked.
+     * @return statement cached for the key, null when not found in cache
+     */
+    public synchronized Object checkAndUpdateCache(CacheObjectKey key) {
+        poolState.sketch.increment(key);
+        Object result = window.get(key);
+        if (result == null) {
+            result = main.get(key);
+        }
+        SqlStatistics stats = poolState.getSqlStatistics(key.getSql());
+        if (result != null) {
+            if(_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Hit");
+            }
+            if (stats != null) {
+                stats.hits.incrementAndGet();
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheHitEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                        poolInfo.getModuleName());
+            }
+        } else {
+            if(_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Miss");
+            }
+            if (stats != null) {
+                stats.misses.incrementAndGet();
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheMissEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                        poolInfo.getModuleName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the key and entry value into the cache. The statement enters the
+     * admission window, the window overflow is either admitted to the main region
+     * or evicted.
+     *
+     * @param key key that contains the sql string and its type (PS/CS)
+     * @param o entry that is the wrapper of PreparedStatement or
+     * CallableStatement
+     * @param force If the already existing key is to be overwritten
+     */
+    public synchronized void addToCache(CacheObjectKey key, Object o, boolean force) {
+        boolean present = window.containsKey(key) || main.containsKey(key);
+        if (present && !force) {
+            return;
+        }
+        if (present) {
+            //overwrite, the replaced statement is not tracked by the cache anymore
+            if (window.remove(key) == null) {
+                main.remove(key);
+            }
+            poolState.cachedCount.decrementAndGet();
+        }
+        if (!poolState.reserve()) {
+            //pool budget is exhausted, make room by evicting the coldest statement of this connection
+            if (!evictColder(key)) {
+                uncache(o);
+                return;
+            }
+            poolState.cachedCount.incrementAndGet();
+        }
+        window.put(key, o);
+        if (window.size() > windowMaxSize) {
+            Map.Entry<CacheObjectKey, Object> candidate = window.entrySet().iterator().next();
+            window.remove(candidate.getKey());
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Admit the statement evicted from the window to the main region if it is
+     * used more often than the main region's least recently used statement.
+     */
+    private void admit(CacheObjectKey key, Object o) {
+        if (main.size() < maxSize - windowMaxSize) {
+            main.put(key, o);
+            return;
+        }
+        Map.Entry<CacheObjectKey, Object> victim = main.isEmpty() ? null : main.entrySet().iterator().next();
+        if (victim != null && poolState.sketch.frequency(key) > poolState.sketch.frequency(victim.getKey())) {
+            main.remove(victim.getKey());
+            evict(victim.getKey(), victim.getValue());
+            main.put(key, o);
+        } else {
+            evict(key, o);
+        }
+    }
+
+    /**
+     * Evict the least recently used statement of this connection, if it is used
+     * less often than the given key.
+     *
+     * @return boolean indicating whether a statement was evicted
+     */
+    private boolean evictColder(CacheObjectKey key) {
+        Map<CacheObjectKey, Object> region = main.isEmpty() ? window : main;
+        if (region.isEmpty()) {
+            return false;
+        }
+        Map.Entry<CacheObjectKey, Object> victim = region.entrySet().iterator().next();
+        if (poolState.sketch.frequency(key) <= poolState.sketch.frequency(victim.getKey())) {
+            return false;
+        }
+        region.remove(victim.getKey());
+        evict(victim.getKey(), victim.getValue());
+        return true;
+    }
+
+    private void evict(CacheObjectKey key, Object o) {
+        poolState.cachedCount.decrementAndGet();
+        SqlStatistics stats = poolState.getSqlStatistics(key.getSql());
+        if (stats != null) {
+            stats.evictions.incrementAndGet();
+        }
+        if (probeProvider != null) {
+            probeProvider.statementCacheEvictionEvent(poolInfo.getName(), poolInfo.getApplicationName(),
+                    poolInfo.getModuleName());
+        }
+        uncache(o);
+    }
+
+    /**
+     * Close a statement that is no longer cached. A statement in use is closed by
+     * the application once it is done with it.
+     */
+    private void uncache(Object o) {
+        if (o instanceof PreparedStatementWrapper) {
+            PreparedStatementWrapper ps = (PreparedStatementWrapper) o;
+            ps.setCached(false);
+            if (!ps.isBusy()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the statement cache. The cache is cleared when its connection is
+     * destroyed, so the shared state of the pool is released.
+     */
+    public synchronized void clearCache() {
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.fine("clearing objects in cache");
+        }
+        poolState.cachedCount.addAndGet(-(window.size() + main.size()));
+        window.clear();
+        main.clear();
+        if (!released) {
+            released = true;
+            releasePoolState(poolInfo, poolState);
+        }
+    }
+
+    public synchronized void flushCache() {
+        while (getSize() != 0) {
+            purge();
+        }
+    }
+
+    public synchronized void purge() {
+        Map<CacheObjectKey, Object> region = window.isEmpty() ? main : window;
+        Iterator<Map.Entry<CacheObjectKey, Object>> iterator = region.entrySet().iterator();
+        if (iterator.hasNext()) {
+            Map.Entry<CacheObjectKey, Object> entry = iterator.next();
+            iterator.remove();
+            poolState.cachedCount.decrementAndGet();
+            uncache(entry.getValue());
+        }
+    }
+
+    // Used only for purging the bad statements.
+    public synchronized void purge(Object obj) {
+        if (!purge(window, obj)) {
+            purge(main, obj);
+        }
+    }
+
+    private boolean purge(Map<CacheObjectKey, Object> region, Object obj) {
+        Iterator<Map.Entry<CacheObjectKey, Object>> iterator = region.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheObjectKey, Object> entry = iterator.next();
+            if (entry.getValue().equals(obj)) {
+                if(_logger.isLoggable(Level.FINEST)) {
+                    _logger.log(Level.FINEST, "Purging an entry from cache");
+                }
+                iterator.remove();
+                poolState.cachedCount.decrementAndGet();
+                uncache(entry.getValue());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of entries in the statement cache
+     * @return has integer value
+     */
+    public synchronized int getSize() {
+        return window.size() + main.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isSynchronized() {
+        return true;
+    }
+
+    /**
+     * Get the statement cache statistics of the most used sql strings of a pool.
+     *
+     * @param poolInfo pool whose statistics are to be reported
+     * @param count maximum number of sql strings to be reported
+     * @return one <i>sql : hits, misses, evictions</i> line per sql, most hits first
+     */
+    public static String getSqlStatistics(PoolInfo poolInfo, int count) {
+        PoolCacheState state = poolStates.get(poolInfo);
+        if (state == null) {
+            return "";
+        }
+        List<Map.Entry<String, SqlStatistics>> entries =
+                new ArrayList<Map.Entry<String, SqlStatistics>>(state.sqlStatistics.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, SqlStatistics>>() {
+            public int compare(Map.Entry<String, SqlStatistics> e1, Map.Entry<String, SqlStatistics> e2) {
+                return Long.compare(e2.getValue().hits.get(), e1.getValue().hits.get());
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < entries.size() && i < count; i++) {
+            Map.Entry<String, SqlStatistics> entry = entries.get(i);
+            SqlStatistics stats = entry.getValue();
+            sb.append(entry.getKey()).append(" : hits=").append(stats.hits.get())
+                    .append(", misses=").append(stats.misses.get())
+                    .append(", evictions=").append(stats.evictions.get()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Statement cache state shared by all the connections of a pool.
+     */
+    private static class PoolCacheState {
+        private final FrequencySketch sketch;
+        private final int maxSize;
+        private final int budget;
+        //number of connections using the state, guarded by poolStates
+        private int connections;
+        private final AtomicInteger cachedCount = new AtomicInteger();
+        private final ConcurrentHashMap<String, SqlStatistics> sqlStatistics =
+                new ConcurrentHashMap<String, SqlStatistics>();
+
+        private PoolCacheState(int maxSize, int budget) {
+            this.maxSize = maxSize;
+            this.budget = budget;
+            sketch = new FrequencySketch(budget > 0 ? budget : maxSize * 16);
+        }
+
+        /**
+         * @return boolean indicating whether one more statement can be cached within the budget
+         */
+        private boolean reserve() {
+            while (true) {
+                int current = cachedCount.get();
+                if (budget > 0 && current >= budget) {
+                    return false;
+                }
+                if (cachedCount.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private SqlStatistics getSqlStatistics(String sql) {
+            if (sql == null) {
+                return null;
+            }
+            SqlStatistics stats = sqlStatistics.get(sql);
+            if (stats == null && sqlStatistics.size() < MAX_TRACKED_SQL) {
+                SqlStatistics newStats = new SqlStatistics();
+                stats = sqlStatistics.putIfAbsent(sql, newStats);
+                if (stats == null) {
+                    stats = newStats;
+                }
+            }
+            return stats;
+        }
+    }
+
+    private static class SqlStatistics {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+    }
+}
@@ -18,6 +18,7 @@ package com.sun.gjc.util;
 
 import com.sun.gjc.monitoring.JdbcRAConstants;
 import com.sun.gjc.monitoring.SQLTraceProbeProvider;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -50,6 +51,7 @@ public class SQLTraceDelegator implements SQLTraceListener {
     private String appName;
     private String moduleName;
     private SQLTraceProbeProvider probeProvider = null;
+    private volatile SQLTraceSampler sampler;
 
     public SQLTraceProbeProvider getProbeProvider() {
         return probeProvider;
@@ -62,6 +64,46 @@ public class SQLTraceDelegator implements SQLTraceListener {
         probeProvider = new SQLTraceProbeProvider();
     }
 
+    public SQLTraceSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Switch to sampled tracing. The sql queries are no more reported to the
+     * sql trace cache, the sampler keeps track of them instead.
+     * @param sampler
+     */
+    public void setSampler(SQLTraceSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * @return true if a trace record is to be created for every method invoked,
+     * false if only sampled sql executions are traced.
+     */
+    public boolean isTracingEveryCall() {
+        return sqlTraceListenersList != null || sampler == null;
+    }
+
+    /**
+     * Invoke a method on a traced jdbc object, sampling its execution when
+     * sampled tracing is enabled.
+     *
+     * @param actualObject jdbc object on which the method is invoked
+     * @param method method to invoke
+     * @param args arguments of the method
+     * @param preparedSql sql the jdbc object is prepared with, null for other objects
+     * @return result of the method
+     */
+    public Object invoke(Object actualObject, Method method, Object[] args, String preparedSql)
+            throws Throwable {
+        SQLTraceSampler currentSampler = sampler;
+        if (currentSampler == null) {
+            return method.invoke(actualObject, args);
+        }
+        return currentSampler.invoke(actualObject, method, args, preparedSql);
+    }
+
     /**
      * Add a listener to the list of sql trace listeners maintained by 
      * this registry.
@@ -90,7 +132,7 @@ public class SQLTraceDelegator implements SQLTraceListener {
            }
        }
 
-        if (record != null) {
+        if (record != null && sampler == null) {
             record.setPoolName(poolName);
             String methodName = record.getMethodName();
             //Check if the method name is one in which sql query is used
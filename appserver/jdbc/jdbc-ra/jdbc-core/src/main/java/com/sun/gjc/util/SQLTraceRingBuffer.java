@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.gjc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size buffer of the most recent sql trace samples.
+ * <p/>
+ * All the entries are allocated upfront and overwritten in a circular fashion,
+ * hence tracing does not create garbage. Writers claim a slot without locking.
+ * Every entry carries a version that is odd while the entry is being written,
+ * readers use it to skip entries that change while they are read.
+ */
+public class SQLTraceRingBuffer {
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param size number of samples to keep, rounded up to a power of two
+     */
+    public SQLTraceRingBuffer(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, Math.min(size, 1 << 20)) - 1) << 1;
+        entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Add a sample, overwriting the oldest one when the buffer is full. The sample
+     * is dropped when its slot is still being written by another thread.
+     *
+     * @param sql sql that is traced
+     * @param elapsedNanos time taken to execute the sql
+     * @param timeStamp time at which the sql was executed
+     */
+    public void add(String sql, long elapsedNanos, long timeStamp) {
+        Entry entry = entries[(int) (sequence.getAndIncrement() & mask)];
+        long version = entry.version.get();
+        if ((version & 1) != 0 || !entry.version.compareAndSet(version, version + 1)) {
+            return;
+        }
+        entry.sql = sql;
+        entry.elapsedNanos = elapsedNanos;
+        entry.timeStamp = timeStamp;
+        entry.version.set(version + 2);
+    }
+
+    /**
+     * @return copy of the samples currently held in the buffer
+     */
+    public List<SQLTraceSample> getSamples() {
+        List<SQLTraceSample> samples = new ArrayList<SQLTraceSample>(entries.length);
+        for (Entry entry : entries) {
+            long version = entry.version.get();
+            if ((version & 1) != 0) {
+                continue;
+            }
+            String sql = entry.sql;
+            long elapsedNanos = entry.elapsedNanos;
+            long timeStamp = entry.timeStamp;
+            if (sql != null && entry.version.get() == version) {
+                samples.add(new SQLTraceSample(sql, elapsedNanos, timeStamp));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Discard all the samples.
+     */
+    public void clear() {
+        for (Entry entry : entries) {
+            long version = entry.version.get();
+            if ((version & 1) == 0 && entry.version.compareAndSet(version, version + 1)) {
+                entry.sql = null;
+                entry.version.set(version + 2);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final AtomicLong version = new AtomicLong();
+        private volatile String sql;
+        private volatile long elapsedNanos;
+        private volatile long timeStamp;
+    }
+
+    /**
+     * A sql execution that is captured in the buffer.
+     */
+    public static final class SQLTraceSample {
+        private final String sql;
+        private final long elapsedNanos;
+        private final long timeStamp;
+
+        SQLTraceSample(String sql, long elapsedNanos, long timeStamp) {
+            this.sql = sql;
+            this.elapsedNanos = elapsedNanos;
+            this.timeStamp = timeStamp;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getTimeStamp() {
+            return timeStamp;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.gjc.util;
+
+import com.sun.gjc.monitoring.JdbcRAConstants;
+import com.sun.gjc.util.SQLTraceRingBuffer.SQLTraceSample;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the sql executions of a pool into a {@link SQLTraceRingBuffer}.
+ * <p/>
+ * Only one in <i>samplingRate</i> sql executions is timed. Of those, only the ones
+ * that take at least <i>latencyThreshold</i> are kept. Unlike the
+ * {@link SQLTraceCache}, a sql execution is never sorted or looked up in a shared
+ * list, the reports are computed from the buffer when they are requested.
+ */
+public class SQLTraceSampler {
+
+    private static final Set<String> sqlTracingMethodNames =
+            new HashSet<String>(JdbcRAConstants.validSqlTracingMethodNames);
+    private static final String LINE_BREAK = "%%%EOL%%%";
+
+    private final int samplingRate;
+    private final long latencyThresholdNanos;
+    private final SQLTraceRingBuffer buffer;
+
+    /**
+     * @param samplingRate one in <i>samplingRate</i> sql executions is sampled,
+     * every execution when it is 1 or less
+     * @param latencyThresholdInMillis minimum execution time of the sampled sql executions to keep
+     * @param bufferSize number of sql executions to keep
+     */
+    public SQLTraceSampler(int samplingRate, long latencyThresholdInMillis, int bufferSize) {
+        this.samplingRate = Math.max(1, samplingRate);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, latencyThresholdInMillis));
+        this.buffer = new SQLTraceRingBuffer(bufferSize);
+    }
+
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+
+    public long getLatencyThresholdInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(latencyThresholdNanos);
+    }
+
+    public SQLTraceRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Invoke the method on the jdbc object and sample its execution when it
+     * executes a sql.
+     *
+     * @param actualObject jdbc object on which the method is invoked
+     * @param method method to invoke
+     * @param args arguments of the method
+     * @param preparedSql sql the jdbc object is prepared with, null for other objects
+     * @return result of the method
+     */
+    public Object invoke(Object actualObject, Method method, Object[] args, String preparedSql)
+            throws Throwable {
+        String sql = getSql(method.getName(), args, preparedSql);
+        if (sql == null || !isSampled()) {
+            return method.invoke(actualObject, args);
+        }
+        long start = System.nanoTime();
+        try {
+            return method.invoke(actualObject, args);
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            if (elapsedNanos >= latencyThresholdNanos) {
+                buffer.add(sql, elapsedNanos, System.currentTimeMillis());
+            }
+        }
+    }
+
+    private boolean isSampled() {
+        return samplingRate == 1 || ThreadLocalRandom.current().nextInt(samplingRate) == 0;
+    }
+
+    private String getSql(String methodName, Object[] args, String preparedSql) {
+        if (!sqlTracingMethodNames.contains(methodName)) {
+            return null;
+        }
+        if (args != null && args.length > 0 && args[0] instanceof String) {
+            return (String) args[0];
+        }
+        return preparedSql;
+    }
+
+    /**
+     * @param numTopQueriesToReport number of queries to report
+     * @return the sampled sql queries that took the longest time to execute, slowest first
+     */
+    public String getSlowestQueries(int numTopQueriesToReport) {
+        List<Summary> summaries = summarize();
+        Collections.sort(summaries, new Comparator<Summary>() {
+            public int compare(Summary s1, Summary s2) {
+                return Long.compare(s2.maxNanos, s1.maxNanos);
+            }
+        });
+        return toString(summaries, numTopQueriesToReport);
+    }
+
+    /**
+     * @param numTopQueriesToReport number of queries to report
+     * @return the sampled sql queries that are executed the most, most frequent first
+     */
+    public String getMostFrequentQueries(int numTopQueriesToReport) {
+        List<Summary> summaries = summarize();
+        Collections.sort(summaries, new Comparator<Summary>() {
+            public int compare(Summary s1, Summary s2) {
+                return Integer.compare(s2.samples, s1.samples);
+            }
+        });
+        return toString(summaries, numTopQueriesToReport);
+    }
+
+    private List<Summary> summarize() {
+        Map<String, Summary> summaries = new HashMap<String, Summary>();
+        for (SQLTraceSample sample : buffer.getSamples()) {
+            Summary summary = summaries.get(sample.getSql());
+            if (summary == null) {
+                summary = new Summary(sample.getSql());
+                summaries.put(sample.getSql(), summary);
+            }
+            summary.samples++;
+            summary.totalNanos += sample.getElapsedNanos();
+            summary.maxNanos = Math.max(summary.maxNanos, sample.getElapsedNanos());
+        }
+        return new ArrayList<Summary>(summaries.values());
+    }
+
+    private static String toString(List<Summary> summaries, int numTopQueriesToReport) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < summaries.size() && i < numTopQueriesToReport; i++) {
+            Summary summary = summaries.get(i);
+            sb.append(LINE_BREAK);
+            sb.append(summary.sql);
+            sb.append(" [samples=").append(summary.samples);
+            sb.append(", avg=").append(TimeUnit.NANOSECONDS.toMicros(summary.totalNanos / summary.samples)).append("us");
+            sb.append(", max=").append(TimeUnit.NANOSECONDS.toMicros(summary.maxNanos)).append("us]");
+        }
+        return sb.toString();
+    }
+
+    private static final class Summary {
+        private final String sql;
+        private int samples;
+        private long totalNanos;
+        private long maxNanos;
+
+        private Summary(String sql) {
+            this.sql = sql;
+        }
+    }
+}
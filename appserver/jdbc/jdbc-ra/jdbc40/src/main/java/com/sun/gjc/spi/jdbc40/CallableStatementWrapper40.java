@@ -23,7 +23,6 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.sql.*;
 import java.util.logging.Level;
-import jakarta.resource.ResourceException;
 
 /**
  * Wrapper for JDBC 4.0 CallableStatement
@@ -1450,13 +1449,11 @@ public class CallableStatementWrapper40 extends CallableStatementWrapper {
 
     public <T> T getObject(int parameterIndex, Class<T> type) throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
-            Class<?>[] valueTypes = new Class<?>[]{Integer.TYPE, Class.class};
             try {
-                return (T) executor.invokeMethod(jdbcStatement, "getObject",
-                        valueTypes, parameterIndex, type);
-            } catch (ResourceException ex) {
+                return callableStatement.getObject(parameterIndex, type);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_get_object", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -1464,13 +1461,11 @@ public class CallableStatementWrapper40 extends CallableStatementWrapper {
 
     public <T> T getObject(String parameterName, Class<T> type) throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
-            Class<?>[] valueTypes = new Class<?>[]{String.class, Class.class};
             try {
-                return (T) executor.invokeMethod(jdbcStatement, "getObject",
-                        valueTypes, parameterName, type);
-            } catch (ResourceException ex) {
+                return callableStatement.getObject(parameterName, type);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_get_object", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -566,12 +566,11 @@ public class ConnectionHolder40 extends ConnectionHolder {
     public void setSchema(String schema) throws SQLException {
         if(DataSourceObjectBuilder.isJDBC41()) {
             checkValidity();
-            Class<?>[] valueTypes = new Class<?>[]{String.class};
             try {
-                getMethodExecutor().invokeMethod(con, "setSchema", valueTypes, schema);
-            } catch (ResourceException ex) {
+                con.setSchema(schema);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_connection_holder", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
             return;
         }
@@ -582,10 +581,10 @@ public class ConnectionHolder40 extends ConnectionHolder {
         if(DataSourceObjectBuilder.isJDBC41()) {
             checkValidity();
             try {
-                return (String) getMethodExecutor().invokeMethod(con, "getSchema", null);
-            } catch (ResourceException ex) {
+                return con.getSchema();
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_connection_holder", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -595,12 +594,11 @@ public class ConnectionHolder40 extends ConnectionHolder {
             throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
             checkValidity();
-            Class<?>[] valueTypes = new Class<?>[]{Executor.class, Integer.TYPE};
             try {
-                getMethodExecutor().invokeMethod(con, "setNetworkTimeout", valueTypes, executorObj, milliseconds);
-            } catch (ResourceException ex) {
+                con.setNetworkTimeout(executorObj, milliseconds);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_connection_holder", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
             return;
         }
@@ -611,10 +609,10 @@ public class ConnectionHolder40 extends ConnectionHolder {
         if (DataSourceObjectBuilder.isJDBC41()) {
             checkValidity();
             try {
-                return (Integer) getMethodExecutor().invokeMethod(con, "getNetworkTimeout", null);
-            } catch (ResourceException ex) {
+                return con.getNetworkTimeout();
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_connection_holder", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -25,6 +25,7 @@ import jakarta.resource.ResourceException;
 import jakarta.resource.spi.ConnectionManager;
 import java.util.logging.Level;
 import java.sql.*;
+import javax.sql.CommonDataSource;
 import java.util.logging.Logger;
 
 /**
@@ -124,13 +125,22 @@ public class DataSource40 extends AbstractDataSource {
 
     public Logger getParentLogger() throws SQLFeatureNotSupportedException {
         if(DataSourceObjectBuilder.isJDBC41()) {
+            Object dataSource;
             try {
-                return (Logger) executor.invokeMethod(mcf.getDataSource().getClass(),
-                    "getParentLogger", null);
+                dataSource = mcf.getDataSource();
             } catch (ResourceException ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_get_parent_logger", ex);
                 throw new SQLFeatureNotSupportedException(ex);
             }
+            if (dataSource instanceof CommonDataSource) {
+                try {
+                    return ((CommonDataSource) dataSource).getParentLogger();
+                } catch (AbstractMethodError ex) {
+                    _logger.log(Level.SEVERE, "jdbc.ex_get_parent_logger", ex);
+                    throw new SQLFeatureNotSupportedException(ex);
+                }
+            }
+            throw new SQLFeatureNotSupportedException();
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
     }
@@ -21,7 +21,6 @@ import com.sun.gjc.spi.base.DatabaseMetaDataWrapper;
 
 import java.sql.*;
 import java.util.logging.Level;
-import jakarta.resource.ResourceException;
 
 /**
  * Wrapper class for DatabaseMetaData for JDBC 4.0 <br>
@@ -348,15 +347,12 @@ public class DatabaseMetaDataWrapper40 extends DatabaseMetaDataWrapper {
     public ResultSet getPseudoColumns(String catalog, String schemaPattern,
             String tableNamePattern, String columnNamePattern) throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
-            Class<?>[] valueTypes = 
-                    new Class<?>[]{String.class, String.class, String.class, String.class};
             try {
-                return (ResultSet) getMethodExecutor().invokeMethod(databaseMetaData,
-                        "getPseudoColumns", valueTypes, catalog, schemaPattern,
+                return databaseMetaData.getPseudoColumns(catalog, schemaPattern,
                         tableNamePattern, columnNamePattern);
-            } catch (ResourceException ex) {
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_dmd_wrapper", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -365,11 +361,10 @@ public class DatabaseMetaDataWrapper40 extends DatabaseMetaDataWrapper {
     public boolean generatedKeyAlwaysReturned() throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
             try {
-                return (Boolean) getMethodExecutor().invokeMethod(databaseMetaData,
-                        "generatedKeyAlwaysReturned", null);
-            } catch (ResourceException ex) {
+                return databaseMetaData.generatedKeyAlwaysReturned();
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_dmd_wrapper", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -144,7 +144,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this,sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -168,7 +168,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this, sql, resultSetType, resultSetConcurrency), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -194,7 +194,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this, sql, resultSetType, resultSetConcurrency, resultSetHoldability), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -217,7 +217,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, 
                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY),
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -238,7 +238,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(
-                    mc.prepareCachedStatement(this, sql, autoGeneratedKeys), intf);
+                    mc.prepareCachedStatement(this, sql, autoGeneratedKeys), intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -260,7 +260,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(
-                    mc.prepareCachedStatement(this, sql, columnIndexes), intf);
+                    mc.prepareCachedStatement(this, sql, columnIndexes), intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -284,7 +284,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, resultSetType, resultSetConcurrency), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -310,7 +310,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, resultSetType, resultSetConcurrency, resultSetHoldability), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -333,7 +333,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(mc.prepareCachedStatement(this, sql, columnNames), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -393,22 +393,29 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
                 enableCaching);
     }
 
-    //TODO refactor this method and move to a higher level
     private <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces) throws Exception {
+        return getProxyObject(actualObject, ifaces, null);
+    }
+
+    //TODO refactor this method and move to a higher level
+    private <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces,
+            final String sql) throws Exception {
         
         T result;
         InvocationHandler ih = new InvocationHandler() {
 
             public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                SQLTraceRecord record = new SQLTraceRecord();
-                record.setMethodName(method.getName());
-                record.setParams(args);
-                record.setClassName(actualObject.getClass().getName());
-                record.setThreadName(Thread.currentThread().getName());
-                record.setThreadID(Thread.currentThread().getId());
-                record.setTimeStamp(System.currentTimeMillis());
-                sqlTraceDelegator.sqlTrace(record);
-                return method.invoke(actualObject, args);
+                if (sqlTraceDelegator.isTracingEveryCall()) {
+                    SQLTraceRecord record = new SQLTraceRecord();
+                    record.setMethodName(method.getName());
+                    record.setParams(args);
+                    record.setClassName(actualObject.getClass().getName());
+                    record.setThreadName(Thread.currentThread().getName());
+                    record.setThreadID(Thread.currentThread().getId());
+                    record.setTimeStamp(System.currentTimeMillis());
+                    sqlTraceDelegator.sqlTrace(record);
+                }
+                return sqlTraceDelegator.invoke(actualObject, method, args, sql);
             }
         };
         result = (T) Proxy.newProxyInstance(actualObject.getClass().getClassLoader(), ifaces, ih);
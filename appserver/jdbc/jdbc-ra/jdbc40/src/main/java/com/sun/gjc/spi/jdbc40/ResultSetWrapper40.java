@@ -26,7 +26,6 @@ import java.io.Reader;
 
 import java.sql.*;
 import java.util.logging.Level;
-import jakarta.resource.ResourceException;
 
 /**
  * Wrapper for ResultSet
@@ -89,12 +88,11 @@ public class ResultSetWrapper40 extends ResultSetWrapper {
 
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
-            Class<?>[] valueTypes = new Class<?>[]{Integer.TYPE, Class.class};
             try {
-                return (T) getMethodExecutor().invokeMethod(resultSet, "getObject", valueTypes, columnIndex, type);
-            } catch (ResourceException ex) {
+                return resultSet.getObject(columnIndex, type);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_get_object", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -102,12 +100,11 @@ public class ResultSetWrapper40 extends ResultSetWrapper {
 
     public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
         if (DataSourceObjectBuilder.isJDBC41()) {
-            Class<?>[] valueTypes = new Class<?>[]{String.class, Class.class};
             try {
-                return (T) getMethodExecutor().invokeMethod(resultSet, "getObject", valueTypes, columnLabel, type);
-            } catch (ResourceException ex) {
+                return resultSet.getObject(columnLabel, type);
+            } catch (AbstractMethodError ex) {
                 _logger.log(Level.SEVERE, "jdbc.ex_get_object", ex);
-                throw new SQLException(ex);
+                throw new SQLFeatureNotSupportedException(ex);
             }
         }
         throw new UnsupportedOperationException("Operation not supported in this runtime.");
@@ -416,6 +416,19 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     conConnPool.setAssociateWithThread(toBoolean(rp.getValue(), false));
                     logFine("ASSOCIATEWITHTHREAD");
 
+                } else if ("PARTITIONEDPOOL".equals(name.toUpperCase(locale))) {
+                    conConnPool.setPartitionedPool(toBoolean(rp.getValue(), false));
+                    logFine("PARTITIONEDPOOL");
+
+                } else if ("POOLPARTITIONS".equals(name.toUpperCase(locale))) {
+                    String value = rp.getValue();
+                    try {
+                        conConnPool.setPoolPartitions(Integer.parseInt(value));
+                        logFine("POOLPARTITIONS");
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for 'POOLPARTITIONS' : " + value);
+                    }
+
                 } else if ("LAZYCONNECTIONASSOCIATION".equals(name.toUpperCase(locale))) {
                     ConnectionPoolObjectsUtils.setLazyEnlistAndLazyAssocProperties(rp.getValue(),
                             adminPool.getProperty(), conConnPool);
@@ -438,6 +451,24 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                         _logger.log(Level.WARNING, "Invalid value for "
                                 + "'" + ConnectorConstants.DYNAMIC_RECONFIGURATION_FLAG + "' : " + value);
                     }
+                } else if (ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL.equals(name.toLowerCase(locale))) {
+                    String value = rp.getValue();
+                    try {
+                        conConnPool.setBackgroundValidationInterval(Long.parseLong(value) * 1000L);
+                        logFine(ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL);
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for "
+                                + "'" + ConnectorConstants.BACKGROUND_VALIDATION_INTERVAL + "' : " + value);
+                    }
+                } else if (ConnectorConstants.VALIDATION_IDLE_THRESHOLD.equals(name.toLowerCase(locale))) {
+                    String value = rp.getValue();
+                    try {
+                        conConnPool.setValidationIdleThreshold(Long.parseLong(value) * 1000L);
+                        logFine(ConnectorConstants.VALIDATION_IDLE_THRESHOLD);
+                    } catch (NumberFormatException nfe) {
+                        _logger.log(Level.WARNING, "Invalid value for "
+                                + "'" + ConnectorConstants.VALIDATION_IDLE_THRESHOLD + "' : " + value);
+                    }
                 } else if ("POOLWAITQUEUE".equals(name.toUpperCase(locale))) {
                     conConnPool.setPoolWaitQueue(rp.getValue());
                     logFine("POOLWAITQUEUE");
@@ -446,6 +477,10 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     conConnPool.setDataStructureParameters(rp.getValue());
                     logFine("DATASTRUCTUREPARAMETERS");
 
+                } else if ("RESOURCESELECTIONSTRATEGY".equals(name.toUpperCase(locale))) {
+                    conConnPool.setResourceSelectionStrategyClass(rp.getValue());
+                    logFine("RESOURCESELECTIONSTRATEGY");
+
                 } else if ("USERNAME".equals(name.toUpperCase(Locale.getDefault()))
                         || "USER".equals(name.toUpperCase(locale))) {
 
@@ -484,6 +519,21 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     propList.add(new ConnectorConfigProperty("TimeToKeepQueriesInMinutes",
                             rp.getValue(), "TimeToKeepQueriesInMinutes", "java.lang.String"));
 
+                } else if ("SQL-TRACE-SAMPLING-RATE".equals(name.toUpperCase(Locale.getDefault()))) {
+
+                    propList.add(new ConnectorConfigProperty("SqlTraceSamplingRate",
+                            rp.getValue(), "SqlTraceSamplingRate", "java.lang.String"));
+
+                } else if ("SQL-TRACE-LATENCY-THRESHOLD-IN-MILLIS".equals(name.toUpperCase(Locale.getDefault()))) {
+
+                    propList.add(new ConnectorConfigProperty("SqlTraceLatencyThresholdInMillis",
+                            rp.getValue(), "SqlTraceLatencyThresholdInMillis", "java.lang.String"));
+
+                } else if ("SQL-TRACE-BUFFER-SIZE".equals(name.toUpperCase(Locale.getDefault()))) {
+
+                    propList.add(new ConnectorConfigProperty("SqlTraceBufferSize",
+                            rp.getValue(), "SqlTraceBufferSize", "java.lang.String"));
+
                 } else if (mcfConPropKeys.containsKey(name.toUpperCase(Locale.getDefault()))) {
 
                     propList.add(new ConnectorConfigProperty(
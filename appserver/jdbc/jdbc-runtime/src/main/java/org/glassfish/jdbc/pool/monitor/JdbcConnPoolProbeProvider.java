@@ -44,6 +44,23 @@ public class JdbcConnPoolProbeProvider extends ConnectionPoolProbeProvider {
             @ProbeParam("moduleName") String moduleName,
             @ProbeParam("increment") int increment){ }
 
+    /**
+     * Emits probe event/notification that the given jdbc connection pool
+     * <code>poolName</code>has got a connection validated event.
+     *
+     * @param poolName for which connection is validated
+     * @param timeTakenInMillis time taken to validate the connection
+     * @param background whether the connection was validated by the background validator
+     */
+    @Probe(name="connectionValidatedEvent")
+    @Override
+    public void connectionValidatedEvent(
+            @ProbeParam("poolName") String poolName,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("moduleName") String moduleName,
+            @ProbeParam("timeTakenInMillis") long timeTakenInMillis,
+            @ProbeParam("background") boolean background){ }
+
     /**
      * Emits probe event/notification that a jdbc connection pool with the given
      * name <code>poolName</code> has got a connection timed out event.
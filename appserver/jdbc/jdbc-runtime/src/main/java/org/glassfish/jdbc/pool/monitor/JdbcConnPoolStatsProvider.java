@@ -19,14 +19,17 @@ package org.glassfish.jdbc.pool.monitor;
 import com.sun.enterprise.connectors.ConnectorRuntime;
 import com.sun.enterprise.resource.pool.PoolLifeCycleListenerRegistry;
 import com.sun.enterprise.resource.pool.PoolStatus;
+import com.sun.enterprise.resource.pool.monitor.ConnRequestWaitTimeHistogram;
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
 import org.glassfish.external.statistics.CountStatistic;
 import org.glassfish.external.statistics.RangeStatistic;
+import org.glassfish.external.statistics.StringStatistic;
 import org.glassfish.external.statistics.annotations.Reset;
 import org.glassfish.external.statistics.impl.CountStatisticImpl;
 import org.glassfish.external.statistics.impl.RangeStatisticImpl;
 import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.external.statistics.impl.StringStatisticImpl;
 import org.glassfish.gmbal.AMXMetadata;
 import org.glassfish.gmbal.Description;
 import org.glassfish.gmbal.ManagedAttribute;
@@ -61,6 +64,18 @@ public class JdbcConnPoolStatsProvider {
             "NumConnFailedValidation", StatisticImpl.UNIT_COUNT,
             "The total number of connections in the connection pool that failed " +
             "validation from the start time until the last sample time.");
+    private CountStatisticImpl numConnValidated = new CountStatisticImpl(
+            "NumConnValidated", StatisticImpl.UNIT_COUNT, "The total number of " +
+            "connections validated by request threads while being acquired from the pool.");
+    private CountStatisticImpl numConnBackgroundValidated = new CountStatisticImpl(
+            "NumConnBackgroundValidated", StatisticImpl.UNIT_COUNT, "The total number of " +
+            "free connections validated by the background validator of the pool.");
+    private RangeStatisticImpl connValidationTime = new RangeStatisticImpl(
+            0, 0, 0,
+            "ConnValidationTime", StatisticImpl.UNIT_MILLISECOND,
+            "The longest and shortest times taken to validate a connection. The " +
+            "current value indicates the time taken by the last validation.",
+            System.currentTimeMillis(), System.currentTimeMillis());
     private CountStatisticImpl numConnTimedOut = new CountStatisticImpl(
             "NumConnTimedOut", StatisticImpl.UNIT_COUNT, "The total number of " +
             "connections in the pool that timed out between the start time and the last sample time.");
@@ -113,6 +128,10 @@ public class JdbcConnPoolStatsProvider {
     private CountStatisticImpl waitQueueLength = new CountStatisticImpl(
             "WaitQueueLength", StatisticImpl.UNIT_COUNT, 
             "Number of connection requests in the queue waiting to be serviced.");
+    private StringStatisticImpl connRequestWaitTimeHistogram = new StringStatisticImpl(
+            "ConnRequestWaitTimeHistogram", "List",
+            "Number of successful connection requests by the time taken to serve them");
+    private ConnRequestWaitTimeHistogram waitTimeHistogram = new ConnRequestWaitTimeHistogram();
     private static final String JDBC_PROBE_LISTENER = "glassfish:jdbc:connection-pool:";
 
 
@@ -327,6 +346,36 @@ public class JdbcConnPoolStatsProvider {
         
     }
     
+    /**
+     * Event that a connection is validated in timeTakenInMillis.
+     *
+     * @param poolName
+     * @param timeTakenInMillis
+     * @param background whether the connection was validated by the background validator
+     */
+    @ProbeListener(JDBC_PROBE_LISTENER + "connectionValidatedEvent")
+    public void connectionValidatedEvent(
+            @ProbeParam("poolName") String poolName,
+            @ProbeParam("appName") String appName,
+            @ProbeParam("moduleName") String moduleName,
+            @ProbeParam("timeTakenInMillis") long timeTakenInMillis,
+            @ProbeParam("background") boolean background) {
+
+        PoolInfo poolInfo = new PoolInfo(poolName, appName, moduleName);
+        if(this.poolInfo.equals(poolInfo)) {
+            if(logger.isLoggable(Level.FINEST)) {
+                logger.finest("Connection validated event received - " +
+                    "poolName = " + poolName);
+            }
+            if (background) {
+                numConnBackgroundValidated.increment();
+            } else {
+                numConnValidated.increment();
+            }
+            connValidationTime.setCurrent(timeTakenInMillis);
+        }
+    }
+
     /**
      * Event that a connection request is served in timeTakenInMillis.
      * 
@@ -348,6 +397,7 @@ public class JdbcConnPoolStatsProvider {
             }
             connRequestWaitTime.setCurrent(timeTakenInMillis);
             totalConnRequestWaitTime.increment(timeTakenInMillis);
+            waitTimeHistogram.record(timeTakenInMillis);
         }        
     }  
     
@@ -448,6 +498,9 @@ public class JdbcConnPoolStatsProvider {
         numConnCreated.reset();
         numConnDestroyed.reset();
         numConnFailedValidation.reset();
+        numConnValidated.reset();
+        numConnBackgroundValidated.reset();
+        connValidationTime.reset();
         numConnTimedOut.reset();
         numConnAcquired.reset();
         numConnReleased.reset();
@@ -458,6 +511,7 @@ public class JdbcConnPoolStatsProvider {
         averageConnWaitTime.reset();
         totalConnRequestWaitTime.reset();
         waitQueueLength.reset();        
+        waitTimeHistogram.reset();
     }
     
     /**
@@ -616,6 +670,21 @@ public class JdbcConnPoolStatsProvider {
         return numConnFailedValidation;
     }
 
+    @ManagedAttribute(id="numconnvalidated")
+    public CountStatistic getNumConnValidated() {
+        return numConnValidated;
+    }
+
+    @ManagedAttribute(id="numconnbackgroundvalidated")
+    public CountStatistic getNumConnBackgroundValidated() {
+        return numConnBackgroundValidated;
+    }
+
+    @ManagedAttribute(id="connvalidationtime")
+    public RangeStatistic getConnValidationTime() {
+        return connValidationTime;
+    }
+
     @ManagedAttribute(id="numconntimedout")
     public CountStatistic getNumConnTimedOut() {
         return numConnTimedOut;
@@ -686,4 +755,10 @@ public class JdbcConnPoolStatsProvider {
     public CountStatistic getWaitQueueLength() {
         return waitQueueLength;
     }
+
+    @ManagedAttribute(id="connrequestwaittimehistogram")
+    public StringStatistic getConnRequestWaitTimeHistogram() {
+        connRequestWaitTimeHistogram.setCurrent(waitTimeHistogram.toString());
+        return connRequestWaitTimeHistogram;
+    }
 }
@@ -176,6 +176,28 @@ public class Configuration extends Object {
      */
     public final static String KEYPOINT_COUNT = "com.sun.jts.keypointCount"/*#Frozen*/;
 
+    /**The property is used to specify whether the forced writes to the transaction
+     * log are committed as a group. When it is enabled, concurrent transactions
+     * share a single force of the log file instead of forcing it one after the other.
+     * <p>
+     * The value is <em><b>com.sun.jts.groupCommit</b></em>.
+     * <p>
+     * The default value for this property is true.
+     */
+    public final static String GROUP_COMMIT = "com.sun.jts.groupCommit";
+
+    /**The property is used to specify the time in microseconds for which the first
+     * forced write of a group waits for other writes to join it before forcing the
+     * log file. A higher value would mean fewer forces of the log file, but at the
+     * cost of a longer commit time.
+     * <p>
+     * The value is <em><b>com.sun.jts.groupCommitMaxWait</b></em>.
+     * <p>
+     * The default value for this property is 0, in which case only the writes that
+     * are done while the log file is being forced are grouped.
+     */
+    public final static String GROUP_COMMIT_MAX_WAIT = "com.sun.jts.groupCommitMaxWait";
+
     // Property to specify the instance name
     public final static String INSTANCE_NAME = "com.sun.jts.instancename"/*#Frozen*/;
 
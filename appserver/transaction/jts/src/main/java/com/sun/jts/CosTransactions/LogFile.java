@@ -117,10 +117,14 @@ class LogFile {
      *
      * @see
      */
-    synchronized boolean write( int    writeType,
-                                byte[] record,
-                                int    recordType,
-                                LogLSN recordLSN ) {
+    boolean write( int    writeType,
+                   byte[] record,
+                   int    recordType,
+                   LogLSN recordLSN ) {
+
+        // Not synchronized: the LogHandle serialises the writes itself, and a
+        // forced write must not hold the LogFile while it waits for its group
+        // commit, so that other writes can join it.
 
         boolean result = true;
 
@@ -34,6 +34,7 @@ package com.sun.jts.CosTransactions;
 
 import com.sun.enterprise.util.i18n.StringManager;
 import java.io.*;
+import java.util.concurrent.locks.LockSupport;
 
 /**This class encapsulates file I/O operations and the file handle.
  *
@@ -112,6 +113,17 @@ class LogFileHandle {
     int bufferUpdateEnd   = -1;
     int buffPos = 0;
 
+    /**Group commit state. Every flush of updated buffer data to the file gets a
+     * ticket, a force makes all the tickets issued before it durable. Only one
+     * thread forces the file at a time, the others wait for it. Once the file is
+     * closed, which forces it first, there is nothing left to force.
+     */
+    private final Object forceLock = new Object();
+    private long flushedTicket = 0;
+    private long forcedTicket  = 0;
+    private boolean forcing = false;
+    private boolean closed = false;
+
     static {
         dsyncProp = System.getProperty(DSYNC_PROPERTY);
         if (dsyncProp != null) {
@@ -331,6 +343,9 @@ class LogFileHandle {
                    String fileMode ) 
         throws LogException {
         fhandle = null;
+        synchronized( forceLock ) {
+            closed = false;
+        }
         try {
             fhandle = new RandomAccessFile(file,fileMode);
             fd = fhandle.getFD();
@@ -368,10 +383,26 @@ class LogFileHandle {
         try {
 
             // If buffered, then ensure that the buffer is stored and synced with the
-            // file system.
+            // file system, along with the data a group commit has written but not
+            // forced yet.
+
+            fileSync();
+
+            // Wait for a force in progress, so that the file is not closed under
+            // it. Later forces find the file closed and return at once.
 
-            if( bufferUpdateStart != -1 )
-                fileSync();
+            boolean interrupted = false;
+            synchronized( forceLock ) {
+                while( forcing )
+                    try {
+                        forceLock.wait();
+                    } catch( InterruptedException e ) {
+                        interrupted = true;
+                    }
+                closed = true;
+            }
+            if( interrupted )
+                Thread.currentThread().interrupt();
 
             // Close the file.
 
@@ -447,20 +478,130 @@ class LogFileHandle {
         // Synchronization is only done for buffered files which have been updated.
         // Non-buffered files have every write synchronized with the file system.
 
+        fileForce(fileFlush(),0);
+    }
+
+    /**Writes the updated part of the buffer to the file, without forcing it to
+     * permanent storage.
+     * <p>
+     * The data is durable once fileForce has been called with the returned ticket.
+     *
+     * @param
+     *
+     * @return  The ticket of the last data written to the file.
+     *
+     * @exception LogException The write failed
+     *
+     * @see
+     */
+    long fileFlush() throws LogException {
+
         if( bufferUpdateStart != -1 )
             try {
                 fhandle.seek(bufferUpdateStart);
                 fhandle.write(bufferData,bufferUpdateStart,bufferUpdateEnd-bufferUpdateStart);
-                if (dsyncProp == null)
-                    fd.sync();
 
                 bufferUpdateStart = -1;
                 bufferUpdateEnd   = -1;
+
+                // With the nofdsync property the file is opened in "rwd" mode and the
+                // write itself is synchronous, so there is nothing left to force.
+
+                if (dsyncProp == null)
+                    synchronized( forceLock ) {
+                        flushedTicket++;
+                    }
             } catch (Throwable e) {
                 throw new LogException(LogException.LOG_READ_FAILURE,1,
                         sm.getString("jts.log_file_sync_failed"), e);
             }
 
+        synchronized( forceLock ) {
+            return flushedTicket;
+        }
+    }
+
+    /**Tells whether all the data written to the file is on permanent storage.
+     * <p>
+     * The caller must hold the lock of the log, as for writes.
+     *
+     * @param
+     *
+     * @return  True if there is neither unwritten buffer data nor unforced data.
+     *
+     * @see
+     */
+    boolean isForced() {
+        if( bufferUpdateStart != -1 )
+            return false;
+        synchronized( forceLock ) {
+            return forcedTicket >= flushedTicket || closed;
+        }
+    }
+
+    /**Forces the data written to the file up to the given ticket to permanent
+     * storage.
+     * <p>
+     * Concurrent callers are committed as a group: if another thread is already
+     * forcing the file, the caller waits for it and only forces the file itself
+     * when that force did not cover its ticket. The thread that forces the file
+     * first waits for up to maxWaitNanos so that more writes can join the force.
+     * A closed file was forced when it was closed, so nothing is done for it.
+     *
+     * @param ticket       The ticket returned by fileFlush.
+     * @param maxWaitNanos The time to wait for other writes before forcing the file.
+     *
+     * @return
+     *
+     * @exception LogException The force failed
+     *
+     * @see
+     */
+    void fileForce( long ticket,
+                    long maxWaitNanos )
+        throws LogException {
+
+        boolean interrupted = false;
+        synchronized( forceLock ) {
+            while( forcedTicket < ticket && forcing )
+                try {
+                    forceLock.wait();
+                } catch( InterruptedException e ) {
+                    interrupted = true;
+                }
+
+            if( interrupted )
+                Thread.currentThread().interrupt();
+
+            if( forcedTicket >= ticket || closed )
+                return;
+
+            forcing = true;
+        }
+
+        long target = 0;
+        boolean forced = false;
+        try {
+            if( maxWaitNanos > 0 )
+                LockSupport.parkNanos(maxWaitNanos);
+
+            synchronized( forceLock ) {
+                target = flushedTicket;
+            }
+
+            fhandle.getChannel().force(false);
+            forced = true;
+        } catch (Throwable e) {
+            throw new LogException(LogException.LOG_READ_FAILURE,1,
+                    sm.getString("jts.log_file_sync_failed"), e);
+        } finally {
+            synchronized( forceLock ) {
+                forcing = false;
+                if( forced && target > forcedTicket )
+                    forcedTicket = target;
+                forceLock.notifyAll();
+            }
+        }
     }
 
     /**Reads a vector of records from the file.
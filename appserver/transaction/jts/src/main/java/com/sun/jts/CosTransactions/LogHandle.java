@@ -187,6 +187,27 @@ class LogHandle {
      */
     final static int ALLOCATE_SIZE = MAX_EXTENT_SIZE;
 
+    /**Whether forced writes are committed as a group, see Configuration.GROUP_COMMIT.
+     */
+    final static boolean GROUP_COMMIT;
+
+    /**The time the first of a group of forced writes waits for the others, in
+     * nanoseconds, see Configuration.GROUP_COMMIT_MAX_WAIT.
+     */
+    final static long GROUP_COMMIT_MAX_WAIT;
+
+    static {
+        GROUP_COMMIT = !"false".equalsIgnoreCase(Configuration.getPropertyValue(Configuration.GROUP_COMMIT));
+
+        long maxWait = 0;
+        String maxWaitEnv = Configuration.getPropertyValue(Configuration.GROUP_COMMIT_MAX_WAIT);
+        if( maxWaitEnv != null )
+            try {
+                maxWait = Math.max(0, Long.parseLong(maxWaitEnv.trim()));
+            } catch( NumberFormatException exc ) {}
+        GROUP_COMMIT_MAX_WAIT = maxWait * 1000;
+    }
+
     // Instance members
 
     LogHandle            blockValid = null;
@@ -249,9 +270,63 @@ class LogHandle {
      *
      * @see
      */
-    synchronized LogLSN writeRecord( byte[] record,
-                                     int    recordType,
-                                     int    writeMode )
+    LogLSN writeRecord( byte[] record,
+                        int    recordType,
+                        int    writeMode )
+        throws LogException {
+
+        if( writeMode != FORCE || !GROUP_COMMIT )
+            return writeRecord(record,recordType,writeMode,null);
+
+        // With group commit, the record is written to the extent files while the
+        // log is locked, and forced to permanent storage once it is unlocked so
+        // that concurrent forced writes can share a single force of the file.
+
+        ArrayList pendingForces = new ArrayList();
+        LogLSN result = writeRecord(record,recordType,writeMode,pendingForces);
+
+        for( int i = 0; i < pendingForces.size(); i++ ) {
+            PendingForce pending = (PendingForce)pendingForces.get(i);
+            try {
+                pending.extent.fileHandle.fileForce(pending.ticket,GROUP_COMMIT_MAX_WAIT);
+            } catch (LogException le) {
+                throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
+                        sm.getString("jts.log_file_sync_failed"), le);
+            }
+        }
+
+        // The 'extent written' flags are only reset once the forces are done, and
+        // only for the extents that no other write has updated since.
+
+        synchronized( this ) {
+            for( int i = 0; i < pendingForces.size(); i++ ) {
+                LogExtent extent = ((PendingForce)pendingForces.get(i)).extent;
+                if( extent.writtenSinceLastForce && extent.fileHandle.isForced() )
+                    extent.writtenSinceLastForce = false;
+            }
+        }
+
+        return result;
+    }
+
+    /**Writes a record to the log.
+     *
+     * @param record         The log record.
+     * @param recordType     The log record type.
+     * @param writeMode      The write mode.
+     * @param pendingForces  If not null, forced extents are only written to their
+     *                       files and the forces still to be done are added to it.
+     *
+     * @return  The LSN of the written record
+     *
+     * @exception LogException The write failed.
+     *
+     * @see
+     */
+    private synchronized LogLSN writeRecord( byte[]    record,
+                                             int       recordType,
+                                             int       writeMode,
+                                             ArrayList pendingForces )
         throws LogException {
 
         // Check BlockValid field in Log_FileDescriptor block pointed to
@@ -530,11 +605,23 @@ class LogHandle {
         //       Set 'extent written' flag to FALSE
         //   ENDLOOP
 
+        // With group commit, every extent is flushed and the force of each one is
+        // left to the caller, including the extents another thread has flushed but
+        // may not have forced yet, so that records become durable in log order.
+
         if( writeMode == FORCE ) {
             Enumeration extents = extentTable.elements();
             while( extents.hasMoreElements() ) {
                 LogExtent nextEDP = (LogExtent)extents.nextElement();
-                if( nextEDP.writtenSinceLastForce )
+                if( pendingForces != null )
+                    try {
+                        long ticket = nextEDP.fileHandle.fileFlush();
+                        pendingForces.add(new PendingForce(nextEDP,ticket));
+                    } catch (LogException le) {
+                        throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
+                                sm.getString("jts.log_file_sync_failed"), le);
+                    }
+                else if( nextEDP.writtenSinceLastForce )
                     try {
                         nextEDP.fileHandle.fileSync();
                         nextEDP.writtenSinceLastForce = false;
@@ -1979,4 +2066,17 @@ class LogHandle {
     final String logFileName() {
         return logFileName;
     }
+
+    /**An extent file force that is done after the log has been unlocked.
+     */
+    private static final class PendingForce {
+        final LogExtent extent;
+        final long      ticket;
+
+        PendingForce( LogExtent extent,
+                      long      ticket ) {
+            this.extent = extent;
+            this.ticket = ticket;
+        }
+    }
 }
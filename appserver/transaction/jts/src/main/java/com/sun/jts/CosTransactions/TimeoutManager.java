@@ -31,6 +31,7 @@
 package com.sun.jts.CosTransactions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.omg.CosTransactions.*;
 import com.sun.jts.jtsxa.XID;
@@ -45,6 +46,11 @@ import com.sun.jts.utils.LogFormatter;
 /**
  * This class records state for timing out transactions, and runs a thread
  * which performs occasional checks to time out transactions.
+ * <p>
+ * The timeouts are indexed by transaction in concurrent maps and kept in a
+ * sharded {@link TimeoutWheel}, so that setting and cancelling a timeout does
+ * not lock a table shared by all the transactions, and the timeout thread only
+ * visits the timeouts that have expired.
  *
  * @version 0.01
  *
@@ -74,8 +80,9 @@ class TimeoutManager {
      */
     private static boolean initialised = false;
 
-    private static Hashtable     pendingTimeouts = new Hashtable();
-    private static Hashtable     indoubtTimeouts = new Hashtable();
+    private static final Map<Long, TimeoutInfo> pendingTimeouts = new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static final Map<Long, TimeoutInfo> indoubtTimeouts = new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static final TimeoutWheel timeoutWheel = new TimeoutWheel();
     private static TimeoutThread timeoutThread = null;
     private static boolean       timeoutActive = false;
     private static boolean       quiescing = false;
@@ -163,7 +170,7 @@ class TimeoutManager {
                     new Date().getTime() + seconds * 1000L;
                  timeoutInfo.localTID    = localTID;
                  timeoutInfo.timeoutType = timeoutType;
-                 pendingTimeouts.put(localTID,timeoutInfo);
+                 schedule(pendingTimeouts, timeoutInfo);
                  break;
             case TimeoutManager.IN_DOUBT_TIMEOUT :
 		 if (!isSetTimeout) {
@@ -175,7 +182,7 @@ class TimeoutManager {
                     new Date().getTime() + seconds * 1000L;
                 timeoutInfo.localTID    = localTID;
                 timeoutInfo.timeoutType = timeoutType;
-                indoubtTimeouts.put(localTID,timeoutInfo);
+                schedule(indoubtTimeouts, timeoutInfo);
                 break;
 
             // For any other type, remove the timeout if there is one.
@@ -183,9 +190,12 @@ class TimeoutManager {
             default:
 		if (!isSetTimeout)
 		  break;
-                   result = (pendingTimeouts.remove(localTID) != null);
-		   if (!result)
-                      result = (indoubtTimeouts.remove(localTID) != null);
+                   timeoutInfo = pendingTimeouts.remove(localTID);
+		   if (timeoutInfo == null)
+                      timeoutInfo = indoubtTimeouts.remove(localTID);
+                   result = (timeoutInfo != null);
+                   if (result)
+                      timeoutWheel.remove(timeoutInfo);
 
                     // If the transaction service is quiescing and
                     // there are no more pending timeouts,
@@ -206,6 +216,25 @@ class TimeoutManager {
         return result;
     }
 
+    /**
+     * Records the timeout of a transaction in the given table and the timing
+     * wheel, replacing the previous timeout of the same type, if any.
+     *
+     * @param timeouts     The table of timeouts of the type.
+     * @param timeoutInfo  The timeout to establish.
+     *
+     * @return
+     *
+     * @see
+     */
+    private static void schedule(Map<Long, TimeoutInfo> timeouts, TimeoutInfo timeoutInfo) {
+        TimeoutInfo previous = timeouts.put(timeoutInfo.localTID, timeoutInfo);
+        if (previous != null) {
+            timeoutWheel.remove(previous);
+        }
+        timeoutWheel.add(timeoutInfo);
+    }
+
     /**
      * Takes appropriate action for a timeout.
      * <p>
@@ -350,69 +379,19 @@ class TimeoutManager {
 
         Enumeration result = null;
 
-        // When woken up, go through all current timeouts and identify those
-        // which have expired.
-
-        if (timeoutActive && ((pendingTimeouts.size() != 0) || (indoubtTimeouts.size() != 0))) {
-            Vector timedOut = null;
-
-            Enumeration timeouts = null;
-          
-            synchronized (pendingTimeouts) {
-                timeouts = pendingTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
-
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
-
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
+        // When woken up, advance the timing wheel and collect the timeouts
+        // which have expired. A timeout is reported again on every check
+        // until it is cancelled.
 
-                       timedOut.addElement(timeoutInfo);
-                    }
-               }
-            }
-
-	    synchronized (indoubtTimeouts) {
-
-                timeouts = indoubtTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
-
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
+        if (timeoutActive && (!pendingTimeouts.isEmpty() || !indoubtTimeouts.isEmpty())) {
+            Vector timedOut = timeoutWheel.expire(System.currentTimeMillis());
 
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
-
-                       timedOut.addElement(timeoutInfo);
-                    }
-                }
-
-            }
             // Enumerate the transactions which have timed out.
 
             if (timedOut != null) {
                 result = timedOut.elements();
             }
-           }
+        }
 
         // The remainder of the timeout processing is not carried out here
         // because we would get deadlocked with addCoordinator or
@@ -428,14 +407,13 @@ class TimeoutManager {
      */
     static XID[] getInDoubtXids() {
         
-       synchronized (indoubtTimeouts) {
         Vector inDoubtList = new Vector();
         
-        Enumeration timeouts = indoubtTimeouts.elements();
+        Iterator timeouts = indoubtTimeouts.values().iterator();
 
-        while (timeouts.hasMoreElements()) {
+        while (timeouts.hasNext()) {
 
-            TimeoutInfo timeoutInfo = (TimeoutInfo) timeouts.nextElement();
+            TimeoutInfo timeoutInfo = (TimeoutInfo) timeouts.next();
 
             // Look up the Coordinator for the transaction.
             // If there is none, then the transaction has already gone.
@@ -452,7 +430,6 @@ class TimeoutManager {
         }
         
         return (XID[]) inDoubtList.toArray(new XID[] {});
-       }
     }
 
     /**
@@ -468,9 +445,9 @@ class TimeoutManager {
      */
     static long timeLeft(Long localTID) {
 
-        TimeoutInfo timeoutInfo = (TimeoutInfo) pendingTimeouts.get(localTID);
+        TimeoutInfo timeoutInfo = pendingTimeouts.get(localTID);
         if (timeoutInfo == null)
-            timeoutInfo = (TimeoutInfo) indoubtTimeouts.get(localTID);
+            timeoutInfo = indoubtTimeouts.get(localTID);
         long result = -1;
         if (timeoutInfo != null) {
             result = timeoutInfo.expireTime - new Date().getTime();
@@ -503,17 +480,14 @@ class TimeoutManager {
         // timeouts, there is nothing to quiesce so
         // shutdown immediately regardless.
 
-        if (immediate ||
-                pendingTimeouts == null || pendingTimeouts.isEmpty()) {
+        if (immediate || pendingTimeouts.isEmpty()) {
             if (timeoutThread != null) {
                 timeoutThread.stop();
             }
 
-            if (pendingTimeouts != null) {
-                pendingTimeouts.clear();
-            }
+            pendingTimeouts.clear();
+            timeoutWheel.clear();
 
-            pendingTimeouts = null;
             timeoutThread = null;
             timeoutActive = false;
         } else {
@@ -586,6 +560,13 @@ class TimeoutInfo extends Object {
     Long localTID = null;
     long expireTime = 0;
     int  timeoutType = TimeoutManager.NO_TIMEOUT;
+
+    // Links of the TimeoutWheel slot this timeout is in, guarded by its shard.
+
+    TimeoutInfo prev = null;
+    TimeoutInfo next = null;
+    boolean expired = false;
+    boolean removed = false;
 }
 
 /**
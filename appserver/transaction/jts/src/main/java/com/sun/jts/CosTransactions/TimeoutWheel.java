@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.jts.CosTransactions;
+
+import java.util.Vector;
+
+/**
+ * Hierarchical timing wheel of transaction timeouts.
+ * <p>
+ * The wheel is split in shards selected by the local transaction identifier,
+ * each with its own lock, so that transactions which begin and end concurrently
+ * seldom contend. Within a shard, a timeout is linked into a slot of one of the
+ * levels of the wheel, so that it is added and removed in constant time. Each
+ * level covers 64 times the span of the level below it, with one second slots
+ * at the lowest level. When the timeout thread advances the wheel, the timeouts
+ * of a higher level slot are moved down as its time comes, and the timeouts of
+ * the lowest level are moved to the expired list of the shard, where they stay
+ * until they are removed.
+ *
+ * @see TimeoutManager
+ */
+class TimeoutWheel {
+
+    /**
+     * The span of a slot of the lowest level, in milliseconds.
+     */
+    static final long TICK_MILLIS = 1000;
+
+    private static final int LEVEL_BITS = 6;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (LEVEL_BITS * LEVELS)) - 1;
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    /**
+     * Creates a timing wheel with a shard per processor, rounded up to a power
+     * of two.
+     */
+    TimeoutWheel() {
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int count = Integer.highestOneBit(processors * 2 - 1);
+        long currentTick = System.currentTimeMillis() / TICK_MILLIS;
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(currentTick);
+        }
+        shardMask = count - 1;
+    }
+
+    private Shard shardFor(Long localTID) {
+        long id = localTID.longValue();
+        int hash = (int) (id ^ (id >>> 32));
+        hash ^= hash >>> 16;
+        return shards[hash & shardMask];
+    }
+
+    /**
+     * Adds the timeout to the wheel. A timeout which has been removed is not
+     * added again.
+     *
+     * @param timeoutInfo  The timeout to add.
+     */
+    void add(TimeoutInfo timeoutInfo) {
+        Shard shard = shardFor(timeoutInfo.localTID);
+        synchronized (shard) {
+            if (!timeoutInfo.removed && timeoutInfo.next == null) {
+                shard.schedule(timeoutInfo);
+            }
+        }
+    }
+
+    /**
+     * Removes the timeout from the wheel, whether it has expired or not.
+     *
+     * @param timeoutInfo  The timeout to remove.
+     */
+    void remove(TimeoutInfo timeoutInfo) {
+        Shard shard = shardFor(timeoutInfo.localTID);
+        synchronized (shard) {
+            timeoutInfo.removed = true;
+            shard.remove(timeoutInfo);
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and returns the timeouts that have
+     * expired and not been removed yet, including the ones already returned by
+     * a previous call.
+     *
+     * @param now  The current time in milliseconds.
+     *
+     * @return  The expired timeouts, or null if there are none.
+     */
+    Vector expire(long now) {
+        Vector timedOut = null;
+        long nowTick = now / TICK_MILLIS;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.advance(nowTick);
+                for (TimeoutInfo info = shard.expired.next; info != shard.expired; info = info.next) {
+                    if (timedOut == null) {
+                        timedOut = new Vector();
+                    }
+                    timedOut.addElement(info);
+                }
+            }
+        }
+        return timedOut;
+    }
+
+    /**
+     * Removes all the timeouts from the wheel.
+     */
+    void clear() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.clear();
+            }
+        }
+    }
+
+    /**
+     * A timing wheel of its own, guarded by its monitor.
+     */
+    private static final class Shard {
+
+        private final TimeoutInfo[] slots = new TimeoutInfo[LEVELS * SLOTS];
+        private final TimeoutInfo expired = newList();
+
+        /**
+         * The next tick of the lowest level to be processed.
+         */
+        private long currentTick;
+        private int scheduled;
+
+        Shard(long currentTick) {
+            this.currentTick = currentTick;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = newList();
+            }
+        }
+
+        private static TimeoutInfo newList() {
+            TimeoutInfo head = new TimeoutInfo();
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        private static void link(TimeoutInfo head, TimeoutInfo info) {
+            info.prev = head.prev;
+            info.next = head;
+            head.prev.next = info;
+            head.prev = info;
+        }
+
+        private static void unlink(TimeoutInfo info) {
+            info.prev.next = info.next;
+            info.next.prev = info.prev;
+            info.prev = null;
+            info.next = null;
+        }
+
+        void remove(TimeoutInfo info) {
+            if (info.next != null) {
+                if (!info.expired) {
+                    scheduled--;
+                }
+                unlink(info);
+            }
+        }
+
+        /**
+         * Links the timeout into the slot of the lowest level that covers its
+         * expiry time.
+         */
+        void schedule(TimeoutInfo info) {
+            // The timeout has expired once the tick that follows its expire time
+            // is processed.
+
+            long expiryTick = info.expireTime / TICK_MILLIS + 1;
+            long delta = expiryTick - currentTick;
+            if (delta < 0) {
+                expiryTick = currentTick;
+                delta = 0;
+            } else if (delta > MAX_DELTA) {
+                // Park it in the highest level, it is scheduled again when
+                // that slot is cascaded.
+                expiryTick = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+
+            int level = 0;
+            while (level < LEVELS - 1 && delta >= (1L << (LEVEL_BITS * (level + 1)))) {
+                level++;
+            }
+            int slot = (int) ((expiryTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+            link(slots[level * SLOTS + slot], info);
+            scheduled++;
+        }
+
+        /**
+         * Processes the ticks up to and including the given one.
+         */
+        void advance(long nowTick) {
+            if (scheduled == 0 && currentTick <= nowTick) {
+                currentTick = nowTick + 1;
+                return;
+            }
+            while (currentTick <= nowTick) {
+                int index = (int) (currentTick & SLOT_MASK);
+                if (index == 0) {
+                    cascade();
+                }
+                TimeoutInfo head = slots[index];
+                while (head.next != head) {
+                    TimeoutInfo info = head.next;
+                    unlink(info);
+                    scheduled--;
+                    info.expired = true;
+                    link(expired, info);
+                }
+                currentTick++;
+            }
+        }
+
+        /**
+         * Moves the timeouts of the higher level slots whose time has come down
+         * to the lower levels.
+         */
+        private void cascade() {
+            for (int level = 1; level < LEVELS; level++) {
+                int slot = (int) ((currentTick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+                TimeoutInfo head = slots[level * SLOTS + slot];
+                while (head.next != head) {
+                    TimeoutInfo info = head.next;
+                    unlink(info);
+                    scheduled--;
+                    schedule(info);
+                }
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+
+        void clear() {
+            for (TimeoutInfo head : slots) {
+                clear(head);
+            }
+            clear(expired);
+            scheduled = 0;
+        }
+
+        private static void clear(TimeoutInfo head) {
+            while (head.next != head) {
+                TimeoutInfo info = head.next;
+                unlink(info);
+                info.removed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.web.admin.monitor;
+
+import org.glassfish.external.statistics.CountStatistic;
+import org.glassfish.external.statistics.impl.CountStatisticImpl;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.gmbal.AMXMetadata;
+import org.glassfish.gmbal.Description;
+import org.glassfish.gmbal.ManagedAttribute;
+import org.glassfish.gmbal.ManagedObject;
+
+/**
+ * Provides the monitoring data of the static resource cache of a web
+ * module. The counters are kept by the cache, and read when the statistics
+ * are.
+ */
+@AMXMetadata(type="resource-cache-mon", group="monitoring")
+@ManagedObject
+@Description("Web Module Resource Cache Statistics")
+public class ResourceCacheStatsProvider {
+
+    /**
+     * The counters of the resource cache of a web module.
+     */
+    public interface ResourceCacheStats {
+
+        long getAccessCount();
+
+        long getHitsCount();
+
+        long getNotFoundHitsCount();
+
+        long getEvictionCount();
+
+        long getCacheSize();
+    }
+
+    private static final String ACCESS_COUNT_DESCRIPTION =
+        "Number of lookups in the resource cache";
+    private static final String HIT_COUNT_DESCRIPTION =
+        "Number of lookups which found an entry in the resource cache, including the entries of missing resources";
+    private static final String NOT_FOUND_HIT_COUNT_DESCRIPTION =
+        "Number of lookups which found the entry of a missing resource in the resource cache";
+    private static final String HIT_RATIO_DESCRIPTION =
+        "Percentage of the lookups which found an entry in the resource cache";
+    private static final String EVICTION_COUNT_DESCRIPTION =
+        "Number of entries evicted from the resource cache to make space";
+    private static final String CACHE_SIZE_DESCRIPTION =
+        "Current size of the resource cache in KB";
+
+    private CountStatisticImpl accessCount = new CountStatisticImpl(
+            "ResourceCacheAccessCount", StatisticImpl.UNIT_COUNT,
+            ACCESS_COUNT_DESCRIPTION);
+    private CountStatisticImpl hitCount = new CountStatisticImpl(
+            "ResourceCacheHitCount", StatisticImpl.UNIT_COUNT,
+            HIT_COUNT_DESCRIPTION);
+    private CountStatisticImpl notFoundHitCount = new CountStatisticImpl(
+            "ResourceCacheNotFoundHitCount", StatisticImpl.UNIT_COUNT,
+            NOT_FOUND_HIT_COUNT_DESCRIPTION);
+    private CountStatisticImpl hitRatio = new CountStatisticImpl(
+            "ResourceCacheHitRatio", StatisticImpl.UNIT_COUNT,
+            HIT_RATIO_DESCRIPTION);
+    private CountStatisticImpl evictionCount = new CountStatisticImpl(
+            "ResourceCacheEvictionCount", StatisticImpl.UNIT_COUNT,
+            EVICTION_COUNT_DESCRIPTION);
+    private CountStatisticImpl cacheSize = new CountStatisticImpl(
+            "ResourceCacheSize", StatisticImpl.UNIT_COUNT,
+            CACHE_SIZE_DESCRIPTION);
+
+    private String moduleName;
+    private String vsName;
+    private ResourceCacheStats stats;
+
+    public ResourceCacheStatsProvider(String moduleName, String vsName,
+            ResourceCacheStats stats) {
+        this.moduleName = moduleName;
+        this.vsName = vsName;
+        this.stats = stats;
+    }
+
+    @ManagedAttribute(id="resourcecacheaccesscount")
+    @Description(ACCESS_COUNT_DESCRIPTION)
+    public CountStatistic getAccessCount() {
+        accessCount.setCount(stats.getAccessCount());
+        return accessCount;
+    }
+
+    @ManagedAttribute(id="resourcecachehitcount")
+    @Description(HIT_COUNT_DESCRIPTION)
+    public CountStatistic getHitCount() {
+        hitCount.setCount(stats.getHitsCount());
+        return hitCount;
+    }
+
+    @ManagedAttribute(id="resourcecachenotfoundhitcount")
+    @Description(NOT_FOUND_HIT_COUNT_DESCRIPTION)
+    public CountStatistic getNotFoundHitCount() {
+        notFoundHitCount.setCount(stats.getNotFoundHitsCount());
+        return notFoundHitCount;
+    }
+
+    @ManagedAttribute(id="resourcecachehitratio")
+    @Description(HIT_RATIO_DESCRIPTION)
+    public CountStatistic getHitRatio() {
+        long accesses = stats.getAccessCount();
+        long hits = stats.getHitsCount();
+        hitRatio.setCount(accesses == 0 ? 0 : (hits * 100) / accesses);
+        return hitRatio;
+    }
+
+    @ManagedAttribute(id="resourcecacheevictioncount")
+    @Description(EVICTION_COUNT_DESCRIPTION)
+    public CountStatistic getEvictionCount() {
+        evictionCount.setCount(stats.getEvictionCount());
+        return evictionCount;
+    }
+
+    @ManagedAttribute(id="resourcecachesize")
+    @Description(CACHE_SIZE_DESCRIPTION)
+    public CountStatistic getCacheSize() {
+        cacheSize.setCount(stats.getCacheSize());
+        return cacheSize;
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public String getVSName() {
+        return vsName;
+    }
+}
@@ -89,6 +89,13 @@ public class WebStatsProviderBootstrap implements PostConstruct {
 
     public void registerApplicationStatsProviders(String monitoringName,
             String vsName, List<String> servletNames) {
+        registerApplicationStatsProviders(monitoringName, vsName,
+                servletNames, null);
+    }
+
+    public void registerApplicationStatsProviders(String monitoringName,
+            String vsName, List<String> servletNames,
+            ResourceCacheStatsProvider.ResourceCacheStats resourceCacheStats) {
 
         // try register again as it may be unregistered
         registerWebStatsProviders();
@@ -151,6 +158,16 @@ public class WebStatsProviderBootstrap implements PostConstruct {
         }
 
         statspList.add(websp);
+
+        if (resourceCacheStats != null) {
+            ResourceCacheStatsProvider resourceCacheStatsProvider =
+                    new ResourceCacheStatsProvider(monitoringName, vsName,
+                        resourceCacheStats);
+            StatsProviderManager.register(
+                    "web-container", PluginPoint.APPLICATIONS, node,
+                    resourceCacheStatsProvider);
+            statspList.add(resourceCacheStatsProvider);
+        }
     }
 
     public void unregisterApplicationStatsProviders(String monitoringName,
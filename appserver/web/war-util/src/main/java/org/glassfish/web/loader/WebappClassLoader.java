@@ -56,6 +56,7 @@ import java.text.MessageFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
 import java.util.jar.JarEntry;
@@ -135,6 +136,12 @@ public class WebappClassLoader
     private static final Permission ALL_PERMISSION = new AllPermission();
 
 
+    static {
+        // Classes of different names are loaded in parallel
+        registerAsParallelCapable();
+    }
+
+
     // ----------------------------------------------------- Instance Variables
 
     // START PE 4989455
@@ -214,6 +221,26 @@ public class WebappClassLoader
      */
     protected final Object jarFilesLock = new Object();
 
+    /**
+     * Lock preventing the JARs from being closed while they are read. The
+     * lookups in the JARs share the read lock.
+     */
+    private final ReentrantReadWriteLock jarFilesReadWriteLock =
+        new ReentrantReadWriteLock();
+
+    /**
+     * Are the JARs open?
+     */
+    private volatile boolean jarFilesOpen = true;
+
+    /**
+     * The indexes in jarFiles of the JARs holding entries in a directory,
+     * keyed by directory name, so that a lookup only probes the JARs which
+     * may hold the resource.
+     */
+    private final ConcurrentHashMap<String, int[]> jarIndex =
+        new ConcurrentHashMap<String, int[]>();
+
     /**
      * The list of JARs, in the order they should be searched
      * for locally loaded classes or resources.
@@ -810,20 +837,67 @@ public class WebappClassLoader
             // Ignore
         }
 
-        JarFile[] result2 = new JarFile[jarFiles.length + 1];
-        for (i = 0; i < jarFiles.length; i++) {
-            result2[i] = jarFiles[i];
+        jarFilesReadWriteLock.writeLock().lock();
+        try {
+            JarFile[] result2 = new JarFile[jarFiles.length + 1];
+            for (i = 0; i < jarFiles.length; i++) {
+                result2[i] = jarFiles[i];
+            }
+            result2[jarFiles.length] = jarFile;
+            jarFiles = result2;
+
+            // Add the file to the list
+            File[] result4 = new File[jarRealFiles.length + 1];
+            for (i = 0; i < jarRealFiles.length; i++) {
+                result4[i] = jarRealFiles[i];
+            }
+            result4[jarRealFiles.length] = file;
+            jarRealFiles = result4;
+        } finally {
+            jarFilesReadWriteLock.writeLock().unlock();
         }
-        result2[jarFiles.length] = jarFile;
-        jarFiles = result2;
 
-        // Add the file to the list
-        File[] result4 = new File[jarRealFiles.length + 1];
-        for (i = 0; i < jarRealFiles.length; i++) {
-            result4[i] = jarRealFiles[i];
+        indexJar(jarFile, jarFiles.length - 1);
+    }
+
+
+    /**
+     * Adds the directories of the entries of a JAR to the index of the JARs.
+     *
+     * @param jarFile the JAR
+     * @param index the index of the JAR in jarFiles
+     */
+    private void indexJar(JarFile jarFile, int index) {
+        Set<String> dirs = new HashSet<String>();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            dirs.add(getJarIndexKey(entries.nextElement().getName()));
+        }
+        for (String dir : dirs) {
+            int[] jars = jarIndex.get(dir);
+            if (jars == null) {
+                jars = new int[] { index };
+            } else {
+                jars = Arrays.copyOf(jars, jars.length + 1);
+                jars[jars.length - 1] = index;
+            }
+            jarIndex.put(dir, jars);
         }
-        result4[jarRealFiles.length] = file;
-        jarRealFiles = result4;
+    }
+
+
+    /**
+     * Returns the key of a JAR entry in the index of the JARs, which is the
+     * name of its directory. A directory entry is indexed under its parent,
+     * as it may be looked up with or without a trailing slash.
+     */
+    private static String getJarIndexKey(String path) {
+        int end = path.length();
+        if (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = path.lastIndexOf('/', end - 1);
+        return (slash < 0) ? "" : path.substring(0, slash);
     }
 
 
@@ -993,7 +1067,7 @@ public class WebappClassLoader
                 // Create the code source object
                 CodeSource codeSource =
                     new CodeSource(entry.codeBase, entry.certificates);
-                synchronized (this) {
+                synchronized (entry) {
                     if (entry.loadedClass == null) {
                         /* START GlassFish [680]
                         clazz = defineClass(name, entry.binaryContent, 0,
@@ -1457,77 +1531,98 @@ public class WebappClassLoader
      * @exception ClassNotFoundException if the class was not found
      */
     @Override
-    protected synchronized Class<?> loadClass(String name, boolean resolve)
+    protected Class<?> loadClass(String name, boolean resolve)
         throws ClassNotFoundException {
 
-        if (logger.isLoggable(Level.FINER)) {
-            logger.log(Level.FINER, "loadClass(" + name + ")");
-        }
+        synchronized (getClassLoadingLock(name)) {
+            if (logger.isLoggable(Level.FINER)) {
+                logger.log(Level.FINER, "loadClass(" + name + ")");
+            }
 
-        Class<?> clazz = null;
+            Class<?> clazz = null;
 
-        // Don't load classes if class loader is stopped
-        if (!started) {
-            throw new IllegalStateException(
-                getString(LogFacade.NOT_STARTED, name));
-        }
+            // Don't load classes if class loader is stopped
+            if (!started) {
+                throw new IllegalStateException(
+                    getString(LogFacade.NOT_STARTED, name));
+            }
 
-        // (0) Check our previously loaded local class cache
-        clazz = findLoadedClass0(name);
-        if (clazz != null) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Returning class from cache");
+            // (0) Check our previously loaded local class cache
+            clazz = findLoadedClass0(name);
+            if (clazz != null) {
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Returning class from cache");
+                }
+                if (resolve)
+                    resolveClass(clazz);
+                return (clazz);
             }
-            if (resolve)
-                resolveClass(clazz);
-            return (clazz);
-        }
 
-        // (0.1) Check our previously loaded class cache
-        clazz = findLoadedClass(name);
-        if (clazz != null) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Returning class from cache");
+            // (0.1) Check our previously loaded class cache
+            clazz = findLoadedClass(name);
+            if (clazz != null) {
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Returning class from cache");
+                }
+                if (resolve)
+                    resolveClass(clazz);
+                return (clazz);
             }
-            if (resolve)
-                resolveClass(clazz);
-            return (clazz);
-        }
 
-        // (0.5) Permission to access this class when using a SecurityManager
-        if ( securityManager != null && packageDefinitionEnabled){
-            int i = name.lastIndexOf('.');
-            if (i >= 0) {
-                try {
-                    securityManager.checkPackageAccess(name.substring(0,i));
-                } catch (SecurityException se) {
-                    String error = getString(LogFacade.SECURITY_EXCEPTION, name);
-                    if (logger.isLoggable(Level.INFO)) {
-                        logger.log(Level.INFO, error, se);
+            // (0.5) Permission to access this class when using a SecurityManager
+            if ( securityManager != null && packageDefinitionEnabled){
+                int i = name.lastIndexOf('.');
+                if (i >= 0) {
+                    try {
+                        securityManager.checkPackageAccess(name.substring(0,i));
+                    } catch (SecurityException se) {
+                        String error = getString(LogFacade.SECURITY_EXCEPTION, name);
+                        if (logger.isLoggable(Level.INFO)) {
+                            logger.log(Level.INFO, error, se);
+                        }
+                        throw new ClassNotFoundException(error, se);
                     }
-                    throw new ClassNotFoundException(error, se);
                 }
             }
-        }
 
-        ClassLoader delegateLoader = parent;
-        if (delegateLoader == null) {
-            delegateLoader = system;
-        }
+            ClassLoader delegateLoader = parent;
+            if (delegateLoader == null) {
+                delegateLoader = system;
+            }
 
-        boolean delegateLoad = delegate || filter(name);
+            boolean delegateLoad = delegate || filter(name);
 
-        // (1) Delegate to our parent if requested
-        if (delegateLoad) {
-            // Check delegate first
+            // (1) Delegate to our parent if requested
+            if (delegateLoad) {
+                // Check delegate first
+                if (logger.isLoggable(Level.FINER)) {
+                    logger.log(Level.FINER, "  Delegating to classloader1 " + delegateLoader);
+                }
+                try {
+                    clazz = delegateLoader.loadClass(name);
+                    if (clazz != null) {
+                        if (logger.isLoggable(Level.FINER)) {
+                            logger.log(Level.FINER, "  Loading class from delegate");
+                        }
+                        if (resolve)
+                            resolveClass(clazz);
+                        return clazz;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // Ignore
+                }
+            }
+
+
+            // (2) Search local repositories
             if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Delegating to classloader1 " + delegateLoader);
+                logger.log(Level.FINER, "  Searching local repositories");
             }
             try {
-                clazz = delegateLoader.loadClass(name);
+                clazz = findClass(name);
                 if (clazz != null) {
                     if (logger.isLoggable(Level.FINER)) {
-                        logger.log(Level.FINER, "  Loading class from delegate");
+                        logger.log(Level.FINER, "  Loading class from local repository");
                     }
                     if (resolve)
                         resolveClass(clazz);
@@ -1536,48 +1631,29 @@ public class WebappClassLoader
             } catch (ClassNotFoundException e) {
                 // Ignore
             }
-        }
 
-
-        // (2) Search local repositories
-        if (logger.isLoggable(Level.FINER)) {
-            logger.log(Level.FINER, "  Searching local repositories");
-        }
-        try {
-            clazz = findClass(name);
-            if (clazz != null) {
+            // (3) Delegate if class was not found locally
+            if (!delegateLoad) {
                 if (logger.isLoggable(Level.FINER)) {
-                    logger.log(Level.FINER, "  Loading class from local repository");
+                    logger.log(Level.FINER, "  Delegating to classloader " + delegateLoader);
                 }
-                if (resolve)
-                    resolveClass(clazz);
-                return clazz;
-            }
-        } catch (ClassNotFoundException e) {
-            // Ignore
-        }
-
-        // (3) Delegate if class was not found locally
-        if (!delegateLoad) {
-            if (logger.isLoggable(Level.FINER)) {
-                logger.log(Level.FINER, "  Delegating to classloader " + delegateLoader);
-            }
-            try {
-                clazz = delegateLoader.loadClass(name);
-                if (clazz != null) {
-                    if (logger.isLoggable(Level.FINER)) {
-                        logger.log(Level.FINER, "  Loading class from delegate");
+                try {
+                    clazz = delegateLoader.loadClass(name);
+                    if (clazz != null) {
+                        if (logger.isLoggable(Level.FINER)) {
+                            logger.log(Level.FINER, "  Loading class from delegate");
+                        }
+                        if (resolve)
+                            resolveClass(clazz);
+                        return clazz;
                     }
-                    if (resolve)
-                        resolveClass(clazz);
-                    return clazz;
+                } catch (ClassNotFoundException e) {
+                    // Ignore
                 }
-            } catch (ClassNotFoundException e) {
-                // Ignore
             }
-        }
 
-        throw new ClassNotFoundException(name);
+            throw new ClassNotFoundException(name);
+        }
     }
 
 
@@ -1772,16 +1848,22 @@ public class WebappClassLoader
             files[i] = null;
         }
 
-        length = jarFiles.length;
-        for (int i = 0; i < length; i++) {
-            try {
-                if (jarFiles[i] != null) {
-                    jarFiles[i].close();
+        // Wait for the lookups still reading the JARs
+        jarFilesReadWriteLock.writeLock().lock();
+        try {
+            length = jarFiles.length;
+            for (int i = 0; i < length; i++) {
+                try {
+                    if (jarFiles[i] != null) {
+                        jarFiles[i].close();
+                    }
+                } catch (IOException e) {
+                    // Ignore
                 }
-            } catch (IOException e) {
-                // Ignore
+                jarFiles[i] = null;
             }
-            jarFiles[i] = null;
+        } finally {
+            jarFilesReadWriteLock.writeLock().unlock();
         }
 
         try {
@@ -1798,6 +1880,7 @@ public class WebappClassLoader
         files = null;
         jarFiles = null;
         jarRealFiles = null;
+        jarIndex.clear();
         jarPath = null;
         jarNames.clear();
         lastModifiedDates = null;
@@ -1823,22 +1906,28 @@ public class WebappClassLoader
      */
     public void closeJARs(boolean force) {
         if (jarFiles.length > 0) {
-            synchronized (jarFilesLock) {
-                if (force || (System.currentTimeMillis()
-                              > (lastJarAccessed + 90000))) {
-                    for (int i = 0; i < jarFiles.length; i++) {
-                        try {
-                            if (jarFiles[i] != null) {
-                                jarFiles[i].close();
-                                jarFiles[i] = null;
-                            }
-                        } catch (IOException e) {
-                            if (logger.isLoggable(Level.FINE)) {
-                                logger.log(Level.FINE, "Failed to close JAR", e);
+            jarFilesReadWriteLock.writeLock().lock();
+            try {
+                synchronized (jarFilesLock) {
+                    if (force || (System.currentTimeMillis()
+                                  > (lastJarAccessed + 90000))) {
+                        jarFilesOpen = false;
+                        for (int i = 0; i < jarFiles.length; i++) {
+                            try {
+                                if (jarFiles[i] != null) {
+                                    jarFiles[i].close();
+                                    jarFiles[i] = null;
+                                }
+                            } catch (IOException e) {
+                                if (logger.isLoggable(Level.FINE)) {
+                                    logger.log(Level.FINE, "Failed to close JAR", e);
+                                }
                             }
                         }
                     }
                 }
+            } finally {
+                jarFilesReadWriteLock.writeLock().unlock();
             }
         }
     }
@@ -1957,10 +2046,7 @@ public class WebappClassLoader
          */
         while(loadedClasses.hasNext()) {
             ResourceEntry entry = loadedClasses.next();
-            Class<?> clazz = null;
-            synchronized(this) {
-                clazz = entry.loadedClass;
-            }
+            Class<?> clazz = entry.loadedClass;
             if (clazz != null) {
                 try {
                     Field[] fields = clazz.getDeclaredFields();
@@ -1982,10 +2068,7 @@ public class WebappClassLoader
         loadedClasses = values.iterator();
         while (loadedClasses.hasNext()) {
             ResourceEntry entry = loadedClasses.next();
-            Class<?> clazz = null;
-            synchronized(this) {
-                clazz = entry.loadedClass;
-            }
+            Class<?> clazz = entry.loadedClass;
             if (clazz != null) {
                 try {
                     Field[] fields = clazz.getDeclaredFields();
@@ -2496,25 +2579,29 @@ public class WebappClassLoader
      */
     protected boolean openJARs() {
         if (started && (jarFiles.length > 0)) {
-            synchronized (jarFilesLock) {
-                lastJarAccessed = System.currentTimeMillis();
-                if (jarFiles[0] == null) {
-                    for (int i = 0; i < jarFiles.length; i++) {
-                        try {
-                            jarFiles[i] = new JarFile(jarRealFiles[i]);
-                        } catch (IOException e) {
-                            if (logger.isLoggable(Level.FINE)) {
-                                logger.log(Level.FINE, "Failed to open JAR", e);
-                            }
-                            for (int j = 0; j < i; j++) {
-                                try {
-                                    jarFiles[j].close();
-                                } catch (Throwable t) {
-                                    // Ignore
+            lastJarAccessed = System.currentTimeMillis();
+            if (!jarFilesOpen) {
+                synchronized (jarFilesLock) {
+                    if (!jarFilesOpen) {
+                        for (int i = 0; i < jarFiles.length; i++) {
+                            try {
+                                jarFiles[i] = new JarFile(jarRealFiles[i]);
+                            } catch (IOException e) {
+                                if (logger.isLoggable(Level.FINE)) {
+                                    logger.log(Level.FINE, "Failed to open JAR", e);
+                                }
+                                for (int j = 0; j < i; j++) {
+                                    try {
+                                        jarFiles[j].close();
+                                    } catch (Throwable t) {
+                                        // Ignore
+                                    }
+                                    jarFiles[j] = null;
                                 }
+                                return false;
                             }
-                            return false;
                         }
+                        jarFilesOpen = true;
                     }
                 }
             }
@@ -2542,7 +2629,7 @@ public class WebappClassLoader
         if (entry == null)
                throw new ClassNotFoundException(name);
 
-        synchronized (this) {
+        synchronized (entry) {
             Class<?> clazz = entry.loadedClass;
             if (clazz != null)
                 return entry;
@@ -2646,9 +2733,7 @@ public class WebappClassLoader
         entry = findResourceInternalFromRepositories(name, path);
 
         if (entry == null) {
-            synchronized (jarFiles) {
-                entry = findResourceInternalFromJars(name, path);
-            }
+            entry = findResourceInternalFromJars(name, path);
         }
 
         if (entry == null) {
@@ -2765,6 +2850,45 @@ public class WebappClassLoader
     private ResourceEntry findResourceInternalFromJars(String name,
                                                        String path) {
 
+        // Only the JARs holding entries in the directory of the resource
+        // are probed
+        int[] jars = jarIndex.get(getJarIndexKey(path));
+        if (jars == null) {
+            return null;
+        }
+
+        ResourceEntry entry;
+        jarFilesReadWriteLock.readLock().lock();
+        try {
+            entry = findResourceInternalFromJars(name, path, jars);
+        } finally {
+            jarFilesReadWriteLock.readLock().unlock();
+        }
+
+        // Extract resources contained in JAR to the workdir. Not done under
+        // the read lock, since extractResources() locks this loader first,
+        // as addJar() does before it takes the write lock.
+        if (entry != null && antiJARLocking && !(path.endsWith(".class"))) {
+            File resourceFile = new File(loaderDir, path);
+            if (!resourceFile.exists()) {
+                extractResources();
+            }
+        }
+
+        return entry;
+    }
+
+
+    /**
+     * Attempts to load the requested resource from the given JAR files.
+     * The caller holds the read lock of the JARs.
+     *
+     * @return The requested resource, or null if not found
+     */
+    private ResourceEntry findResourceInternalFromJars(String name,
+                                                       String path,
+                                                       int[] jars) {
+
         ResourceEntry entry = null;
         JarEntry jarEntry = null;
         int contentLength = -1;
@@ -2774,9 +2898,8 @@ public class WebappClassLoader
             return null;
         }
 
-        int jarFilesLength = jarFiles.length;
-
-        for (int i=0; (entry == null) && (i < jarFilesLength); i++) {
+        for (int k=0; (entry == null) && (k < jars.length); k++) {
+            int i = jars[k];
             jarEntry = jarFiles[i].getJarEntry(path);
 
             if (jarEntry != null) {
@@ -2799,15 +2922,6 @@ public class WebappClassLoader
                 } catch (IOException e) {
                     return null;
                 }
-
-                // Extract resources contained in JAR to the workdir
-                if (antiJARLocking && !(path.endsWith(".class"))) {
-                    File resourceFile = new File
-                        (loaderDir, jarEntry.getName());
-                    if (!resourceFile.exists()) {
-                        extractResources();
-                    }
-                }
             }
         }
 
@@ -2823,8 +2937,16 @@ public class WebappClassLoader
             return;
         }
 
-        for (int i = jarFiles.length - 1; i >= 0; i--) {
-            extractResource(jarFiles[i]);
+        jarFilesReadWriteLock.readLock().lock();
+        try {
+            if (!openJARs()) {
+                return;
+            }
+            for (int i = jarFiles.length - 1; i >= 0; i--) {
+                extractResource(jarFiles[i]);
+            }
+        } finally {
+            jarFilesReadWriteLock.readLock().unlock();
         }
 
         resourcesExtracted = true;
@@ -3000,9 +3122,7 @@ public class WebappClassLoader
 
         ResourceEntry entry = resourceEntries.get(name);
         if (entry != null) {
-            synchronized(this) {
-                return entry.loadedClass;
-            }
+            return entry.loadedClass;
         }
         return (null);  // FIXME - findLoadedResource()
 
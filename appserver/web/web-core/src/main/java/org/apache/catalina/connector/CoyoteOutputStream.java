@@ -22,6 +22,7 @@ import org.apache.catalina.LogFacade;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.WriteListener;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ResourceBundle;
 
 /**
@@ -114,6 +115,22 @@ public class CoyoteOutputStream
     }
 
 
+    /**
+     * Writes the remaining bytes of the given buffer without copying them.
+     * The buffer must not be modified afterwards, as it may be written to
+     * the client after this method returns.
+     */
+    public void write(ByteBuffer src)
+        throws IOException {
+        // Disallow operation if the object has gone out of scope
+        if (ob == null) {
+            throw new IllegalStateException(rb.getString(LogFacade.OBJECT_INVALID_SCOPE_EXCEPTION));
+        }
+
+        ob.write(src);
+    }
+
+
     /**
      * Will send the buffer to the client.
      */
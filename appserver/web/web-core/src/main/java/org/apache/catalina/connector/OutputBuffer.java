@@ -19,6 +19,7 @@ package org.apache.catalina.connector;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.InterruptedByTimeoutException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -299,6 +300,31 @@ public class OutputBuffer extends Writer
     }
 
 
+    /**
+     * Writes the remaining bytes of the given buffer, which is handed to the
+     * connector without being copied.
+     *
+     * @param src Buffer to be written to the response
+     *
+     * @throws IOException An underlying IOException occurred
+     */
+    public void write(ByteBuffer src) throws IOException {
+
+        if (suspended)
+            return;
+
+        if (grizzlyOutputBuffer.isClosed())
+            return;
+        if (log.isLoggable(Level.FINE))
+            log.log(Level.FINE, "write(ByteBuffer)");
+
+        int len = src.remaining();
+        grizzlyOutputBuffer.writeByteBuffer(src);
+        bytesWritten += len;
+
+    }
+
+
     // XXX Char or byte ?
     public void writeByte(int b)
         throws IOException {
@@ -5252,6 +5252,9 @@ public class StandardContext
                 if (resources instanceof Lifecycle) {
                     ((Lifecycle) resources).stop();
                 }
+                if (resources instanceof ProxyDirContext) {
+                    ((ProxyDirContext) resources).release();
+                }
                 if (webappResources instanceof BaseDirContext) {
                     ((BaseDirContext) webappResources).release();
                 }
@@ -5288,6 +5291,9 @@ public class StandardContext
                     ok = false;
                 }
             }
+            if(alternateResources instanceof ProxyDirContext) {
+                ((ProxyDirContext)alternateResources).release();
+            }
             final DirContext alternateWebappResources = ContextsAdapterUtility.unwrap(
                 alternateDocBase.getWebappResources());
             if(alternateWebappResources instanceof BaseDirContext) {
@@ -35,7 +35,11 @@ import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.*;
 import javax.naming.InitialContext;
@@ -63,6 +67,7 @@ import javax.xml.transform.stream.StreamSource;
 
 import org.apache.catalina.Globals;
 import org.apache.catalina.LogFacade;
+import org.apache.catalina.connector.CoyoteOutputStream;
 import org.apache.catalina.core.ContextsAdapterUtility;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
@@ -243,6 +248,39 @@ public class DefaultServlet
      */
     protected int maxHeaderRangeItems = 10;
 
+
+    /**
+     * Should the files of at least sendfileSize bytes be memory mapped and
+     * written to the connector, instead of being copied through the output
+     * buffer? Mapped files cannot be deleted on Windows, and stay mapped
+     * until their cache entry is unloaded.
+     */
+    protected boolean useFileMappedBuffer = false;
+
+
+    /**
+     * Should a precompressed variant of a file be served to the clients
+     * which accept its encoding?
+     */
+    protected boolean precompressed = false;
+
+
+    /**
+     * Should strong ETags, computed from the content of the files, be sent
+     * instead of weak ETags?
+     */
+    protected boolean useStrongETags = false;
+
+
+    /**
+     * The content codings of the precompressed variants, in order of
+     * preference, with the extensions of their files.
+     */
+    protected static final String[][] PRECOMPRESSED_ENCODINGS = {
+        { "br", ".br" },
+        { "gzip", ".gz" }
+    };
+
     
     // ----------------------------------------------------- Static Initializer
 
@@ -342,6 +380,15 @@ public class DefaultServlet
         if (sc.getInitParameter("useAcceptRanges") != null)
             useAcceptRanges = Boolean.parseBoolean(sc.getInitParameter("useAcceptRanges"));
 
+        if (sc.getInitParameter("useFileMappedBuffer") != null)
+            useFileMappedBuffer = Boolean.parseBoolean(sc.getInitParameter("useFileMappedBuffer"));
+
+        if (sc.getInitParameter("precompressed") != null)
+            precompressed = Boolean.parseBoolean(sc.getInitParameter("precompressed"));
+
+        if (sc.getInitParameter("useStrongETags") != null)
+            useStrongETags = Boolean.parseBoolean(sc.getInitParameter("useStrongETags"));
+
         // Sanity check on the specified buffer sizes
         if (input < 256)
             input = 256;
@@ -781,6 +828,7 @@ public class DefaultServlet
 
         CacheEntry cacheEntry = null;
         ProxyDirContext proxyDirContext = resources;
+        ProxyDirContext resourceContext = proxyDirContext;
         if (alternateDocBases == null
                 || alternateDocBases.size() == 0) {
             cacheEntry = proxyDirContext.lookupCache(path);
@@ -788,7 +836,8 @@ public class DefaultServlet
             AlternateDocBase match = AlternateDocBase.findMatch(
                                             path, alternateDocBases);
             if (match != null) {
-                cacheEntry = ((ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources())).lookupCache(path);
+                resourceContext = (ProxyDirContext) ContextsAdapterUtility.unwrap(match.getResources());
+                cacheEntry = resourceContext.lookupCache(path);
             } else {
                 // None of the url patterns for alternate docbases matched
                 cacheEntry = proxyDirContext.lookupCache(path);
@@ -849,13 +898,48 @@ public class DefaultServlet
             }
         }
 
+        // Find content type.
+        String contentType = cacheEntry.attributes.getMimeType();
+        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
+            contentType = getServletContext().getMimeType(cacheEntry.name);
+            cacheEntry.attributes.setMimeType(contentType);
+        }
+
+        boolean included =
+            (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
+
+        // Serve the precompressed variant of the file, if the client
+        // accepts its encoding
+        String contentEncoding = null;
+        if (precompressed && (cacheEntry.context == null)) {
+            response.addHeader("Vary", "Accept-Encoding");
+            if (!included) {
+                for (String[] encoding : PRECOMPRESSED_ENCODINGS) {
+                    if (!acceptsEncoding(request, encoding[0])) {
+                        continue;
+                    }
+                    CacheEntry variant =
+                        resourceContext.lookupCache(path + encoding[1]);
+                    if (variant.exists && (variant.context == null)
+                            && (variant.resource != null)) {
+                        cacheEntry = variant;
+                        contentEncoding = encoding[0];
+                        response.setHeader("Content-Encoding", contentEncoding);
+                        break;
+                    }
+                }
+            }
+        }
+
         // Check if the conditions specified in the optional If headers are
         // satisfied.
         if (cacheEntry.context == null) {
 
+            if (useStrongETags) {
+                computeStrongETag(cacheEntry);
+            }
+
             // Checking If headers
-            boolean included =
-                (request.getAttribute(RequestDispatcher.INCLUDE_CONTEXT_PATH) != null);
             if (!included
                 && !checkIfHeaders(request, response, cacheEntry.attributes)) {
                 return;
@@ -863,13 +947,6 @@ public class DefaultServlet
 
         }
 
-        // Find content type.
-        String contentType = cacheEntry.attributes.getMimeType();
-        if (contentType == null && !cacheEntry.attributes.isMimeTypeInitialized()) {
-            contentType = getServletContext().getMimeType(cacheEntry.name);
-            cacheEntry.attributes.setMimeType(contentType);
-        }
-
         ArrayList<Range> ranges = null;
         long contentLength = -1L;
 
@@ -926,10 +1003,11 @@ public class DefaultServlet
                 ostream = response.getOutputStream();
             } catch (IllegalStateException e) {
                 // If it fails, we try to get a Writer instead if we're
-                // trying to serve a text file
-                if ( (contentType == null)
-                     || (contentType.startsWith("text"))
-                     || (contentType.startsWith("xml")) ) {
+                // trying to serve a text file, unless it is compressed
+                if ( (contentEncoding == null)
+                     && ( (contentType == null)
+                          || (contentType.startsWith("text"))
+                          || (contentType.startsWith("xml")) ) ) {
                     writer = response.getWriter();
                 } else {
                     throw e;
@@ -981,7 +1059,8 @@ public class DefaultServlet
                     // Silent catch
                 }
                 if (ostream != null) {
-                    if (!checkSendfile(request, response, cacheEntry, contentLength, null))
+                    if (!checkSendfile(request, response, cacheEntry, contentLength, null)
+                            && !writeMapped(cacheEntry, ostream, 0, contentLength))
                         copy(cacheEntry, renderResult, ostream);
                 } else {
                     copy(cacheEntry, renderResult, writer);
@@ -1031,7 +1110,8 @@ public class DefaultServlet
                         // Silent catch
                     }
                     if (ostream != null) {
-                        if (!checkSendfile(request, response, cacheEntry, range.end - range.start + 1, range))
+                        if (!checkSendfile(request, response, cacheEntry, length, range)
+                                && !writeMapped(cacheEntry, ostream, range.start, length))
                             copy(cacheEntry, ostream, range);
                     } else {
                         copy(cacheEntry, writer, range);
@@ -1898,6 +1978,160 @@ public class DefaultServlet
     }
 
 
+    /**
+     * Write the given range of a file from a memory mapped buffer, which is
+     * handed to the connector without being copied. The file is mapped
+     * once, and the mapping kept with the cache entry.
+     *
+     * @param cacheEntry The CacheEntry object
+     * @param ostream The output stream to write to
+     * @param start Offset of the first byte to write
+     * @param length Number of bytes to write
+     * @return true if the range was written, false if it must be copied
+     * @exception IOException if an input/output error occurs
+     */
+    protected boolean writeMapped(CacheEntry cacheEntry,
+                                  ServletOutputStream ostream,
+                                  long start, long length)
+        throws IOException {
+
+        if (!useFileMappedBuffer
+            || (sendfileSize <= 0)
+            || (length < sendfileSize)
+            || !(ostream instanceof CoyoteOutputStream)
+            || (cacheEntry.resource == null)
+            || (cacheEntry.resource.getContent() != null)) {
+            return false;
+        }
+
+        ByteBuffer content = cacheEntry.mappedContent;
+        if (content == null) {
+            String canonicalPath = cacheEntry.attributes.getCanonicalPath();
+            if (canonicalPath == null) {
+                return false;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(canonicalPath, "r")) {
+                FileChannel channel = file.getChannel();
+                long size = channel.size();
+                if ((size == 0) || (size > Integer.MAX_VALUE)) {
+                    return false;
+                }
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (IOException e) {
+                if (debug > 10) {
+                    log(e.getMessage(), e);
+                }
+                return false;
+            }
+            cacheEntry.mappedContent = content;
+        }
+
+        // The file may have changed since the entry was loaded
+        if ((start < 0) || (start + length > content.capacity())) {
+            return false;
+        }
+
+        ByteBuffer range = content.duplicate();
+        range.limit((int) (start + length));
+        range.position((int) start);
+        ((CoyoteOutputStream) ostream).write(range);
+        return true;
+
+    }
+
+
+    /**
+     * Replace the weak ETag of a file with a strong ETag computed from its
+     * content. The ETag is kept with the cached attributes of the file, so
+     * that it is only computed once.
+     *
+     * @param cacheEntry The CacheEntry object
+     * @exception IOException if an input/output error occurs
+     */
+    protected void computeStrongETag(CacheEntry cacheEntry)
+        throws IOException {
+
+        ResourceAttributes attributes = cacheEntry.attributes;
+        String eTag = attributes.getETag();
+        if ((cacheEntry.resource == null)
+            || ((eTag != null) && !eTag.startsWith("W/"))) {
+            return;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] content = cacheEntry.resource.getContent();
+        if (content != null) {
+            digest.update(content);
+        } else {
+            // Only the files can be read again
+            String canonicalPath = attributes.getCanonicalPath();
+            if (canonicalPath == null) {
+                return;
+            }
+            try (InputStream is = new FileInputStream(canonicalPath)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int len;
+                while ((len = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, len);
+                }
+            }
+        }
+
+        attributes.setETag("\"" +
+            Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest())
+            + "\"");
+
+    }
+
+
+    /**
+     * Check if the client accepts the given content coding.
+     *
+     * @param request The servlet request we are processing
+     * @param encoding The content coding
+     * @return true if an Accept-Encoding header of the request lists the
+     * coding without a zero quality value
+     */
+    protected boolean acceptsEncoding(HttpServletRequest request,
+                                      String encoding) {
+
+        Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+        while (headers.hasMoreElements()) {
+            StringTokenizer tokenizer =
+                new StringTokenizer(headers.nextElement(), ",");
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                int semicolon = token.indexOf(';');
+                String coding = (semicolon < 0) ? token.trim()
+                        : token.substring(0, semicolon).trim();
+                if (!coding.equalsIgnoreCase(encoding)) {
+                    continue;
+                }
+                if (semicolon < 0) {
+                    return true;
+                }
+                String param = token.substring(semicolon + 1).trim();
+                if (!param.startsWith("q=") && !param.startsWith("Q=")) {
+                    return true;
+                }
+                try {
+                    return Double.parseDouble(param.substring(2).trim()) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+
+    }
+
+
     /**
      * Check if the if-match condition is satisfied.
      *
@@ -2257,24 +2491,29 @@ public class DefaultServlet
 
         while ( (exception == null) && (ranges.hasNext()) ) {
 
+            Range currentRange = ranges.next();
+
+            // Writing MIME header.
+            ostream.println();
+            ostream.println("--" + mimeSeparation);
+            if (contentType != null)
+                ostream.println("Content-Type: " + contentType);
+            ostream.println("Content-Range: bytes " + currentRange.start
+                           + "-" + currentRange.end + "/"
+                           + currentRange.length);
+            ostream.println();
+
+            if (writeMapped(cacheEntry, ostream, currentRange.start,
+                            currentRange.end - currentRange.start + 1)) {
+                continue;
+            }
+
             InputStream resourceInputStream = cacheEntry.resource.streamContent();
             InputStream istream = null;
             try {
                 istream = 
                     new BufferedInputStream(resourceInputStream, input);
 
-                Range currentRange = ranges.next();
-
-                // Writing MIME header.
-                ostream.println();
-                ostream.println("--" + mimeSeparation);
-                if (contentType != null)
-                    ostream.println("Content-Type: " + contentType);
-                ostream.println("Content-Range: bytes " + currentRange.start
-                               + "-" + currentRange.end + "/"
-                               + currentRange.length);
-                ostream.println();
-
                 // Printing content
                 exception = copyRange(istream, ostream, currentRange.start,
                                       currentRange.end);
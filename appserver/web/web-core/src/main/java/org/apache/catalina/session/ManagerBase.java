@@ -18,7 +18,6 @@
 package org.apache.catalina.session;
 
 import com.sun.enterprise.util.uuid.UuidGenerator;
-import com.sun.enterprise.util.uuid.UuidGeneratorImpl;
 import org.apache.catalina.*;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.core.StandardHost;
@@ -124,7 +123,7 @@ public abstract class ManagerBase implements Manager {
     /**
      * A random number generator to use when generating session identifiers.
      */
-    private Random random = null;
+    private volatile Random random = null;
     
     
     /**
@@ -132,7 +131,7 @@ public abstract class ManagerBase implements Manager {
      * when generating universally unique session identifiers.
      * HERCULES: add
      */
-    protected UuidGenerator uuidGenerator = new UuidGeneratorImpl();     
+    protected UuidGenerator uuidGenerator = new SessionIdGenerator();
 
 
     /**
@@ -404,6 +403,9 @@ public abstract class ManagerBase implements Manager {
 
         int oldSessionIdLength = this.sessionIdLength;
         this.sessionIdLength = idLength;
+        if (uuidGenerator instanceof SessionIdGenerator) {
+            ((SessionIdGenerator) uuidGenerator).setSessionIdLength(idLength);
+        }
         support.firePropertyChange("sessionIdLength",
                                    Integer.valueOf(oldSessionIdLength),
                                    Integer.valueOf(this.sessionIdLength));
@@ -496,7 +498,18 @@ public abstract class ManagerBase implements Manager {
      * generating session identifiers.  If there is no such generator
      * currently defined, construct and seed a new one.
      */
-    public synchronized Random getRandom() {
+    public Random getRandom() {
+        Random result = this.random;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            initRandom();
+            return this.random;
+        }
+    }
+
+    private void initRandom() {
         if (this.random == null) {
             // Calculate the new random number generator seed
             long seed = System.currentTimeMillis();
@@ -527,8 +540,6 @@ public abstract class ManagerBase implements Manager {
                      log.log(Level.FINE, msg + " " + (t2-t1));
                  }
         }
-
-        return (this.random);
     }
 
     /**
@@ -908,17 +919,24 @@ public abstract class ManagerBase implements Manager {
     
     /**
      * Generate and return a new session identifier.
+     * The identifier is checked against the active sessions without locking,
+     * so the UuidGenerator must be thread safe.
      * Hercules:added
      */
-    protected synchronized String generateSessionId(Object obj) {
-        return uuidGenerator.generateUuid(obj);
+    protected String generateSessionId(Object obj) {
+        String id = uuidGenerator.generateUuid(obj);
+        while (sessions.containsKey(id)) {
+            duplicates++;
+            id = uuidGenerator.generateUuid(obj);
+        }
+        return id;
     }   
     
     /**
      * Generate and return a new session identifier.
      * Hercules:modified
      */
-    protected synchronized String generateSessionId() {
+    protected String generateSessionId() {
         return generateSessionId(new Object());
     }    
 
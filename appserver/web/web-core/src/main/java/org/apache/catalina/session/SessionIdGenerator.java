@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.apache.catalina.session;
+
+import com.sun.enterprise.util.uuid.UuidGenerator;
+import org.apache.catalina.LogFacade;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates session identifiers as hex encoded random bytes, by default the
+ * generator of the session managers.
+ * <p>
+ * The random bytes are taken from a set of <code>SecureRandom</code> stripes
+ * shared by all the managers, so that threads creating sessions seldom wait
+ * for each other. A thread always uses the same stripe. The stripes are
+ * created and seeded by a background thread when this class is loaded, so
+ * that the first sessions are not delayed by a blocking entropy source; a
+ * stripe which is not seeded yet when it is first used is seeded by the
+ * calling thread.
+ * <p>
+ * Each stripe encodes the identifier in buffers of its own, so the only
+ * object allocated per identifier is the returned String.
+ */
+public class SessionIdGenerator implements UuidGenerator {
+
+    private static final Logger log = LogFacade.getLogger();
+
+    private static final String ALGORITHM = "SHA1PRNG";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final Stripe[] stripes;
+    private static final int stripeMask;
+
+    static {
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int count = Integer.highestOneBit(processors * 2 - 1);
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = count - 1;
+
+        Thread seeder = new Thread(new Runnable() {
+            public void run() {
+                for (Stripe stripe : stripes) {
+                    stripe.seed();
+                }
+                if (log.isLoggable(Level.FINE)) {
+                    log.log(Level.FINE, "Seeded " + stripes.length
+                            + " session id random number generators");
+                }
+            }
+        }, "SessionIdGenerator-seeder");
+        seeder.setDaemon(true);
+        // Prevent any app classloader being set as CCL
+        seeder.setContextClassLoader(null);
+        seeder.start();
+    }
+
+    private volatile int sessionIdLength = 16;
+
+    public SessionIdGenerator() {
+    }
+
+    /**
+     * Gets the number of random bytes of the session identifiers, each
+     * encoded in two characters.
+     */
+    public int getSessionIdLength() {
+        return sessionIdLength;
+    }
+
+    /**
+     * Sets the number of random bytes of the session identifiers.
+     */
+    public void setSessionIdLength(int sessionIdLength) {
+        if (sessionIdLength <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid session id length: " + sessionIdLength);
+        }
+        this.sessionIdLength = sessionIdLength;
+    }
+
+    public String generateUuid() {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        return stripe.nextId(sessionIdLength);
+    }
+
+    /**
+     * The object is not used, the identifiers do not depend on it.
+     */
+    public String generateUuid(Object obj) {
+        return generateUuid();
+    }
+
+
+    /**
+     * A random number generator and the buffers in which the identifiers are
+     * encoded, guarded by its monitor.
+     */
+    private static final class Stripe {
+
+        private volatile SecureRandom random;
+
+        private byte[] bytes = new byte[16];
+        private char[] chars = new char[32];
+
+        /**
+         * Creates and seeds the random number generator, unless a thread
+         * already did it.
+         */
+        void seed() {
+            if (random != null) {
+                return;
+            }
+            SecureRandom r;
+            try {
+                // has a state of its own, unlike the native generators which
+                // share one file and lock
+                r = SecureRandom.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                r = new SecureRandom();
+            }
+            // force the seeding, which may block
+            r.nextBytes(new byte[1]);
+            synchronized (this) {
+                if (random == null) {
+                    random = r;
+                }
+            }
+        }
+
+        synchronized String nextId(int length) {
+            if (random == null) {
+                seed();
+            }
+            if (bytes.length < length) {
+                bytes = new byte[length];
+                chars = new char[length * 2];
+            }
+            random.nextBytes(bytes);
+            for (int i = 0, j = 0; i < length; i++) {
+                chars[j++] = HEX[(bytes[i] >> 4) & 0xf];
+                chars[j++] = HEX[bytes[i] & 0xf];
+            }
+            return new String(chars, 0, length * 2);
+        }
+    }
+}
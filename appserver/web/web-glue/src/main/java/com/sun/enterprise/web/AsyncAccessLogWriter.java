@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.web;
+
+import com.sun.enterprise.web.accesslog.AccessLogFormatter;
+import org.apache.catalina.Request;
+import org.apache.catalina.Response;
+import org.glassfish.web.LogFacade;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the access log entries of a <code>PEAccessLogValve</code> from a
+ * thread of its own, so that the request threads neither wait for each other
+ * nor for the file.
+ * <p>
+ * A request thread formats its entry into a <code>CharBuffer</code> of its
+ * own, claims the next slot of a ring buffer and encodes the entry into the
+ * byte buffer of that slot, which is kept for the next entries. The writer
+ * thread writes the published slots in order, in batches, with a single
+ * gathering write. When the ring buffer is full, the request thread either
+ * waits for the writer thread or drops its entry, depending on the overflow
+ * policy. Once the writer thread is gone, the entries are dropped.
+ */
+final class AsyncAccessLogWriter implements Runnable {
+
+    private static final Logger _logger = LogFacade.getLogger();
+
+    private static final ResourceBundle _rb = _logger.getResourceBundle();
+
+    private static final int MIN_SLOTS = 1024;
+
+    // maximum number of entries written at once
+    private static final int BATCH_SIZE = 256;
+
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long DROP_REPORT_INTERVAL = 60000L;
+
+    private static final int INITIAL_ENTRY_SIZE = 512;
+
+    private final PEAccessLogValve valve;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    private final int maxEntrySize;
+
+    private final boolean dropOnOverflow;
+
+    // next sequence to be claimed by a request thread
+    private final AtomicLong head = new AtomicLong();
+
+    // next sequence to be written, only updated by the writer thread
+    private volatile long tail;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Charset charset = Charset.defaultCharset();
+
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private Thread writerThread;
+
+    private volatile boolean sleeping;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param valve the valve whose file the entries are written to
+     * @param bufferSize the buffer size of the valve, which also bounds the
+     * size of an entry
+     * @param dropOnOverflow true if entries are dropped when the ring buffer
+     * is full, false if the request threads wait
+     */
+    AsyncAccessLogWriter(PEAccessLogValve valve, int bufferSize,
+                         boolean dropOnOverflow) {
+        this.valve = valve;
+        this.maxEntrySize = bufferSize;
+        this.dropOnOverflow = dropOnOverflow;
+
+        int count = MIN_SLOTS;
+        while (count < bufferSize / 128 && count < (1 << 20)) {
+            count <<= 1;
+        }
+        slots = new Slot[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = new Slot(i - count);
+        }
+        mask = count - 1;
+    }
+
+
+    /**
+     * Starts the writer thread.
+     */
+    void start() {
+        stopped = false;
+        writerThread = new Thread(this, "AccessLogWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+
+    /**
+     * Stops the writer thread once it has written the entries published so
+     * far.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            ;
+        }
+        reportDropped();
+    }
+
+
+    /**
+     * Formats the entry of the request and queues it.
+     *
+     * @return false if the entry could not be formatted or was dropped
+     */
+    boolean log(AccessLogFormatter formatter, Request request,
+                Response response) {
+
+        Scratch s = scratch.get();
+        CharBuffer chars = s.format(formatter, request, response);
+        if (chars == null) {
+            return false;
+        }
+
+        long sequence = claim();
+        if (sequence < 0) {
+            return false;
+        }
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.buffer = s.encode(chars, slot.buffer);
+        // publishes the buffer to the writer thread
+        slot.sequence = sequence;
+
+        if (sleeping) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+
+    /**
+     * Claims the next slot of the ring buffer.
+     *
+     * @return the sequence of the slot, or -1 if the entry is dropped
+     */
+    private long claim() {
+        while (true) {
+            long h = head.get();
+            if (h - tail >= slots.length) {
+                // nothing frees the slots if the writer thread died
+                if (dropOnOverflow || stopped || !writerThread.isAlive()) {
+                    dropped.incrementAndGet();
+                    return -1;
+                }
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+            } else if (head.compareAndSet(h, h + 1)) {
+                return h;
+            }
+        }
+    }
+
+
+    /**
+     * Writes the published entries until stopped.
+     */
+    public void run() {
+
+        ByteBuffer[] batch = new ByteBuffer[BATCH_SIZE];
+        long lastDropReport = System.currentTimeMillis();
+
+        while (true) {
+            long t = tail;
+            int count = 0;
+            while (count < BATCH_SIZE) {
+                Slot slot = slots[(int) (t + count) & mask];
+                if (slot.sequence != t + count) {
+                    break;
+                }
+                batch[count++] = slot.buffer;
+            }
+
+            if (count > 0) {
+                try {
+                    valve.write(batch, count);
+                } catch (IOException ex) {
+                    _logger.log(Level.SEVERE, LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                            new Object[] {ex});
+                } catch (Throwable th) {
+                    // the batch is lost, but the writer thread keeps going
+                    // so that the request threads never wait for it forever
+                    String msg = MessageFormat.format(
+                            _rb.getString(LogFacade.ACCESS_LOG_UNABLE_TO_WRITE), th);
+                    _logger.log(Level.SEVERE, msg, th);
+                }
+                for (int i = 0; i < count; i++) {
+                    batch[i].clear();
+                    batch[i] = null;
+                }
+                // frees the slots for the request threads
+                tail = t + count;
+                continue;
+            }
+
+            if (stopped && head.get() == t) {
+                break;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastDropReport > DROP_REPORT_INTERVAL) {
+                reportDropped();
+                lastDropReport = now;
+            }
+
+            sleeping = true;
+            if (slots[(int) t & mask].sequence != t && !stopped) {
+                LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            _logger.log(Level.WARNING, LogFacade.ACCESS_LOG_ENTRIES_DROPPED,
+                    new Object[] {count, valve.getPrefix()});
+        }
+    }
+
+
+    /**
+     * A slot of the ring buffer. The buffer is owned by the request thread
+     * that claimed the slot until it sets the sequence, and then by the
+     * writer thread until it moves the tail past it.
+     */
+    private static final class Slot {
+
+        ByteBuffer buffer;
+
+        volatile long sequence;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+
+    /**
+     * The buffer into which a request thread formats its entries, and the
+     * encoder of the entries.
+     */
+    private final class Scratch {
+
+        private CharBuffer chars = CharBuffer.allocate(INITIAL_ENTRY_SIZE);
+
+        private final CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /**
+         * Formats the entry, growing the buffer as needed up to the maximum
+         * entry size.
+         *
+         * @return the flipped buffer, or null if the entry is too large
+         */
+        CharBuffer format(AccessLogFormatter formatter, Request request,
+                          Response response) {
+            while (true) {
+                chars.clear();
+                try {
+                    formatter.appendLogEntry(request, response, chars);
+                    chars.put('\n');
+                    chars.flip();
+                    return chars;
+                } catch (BufferOverflowException ex) {
+                    if (chars.capacity() >= maxEntrySize) {
+                        _logger.log(Level.SEVERE,
+                                LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                                new Object[] {ex});
+                        return null;
+                    }
+                    chars = CharBuffer.allocate(
+                            Math.min(chars.capacity() * 2, maxEntrySize));
+                }
+            }
+        }
+
+        /**
+         * Encodes the entry into the given buffer, or into a larger one if
+         * it does not fit.
+         *
+         * @return the flipped buffer holding the entry
+         */
+        ByteBuffer encode(CharBuffer entry, ByteBuffer buffer) {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(Math.max(INITIAL_ENTRY_SIZE,
+                        (int) (entry.remaining() * encoder.averageBytesPerChar())));
+            }
+            while (true) {
+                encoder.reset();
+                CoderResult result = encoder.encode(entry, buffer, true);
+                if (!result.isOverflow()) {
+                    result = encoder.flush(buffer);
+                }
+                if (!result.isOverflow()) {
+                    buffer.flip();
+                    return buffer;
+                }
+                entry.rewind();
+                buffer = ByteBuffer.allocate(
+                        (int) (entry.remaining() * encoder.maxBytesPerChar()));
+            }
+        }
+    }
+}
@@ -87,6 +87,11 @@ public final class Constants {
     public static final String ACCESS_LOG_WRITE_INTERVAL_PROPERTY =
         "accessLogWriteInterval";
 
+    public static final String ACCESS_LOG_ASYNC_PROPERTY = "accessLogAsync";
+
+    public static final String ACCESS_LOG_OVERFLOW_POLICY_PROPERTY =
+        "accessLogOverflowPolicy";
+
     public static final String ACCESS_LOGGING_ENABLED = "accessLoggingEnabled";
 
     public static final String SSO_ENABLED = "sso-enabled";
@@ -271,6 +271,25 @@ public final class PEAccessLogValve
      * Simple lock
      */
     private Object lock = new Object();
+
+
+    /**
+     * Are the entries written by an <code>AsyncAccessLogWriter</code>?
+     */
+    private boolean async = false;
+
+
+    /**
+     * Are the entries dropped when the asynchronous writer cannot keep up,
+     * instead of making the requests wait?
+     */
+    private boolean dropOnOverflow = false;
+
+
+    /**
+     * The asynchronous writer, if the valve is started in async mode.
+     */
+    private AsyncAccessLogWriter asyncWriter;
     
 
     /**
@@ -329,6 +348,38 @@ public final class PEAccessLogValve
         return bufferSize;
     }
 
+    /**
+     * Are the entries written by a thread of their own, without any lock
+     * held by the requests?
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+
+    /**
+     * Set whether the entries are written by a thread of their own.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+
+    /**
+     * Set what the requests do when the asynchronous writer cannot keep up:
+     * "block" to wait for it, or "drop" to drop their entry.
+     */
+    public void setOverflowPolicy(String policy) {
+        if ("drop".equalsIgnoreCase(policy)) {
+            dropOnOverflow = true;
+        } else if ("block".equalsIgnoreCase(policy)) {
+            dropOnOverflow = false;
+        } else {
+            _logger.log(Level.WARNING,
+                LogFacade.INVALID_ACCESS_LOG_OVERFLOW_POLICY, policy);
+        }
+    }
+
     // ------------------------------------------------------------- Properties
 
 
@@ -555,6 +606,14 @@ public final class PEAccessLogValve
                 null!=request.getRequest().getAttribute(condition)) {
              return;
         }
+
+        AsyncAccessLogWriter writer = asyncWriter;
+        if (writer != null) {
+            if (formatter != null) {
+                writer.log(formatter, request, response);
+            }
+            return;
+        }
         
         synchronized (lock){
             // Reset properly the buffer in case of an unexpected
@@ -599,7 +658,54 @@ public final class PEAccessLogValve
      * has changed since the previous log call.
      */
     public void log() throws IOException {
-        
+
+        rotateIfNeeded();
+
+        synchronized(lock){
+            try{
+                charBuffer.flip();
+                ByteBuffer byteBuffer =
+                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
+                while (byteBuffer.hasRemaining()){
+                    fileChannel.write(byteBuffer);
+                }
+            } catch (IOException ex){
+                ;
+            } finally {
+                charBuffer.clear();
+            }
+        }
+
+    }
+
+
+    /**
+     * Write the given entries to the log file, switching files if the date
+     * has changed since the previous write. Called by the asynchronous
+     * writer.
+     */
+    void write(ByteBuffer[] entries, int count) throws IOException {
+
+        rotateIfNeeded();
+
+        synchronized(lock){
+            int first = 0;
+            while (first < count) {
+                fileChannel.write(entries, first, count - first);
+                while (first < count && !entries[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Switch files if the date has changed since the log file was last
+     * checked.
+     */
+    private void rotateIfNeeded() throws IOException {
+
         if (rotatable){
 
             long systime = System.currentTimeMillis();
@@ -627,22 +733,6 @@ public final class PEAccessLogValve
                 }
             }
         }
-        
-        synchronized(lock){
-            try{
-                charBuffer.flip();
-                ByteBuffer byteBuffer =
-                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
-                while (byteBuffer.hasRemaining()){
-                    fileChannel.write(byteBuffer);
-                }
-            } catch (IOException ex){
-                ;
-            } finally {
-                charBuffer.clear();
-            }
-        }
-
     }
 
 
@@ -766,6 +856,20 @@ public final class PEAccessLogValve
             }
         }
 
+        /*
+         * The accessLogAsync property of <virtual-server> makes the entries
+         * be written by a thread of their own, and accessLogOverflowPolicy
+         * tells whether the requests wait for it or drop their entry when
+         * it cannot keep up.
+         */
+        setAsync(Boolean.parseBoolean(vsBean.getPropertyValue(
+            Constants.ACCESS_LOG_ASYNC_PROPERTY)));
+        String acOverflowPolicy = vsBean.getPropertyValue(
+            Constants.ACCESS_LOG_OVERFLOW_POLICY_PROPERTY);
+        if (acOverflowPolicy != null) {
+            setOverflowPolicy(acOverflowPolicy);
+        }
+
         return true;
     }
 
@@ -1061,7 +1165,11 @@ public final class PEAccessLogValve
 
         lastAccessLogCreationTime = systime;
 
-        if (!flushRealTime){
+        if (async) {
+            asyncWriter = new AsyncAccessLogWriter(this, bufferSize,
+                                                   dropOnOverflow);
+            asyncWriter.start();
+        } else if (!flushRealTime){
             // Start the background writer writerThread
             threadStart();
         }
@@ -1088,7 +1196,11 @@ public final class PEAccessLogValve
         lifecycle.fireLifecycleEvent(STOP_EVENT, null);
         started = false;
         
-        if (!flushRealTime){
+        if (asyncWriter != null) {
+            // Write the pending entries and stop the writer thread
+            asyncWriter.stop();
+            asyncWriter = null;
+        } else if (!flushRealTime){
             // Stop the background writer thread
             threadStop();
         }
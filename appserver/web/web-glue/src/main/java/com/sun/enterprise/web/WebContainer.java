@@ -2015,7 +2015,7 @@ public class WebContainer implements org.glassfish.api.container.Container, Post
         }
 
         webStatsProviderBootstrap.registerApplicationStatsProviders(monitoringNodeName,
-                vs.getName(), servletNames);
+                vs.getName(), servletNames, new WebModuleResourceCacheStats(ctx));
 
         vs.addChild(ctx);
 
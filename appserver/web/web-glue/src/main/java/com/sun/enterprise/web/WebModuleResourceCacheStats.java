@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.web;
+
+import javax.naming.directory.DirContext;
+
+import org.apache.naming.resources.ProxyDirContext;
+import org.apache.naming.resources.ResourceCache;
+import org.glassfish.web.admin.monitor.ResourceCacheStatsProvider;
+
+/**
+ * Reads the counters of the resource cache of a web module for its
+ * monitoring. The cache is looked up at each read, since it is replaced
+ * whenever the web module is restarted.
+ */
+final class WebModuleResourceCacheStats
+        implements ResourceCacheStatsProvider.ResourceCacheStats {
+
+    private final WebModule webModule;
+
+    WebModuleResourceCacheStats(WebModule webModule) {
+        this.webModule = webModule;
+    }
+
+    public long getAccessCount() {
+        ResourceCache cache = getCache();
+        return (cache == null) ? 0 : cache.getAccessCount();
+    }
+
+    public long getHitsCount() {
+        ResourceCache cache = getCache();
+        return (cache == null) ? 0 : cache.getHitsCount();
+    }
+
+    public long getNotFoundHitsCount() {
+        ResourceCache cache = getCache();
+        return (cache == null) ? 0 : cache.getNotFoundHitsCount();
+    }
+
+    public long getEvictionCount() {
+        ResourceCache cache = getCache();
+        return (cache == null) ? 0 : cache.getEvictionCount();
+    }
+
+    public long getCacheSize() {
+        ResourceCache cache = getCache();
+        return (cache == null) ? 0 : cache.getCacheSize();
+    }
+
+    private ResourceCache getCache() {
+        DirContext resources = webModule.getResources();
+        if (resources instanceof ProxyDirContext) {
+            return ((ProxyDirContext) resources).getCache();
+        }
+        return null;
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.catalina.Response;
 import java.nio.CharBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
 
 /**
@@ -30,42 +31,11 @@ import java.util.TimeZone;
  */
 public abstract class AccessLogFormatter {
 
-    /**
-     * The set of month abbreviations for log messages.
-     */
-    static final String months[] =
-    { "Jan", "Feb", "Mar", "Apr", "May", "Jun",
-      "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
-
     /**
      * When formatting log lines, we often use strings like this one (" ").
      */
     protected static final String SPACE = " ";
 
-    /**
-     * ThreadLocal for a date formatter to format Dates into a day string in the format
-     * "dd".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> dayFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a month string in the format
-     * "MM".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> monthFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a year string in the format
-     * "yyyy".
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> yearFormatter = null;
-
-    /**
-     * ThreadLocal for a date formatter to format a Date into a time in the format
-     * "kk:mm:ss" (kk is a 24-hour representation of the hour).
-     */
-    protected volatile ThreadLocal<SimpleDateFormat> timeFormatter = null;
-
     /**
      * The time zone relative to GMT.
      */
@@ -80,21 +50,29 @@ public abstract class AccessLogFormatter {
     protected boolean needTimeTaken;
 
     /**
-     * The system time when we last updated the Date that this valve
-     * uses for log lines.
+     * Formatter of the date and time of the log lines, in the format
+     * "dd/MMM/yyyy:HH:mm:ss". Guarded by this formatter.
+     */
+    private final SimpleDateFormat dateTimeFormatter;
+
+    /**
+     * The formatted date of the current second, shared by all the log lines
+     * of that second.
      */
-    private Date currentDate = null;
+    private volatile FormattedDate currentDate = new FormattedDate(-1, null);
 
 
     /**
      * Constructor.
      *
-     * Initialize the timeZone and currentDate.
+     * Initialize the timeZone and the date formatter.
      */
     public AccessLogFormatter() {
         tz = TimeZone.getDefault();
         timeZone = calculateTimeZoneOffset(tz.getRawOffset());
-        currentDate = new Date(System.currentTimeMillis());
+        dateTimeFormatter = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss",
+                                                 Locale.ENGLISH);
+        dateTimeFormatter.setTimeZone(tz);
     }
 
 
@@ -112,24 +90,58 @@ public abstract class AccessLogFormatter {
 
 
     /**
-     * This method returns a Date object that is accurate to within one
-     * second.  If a writerThread calls this method to get a Date and it's been
-     * less than 1 second since a new Date was created, this method
-     * simply gives out the same Date again so that the system doesn't
-     * spend time creating Date objects unnecessarily.
+     * Returns the current date in the format "dd/MMM/yyyy:HH:mm:ss Z".
+     * The date is only formatted once per second, the log lines of the same
+     * second share the same String.
      */
-    protected synchronized Date getDate() {
+    protected String getFormattedDate() {
 
-        // Only create a new Date once per second, max.
-        long systime = System.currentTimeMillis();
-        if ((systime - currentDate.getTime()) > 1000) {
-            currentDate = new Date(systime);
+        long second = System.currentTimeMillis() / 1000;
+        FormattedDate date = currentDate;
+        if (date.second != second) {
+            date = formatDate(second);
         }
+        return date.text;
+
+    }
 
-        return currentDate;
 
+    private synchronized FormattedDate formatDate(long second) {
+        FormattedDate date = currentDate;
+        if (date.second != second) {
+            date = new FormattedDate(second,
+                dateTimeFormatter.format(new Date(second * 1000)) + SPACE +
+                timeZone);
+            currentDate = date;
+        }
+        return date;
     }
 
+
+    /**
+     * Appends the decimal representation of the given number to the given
+     * char buffer, without creating a String.
+     */
+    protected static void appendNumber(CharBuffer cb, long value) {
+        if (value == Long.MIN_VALUE) {
+            cb.put(String.valueOf(value));
+            return;
+        }
+        if (value < 0) {
+            cb.put('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            cb.put((char) ('0' + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+
     protected String calculateTimeZoneOffset(long offset) {
         StringBuilder sb = new StringBuilder();
         if ((offset<0))  {
@@ -154,25 +166,6 @@ public abstract class AccessLogFormatter {
     }
 
 
-    /**
-     * Return the month abbreviation for the specified month, which must
-     * be a two-digit String.
-     *
-     * @param month Month number ("01" .. "12").
-     */
-    protected String lookup(String month) {
-
-        int index;
-        try {
-            index = Integer.parseInt(month) - 1;
-        } catch (Throwable t) {
-            index = 0;  // Can not happen, in theory
-        }
-        return (months[index]);
-
-    }
-
-
     /**
      * Has the time-taken token been specified in the access log pattern?
      *
@@ -181,5 +174,20 @@ public abstract class AccessLogFormatter {
      */
     public boolean needTimeTaken() {
         return needTimeTaken;
-    }    
+    }
+
+
+    /**
+     * A formatted date and the second it was formatted for.
+     */
+    private static final class FormattedDate {
+
+        final long second;
+        final String text;
+
+        FormattedDate(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
 }
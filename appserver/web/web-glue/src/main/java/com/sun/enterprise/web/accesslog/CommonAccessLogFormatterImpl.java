@@ -23,9 +23,6 @@ import org.apache.catalina.Response;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
 
 /**
  * Access log formatter using the <i>common</i> access log format from
@@ -40,42 +37,7 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Constructor.
      */
     public CommonAccessLogFormatterImpl() {
-
         super();
-
-        final TimeZone timeZone = tz;
-        dayFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("dd");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        monthFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("MM");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        yearFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("yyyy");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        timeFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("HH:mm:ss");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
     }
 
 
@@ -154,18 +116,9 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the current date to the given char buffer.
      */
     private void appendCurrentDate(CharBuffer cb) {
-        Date date = getDate();
-        cb.put("[");
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
-        cb.put("]");
+        cb.put('[');
+        cb.put(getFormattedDate());
+        cb.put(']');
     }
 
 
@@ -181,9 +134,10 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
             uri = "NULL-HTTP-URI";
         }
         cb.put(uri);
-        if (hreq.getQueryString() != null) {
+        String query = hreq.getQueryString();
+        if (query != null) {
             cb.put('?');
-            cb.put(hreq.getQueryString());
+            cb.put(query);
         }
         cb.put(SPACE);
         cb.put(hreq.getProtocol());
@@ -195,7 +149,7 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the response status to the given char buffer.
      */
     private void appendResponseStatus(CharBuffer cb, Response response) {
-        cb.put(String.valueOf(((HttpResponse) response).getStatus()));
+        appendNumber(cb, ((HttpResponse) response).getStatus());
     }
 
 
@@ -204,6 +158,6 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * buffer.
      */
     private void appendResponseLength(CharBuffer cb, Response response) {
-        cb.put("" + response.getContentCount());
+        appendNumber(cb, response.getContentCount());
     }
 }
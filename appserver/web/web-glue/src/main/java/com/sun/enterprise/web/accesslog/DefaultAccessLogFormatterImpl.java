@@ -30,7 +30,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.nio.CharBuffer;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -110,9 +109,9 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
     private Container container;
 
     /**
-     * List of access log pattern components
+     * The access log pattern, compiled into one writer per component
      */
-    private LinkedList<String> patternComponents;
+    private FieldWriter[] fieldWriters;
 
     /**
      * Constructor.
@@ -124,46 +123,13 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
 
         super();
 
-        this.patternComponents = parsePattern(pattern);
+        LinkedList<String> patternComponents = parsePattern(pattern);
         if (patternComponents == null) {
             // Use default format if error in pattern
             patternComponents = parsePattern(ConfigBeansUtilities.getDefaultFormat());
         }
         this.container = container;
-
-        final TimeZone timeZone = tz;
-        dayFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("dd");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        monthFormatter =  new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("MM");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        yearFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("yyyy");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
-        timeFormatter = new ThreadLocal<SimpleDateFormat>() {
-            @Override
-            protected SimpleDateFormat initialValue() {
-                SimpleDateFormat f = new SimpleDateFormat("HH:mm:ss");
-                f.setTimeZone(timeZone);
-                return f;
-            }
-        };
+        this.fieldWriters = compilePattern(patternComponents);
     }
 
     /**
@@ -183,93 +149,269 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         HttpServletResponse hres = (HttpServletResponse)
             response.getResponse();
 
-        for (int i=0; i<patternComponents.size(); i++) {
-            String pc = patternComponents.get(i);
+        for (FieldWriter fieldWriter : fieldWriters) {
+            fieldWriter.append(charBuffer, request, response, hreq, hres);
+            charBuffer.put(SPACE);
+        }
+    }
+
+    /*
+     * Writes the value of one access log pattern component.
+     */
+    private abstract static class FieldWriter {
+        abstract void append(CharBuffer cb, Request request, Response response,
+                             HttpServletRequest hreq, HttpServletResponse hres);
+    }
+
+    /*
+     * Compiles the access log pattern components into writers, so that the
+     * components are only matched once, and the names and the values to use
+     * when they are missing are computed once.
+     *
+     * @param patternComponents The access log pattern components
+     *
+     * @return The writers of the components, in the same order
+     */
+    private FieldWriter[] compilePattern(List<String> patternComponents) {
+
+        FieldWriter[] writers = new FieldWriter[patternComponents.size()];
+        int i = 0;
+        for (String pc : patternComponents) {
+            FieldWriter writer = null;
             if (pc.startsWith(ATTRIBUTE_BY_NAME_PREFIX)) {
-                appendAttributeByName(
-                    charBuffer,
-                    pc.substring(ATTRIBUTE_BY_NAME_PREFIX_LEN),
-                    hreq);
+                final String name = pc.substring(ATTRIBUTE_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-ATTRIBUTE-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendAttributeByName(cb, name, nullValue, hreq);
+                    }
+                };
             } else if (pc.startsWith(SESSION_ATTRIBUTE_BY_NAME_PREFIX)) {
-                appendSessionAttributeByName(
-                    charBuffer,
-                    pc.substring(SESSION_ATTRIBUTE_BY_NAME_PREFIX_LEN),
-                    hreq);
+                final String name = pc.substring(SESSION_ATTRIBUTE_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-SESSION-ATTRIBUTE-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendSessionAttributeByName(cb, name, nullValue, hreq);
+                    }
+                };
             } else if (AUTH_USER_NAME.equals(pc)) {
-                appendAuthUserName(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendAuthUserName(cb, hreq);
+                    }
+                };
             } else if (CLIENT_DNS.equals(pc)) {
-                appendClientDNS(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendClientDNS(cb, hreq);
+                    }
+                };
             } else if (CLIENT_NAME.equals(pc)) {
-                appendClientName(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendClientName(cb, hreq);
+                    }
+                };
             } else if (COOKIE.equals(pc)) {
-                appendCookie(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCookie(cb, hreq);
+                    }
+                };
             } else if (COOKIES.equals(pc)) {
-                appendCookies(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCookies(cb, hreq);
+                    }
+                };
             } else if (COOKIE_VALUE.equals(pc)) {
-                appendCookieValue(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCookieValue(cb, hreq);
+                    }
+                };
             } else if (pc.startsWith(COOKIE_BY_NAME_PREFIX)) {
-                appendCookieByName(charBuffer,
-                                   pc.substring(COOKIE_BY_NAME_PREFIX_LEN),
-                                   hreq);
+                final String name = pc.substring(COOKIE_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-COOKIE-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCookieByName(cb, name, nullValue, hreq);
+                    }
+                };
             } else if (pc.startsWith(COOKIES_BY_NAME_PREFIX)) {
-                appendCookiesByName(charBuffer,
-                                   pc.substring(COOKIES_BY_NAME_PREFIX_LEN),
-                                   hreq);
+                final String name = pc.substring(COOKIES_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-COOKIES-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCookiesByName(cb, name, nullValue, hreq);
+                    }
+                };
             } else if (DATE_TIME.equals(pc)) {
-                appendCurrentDate(charBuffer);       
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendCurrentDate(cb);
+                    }
+                };
             } else if (HEADER_ACCEPT.equals(pc)) {
-                appendHeaderAccept(charBuffer, hreq);
+                writer = new HeaderWriter(HTTP_HEADER_ACCEPT, "NULL-HEADER-ACCEPT");
             } else if (HEADER_AUTH.equals(pc)) {
-                appendHeaderAuth(charBuffer, hreq);
+                writer = new HeaderWriter(HTTP_HEADER_AUTHORIZATION,
+                                          "NULL-HEADER-AUTHORIZATION");
             } else if (HEADER_DATE.equals(pc)) {
-                appendHeaderDate(charBuffer, hreq);
+                writer = new HeaderWriter(HTTP_HEADER_DATE, "NULL-HEADER-DATE");
             } else if (HEADER_IF_MOD_SINCE.equals(pc)) {
-                appendHeaderIfModSince(charBuffer, hreq);
-            } else if (HEADER_USER_AGENT.equals(pc)) {
-                appendUserAgent(charBuffer, hreq);
-            } else if (HEADER_REFERER.equals(pc)) {
-                appendReferer(charBuffer, hreq);
+                writer = new HeaderWriter(HTTP_HEADER_IF_MODIFIED_SINCE,
+                                          "NULL-HEADER-IF-MODIFIED-SINCE");
+            } else if (HEADER_USER_AGENT.equals(pc) || USER_AGENT.equals(pc)) {
+                writer = new HeaderWriter("user-agent", "NULL-USER-AGENT");
+            } else if (HEADER_REFERER.equals(pc) || REFERER.equals(pc)) {
+                writer = new HeaderWriter("referer", "NULL-REFERER");
             } else if (HTTP_METHOD.equals(pc)) {
-                appendHTTPMethod(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendHTTPMethod(cb, hreq);
+                    }
+                };
             } else if (HTTP_URI.equals(pc)) {
-                appendHTTPUri(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendHTTPUri(cb, hreq);
+                    }
+                };
             } else if (HTTP_VERSION.equals(pc)) {
-                appendHTTPVersion(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendHTTPVersion(cb, hreq);
+                    }
+                };
             } else if (QUERY_STR.equals(pc)) {
-                appendQueryString(charBuffer, hreq);
-            } else if (REFERER.equals(pc)) {
-                appendReferer(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendQueryString(cb, hreq);
+                    }
+                };
             } else if (REQUEST.equals(pc)) {
-                appendRequestInfo(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendRequestInfo(cb, hreq);
+                    }
+                };
             } else if (RESPONSE_LENGTH.equals(pc)) {
-                appendResponseLength(charBuffer, response);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendResponseLength(cb, response);
+                    }
+                };
             } else if (RESPONSE_CONTENT_TYPE.equals(pc)) {
-                appendResponseContentType(charBuffer, response);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendResponseContentType(cb, response);
+                    }
+                };
             } else if (STATUS.equals(pc)) {
-                appendResponseStatus(charBuffer, response);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendResponseStatus(cb, response);
+                    }
+                };
             } else if (TIME_TAKEN.equals(pc)) {
-                appendTimeTaken(charBuffer, request);
-            } else if (USER_AGENT.equals(pc)) {
-                appendUserAgent(charBuffer, hreq);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendTimeTaken(cb, request);
+                    }
+                };
             } else if (VS_ID.equals(pc)) {
-                appendVirtualServerId(charBuffer);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendVirtualServerId(cb);
+                    }
+                };
             } else if (pc.startsWith(HEADER_BY_NAME_PREFIX)) {
-                appendHeaderByName(charBuffer,
-                                   pc.substring(HEADER_BY_NAME_PREFIX_LEN),
-                                   hreq);
+                String name = pc.substring(HEADER_BY_NAME_PREFIX_LEN);
+                writer = new HeaderWriter(name,
+                    "NULL-HEADER-" + name.toUpperCase(Locale.ENGLISH));
             } else if (pc.startsWith(HEADERS_BY_NAME_PREFIX)) {
-                appendHeadersByName(charBuffer,
-                                    pc.substring(HEADERS_BY_NAME_PREFIX_LEN),
-                                    hreq);
+                final String name = pc.substring(HEADERS_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-HEADERS-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendHeadersByName(cb, name, nullValue, hreq);
+                    }
+                };
             } else if (pc.startsWith(RESPONSE_HEADER_BY_NAME_PREFIX)) {
-                appendResponseHeaderByName(charBuffer,
-                    pc.substring(RESPONSE_HEADER_BY_NAME_PREFIX_LEN), hres, response);
+                final String name = pc.substring(RESPONSE_HEADER_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-RESPONSE-HEADER-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendResponseHeaderByName(cb, name, nullValue, hres, response);
+                    }
+                };
             } else if (pc.startsWith(RESPONSE_HEADERS_BY_NAME_PREFIX)) {
-                appendResponseHeadersByName(charBuffer,
-                    pc.substring(RESPONSE_HEADERS_BY_NAME_PREFIX_LEN), hres, response);
+                final String name = pc.substring(RESPONSE_HEADERS_BY_NAME_PREFIX_LEN);
+                final String nullValue = "NULL-RESPONSE-HEADERS-" + name.toUpperCase(Locale.ENGLISH);
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                        appendResponseHeadersByName(cb, name, nullValue, hres, response);
+                    }
+                };
+            } else {
+                // Not reached, parsePattern rejects unknown components
+                writer = new FieldWriter() {
+                    void append(CharBuffer cb, Request request, Response response,
+                                HttpServletRequest hreq, HttpServletResponse hres) {
+                    }
+                };
             }
+            writers[i++] = writer;
+        }
 
-            charBuffer.put(SPACE);
+        return writers;
+    }
+
+    /*
+     * Writes the quoted value of the request header with the given name, or
+     * the given null value if the request has no such header.
+     */
+    private static final class HeaderWriter extends FieldWriter {
+
+        private final String headerName;
+        private final String nullValue;
+
+        HeaderWriter(String headerName, String nullValue) {
+            this.headerName = headerName;
+            this.nullValue = nullValue;
+        }
+
+        void append(CharBuffer cb, Request request, Response response,
+                    HttpServletRequest hreq, HttpServletResponse hres) {
+            cb.put(QUOTE);
+            String value = hreq.getHeader(headerName);
+            cb.put(value != null ? value : nullValue);
+            cb.put(QUOTE);
         }
     }
 
@@ -372,6 +514,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendAttributeByName(CharBuffer cb,
                                        String attributeName,
+                                       String nullValue,
                                        HttpServletRequest hreq) {
         if (attributeName == null) {
             throw new IllegalArgumentException("Null request attribute name");
@@ -382,7 +525,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         if (attrValue != null) {
             cb.put(attrValue.toString());
         } else {
-            cb.put("NULL-ATTRIBUTE-" + attributeName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -396,6 +539,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendSessionAttributeByName(CharBuffer cb,
                                               String attributeName,
+                                              String nullValue,
                                               HttpServletRequest hreq) {
         if (attributeName == null) {
             throw new IllegalArgumentException("Null session attribute name");
@@ -408,8 +552,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             if (attrValue != null) {
                 cb.put(attrValue.toString());
             } else {
-                cb.put("NULL-SESSION-ATTRIBUTE-" +
-                       attributeName.toUpperCase(Locale.ENGLISH));
+                cb.put(nullValue);
             }
         } else {
             cb.put("NULL-SESSION");
@@ -463,16 +606,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCurrentDate(CharBuffer cb) {
         cb.put(QUOTE);
-        Date date = getDate();
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
+        cb.put(getFormattedDate());
         cb.put(QUOTE);
     }
 
@@ -488,9 +622,10 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             uri = "NULL-HTTP-URI";
         }
         cb.put(uri);
-        if (hreq.getQueryString() != null) {
+        String query = hreq.getQueryString();
+        if (query != null) {
             cb.put('?');
-            cb.put(hreq.getQueryString());
+            cb.put(query);
         }
         cb.put(SPACE);
         cb.put(hreq.getProtocol());
@@ -501,7 +636,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the response status to the given char buffer.
      */
     private void appendResponseStatus(CharBuffer cb, Response response) {
-        cb.put(String.valueOf(((HttpResponse) response).getStatus()));
+        appendNumber(cb, ((HttpResponse) response).getStatus());
     }
 
     /*
@@ -509,7 +644,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * buffer.
      */
     private void appendResponseLength(CharBuffer cb, Response response) {
-        cb.put("" + response.getContentCount());
+        appendNumber(cb, response.getContentCount());
     }
 
     /*
@@ -520,128 +655,22 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         cb.put(response.getContentType());
     }
 
-    /*
-     * Appends the value of the 'user-agent' header of the given request to
-     * the given char buffer.
-     */
-    private void appendUserAgent(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String ua = hreq.getHeader("user-agent");
-        if (ua == null) {
-            ua = "NULL-USER-AGENT";
-        }
-        cb.put(ua);
-        cb.put(QUOTE);
-    }
-
     /*
      * Appends the time (in milliseconds) it has taken to service the given
      * request to the given char buffer.
      */
     private void appendTimeTaken(CharBuffer cb, Request req) {
 
-        String timeTaken = "NULL-TIME-TAKEN";
-
         cb.put(QUOTE);
         Long startTimeObj = (Long) req.getNote(
             Constants.REQUEST_START_TIME_NOTE);
         if (startTimeObj != null) {
             long startTime = startTimeObj.longValue();
             long endTime = System.currentTimeMillis();
-            timeTaken = String.valueOf(endTime - startTime);
-        } 
-        cb.put(timeTaken);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the value of the 'referer' header of the given request to
-     * the given char buffer.
-     */
-    private void appendReferer(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String referer = hreq.getHeader("referer");
-        if (referer == null) {
-            referer = "NULL-REFERER";
-        }
-        cb.put(referer);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Accept header of the given request to the given char
-     * buffer.
-     */
-    private void appendHeaderAccept(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String accept = hreq.getHeader(HTTP_HEADER_ACCEPT);
-        if (accept == null) {
-            accept = "NULL-HEADER-ACCEPT";
-        }
-        cb.put(accept);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Authorization header of the given request to the given char
-     * buffer.
-     */
-    private void appendHeaderAuth(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String auth = hreq.getHeader(HTTP_HEADER_AUTHORIZATION);
-        if (auth == null) {
-            auth = "NULL-HEADER-AUTHORIZATION";
-        }
-        cb.put(auth);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the Date header of the given request to the given char buffer.
-     */
-    private void appendHeaderDate(CharBuffer cb, HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String date = hreq.getHeader(HTTP_HEADER_DATE);
-        if (date == null) {
-            date = "NULL-HEADER-DATE";
-        }
-        cb.put(date);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the If-Modified-Since header of the given request to the
-     * given char buffer.
-     */
-    private void appendHeaderIfModSince(CharBuffer cb,
-                                        HttpServletRequest hreq) {
-        cb.put(QUOTE);
-        String ifModSince = hreq.getHeader(HTTP_HEADER_IF_MODIFIED_SINCE);
-        if (ifModSince == null) {
-            ifModSince = "NULL-HEADER-IF-MODIFIED-SINCE";
-        }
-        cb.put(ifModSince);
-        cb.put(QUOTE);
-    }
-
-    /*
-     * Appends the value of the header with the specified name in the given
-     * request to the given char buffer, or NULL-HEADER-<headerName> if no
-     * header with the given name is present in the request..
-     */
-    private void appendHeaderByName(CharBuffer cb,
-                                    String headerName,
-                                    HttpServletRequest hreq) {
-        if (headerName == null) {
-            throw new IllegalArgumentException("Null request header name");
-        }
-
-        cb.put(QUOTE);
-        String value = hreq.getHeader(headerName);
-        if (value == null) {
-            value = "NULL-HEADER-" + headerName.toUpperCase(Locale.ENGLISH);
+            appendNumber(cb, endTime - startTime);
+        } else {
+            cb.put("NULL-TIME-TAKEN");
         }
-        cb.put(value);
         cb.put(QUOTE);
     }
 
@@ -653,6 +682,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendResponseHeaderByName(CharBuffer cb,
                                             String headerName,
+                                            String nullValue,
                                             HttpServletResponse hres, Response response) {
         if (headerName == null) {
             throw new IllegalArgumentException("Null response header name");
@@ -660,16 +690,15 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
 
         cb.put(QUOTE);
         String value = hres.getHeader(headerName);
-        if (value == null) {
-            if (headerName.equalsIgnoreCase("Content-Type")) {
-                value = hres.getContentType();
-            } else if (headerName.equalsIgnoreCase("Content-Length")) {
-                value = ""+response.getContentLength();
-            } else {
-                value = "NULL-RESPONSE-HEADER-" + headerName.toUpperCase(Locale.ENGLISH);
-            }
+        if (value != null) {
+            cb.put(value);
+        } else if (headerName.equalsIgnoreCase("Content-Type")) {
+            cb.put(hres.getContentType());
+        } else if (headerName.equalsIgnoreCase("Content-Length")) {
+            appendNumber(cb, response.getContentLength());
+        } else {
+            cb.put(nullValue);
         }
-        cb.put(value);
         cb.put(QUOTE);
     }
 
@@ -681,6 +710,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendHeadersByName(CharBuffer cb,
                                      String headerName,
+                                     String nullValue,
                                      HttpServletRequest hreq) {
         if (headerName == null) {
             throw new IllegalArgumentException("Null request header name");
@@ -699,10 +729,10 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
                 cb.put(e.nextElement().toString());
             }
             if (first) {
-                cb.put("NULL-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
+                cb.put(nullValue);
             }
         } else {
-            cb.put("NULL-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -714,7 +744,8 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * are present in the response.
      */
     private void appendResponseHeadersByName(CharBuffer cb,
-            String headerName, HttpServletResponse hres, Response response) {
+            String headerName, String nullValue, HttpServletResponse hres,
+            Response response) {
         if (headerName == null) {
             throw new IllegalArgumentException("Null response header name");
         }
@@ -731,20 +762,18 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
                 }
                 cb.put(value);
             }
-        } else {
-            String value = null;
-            if (headerName.equalsIgnoreCase("Content-Type")) {
-                value = hres.getContentType();
-            } else if (headerName.equalsIgnoreCase("Content-Length")) {
-                value = ""+response.getContentLength();
-            }
+        } else if (headerName.equalsIgnoreCase("Content-Type")) {
+            String value = hres.getContentType();
             if (value != null) {
                 first = false;
                 cb.put(value);
             }
+        } else if (headerName.equalsIgnoreCase("Content-Length")) {
+            first = false;
+            appendNumber(cb, response.getContentLength());
         }
         if (first) {
-            cb.put("NULL-RESPONSE-HEADERS-" + headerName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -756,12 +785,12 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCookie(CharBuffer cb, HttpServletRequest hreq) {
         cb.put(QUOTE);
-        String cookie = "NULL-COOKIE";
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
-            cookie = cookies[0].getName() + "=" + cookies[0].getValue();
+            appendCookieNameValue(cb, cookies[0]);
+        } else {
+            cb.put("NULL-COOKIE");
         }
-        cb.put(cookie);
         cb.put(QUOTE);
     }
 
@@ -775,7 +804,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
             for (int i=0; i<cookies.length; i++) {
-                cb.put(cookies[i].getName() + "=" + cookies[i].getValue());
+                appendCookieNameValue(cb, cookies[i]);
                 if (i<cookies.length-1) {
                     cb.put(";");
                 }
@@ -786,6 +815,17 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         cb.put(QUOTE);
     }
 
+    /*
+     * Appends the name and value (separated by '=') of the given cookie to
+     * the given char buffer.
+     */
+    private static void appendCookieNameValue(CharBuffer cb, Cookie cookie) {
+        cb.put(cookie.getName());
+        cb.put('=');
+        String value = cookie.getValue();
+        cb.put(value != null ? value : "null");
+    }
+
     /*
      * Appends the value of the first cookie in the given request to the
      * given char buffer, or NULL-COOKIE-VALUE if no cookies are present
@@ -809,6 +849,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCookieByName(CharBuffer cb,
                                     String cookieName,
+                                    String nullValue,
                                     HttpServletRequest hreq) {
         if (cookieName == null) {
             throw new IllegalArgumentException("Null request cookie name");
@@ -826,7 +867,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
             }
         }
         if (cookieValue == null) {
-            cookieValue = "NULL-COOKIE-" + cookieName.toUpperCase(Locale.ENGLISH);
+            cookieValue = nullValue;
         }
 
         cb.put(cookieValue);
@@ -840,6 +881,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCookiesByName(CharBuffer cb,
                                      String cookieName,
+                                     String nullValue,
                                      HttpServletRequest hreq) {
         if (cookieName == null) {
             throw new IllegalArgumentException("Null request cookie name");
@@ -860,7 +902,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
                 }
             }
         } else {
-            cb.put("NULL-COOKIES-" + cookieName.toUpperCase(Locale.ENGLISH));
+            cb.put(nullValue);
         }
         cb.put(QUOTE);
     }
@@ -1547,4 +1547,16 @@ public class LogFacade {
         message = "Exception getting Validator Factory from JNDI: {0}",
         level = "WARNING")
     public static final String EXCEPTION_GETTING_VALIDATOR_FACTORY = prefix + "00285";
+
+    @LogMessageInfo(
+            message = "{0} access log entries of {1} were dropped because the access log writer could not keep up",
+            level = "WARNING",
+            cause = "The access log entries are produced faster than they can be written to the access log file",
+            action = "Increase accessLogBufferSize or set accessLogOverflowPolicy to block")
+    public static final String ACCESS_LOG_ENTRIES_DROPPED = prefix + "00286";
+
+    @LogMessageInfo(
+            message = "Invalid accessLogOverflowPolicy value [{0}]",
+            level = "WARNING")
+    public static final String INVALID_ACCESS_LOG_OVERFLOW_POLICY = prefix + "00287";
 }
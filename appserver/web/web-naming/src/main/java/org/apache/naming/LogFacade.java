@@ -189,4 +189,16 @@ public class LogFacade {
             message = "Invalid or unreadable WAR file : {0}",
             level = "INFO")
     public static final String INVALID_WAR = prefix + "00028";
+
+    @LogMessageInfo(
+            message = "Unable to watch directory {0} for changes: {1}",
+            level = "FINE")
+    public static final String UNABLE_TO_WATCH_DIRECTORY = prefix + "00029";
+
+    @LogMessageInfo(
+            message = "Unable to create a file system watch service, cached resources will be revalidated after the cache TTL",
+            cause = "The file system watch service is not supported or not available",
+            action = "Check the limits of the operating system on the number of file watches",
+            level = "WARNING")
+    public static final String RESOURCE_WATCH_SERVICE_UNAVAILABLE = prefix + "00030";
 }
@@ -17,6 +17,8 @@
 
 package org.apache.naming.resources;
 
+import java.nio.ByteBuffer;
+
 import javax.naming.directory.DirContext;
 
 /**
@@ -39,6 +41,8 @@ public class CacheEntry {
     public boolean exists = true;
     public long accessCount = 0;
     public int size = 1;
+    public volatile boolean watched = false;
+    public volatile ByteBuffer mappedContent = null;
 
 
     // ----------------------------------------------------- Public Methods
@@ -53,6 +57,8 @@ public class CacheEntry {
         exists = true;
         accessCount = 0;
         size = 1;
+        watched = false;
+        mappedContent = null;
     }
 
 
@@ -18,6 +18,7 @@
 package org.apache.naming.resources;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -115,6 +116,16 @@ public class ProxyDirContext implements DirContext {
     protected ResourceCache cache = null;
 
 
+    /**
+     * Watcher of the files of the cached resources, if the resources are
+     * files.
+     */
+    private volatile ResourceWatcher watcher = null;
+
+
+    private volatile boolean released = false;
+
+
     /**
      * Cache TTL.
      */
@@ -1369,6 +1380,19 @@ public class ProxyDirContext implements DirContext {
     }
 
 
+    /**
+     * Stops watching the files of the cached resources.
+     */
+    public void release() {
+        released = true;
+        ResourceWatcher w = watcher;
+        if (w != null) {
+            watcher = null;
+            w.release();
+        }
+    }
+
+
     // ------------------------------------------------------ Protected Methods
 
 
@@ -1433,6 +1457,10 @@ public class ProxyDirContext implements DirContext {
      * Validate entry.
      */
     protected boolean validate(CacheEntry entry) {
+        if (entry.watched) {
+            // Unloaded as soon as its file changes
+            return true;
+        }
         if (((!entry.exists)
              || (entry.context != null)
              || ((entry.resource != null) 
@@ -1483,6 +1511,16 @@ public class ProxyDirContext implements DirContext {
 
         String name = entry.name;
 
+        // Watch the directory before reading the resource, so that no
+        // change goes unnoticed
+        ResourceWatcher w = getWatcher();
+        long modCount = 0;
+        boolean watched = false;
+        if (w != null) {
+            modCount = w.getModCount();
+            watched = w.watch(name);
+        }
+
         // Retrieve missing info
         boolean exists = true;
 
@@ -1560,26 +1598,46 @@ public class ProxyDirContext implements DirContext {
         // Set timestamp
         entry.timestamp = System.currentTimeMillis() + cacheTTL;
 
-        // Add new entry to cache
-        synchronized (cache) {
-            // Check cache size, and remove elements if too big
-            if ((cache.lookup(name) == null) && cache.allocate(entry.size)) {
-                cache.load(entry);
-            }
+        // Add new entry to cache, removing elements if too big
+        entry.watched = watched && (w.getModCount() == modCount);
+        if ((!exists || cache.allocate(entry.size)) && cache.load(entry)
+                && entry.watched && (w.getModCount() != modCount)) {
+            // A change was reported while the entry was added
+            entry.watched = false;
         }
 
     }
 
 
+    /**
+     * Returns the watcher of the files of the cached resources, or null if
+     * the resources are not files.
+     */
+    private ResourceWatcher getWatcher() {
+        ResourceWatcher w = watcher;
+        if (w == null && !released && (dirContext instanceof FileDirContext)) {
+            File base = ((FileDirContext) dirContext).base;
+            if (base != null) {
+                synchronized (this) {
+                    w = watcher;
+                    if (w == null) {
+                        w = new ResourceWatcher(base, cache);
+                        watcher = w;
+                    }
+                }
+            }
+        }
+        return w;
+    }
+
+
     /**
      * Remove entry from cache.
      */
     protected boolean cacheUnload(String name) {
         if (cache == null)
             return false;
-        synchronized (cache) {
-            return cache.unload(name);
-        }
+        return cache.unload(name);
     }
 
 
@@ -17,10 +17,20 @@
 
 package org.apache.naming.resources;
 
-import java.util.HashMap;
-import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Implements a special purpose cache.
+ * <p>
+ * The entries of existing resources and the entries of missing resources
+ * are kept in two concurrent maps, so lookups never wait. The size of the
+ * existing entries is bounded by the cache max size in KB, each entry
+ * weighing 1 KB plus the size of its cached content; when it is exceeded,
+ * the least accessed entries are evicted, with their access counts aging
+ * at each eviction pass. The missing entries are bounded by their count.
  * 
  * @author <a href="mailto:remm@apache.org">Remy Maucherat</a>
  * @version $Revision: 1.3 $
@@ -36,26 +46,28 @@ public class ResourceCache {
     
     
     // ----------------------------------------------------- Instance Variables
-      
-    
+
+
     /**
-     * Random generator used to determine elements to free.
+     * Max number of passes over the cache during a space allocation, after
+     * which the remaining space is freed regardless of the access counts.
      */
-    protected SecureRandom random = new SecureRandom();
-    
+    private static final int MAX_EVICTION_PASSES = 8;
+      
     
     /**
      * Cache.
      * Path -> Cache entry.
      */
-    protected CacheEntry[] cache = new CacheEntry[0];
+    protected final ConcurrentHashMap<String, CacheEntry> cache =
+        new ConcurrentHashMap<String, CacheEntry>();
 
 
     /**
      * Not found cache.
      */
-    protected HashMap<String, CacheEntry> notFoundCache =
-        new HashMap<String, CacheEntry>();
+    protected final ConcurrentHashMap<String, CacheEntry> notFoundCache =
+        new ConcurrentHashMap<String, CacheEntry>();
 
 
     /**
@@ -65,40 +77,45 @@ public class ResourceCache {
 
 
     /**
-     * Max amount of removals during a make space.
+     * Max amount of not found entries.
      */
-    protected int maxAllocateIterations = 20;
+    protected int spareNotFoundEntries = 500;
 
 
     /**
-     * Entry hit ratio at which an entry will never be removed from the cache.
-     * Compared with entry.access / hitsCount
+     * Current cache size in KB.
      */
-    protected long desiredEntryAccessRatio = 3;
+    protected final AtomicInteger cacheSize = new AtomicInteger();
 
 
     /**
-     * Spare amount of not found entries.
+     * Number of accesses to the cache.
      */
-    protected int spareNotFoundEntries = 500;
+    protected final LongAdder accessCount = new LongAdder();
 
 
     /**
-     * Current cache size in KB.
+     * Number of cache hits.
      */
-    protected int cacheSize = 0;
+    protected final LongAdder hitsCount = new LongAdder();
 
 
     /**
-     * Number of accesses to the cache.
+     * Number of cache hits on not found entries.
      */
-    protected long accessCount = 0;
+    protected final LongAdder notFoundHitsCount = new LongAdder();
 
 
     /**
-     * Number of cache hits.
+     * Number of entries evicted to make space.
      */
-    protected long hitsCount = 0;
+    protected final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * Lock serializing the evictions.
+     */
+    private final Object evictionLock = new Object();
 
 
     // ------------------------------------------------------------- Properties
@@ -106,11 +123,9 @@ public class ResourceCache {
 
     /**
      * Return the access count.
-     * Note: Update is not synced, so the number may not be completely 
-     * accurate.
      */
     public long getAccessCount() {
-        return accessCount;
+        return accessCount.sum();
     }
 
 
@@ -134,54 +149,57 @@ public class ResourceCache {
      * Return the current cache size in KB.
      */
     public int getCacheSize() {
-        return cacheSize;
+        return cacheSize.get();
     }
 
 
     /**
-     * Return desired entry access ratio.
+     * Return the number of cache hits, including the hits on not found
+     * entries.
      */
-    public long getDesiredEntryAccessRatio() {
-        return desiredEntryAccessRatio;
+    public long getHitsCount() {
+        return hitsCount.sum();
     }
 
 
     /**
-     * Set the desired entry access ratio.
+     * Return the number of cache hits on not found entries.
      */
-    public void setDesiredEntryAccessRatio(long desiredEntryAccessRatio) {
-        this.desiredEntryAccessRatio = desiredEntryAccessRatio;
+    public long getNotFoundHitsCount() {
+        return notFoundHitsCount.sum();
     }
 
 
     /**
-     * Return the number of cache hits.
-     * Note: Update is not synced, so the number may not be completely 
-     * accurate.
+     * Return the number of entries evicted to make space.
      */
-    public long getHitsCount() {
-        return hitsCount;
+    public long getEvictionCount() {
+        return evictionCount.sum();
     }
 
 
     /**
-     * Return the maximum amount of iterations during a space allocation.
+     * Return the percentage of the accesses which were cache hits.
      */
-    public int getMaxAllocateIterations() {
-        return maxAllocateIterations;
+    public int getHitRatio() {
+        long accesses = accessCount.sum();
+        if (accesses == 0) {
+            return 0;
+        }
+        return (int) ((hitsCount.sum() * 100) / accesses);
     }
 
 
     /**
-     * Set the maximum amount of iterations during a space allocation.
+     * Return the number of not found entries.
      */
-    public void setMaxAllocateIterations(int maxAllocateIterations) {
-        this.maxAllocateIterations = maxAllocateIterations;
+    public int getNotFoundCacheSize() {
+        return notFoundCache.size();
     }
 
 
     /**
-     * Return the amount of spare not found entries.
+     * Return the max amount of not found entries.
      */
     public int getSpareNotFoundEntries() {
         return spareNotFoundEntries;
@@ -189,7 +207,7 @@ public class ResourceCache {
 
 
     /**
-     * Set the amount of spare not found entries.
+     * Set the max amount of not found entries.
      */
     public void setSpareNotFoundEntries(int spareNotFoundEntries) {
         this.spareNotFoundEntries = spareNotFoundEntries;
@@ -199,88 +217,57 @@ public class ResourceCache {
     // --------------------------------------------------------- Public Methods
 
 
+    /**
+     * Makes space for an entry of the given size, evicting entries if
+     * needed.
+     *
+     * @return false if the entry is too large to be cached
+     */
     public boolean allocate(int space) {
 
-        int toFree = space - (cacheMaxSize - cacheSize);
-
-        if (toFree <= 0) {
-            return true;
-        }
-
-        // Increase the amount to free so that allocate won't have to run right
-        // away again
-        toFree += (cacheMaxSize / 20);
-
-        int size = notFoundCache.size();
-        if (size > spareNotFoundEntries) {
-            notFoundCache.clear();
-            cacheSize -= size;
-            toFree -= size;
+        if (space > cacheMaxSize) {
+            return false;
         }
-
-        if (toFree <= 0) {
+        if (cacheSize.get() + space <= cacheMaxSize) {
             return true;
         }
 
-        int attempts = 0;
-        int entriesFound = 0;
-        long totalSpace = 0;
-        int[] toRemove = new int[maxAllocateIterations];
-        while (toFree > 0) {
-            if (attempts == maxAllocateIterations) {
-                // Give up, no changes are made to the current cache
-                return false;
-            }
-            if (toFree > 0) {
-                // Randomly select an entry in the array
-                int entryPos = -1;
-                boolean unique = false;
-                int count = 0;
-                while (!unique) {
-                    unique = true;
-                    entryPos = random.nextInt(cache.length) ;
-                    // Guarantee uniqueness
-                    for (int i = 0; i < entriesFound; i++) {
-                        if (toRemove[i] == entryPos) {
-                            unique = false;
-                        }
-                    }
-                }
-                long entryAccessRatio = 
-                    ((cache[entryPos].accessCount * 100) / accessCount);
-                if (entryAccessRatio < desiredEntryAccessRatio) {
-                    toRemove[entriesFound] = entryPos;
-                    totalSpace += cache[entryPos].size;
-                    toFree -= cache[entryPos].size;
-                    entriesFound++;
-                }
+        synchronized (evictionLock) {
+
+            int toFree = cacheSize.get() + space - cacheMaxSize;
+            if (toFree <= 0) {
+                return true;
             }
-            attempts++;
-        }
 
-        // Now remove the selected entries
-        java.util.Arrays.sort(toRemove, 0, entriesFound);
-        CacheEntry[] newCache = new CacheEntry[cache.length - entriesFound];
-        int pos = 0;
-        int n = -1;
-        if (entriesFound > 0) {
-            n = toRemove[0];
-            for (int i = 0; i < cache.length; i++) {
-                if (i == n) {
-                    if ((pos + 1) < entriesFound) {
-                        n = toRemove[pos + 1];
-                        pos++;
-                    } else {
-                        pos++;
-                        n = -1;
+            // Increase the amount to free so that allocate won't have to run
+            // right away again
+            toFree += (cacheMaxSize / 20);
+
+            // Evict the entries accessed less than the threshold, and age
+            // the others, raising the threshold at each pass
+            long threshold = 1;
+            for (int pass = 0; toFree > 0; pass++) {
+                boolean last = (pass == MAX_EVICTION_PASSES);
+                Iterator<CacheEntry> it = cache.values().iterator();
+                while (toFree > 0 && it.hasNext()) {
+                    CacheEntry entry = it.next();
+                    if (!last && entry.accessCount >= threshold) {
+                        entry.accessCount >>= 1;
+                        continue;
                     }
-                } else {
-                    newCache[i - pos] = cache[i];
+                    if (cache.remove(entry.name, entry)) {
+                        entry.mappedContent = null;
+                        cacheSize.addAndGet(-entry.size);
+                        toFree -= entry.size;
+                        evictionCount.increment();
+                    }
+                }
+                if (last) {
+                    break;
                 }
+                threshold <<= 2;
             }
         }
-        cache = newCache;
-        cacheSize -= totalSpace;
 
         return true;
 
@@ -289,134 +276,91 @@ public class ResourceCache {
 
     public CacheEntry lookup(String name) {
 
-        CacheEntry cacheEntry = null;
-        accessCount++;
-        int pos = find(cache, name);
-        if ((pos != -1) && (name.equals(cache[pos].name))) {
-            cacheEntry = cache[pos];
-        }
+        accessCount.increment();
+        CacheEntry cacheEntry = cache.get(name);
         if (cacheEntry == null) {
-            try {
-                cacheEntry = notFoundCache.get(name);
-            } catch (Exception e) {
-                // Ignore: the reliability of this lookup is not critical
+            cacheEntry = notFoundCache.get(name);
+            if (cacheEntry != null) {
+                notFoundHitsCount.increment();
             }
         }
         if (cacheEntry != null) {
-            hitsCount++;
+            hitsCount.increment();
         }
         return cacheEntry;
 
     }
 
 
-    public void load(CacheEntry entry) {
+    /**
+     * Adds the given entry, unless an entry with the same name is already
+     * cached.
+     *
+     * @return true if the entry was added
+     */
+    public boolean load(CacheEntry entry) {
         if (entry.exists) {
-            if (insertCache(entry)) {
-                cacheSize += entry.size;
+            if (cache.putIfAbsent(entry.name, entry) == null) {
+                cacheSize.addAndGet(entry.size);
+                return true;
+            }
+            return false;
+        }
+
+        if (notFoundCache.size() >= spareNotFoundEntries) {
+            // Drop a tenth of the entries, whichever they are
+            int toRemove = Math.max(1, spareNotFoundEntries / 10);
+            Iterator<String> it = notFoundCache.keySet().iterator();
+            while (toRemove-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
             }
-        } else {
-            int sizeIncrement = (notFoundCache.get(entry.name) == null) ? 1 : 0;
-            notFoundCache.put(entry.name, entry);
-            cacheSize += sizeIncrement;
         }
+        return (notFoundCache.putIfAbsent(entry.name, entry) == null);
     }
 
 
     public boolean unload(String name) {
-        CacheEntry removedEntry = removeCache(name);
+        CacheEntry removedEntry = cache.remove(name);
         if (removedEntry != null) {
-            cacheSize -= removedEntry.size;
-            return true;
-        } else if (notFoundCache.remove(name) != null) {
-            
-            cacheSize--;
+            // Let go of the mapping of the file, which a request still
+            // holding the entry would map again
+            removedEntry.mappedContent = null;
+            cacheSize.addAndGet(-removedEntry.size);
             return true;
         }
-        return false;
+        return (notFoundCache.remove(name) != null);
     }
 
 
     /**
-     * Find a map elemnt given its name in a sorted array of map elements.
-     * This will return the index for the closest inferior or equal item in the
-     * given array.
+     * Removes the entry with the given name, and the entries of the
+     * resources below it.
      */
-    private static final int find(CacheEntry[] map, String name) {
-
-        int a = 0;
-        int b = map.length - 1;
-
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
-        if (name.compareTo(map[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
-        }
-
-        int i = 0;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = name.compareTo(map[i].name);
-            if (result > 0) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = name.compareTo(map[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
+    public void unloadTree(String name) {
+        unload(name);
+        String prefix = name.endsWith("/") ? name : name + "/";
+        for (String key : cache.keySet()) {
+            if (key.startsWith(prefix)) {
+                unload(key);
             }
         }
-
-    }
-
-
-    /**
-     * Insert into the right place in a sorted MapElement array, and prevent
-     * duplicates.
-     */
-    private final boolean insertCache(CacheEntry newElement) {
-        CacheEntry[] oldCache = cache;
-        int pos = find(oldCache, newElement.name);
-        if ((pos != -1) && (newElement.name.equals(oldCache[pos].name))) {
-            return false;
+        for (String key : notFoundCache.keySet()) {
+            if (key.startsWith(prefix)) {
+                notFoundCache.remove(key);
+            }
         }
-        CacheEntry[] newCache = new CacheEntry[cache.length + 1];
-        System.arraycopy(oldCache, 0, newCache, 0, pos + 1);
-        newCache[pos + 1] = newElement;
-        System.arraycopy
-            (oldCache, pos + 1, newCache, pos + 2, oldCache.length - pos - 1);
-        cache = newCache;
-        return true;
     }
 
 
     /**
-     * Insert into the right place in a sorted MapElement array.
+     * Removes all the entries.
      */
-    private final CacheEntry removeCache(String name) {
-        CacheEntry[] oldCache = cache;
-        int pos = find(oldCache, name);
-        if ((pos != -1) && (name.equals(oldCache[pos].name))) {
-            CacheEntry[] newCache = new CacheEntry[cache.length - 1];
-            System.arraycopy(oldCache, 0, newCache, 0, pos);
-            System.arraycopy(oldCache, pos + 1, newCache, pos, 
-                             oldCache.length - pos - 1);
-            cache = newCache;
-            return oldCache[pos];
+    public void clear() {
+        for (String key : cache.keySet()) {
+            unload(key);
         }
-        return null;
+        notFoundCache.clear();
     }
 
 
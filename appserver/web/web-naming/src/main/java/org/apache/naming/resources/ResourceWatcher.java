@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.apache.naming.resources;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.naming.LogFacade;
+
+/**
+ * Removes the entries of a resource cache when the files they were loaded
+ * from change, so that the entries need not be revalidated.
+ * <p>
+ * The directories holding the cached resources are registered with a
+ * <code>WatchService</code> shared by all the caches, whose events are
+ * processed by a single daemon thread. An entry is only known to be up to
+ * date if its directory was registered before the entry was loaded, and if
+ * no change was reported while it was loaded; the other entries are
+ * revalidated after the cache TTL, as before.
+ */
+final class ResourceWatcher {
+
+    private static final Logger logger = LogFacade.getLogger();
+
+    private static WatchService watchService;
+
+    private static boolean unavailable;
+
+    /**
+     * The watched directories, by key. Two caches of the same document base
+     * share the key of a directory.
+     */
+    private static final Map<WatchKey, List<Directory>> directories =
+        new HashMap<WatchKey, List<Directory>>();
+
+
+    private final Path base;
+
+    private final ResourceCache cache;
+
+    /**
+     * The watched directories of this cache, by context-relative name.
+     */
+    private final ConcurrentHashMap<String, Directory> watched =
+        new ConcurrentHashMap<String, Directory>();
+
+    /**
+     * The number of changes reported so far.
+     */
+    private final AtomicLong modCount = new AtomicLong();
+
+    private volatile boolean released;
+
+
+    ResourceWatcher(File base, ResourceCache cache) {
+        this.base = base.toPath().toAbsolutePath().normalize();
+        this.cache = cache;
+    }
+
+
+    /**
+     * Returns the number of changes reported so far, which is compared
+     * before and after an entry is loaded to detect a change it may have
+     * missed.
+     */
+    long getModCount() {
+        return modCount.get();
+    }
+
+
+    /**
+     * Watches the directory holding the resource with the given name.
+     *
+     * @return true if the directory is watched
+     */
+    boolean watch(String name) {
+
+        if (released) {
+            return false;
+        }
+
+        String dirName = getParentName(name);
+        Directory dir = watched.get(dirName);
+        if (dir != null) {
+            return true;
+        }
+
+        WatchService ws = getWatchService();
+        if (ws == null) {
+            return false;
+        }
+
+        Path path = base.resolve(dirName.startsWith("/") ?
+            dirName.substring(1) : dirName).normalize();
+        if (!path.startsWith(base) || !Files.isDirectory(path)) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (watched.containsKey(dirName)) {
+                return true;
+            }
+            WatchKey key;
+            try {
+                key = path.register(ws, ENTRY_CREATE, ENTRY_DELETE,
+                                    ENTRY_MODIFY);
+            } catch (IOException e) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, LogFacade.UNABLE_TO_WATCH_DIRECTORY,
+                               new Object[] {path, e.toString()});
+                }
+                return false;
+            } catch (ClosedWatchServiceException e) {
+                return false;
+            }
+            dir = new Directory(this, dirName, key);
+            addDirectory(dir);
+            watched.put(dirName, dir);
+        }
+
+        if (released) {
+            release();
+            return false;
+        }
+        return true;
+
+    }
+
+
+    /**
+     * Stops watching the directories of the cache.
+     */
+    void release() {
+        released = true;
+        for (Directory dir : watched.values()) {
+            removeDirectory(dir);
+        }
+        watched.clear();
+    }
+
+
+    /**
+     * Returns the name of the directory holding the resource with the given
+     * name, or "" for the document base.
+     */
+    static String getParentName(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = name.lastIndexOf('/', end - 1);
+        return (slash <= 0) ? "" : name.substring(0, slash);
+    }
+
+
+    private static synchronized WatchService getWatchService() {
+        if (watchService == null && !unavailable) {
+            final WatchService ws;
+            try {
+                ws = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                unavailable = true;
+                logger.log(Level.WARNING,
+                           LogFacade.RESOURCE_WATCH_SERVICE_UNAVAILABLE, e);
+                return null;
+            } catch (UnsupportedOperationException e) {
+                unavailable = true;
+                logger.log(Level.WARNING,
+                           LogFacade.RESOURCE_WATCH_SERVICE_UNAVAILABLE, e);
+                return null;
+            }
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    processEvents(ws);
+                }
+            }, "ResourceWatcher");
+            thread.setDaemon(true);
+            // Prevent any app classloader being set as CCL
+            thread.setContextClassLoader(null);
+            thread.start();
+            watchService = ws;
+        }
+        return watchService;
+    }
+
+
+    private static synchronized void addDirectory(Directory dir) {
+        List<Directory> dirs = directories.get(dir.key);
+        if (dirs == null) {
+            dirs = new ArrayList<Directory>(1);
+            directories.put(dir.key, dirs);
+        }
+        dirs.add(dir);
+    }
+
+
+    private static synchronized void removeDirectory(Directory dir) {
+        List<Directory> dirs = directories.get(dir.key);
+        if (dirs != null && dirs.remove(dir) && dirs.isEmpty()) {
+            directories.remove(dir.key);
+            dir.key.cancel();
+        }
+    }
+
+
+    private static synchronized Directory[] getDirectories(WatchKey key) {
+        List<Directory> dirs = directories.get(key);
+        if (dirs == null) {
+            return new Directory[0];
+        }
+        return dirs.toArray(new Directory[dirs.size()]);
+    }
+
+
+    private static void processEvents(WatchService ws) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = ws.take();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            Directory[] dirs = getDirectories(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                for (Directory dir : dirs) {
+                    dir.changed(event);
+                }
+            }
+            if (!key.reset()) {
+                // The directory was deleted, or the key cancelled
+                for (Directory dir : dirs) {
+                    dir.invalidated();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A watched directory of a cache.
+     */
+    private static final class Directory {
+
+        private final ResourceWatcher watcher;
+        private final String name;
+        private final WatchKey key;
+
+        Directory(ResourceWatcher watcher, String name, WatchKey key) {
+            this.watcher = watcher;
+            this.name = name;
+            this.key = key;
+        }
+
+        void changed(WatchEvent<?> event) {
+            watcher.modCount.incrementAndGet();
+            ResourceCache cache = watcher.cache;
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == OVERFLOW) {
+                cache.clear();
+                return;
+            }
+            String childName = name + "/" + event.context();
+            if (kind == ENTRY_MODIFY) {
+                cache.unload(childName);
+                cache.unload(childName + "/");
+                return;
+            }
+            cache.unloadTree(childName);
+            // The listing of the directory changed
+            if (name.isEmpty()) {
+                cache.unload("");
+                cache.unload("/");
+            } else {
+                cache.unload(name);
+                cache.unload(name + "/");
+            }
+        }
+
+        void invalidated() {
+            watcher.modCount.incrementAndGet();
+            if (watcher.watched.remove(name, this)) {
+                removeDirectory(this);
+            }
+            if (name.isEmpty()) {
+                watcher.cache.clear();
+            } else {
+                watcher.cache.unloadTree(name);
+            }
+        }
+    }
+}
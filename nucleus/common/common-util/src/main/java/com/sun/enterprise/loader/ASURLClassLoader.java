@@ -100,6 +100,24 @@ public class ASURLClassLoader
     /** cache of not found classes */
     private final Map<String,String> notFoundClasses     = new ConcurrentHashMap<String,String>();
 
+    /**
+       package index: the jar url entries holding entries in a directory, keyed by directory
+       name, in search order.
+    */
+    private final Map<String,URLEntry[]> packageIndex    = new ConcurrentHashMap<String,URLEntry[]>();
+
+    /**
+       url entries which are not in the package index, in search order. They are directories,
+       whose contents may change, and must always be searched.
+    */
+    private volatile URLEntry[] unindexedEntries = new URLEntry[0];
+
+    /** position of the next url entry in the search order */
+    private int nextPosition = 0;
+
+    /** directory where the package indexes of the jars are saved, or null */
+    private volatile File indexDir;
+
     /**
         State flag to track whether this instance has been shut off.
 
@@ -124,6 +142,10 @@ public class ASURLClassLoader
 
     //holder for declared and ee permissions
     private PermsHolder permissionsHolder;
+
+    static {
+        registerAsParallelCapable();
+    }
     
     /**
      * Constructor.
@@ -149,6 +171,18 @@ public class ASURLClassLoader
         permissionsHolder = new PermsHolder();
     }
 
+    /**
+     * Sets the directory where the package indexes of the jars of this
+     * class loader are saved, so that they are read again instead of the
+     * jars as long as the jars do not change. Only the jars added
+     * afterwards are affected.
+     *
+     * @param indexDir the directory, or null to not save the indexes
+     */
+    public void setIndexDir(File indexDir) {
+        this.indexDir = indexDir;
+    }
+
     public boolean isDone() {
         // method need not by 'synchronized' because 'doneCalled' is 'volatile'.
         return doneCalled;
@@ -220,6 +254,8 @@ public class ASURLClassLoader
             // clears out the tables
             // Clear all values.  Because fields are 'final' (for thread safety), cannot null them
             this.urlSet.clear();
+            this.packageIndex.clear();
+            this.unindexedEntries = new URLEntry[0];
             if (this.notFoundResources != null) { this.notFoundResources.clear(); }
             if (this.notFoundClasses != null)   { this.notFoundClasses.clear();   }
         }
@@ -278,6 +314,7 @@ public class ASURLClassLoader
             if ( !urlSet.contains(entry) ) {
                 // adds the url entry to the list
                 this.urlSet.add(entry);
+                addToIndex(entry);
 
                 if (entry.isJar) {
                     // checks the manifest if a jar
@@ -311,6 +348,61 @@ public class ASURLClassLoader
         }
     }
 
+    /**
+     * Adds a url entry to the package index, after the entries added before.
+     * Caller must hold the lock of this class loader.
+     *
+     * @param entry the url entry
+     */
+    private void addToIndex(URLEntry entry) {
+        entry.position = nextPosition++;
+        if (!entry.isJar) {
+            unindexedEntries = append(unindexedEntries, entry);
+            return;
+        }
+        for (String dir : JarDirectoryIndex.getDirectories(entry.zip, entry.file, indexDir)) {
+            URLEntry[] entries = packageIndex.get(dir);
+            packageIndex.put(dir, (entries == null) ? new URLEntry[] { entry } : append(entries, entry));
+        }
+    }
+
+    private static URLEntry[] append(URLEntry[] entries, URLEntry entry) {
+        URLEntry[] result = Arrays.copyOf(entries, entries.length + 1);
+        result[entries.length] = entry;
+        return result;
+    }
+
+    /**
+     * Returns the url entries which may hold the given class or resource, in search order:
+     * the jars holding entries in its directory, and the directories.
+     *
+     * @param name the name of the class file or resource
+     * @return the url entries; the array must not be modified
+     */
+    private URLEntry[] getCandidates(String name) {
+        URLEntry[] jars = packageIndex.get(JarDirectoryIndex.getKey(name));
+        URLEntry[] dirs = unindexedEntries;
+        if (jars == null) {
+            return dirs;
+        }
+        if (dirs.length == 0) {
+            return jars;
+        }
+
+        // merges the two lists, which are both in search order
+        URLEntry[] result = new URLEntry[jars.length + dirs.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < result.length; k++) {
+            if (j == dirs.length || (i < jars.length && jars[i].position < dirs[j].position)) {
+                result[k] = jars[i++];
+            } else {
+                result[k] = dirs[j++];
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the urls of this class loader.
      *
@@ -492,14 +584,13 @@ public class ASURLClassLoader
             return null;
         }
 
-        // This code is dubious, because it iterates over items that could
-        // be changing via another thread.   It appears that since 'urlSet' cannot shrink
-        // that the iteration at least won't go out of bounds.  And it's probably OK
-        // if more than one thread adds the same resource to 'notFoundResources'.
+        // The url entries are searched without locking, because the package index
+        // hands out arrays which are never modified. It's probably OK if more than
+        // one thread adds the same resource to 'notFoundResources'.
         //
-        // HOWEVER, there is still a race condition from the check for 'doneCalled' above.
-        // That's OK for 'notFoundResources', but it could lead to an ArrayIndexOutOfBounds
-        // excpetion for 'urlSet', should the set be cleared while looping.
+        // There is still a race condition from the check for 'doneCalled' above,
+        // should the jars be closed while looping, in which case the resource is
+        // not found.
 
         // resource is in the not found list
         String nf = (String) notFoundResources.get(name);
@@ -507,16 +598,14 @@ public class ASURLClassLoader
             return null;
         }
 
-        synchronized(this) {
-            for (final URLEntry u : this.urlSet) {
-
-                if (!u.hasItem(name)) {
-                    continue;
-                }
+        for (final URLEntry u : getCandidates(name)) {
 
-                final URL url = findResource0(u, name);
-                if (url != null) return url;
+            if (!u.hasItem(name)) {
+                continue;
             }
+
+            final URL url = findResource0(u, name);
+            if (url != null) return url;
         }
 
         // add resource to the not found list
@@ -529,11 +618,10 @@ public class ASURLClassLoader
      * Returns an enumeration of java.net.URL objects
      * representing all the resources with the given name.
      *
-     * This method is synchronized to avoid (a) race condition checking 'doneCalled',
-     * (b) changes to contents or length of 'resourcesList' and/or 'notFoundResources' while iterating
-     * over them, (c) thread visibility to all of the above.
+     * Like findResource, this method searches the url entries given by the package index
+     * without locking.
      */
-    public synchronized Enumeration<URL>
+    public Enumeration<URL>
     findResources(String name) throws IOException {
         if( doneCalled ) {
             _logger.log(Level.WARNING, CULoggerInfo.doneAlreadyCalled,
@@ -549,8 +637,7 @@ public class ASURLClassLoader
             return (new Vector(resourcesList)).elements();
         }
 
-        for (Iterator<URLEntry> iter = this.urlSet.iterator(); iter.hasNext();) {
-            final URLEntry urlEntry = iter.next();
+        for (final URLEntry urlEntry : getCandidates(name)) {
             final URL url = findResource0(urlEntry, name);
             if (url != null) {
                 resourcesList.add(url);
@@ -655,6 +742,11 @@ public class ASURLClassLoader
                     }
                 } catch (IOException ioe) {
                     _logger.log(Level.INFO, CULoggerInfo.exceptionInASURLClassLoader, ioe);
+                } catch (IllegalStateException ise) {
+                    // the jar was closed by done()
+                    if (!doneCalled) {
+                        throw ise;
+                    }
                 }
                 return null;
             }
@@ -783,14 +875,14 @@ public class ASURLClassLoader
      * have to be read and reading the bytes. It does not actually define
      * the Class object.
      * <p>
-     * To preclude a race condition on checking 'doneCalled', as well as transient errors
-     * if done() is called while running, this method is 'synchronized'.
+     * Only the url entries given by the package index are searched, without locking.
+     * Should done() be called while running, the class is not found.
 
      * @param name class name in java.lang.Object format
      * @return class bytes as well protection domain information
      * @throws ClassNotFoundException
      */
-    protected synchronized ClassData findClassData(String name) throws ClassNotFoundException {
+    protected ClassData findClassData(String name) throws ClassNotFoundException {
 
         if( doneCalled ) {
             _logger.log(Level.WARNING,
@@ -807,7 +899,7 @@ public class ASURLClassLoader
         // search thru the JARs for a file of the form java/lang/Object.class
         String entryName = name.replace('.', '/') + ".class";
 
-        for (URLEntry u : this.urlSet) {
+        for (URLEntry u : getCandidates(entryName)) {
             if (!u.hasItem(entryName)) {
                 continue;
             }
@@ -999,6 +1091,9 @@ public class ASURLClassLoader
             ensure thread visibility by making it 'volatile'  */
         volatile ProtectionDomain pd = null;
 
+        /** position of the entry in the search order, set when it is added to the index */
+        volatile int position = -1;
+
         URLEntry(URL url) throws IOException {
             source = url;
             init();
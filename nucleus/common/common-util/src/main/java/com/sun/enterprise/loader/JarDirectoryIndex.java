@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.loader;
+
+import com.sun.enterprise.util.CULoggerInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lists the directories holding the entries of a jar, which are the keys
+ * of the package index of an <code>ASURLClassLoader</code>.
+ * <p>
+ * The directories of a jar may be saved in an index file, which is read
+ * instead of the jar as long as the length and the modification time of the
+ * jar do not change.
+ */
+final class JarDirectoryIndex {
+
+    private static final Logger _logger = CULoggerInfo.getLogger();
+
+    /** first item of an index file, changed with the format of the file */
+    private static final String FORMAT = "jar-directory-index-1";
+
+    private static final String SUFFIX = ".idx";
+
+    private JarDirectoryIndex() {
+    }
+
+    /**
+     * Returns the key of an entry or resource name in the package index,
+     * which is the name of its directory. A directory entry is indexed
+     * under its parent, as it may be looked up with or without a trailing
+     * slash.
+     *
+     * @param name the name of the entry or resource
+     * @return the name of the directory, or "" for the root of the jar
+     */
+    static String getKey(String name) {
+        int start = name.startsWith("./") ? 2 : 0;
+        int end = name.length();
+        if (end > start && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = name.lastIndexOf('/', end - 1);
+        return (slash < start) ? "" : name.substring(start, slash);
+    }
+
+    /**
+     * Returns the directories holding the entries of the given jar.
+     *
+     * @param jar the opened jar
+     * @param file the file of the jar
+     * @param indexDir the directory of the index files, or null if the
+     * directories are not saved
+     * @return the keys of the entries of the jar
+     */
+    static Set<String> getDirectories(JarFile jar, File file, File indexDir) {
+        File indexFile = null;
+        if (indexDir != null) {
+            indexFile = new File(indexDir, file.getName() + "-"
+                + Integer.toHexString(file.getAbsolutePath().hashCode()) + SUFFIX);
+            Set<String> dirs = read(indexFile, file);
+            if (dirs != null) {
+                return dirs;
+            }
+        }
+
+        Set<String> dirs = new HashSet<String>();
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            dirs.add(getKey(entries.nextElement().getName()));
+        }
+
+        if (indexFile != null) {
+            write(indexFile, file, dirs);
+        }
+        return dirs;
+    }
+
+    /**
+     * Reads an index file.
+     *
+     * @return the directories, or null if the file is missing, unreadable
+     * or out of date
+     */
+    private static Set<String> read(File indexFile, File file) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (!FORMAT.equals(in.readUTF())
+                    || !file.getAbsolutePath().equals(in.readUTF())
+                    || in.readLong() != file.lastModified()
+                    || in.readLong() != file.length()) {
+                return null;
+            }
+            int count = in.readInt();
+            Set<String> dirs = new HashSet<String>();
+            for (int i = 0; i < count; i++) {
+                dirs.add(in.readUTF());
+            }
+            return dirs;
+        } catch (IOException e) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                    "[ASURLClassLoader] Ignoring unreadable index " + indexFile, e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes an index file. The file is written under a temporary name
+     * and then renamed, so that a loader never reads a partial index.
+     */
+    private static void write(File indexFile, File file, Set<String> dirs) {
+        File indexDir = indexFile.getParentFile();
+        File tempFile = null;
+        try {
+            if (!indexDir.isDirectory() && !indexDir.mkdirs()) {
+                return;
+            }
+            tempFile = File.createTempFile(indexFile.getName(), null, indexDir);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeUTF(FORMAT);
+                out.writeUTF(file.getAbsolutePath());
+                out.writeLong(file.lastModified());
+                out.writeLong(file.length());
+                out.writeInt(dirs.size());
+                for (String dir : dirs) {
+                    out.writeUTF(dir);
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (IOException e) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                    "[ASURLClassLoader] Unable to write index " + indexFile, e);
+            }
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+}
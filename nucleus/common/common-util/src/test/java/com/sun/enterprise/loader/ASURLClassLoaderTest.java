@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import com.sun.enterprise.util.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the package index of ASURLClassLoader.
+ */
+public class ASURLClassLoaderTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("asurlclassloader").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.whack(dir);
+    }
+
+    @Test
+    public void testGetKey() {
+        assertEquals("", JarDirectoryIndex.getKey("a.properties"));
+        assertEquals("", JarDirectoryIndex.getKey("META-INF/"));
+        assertEquals("", JarDirectoryIndex.getKey("META-INF"));
+        assertEquals("META-INF", JarDirectoryIndex.getKey("META-INF/MANIFEST.MF"));
+        assertEquals("com/acme", JarDirectoryIndex.getKey("com/acme/Foo.class"));
+        assertEquals("com/acme", JarDirectoryIndex.getKey("./com/acme/Foo.class"));
+        assertEquals("com", JarDirectoryIndex.getKey("com/acme/"));
+    }
+
+    @Test
+    public void testFindResourceInIndexedJars() throws Exception {
+        File jar1 = createJar("one.jar", "com/acme/a.txt", "one");
+        File jar2 = createJar("two.jar", "com/acme/a.txt", "two", "com/other/b.txt", "two");
+        File classes = new File(dir, "classes");
+        new File(classes, "com/acme").mkdirs();
+
+        ASURLClassLoader loader = new ASURLClassLoader(null);
+        try {
+            loader.appendURL(classes);
+            loader.appendURL(jar1);
+            loader.appendURL(jar2);
+
+            assertEquals("one", read(loader.findResource("com/acme/a.txt")));
+            assertEquals("two", read(loader.findResource("com/other/b.txt")));
+            assertNull(loader.findResource("com/none/c.txt"));
+            assertEquals(2, Collections.list(loader.findResources("com/acme/a.txt")).size());
+
+            // a file added to a directory later on is found before the jars
+            write(new File(classes, "com/acme/a.txt"), "classes");
+            loader.refresh();
+            Enumeration<URL> urls = loader.findResources("com/acme/a.txt");
+            List<URL> list = Collections.list(urls);
+            assertEquals(3, list.size());
+            assertEquals("classes", read(list.get(0)));
+            assertEquals("classes", read(loader.findResource("com/acme/a.txt")));
+        } finally {
+            loader.done();
+        }
+    }
+
+    @Test
+    public void testIndexIsSavedAndReused() throws Exception {
+        File jar = createJar("lib.jar", "com/acme/a.txt", "a");
+        File indexDir = new File(dir, "index");
+
+        Set<String> dirs;
+        try (JarFile jarFile = new JarFile(jar)) {
+            dirs = JarDirectoryIndex.getDirectories(jarFile, jar, indexDir);
+        }
+        assertTrue(dirs.contains("com/acme"));
+        assertEquals(1, indexDir.list().length);
+
+        // an index which is up to date is read instead of the jar
+        File indexFile = indexDir.listFiles()[0];
+        long indexModified = indexFile.lastModified();
+        try (JarFile jarFile = new JarFile(jar)) {
+            assertEquals(dirs, JarDirectoryIndex.getDirectories(jarFile, jar, indexDir));
+        }
+        assertEquals(indexModified, indexFile.lastModified());
+
+        // a changed jar is read again
+        createJar("lib.jar", "com/acme/a.txt", "a", "org/acme/b.txt", "b");
+        jar.setLastModified(jar.lastModified() + 10000);
+        try (JarFile jarFile = new JarFile(jar)) {
+            dirs = JarDirectoryIndex.getDirectories(jarFile, jar, indexDir);
+        }
+        assertTrue(dirs.contains("org/acme"));
+        assertFalse(dirs.contains("org"));
+        assertEquals(1, indexDir.list().length);
+    }
+
+    private File createJar(String name, String... entries) throws IOException {
+        File jar = new File(dir, name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new JarEntry(entries[i]));
+                out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(URL url) throws IOException {
+        try (InputStream in = url.openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -140,6 +140,19 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
 
     private ExecutorService executorService = null;
 
+    private final static String TYPES_CACHE_SIZE_PROPERTY = "org.glassfish.deployment.typesCacheSize";
+
+    private final static int DEFAULT_TYPES_CACHE_SIZE = 0;
+
+    private final int typesCacheSize = Integer.getInteger(TYPES_CACHE_SIZE_PROPERTY, DEFAULT_TYPES_CACHE_SIZE);
+
+    /**
+     * The types parsed for the last deployed applications, reused when an
+     * application is deployed again with the same classes. Disabled unless
+     * the org.glassfish.deployment.typesCacheSize system property is set.
+     */
+    private final DeployableTypesCache typesCache = new DeployableTypesCache(typesCacheSize);
+
     private Collection<ApplicationLifecycleInterceptor> alcInterceptors = Collections.EMPTY_LIST;
     
     public void postConstruct() {
@@ -518,27 +531,72 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
             } else {
 
                 try {
+                    List<ReadableArchive> externalLibArchives = getExternalLibraries(context);
+                    URI location = context.getSource().getURI();
+                    String digest = null;
+                    if (typesCacheSize > 0) {
+                        try {
+                            digest = DeployableTypesCache.getDigest(context.getSource(), externalLibArchives);
+                        } catch (IOException e) {
+                            if (logger.isLoggable(Level.FINE)) {
+                                logger.log(Level.FINE, "Unable to compute the digest of " + location, e);
+                            }
+                        }
+                    }
+                    if (digest != null) {
+                        DeployableTypesCache.Entry cached = typesCache.get(location, digest);
+                        if (cached != null) {
+                            if (logger.isLoggable(Level.FINE)) {
+                                logger.log(Level.FINE, "Reusing the types parsed for " + location);
+                            }
+                            for (ReadableArchive externalLibArchive : externalLibArchives) {
+                                externalLibArchive.close();
+                            }
+                            Types cachedTypes = cached.context.getTypes();
+                            context.addTransientAppMetaData(Types.class.getName(), cachedTypes);
+                            context.addTransientAppMetaData(Parser.class.getName(),
+                                new DeployableTypesCache.ReadOnlyParser(cached.context));
+                            return cachedTypes;
+                        }
+                    }
+
                     // scan the jar and store the result in the deployment context.
                     ParsingContext parsingContext = new ParsingContext.Builder().logger(context.getLogger()).executorService(executorService).build();
                     Parser parser = new Parser(parsingContext);
                     ReadableArchiveScannerAdapter scannerAdapter = new ReadableArchiveScannerAdapter(parser, context.getSource());
                     parser.parse(scannerAdapter, null);
-                    for (ReadableArchive externalLibArchive :
-                        getExternalLibraries(context)) {
-                        ReadableArchiveScannerAdapter libAdapter = null;
+                    // the external libraries are parsed along with the archive,
+                    // each one is closed once it has been parsed.
+                    for (final ReadableArchive externalLibArchive : externalLibArchives) {
+                        final ReadableArchiveScannerAdapter libAdapter = new ReadableArchiveScannerAdapter(parser, externalLibArchive);
                         try {
-                            libAdapter = new ReadableArchiveScannerAdapter(parser, externalLibArchive);
-                            parser.parse(libAdapter, null);
-                        } finally {
-                            if (libAdapter!=null) {
-                                libAdapter.close();
-                            }
+                            parser.parse(libAdapter, new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        libAdapter.close();
+                                    } catch (IOException e) {
+                                        logger.log(Level.SEVERE, KernelLoggerInfo.exceptionWhileClosing,
+                                                new Object[] { externalLibArchive.getURI(), e });
+                                    }
+                                }
+                            });
+                        } catch (IOException e) {
+                            libAdapter.close();
+                            throw e;
                         }
                     }
                     parser.awaitTermination();
                     scannerAdapter.close();
                     context.addTransientAppMetaData(Types.class.getName(), parsingContext.getTypes());
-                    context.addTransientAppMetaData(Parser.class.getName(), parser);
+                    if (digest != null) {
+                        // the types outlive this deployment, nothing may add to them
+                        typesCache.put(location, digest, parsingContext);
+                        context.addTransientAppMetaData(Parser.class.getName(),
+                            new DeployableTypesCache.ReadOnlyParser(parsingContext));
+                    } else {
+                        context.addTransientAppMetaData(Parser.class.getName(), parser);
+                    }
                     return parsingContext.getTypes();
                 } catch(InterruptedException e) {
                     throw new IOException(e);
@@ -1082,6 +1140,11 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
             events.send(new Event(Deployment.UNDEPLOYMENT_FAILURE, context));            
         }
         
+        if (typesCacheSize > 0 && !Boolean.TRUE.equals(params.isredeploy) && info.getSource() != null) {
+            // the types are only kept for an application deployed again
+            typesCache.remove(info.getSource().getURI());
+        }
+
         appRegistry.remove(appName);
     }
 
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.v3.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.glassfish.api.deployment.archive.ReadableArchive;
+import org.glassfish.hk2.classmodel.reflect.ArchiveAdapter;
+import org.glassfish.hk2.classmodel.reflect.Parser;
+import org.glassfish.hk2.classmodel.reflect.ParsingContext;
+
+/**
+ * Keeps the <code>Types</code> parsed for the last deployments of an
+ * application, so that an application which is deployed again with the
+ * same content is not parsed again.
+ * <p>
+ * An entry is looked up by the location of the application, and is only
+ * used if the digest of the classes of the application and of its external
+ * libraries did not change. The least recently used entries are removed
+ * once the cache holds more than the given number of applications.
+ * <p>
+ * The types of an entry are shared by the deployments that use it, so they
+ * are only handed out through a {@link ReadOnlyParser}, which refuses to
+ * parse more archives into them.
+ */
+final class DeployableTypesCache {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<URI, Entry> entries;
+
+    DeployableTypesCache(final int maxSize) {
+        entries = new LinkedHashMap<URI, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the digest of the classes of an application and of its
+     * external libraries, that is of what the parser reads: the content of
+     * the class files, and the name, size and CRC of the entries of the jar
+     * files, which are read from their central directory. The other files
+     * are not read.
+     *
+     * @param source the application
+     * @param libraries the external libraries which are parsed with it
+     * @return the digest, or null if the application is not a local file
+     * @throws IOException when a file cannot be read
+     */
+    static String getDigest(ReadableArchive source, List<ReadableArchive> libraries)
+        throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        File file = getFile(source);
+        if (file == null) {
+            return null;
+        }
+        update(digest, file, "", buffer);
+        for (ReadableArchive library : libraries) {
+            File libraryFile = getFile(library);
+            if (libraryFile == null) {
+                return null;
+            }
+            update(digest, libraryFile, libraryFile.getAbsolutePath(), buffer);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    /**
+     * Returns the types parsed for the application at the given location,
+     * or null if there are none or if they were parsed from another content.
+     */
+    synchronized Entry get(URI location, String digest) {
+        Entry entry = entries.get(location);
+        if (entry != null && !entry.digest.equals(digest)) {
+            entries.remove(location);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(URI location, String digest, ParsingContext context) {
+        entries.put(location, new Entry(digest, context));
+    }
+
+    /**
+     * Removes the types parsed for the application at the given location.
+     */
+    synchronized void remove(URI location) {
+        entries.remove(location);
+    }
+
+    private static File getFile(ReadableArchive archive) {
+        URI uri = archive.getURI();
+        if (uri == null || !"file".equals(uri.getScheme())) {
+            return null;
+        }
+        return new File(uri);
+    }
+
+    /**
+     * Adds the given archive or directory to the digest.
+     */
+    private static void update(MessageDigest digest, File file, String name, byte[] buffer)
+        throws IOException {
+        if (file.isDirectory()) {
+            updateDirectory(digest, file, name, buffer);
+        } else {
+            updateJar(digest, file, name);
+        }
+    }
+
+    /**
+     * Adds the class files and the jar files under the given directory, in
+     * a stable order, to the digest.
+     */
+    private static void updateDirectory(MessageDigest digest, File directory, String name,
+        byte[] buffer) throws IOException {
+        String[] children = directory.list();
+        if (children == null) {
+            throw new IOException("Unable to list " + directory);
+        }
+        Arrays.sort(children);
+        for (String child : children) {
+            File file = new File(directory, child);
+            String childName = name + "/" + child;
+            if (file.isDirectory()) {
+                updateDirectory(digest, file, childName, buffer);
+            } else if (child.endsWith(".class")) {
+                updateClass(digest, file, childName, buffer);
+            } else if (child.endsWith(".jar")) {
+                updateJar(digest, file, childName);
+            }
+        }
+    }
+
+    private static void updateClass(MessageDigest digest, File file, String name, byte[] buffer)
+        throws IOException {
+        // the length keeps the content of a file apart from the next name
+        digest.update((name + '\0' + file.length() + '\0').getBytes(StandardCharsets.UTF_8));
+        try (InputStream is = new FileInputStream(file)) {
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+    }
+
+    /**
+     * Adds the name, the size and the CRC of the entries of the given jar
+     * to the digest, without reading their content.
+     */
+    private static void updateJar(MessageDigest digest, File file, String name)
+        throws IOException {
+        digest.update((name + '\0').getBytes(StandardCharsets.UTF_8));
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                digest.update((entry.getName() + '\0' + entry.getSize() + '\0'
+                    + entry.getCrc() + '\0').getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * The types parsed for an application.
+     */
+    static final class Entry {
+
+        private final String digest;
+
+        final ParsingContext context;
+
+        Entry(String digest, ParsingContext context) {
+            this.digest = digest;
+            this.context = context;
+        }
+    }
+
+    /**
+     * A parser which only gives access to the types parsed for an
+     * application, so that the later deployments which share them see the
+     * same types.
+     */
+    static final class ReadOnlyParser extends Parser {
+
+        ReadOnlyParser(ParsingContext context) {
+            super(context);
+        }
+
+        @Override
+        public void parse(File source, Runnable doneHook) throws IOException {
+            throw new UnsupportedOperationException(
+                "The cached types of an application cannot be extended with " + source);
+        }
+
+        @Override
+        public Future<Result> parse(ArchiveAdapter source, Runnable doneHook) throws IOException {
+            throw new UnsupportedOperationException(
+                "The cached types of an application cannot be extended with " + source.getURI());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2021 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.enterprise.v3.server;
+
+import com.sun.enterprise.deploy.shared.FileArchive;
+import com.sun.enterprise.util.io.FileUtils;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.glassfish.api.deployment.archive.ReadableArchive;
+import org.glassfish.hk2.classmodel.reflect.Parser;
+import org.glassfish.hk2.classmodel.reflect.ParsingContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the cache of the types parsed for the deployed applications.
+ */
+public class DeployableTypesCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("typescache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.whack(dir);
+    }
+
+    @Test
+    public void testDigestFollowsClasses() throws IOException {
+        File app = new File(dir, "app");
+        write(new File(app, "WEB-INF/classes/Foo.class"), "foo");
+        write(new File(app, "index.html"), "index");
+        writeJar(new File(app, "WEB-INF/lib/a.jar"), "A.class", "a");
+        File lib = new File(dir, "lib.jar");
+        writeJar(lib, "Lib.class", "lib");
+
+        List<ReadableArchive> libs = Collections.singletonList(open(lib));
+        String digest = DeployableTypesCache.getDigest(open(app), libs);
+        assertNotNull(digest);
+        assertEquals(digest, DeployableTypesCache.getDigest(open(app), libs));
+
+        // the modification time alone does not change the digest
+        new File(app, "WEB-INF/classes/Foo.class").setLastModified(System.currentTimeMillis() - 10000);
+        assertEquals(digest, DeployableTypesCache.getDigest(open(app), libs));
+
+        // nor do the files which are not parsed
+        write(new File(app, "index.html"), "changed");
+        assertEquals(digest, DeployableTypesCache.getDigest(open(app), libs));
+
+        write(new File(app, "WEB-INF/classes/Foo.class"), "changed");
+        String changed = DeployableTypesCache.getDigest(open(app), libs);
+        assertNotEquals(digest, changed);
+
+        writeJar(new File(app, "WEB-INF/lib/a.jar"), "A.class", "changed");
+        String jarChanged = DeployableTypesCache.getDigest(open(app), libs);
+        assertNotEquals(changed, jarChanged);
+
+        writeJar(lib, "Lib.class", "changed");
+        assertNotEquals(jarChanged, DeployableTypesCache.getDigest(open(app), libs));
+        assertNotEquals(jarChanged, DeployableTypesCache.getDigest(open(app),
+            Collections.<ReadableArchive>emptyList()));
+
+        // a class moved to another directory changes the digest
+        File moved = new File(app, "WEB-INF/Foo.class");
+        new File(app, "WEB-INF/classes/Foo.class").renameTo(moved);
+        assertNotEquals(jarChanged, DeployableTypesCache.getDigest(open(app), libs));
+    }
+
+    @Test
+    public void testDigestOfArchive() throws IOException {
+        File app = new File(dir, "app.jar");
+        writeJar(app, "Foo.class", "foo");
+        List<ReadableArchive> libs = Collections.emptyList();
+        String digest = DeployableTypesCache.getDigest(open(app), libs);
+        assertNotNull(digest);
+        assertEquals(digest, DeployableTypesCache.getDigest(open(app), libs));
+
+        writeJar(app, "Foo.class", "changed");
+        assertNotEquals(digest, DeployableTypesCache.getDigest(open(app), libs));
+    }
+
+    @Test
+    public void testGetAndEviction() {
+        DeployableTypesCache cache = new DeployableTypesCache(2);
+        ParsingContext context = new ParsingContext.Builder().build();
+        URI one = new File(dir, "one").toURI();
+        URI two = new File(dir, "two").toURI();
+        URI three = new File(dir, "three").toURI();
+
+        cache.put(one, "a", context);
+        assertSame(context, cache.get(one, "a").context);
+
+        // an entry of another content is dropped
+        assertNull(cache.get(one, "b"));
+        assertNull(cache.get(one, "a"));
+
+        cache.put(one, "a", context);
+        cache.put(two, "a", context);
+        cache.get(one, "a");
+        cache.put(three, "a", context);
+        assertNotNull(cache.get(one, "a"));
+        assertNull(cache.get(two, "a"));
+        assertNotNull(cache.get(three, "a"));
+
+        cache.remove(one);
+        assertNull(cache.get(one, "a"));
+        assertNotNull(cache.get(three, "a"));
+    }
+
+    @Test
+    public void testDisabled() {
+        DeployableTypesCache cache = new DeployableTypesCache(0);
+        URI one = new File(dir, "one").toURI();
+        cache.put(one, "a", new ParsingContext.Builder().build());
+        assertNull(cache.get(one, "a"));
+    }
+
+    @Test
+    public void testReadOnlyParser() throws IOException {
+        ParsingContext context = new ParsingContext.Builder().build();
+        Parser parser = new DeployableTypesCache.ReadOnlyParser(context);
+        assertSame(context, parser.getContext());
+        File app = new File(dir, "app");
+        write(new File(app, "Foo.class"), "foo");
+        try {
+            parser.parse(app, null);
+            fail("The cached types were extended");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        parser.close();
+    }
+
+    private static ReadableArchive open(File file) throws IOException {
+        FileArchive archive = new FileArchive();
+        archive.open(file.toURI());
+        return archive;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeJar(File file, String entry, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+}
@@ -460,7 +460,8 @@ public class DeploymentContextImpl implements ExtendedDeploymentContext, PreDest
             // for undeploy or deploy failure roll back
 
             // need to remove the generated directories...
-            // need to remove generated/xml, generated/ejb, generated/jsp, 
+            // need to remove generated/xml, generated/ejb, generated/jsp,
+            // generated/classindex
 
             // remove generated/xml
             File generatedXmlRoot = getScratchDir("xml");
@@ -476,6 +477,10 @@ public class DeploymentContextImpl implements ExtendedDeploymentContext, PreDest
             // recursively delete...
             FileUtils.whack(generatedJspRoot);
 
+            // remove generated/classindex
+            File generatedClassIndexRoot = getScratchDir("classindex");
+            FileUtils.whack(generatedClassIndexRoot);
+
             // remove the internal archive directory which holds the original
             // archive (and possibly deployment plan) that cluster sync can use
             FileUtils.whack(getAppInternalDir());